@@ -0,0 +1,16 @@
+package nur.kg.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// JMH entry point that always attaches the GC profiler, so every suite reports gc.alloc.rate.norm (bytes/op)
+// next to its throughput. Accepts the usual JMH command line, e.g. "MarketState -f 1 -wi 3 -i 5".
+public final class Benchmarks {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder().parent(cli).addProfiler(GCProfiler.class).build()).run();
+    }
+}
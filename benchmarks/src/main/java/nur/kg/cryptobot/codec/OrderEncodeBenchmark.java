@@ -0,0 +1,61 @@
+package nur.kg.cryptobot.codec;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.OrderType;
+import nur.kg.domain.enums.Side;
+import nur.kg.domain.enums.Symbol;
+import nur.kg.domain.request.OrderRequest;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+// Order body encoding into the client's pooled netty buffers: OrderRequestJsonEncoder against the default Jackson encoder.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderEncodeBenchmark {
+
+    private static final ResolvableType ORDER = ResolvableType.forClass(OrderRequest.class);
+
+    private final NettyDataBufferFactory buffers = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+    private final OrderRequestJsonEncoder encoder = new OrderRequestJsonEncoder();
+    private final Jackson2JsonEncoder jackson = new Jackson2JsonEncoder();
+    private OrderRequest order;
+
+    @Setup
+    public void setup() {
+        order = OrderRequest.builder()
+                .id("199c82cc0000000cafe000000000001").symbol(Symbol.values()[0]).side(Side.BUY).type(OrderType.LIMIT)
+                .qty(new BigDecimal("0.001")).limitPrice(new BigDecimal("65123.45"))
+                .tp(new BigDecimal("65125.45")).sl(new BigDecimal("65122.95"))
+                .reason("open_long").exchange(Exchange.values()[0]).botId("bench")
+                .build();
+    }
+
+    @Benchmark
+    public int orderEncoder() {
+        return release(encoder.encodeValue(order, buffers, ORDER, MediaType.APPLICATION_JSON, null));
+    }
+
+    @Benchmark
+    public int jackson() {
+        return release(jackson.encodeValue(order, buffers, ORDER, MediaType.APPLICATION_JSON, null));
+    }
+
+    private static int release(DataBuffer buffer) {
+        int size = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return size;
+    }
+}
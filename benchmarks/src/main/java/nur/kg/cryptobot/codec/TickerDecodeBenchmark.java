@@ -0,0 +1,155 @@
+package nur.kg.cryptobot.codec;
+
+import nur.kg.cryptobot.journal.TickJournalReader;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.Symbol;
+import nur.kg.cryptobot.market.FixedPoint;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Tick stream decoding, scored per tick: TickerNdjsonDecoder's line decoder against the default Jackson decoder, and
+// TickFrameCodec on the same ticks as binary frames. Runs on recorded ticks with -p ticks=<path>, an NDJSON file or a
+// tick journal directory, else on synthetic ones. The ticks are cut into windows of TICKS, decoded one per invocation.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickerDecodeBenchmark {
+
+    private static final int TICKS = 1000;
+    private static final int CHUNK = 8 * 1024;
+    private static final ResolvableType TICKER = ResolvableType.forClass(TickerDto.class);
+
+    // empty for synthetic ticks
+    @Param({""})
+    public String ticks;
+
+    private List<List<byte[]>> windows;
+    private List<List<byte[]>> frameWindows;
+    private int next;
+    private Jackson2JsonDecoder jackson;
+
+    @Setup
+    public void setup() throws IOException {
+        List<byte[]> lines = ticks.isEmpty() ? synthetic() : recorded(Path.of(ticks));
+        if (lines.isEmpty()) throw new IllegalArgumentException("No priced ticks in " + ticks);
+
+        TickerLineParser parser = new TickerLineParser();
+        windows = new ArrayList<>();
+        frameWindows = new ArrayList<>();
+        for (int w = 0; w < Math.max(1, lines.size() / TICKS); w++) {
+            ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+            ByteBuffer frames = ByteBuffer.allocate(TICKS * TickFrameCodec.FRAME_LENGTH);
+            for (int i = 0; i < TICKS; i++) {
+                // a file shorter than a window repeats
+                byte[] line = lines.get((w * TICKS + i) % lines.size());
+                ndjson.write(line, 0, line.length);
+                ndjson.write('\n');
+                parser.parse(ByteBuffer.wrap(line), 0, line.length);
+                TickFrameCodec.encode(frames, parser.symbol(), parser.exchange(), FixedPoint.toScaled(parser.last()), 0, i);
+            }
+            windows.add(chunks(ndjson.toByteArray()));
+            frameWindows.add(chunks(frames.array()));
+        }
+        jackson = new Jackson2JsonDecoder();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TICKS)
+    public void lineDecoder(Blackhole bh) {
+        TickerNdjsonDecoder.LineDecoder decoder = new TickerNdjsonDecoder.LineDecoder(64 * 1024);
+        for (byte[] chunk : window(windows)) {
+            for (TickerDto t : decoder.feed(DefaultDataBufferFactory.sharedInstance.wrap(chunk))) bh.consume(t);
+        }
+        bh.consume(decoder.finish());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TICKS)
+    public Long jackson() {
+        Flux<DataBuffer> buffers = Flux.fromIterable(window(windows)).map(DefaultDataBufferFactory.sharedInstance::wrap);
+        return jackson.decode(buffers, TICKER, MediaType.APPLICATION_NDJSON, null).count().block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TICKS)
+    public Long binaryFrames() {
+        Flux<DataBuffer> buffers = Flux.fromIterable(window(frameWindows)).map(DefaultDataBufferFactory.sharedInstance::wrap);
+        return TickFrameCodec.decode(buffers).count().block();
+    }
+
+    private List<byte[]> window(List<List<byte[]>> all) {
+        List<byte[]> window = all.get(next);
+        next = next + 1 == all.size() ? 0 : next + 1;
+        return window;
+    }
+
+    private static List<byte[]> synthetic() {
+        Random random = new Random(1);
+        Symbol[] symbols = Symbol.values();
+        Exchange[] exchanges = Exchange.values();
+        List<byte[]> lines = new ArrayList<>(TICKS);
+        for (int i = 0; i < TICKS; i++) {
+            long cents = (60000 + random.nextInt(10000)) * 100L + random.nextInt(100);
+            lines.add(("{\"symbol\":\"" + symbols[random.nextInt(symbols.length)]
+                    + "\",\"exchange\":\"" + exchanges[random.nextInt(exchanges.length)]
+                    + "\",\"last\":" + BigDecimal.valueOf(cents, 2).toPlainString()
+                    + ",\"bid\":" + (60000 + random.nextInt(10000)) + ".5"
+                    + ",\"ask\":" + (60000 + random.nextInt(10000)) + ".7"
+                    + "}").getBytes(StandardCharsets.UTF_8));
+        }
+        return lines;
+    }
+
+    // the lines of an NDJSON file, or the records of a tick journal written out as such lines; ticks without a symbol
+    // or a last price are left out, as neither a frame nor a strategy has any use for them
+    private static List<byte[]> recorded(Path path) throws IOException {
+        List<byte[]> lines = new ArrayList<>();
+        if (Files.isDirectory(path)) {
+            new TickJournalReader(path).forEach((receivedAt, symbol, exchange, price, scale, sequence) -> {
+                if (price == TickJournalReader.NO_PRICE) return;
+                lines.add(("{\"symbol\":\"" + symbol + "\""
+                        + (exchange == null ? "" : ",\"exchange\":\"" + exchange + "\"")
+                        + ",\"last\":" + FixedPoint.toDecimal(price, scale).toPlainString()
+                        + "}").getBytes(StandardCharsets.UTF_8));
+            });
+            return lines;
+        }
+        TickerLineParser parser = new TickerLineParser();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            if (parser.parse(ByteBuffer.wrap(bytes), 0, bytes.length) && parser.symbol() != null && parser.hasLast()) {
+                lines.add(bytes);
+            }
+        }
+        return lines;
+    }
+
+    private static List<byte[]> chunks(byte[] input) {
+        List<byte[]> chunks = new ArrayList<>();
+        for (int i = 0; i < input.length; i += CHUNK) chunks.add(Arrays.copyOfRange(input, i, Math.min(input.length, i + CHUNK)));
+        return chunks;
+    }
+}
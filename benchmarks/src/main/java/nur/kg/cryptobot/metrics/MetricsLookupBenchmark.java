@@ -0,0 +1,104 @@
+package nur.kg.cryptobot.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import nur.kg.cryptobot.config.MetricsProperties;
+import nur.kg.cryptobot.market.MarketIds;
+import nur.kg.domain.enums.Symbol;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Per-tick metric work of a strategy, against the production registry. before* is the former path: a
+// computeIfAbsent lookup per meter, a Counter and a price sample on every tick. after* uses MarketMeters handles
+// held in strategy state, a striped tick adder and, in afterTickSampled, one price sample in 16 ticks.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsLookupBenchmark {
+
+    private static final Symbol[] SYMBOLS = Symbol.values();
+    private static final BigDecimal PRICE = new BigDecimal("65123.45");
+
+    private final Map<Symbol, Counter> tickCounters = new ConcurrentHashMap<>();
+    private final Map<Symbol, DistributionSummary> priceSummaries = new ConcurrentHashMap<>();
+    private MeterRegistry registry;
+    private MarketMeters[] held;
+    private MarketMeters[] heldSampled;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int i;
+
+        int next() {
+            return i++ % SYMBOLS.length;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        MetricsService metrics = new MetricsService(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+        MetricsService sampled = new MetricsService(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), new MetricsProperties(16));
+        held = new MarketMeters[SYMBOLS.length];
+        heldSampled = new MarketMeters[SYMBOLS.length];
+        for (int i = 0; i < SYMBOLS.length; i++) {
+            tickCounter(SYMBOLS[i]);
+            priceSummary(SYMBOLS[i]);
+            held[i] = metrics.marketMeters(MarketIds.of(null, SYMBOLS[i]));
+            heldSampled[i] = sampled.marketMeters(MarketIds.of(null, SYMBOLS[i]));
+        }
+    }
+
+    @Benchmark
+    public void beforeTick(Cursor cursor) {
+        Symbol symbol = SYMBOLS[cursor.next()];
+        tickCounter(symbol).increment();
+        priceSummary(symbol).record(PRICE.doubleValue());
+    }
+
+    @Benchmark
+    public void afterTick(Cursor cursor) {
+        MarketMeters meters = held[cursor.next()];
+        meters.tickReceived();
+        meters.recordPrice(PRICE);
+    }
+
+    @Benchmark
+    public void afterTickSampled(Cursor cursor) {
+        MarketMeters meters = heldSampled[cursor.next()];
+        meters.tickReceived();
+        meters.recordPrice(PRICE);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void beforeTickCounterContended(Cursor cursor) {
+        tickCounter(SYMBOLS[cursor.next()]).increment();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void afterTickCounterContended(Cursor cursor) {
+        held[cursor.next()].tickReceived();
+    }
+
+    private Counter tickCounter(Symbol symbol) {
+        return tickCounters.computeIfAbsent(symbol, m ->
+                Counter.builder("market.ticks.received").tags("market", m.name()).register(registry));
+    }
+
+    private DistributionSummary priceSummary(Symbol symbol) {
+        return priceSummaries.computeIfAbsent(symbol, m ->
+                DistributionSummary.builder("market.tick.price").baseUnit("USD").tags("market", m.name()).register(registry));
+    }
+}
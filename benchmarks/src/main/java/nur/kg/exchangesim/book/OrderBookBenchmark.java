@@ -0,0 +1,73 @@
+package nur.kg.exchangesim.book;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// One order into the simulator's book: plain limits crossing around a fixed mid, and bot-style bracket entries whose
+// children rest, trigger and cancel each other. In both a tick every sixteenth order walks the price across the
+// book; nothing cancels in the simulator, so the ticks are what keeps resting depth bounded.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBookBenchmark {
+
+    private static final int ORDERS = 1 << 14;
+    private static final long MID = 6_500_000;
+    private static final long TICK = 1;
+
+    private final long[] prices = new long[ORDERS];
+    private final long[] qtys = new long[ORDERS];
+    private final int[] sides = new int[ORDERS];
+    private final long[] walk = new long[ORDERS];
+    private OrderBook limits;
+    private OrderBook brackets;
+    private long fills;
+    private int i;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        long price = MID;
+        for (int o = 0; o < ORDERS; o++) {
+            sides[o] = random.nextInt(2);
+            prices[o] = MID + (random.nextInt(128) - 64) * TICK;
+            qtys[o] = 1 + random.nextInt(8);
+            price += (random.nextInt(21) - 10) * TICK;
+            price = Math.max(MID - 100, Math.min(MID + 100, price));
+            walk[o] = price;
+        }
+        OrderBook.FillListener count = (att, kind, side, px, qty, remaining) -> fills++;
+        limits = new OrderBook(count, ORDERS);
+        brackets = new OrderBook(count, ORDERS);
+        for (int o = 0; o < ORDERS; o++) limit(o);
+    }
+
+    @Benchmark
+    public void limit(Blackhole bh) {
+        limit(i++ & (ORDERS - 1));
+        bh.consume(fills);
+    }
+
+    @Benchmark
+    public void bracketWithTicks(Blackhole bh) {
+        int o = i++ & (ORDERS - 1);
+        long last = walk[o];
+        boolean buy = sides[o] == OrderBook.BUY;
+        long offset = 20 * TICK;
+        brackets.submit(sides[o], buy ? last - TICK : last + TICK, qtys[o],
+                buy ? last + offset : last - offset, buy ? last - offset : last + offset, null);
+        if ((o & 15) == 15) brackets.onTick(last);
+        bh.consume(fills);
+    }
+
+    private void limit(int o) {
+        limits.submit(sides[o], prices[o], qtys[o], OrderBook.NONE, OrderBook.NONE, null);
+        if ((o & 15) == 15) limits.onTick(walk[o]);
+    }
+}
@@ -0,0 +1,46 @@
+package nur.kg.rsibot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nur.kg.cryptobot.client.OrderIds;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.Side;
+import nur.kg.domain.enums.Symbol;
+import nur.kg.domain.request.OrderRequest;
+import nur.kg.rsibot.config.BotProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+// OrderRequest construction for an RSI signal: limit, TP and SL prices, reason string, id and builder.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RsiOrderBenchmark {
+
+    private RsiTrendService service;
+    private TickerDto tick;
+
+    @Setup
+    public void setup() {
+        BotProperties properties = new BotProperties("bench", 14, new BigDecimal("0.01"), new BigDecimal("0.02"), new BigDecimal("0.001"));
+        service = new RsiTrendService(properties, new MetricsService(new SimpleMeterRegistry()), null, null, Clock.systemUTC());
+        tick = TickerDto.builder().symbol(Symbol.values()[0]).exchange(Exchange.values()[0]).last(new BigDecimal("65123.45")).build();
+    }
+
+    @Benchmark
+    public OrderRequest buyLimit() {
+        return service.toLimitOrder(tick, Side.BUY, "trend_up", OrderIds.next());
+    }
+
+    @Benchmark
+    public OrderRequest sellLimit() {
+        return service.toLimitOrder(tick, Side.SELL, "trend_down", OrderIds.next());
+    }
+}
@@ -1,11 +1,13 @@
 package nur.kg.rsibot.service;
 
 import nur.kg.domain.enums.Position;
+import nur.kg.rsibot.service.DoubleRsiState.Trend;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Instant;
 
+// Baseline for RsiStateBenchmark: the BigDecimal RSI state the bot ran on before DoubleRsiState replaced it.
 public class RsiState {
     final int period;
     boolean seeded = false;
@@ -17,7 +19,6 @@ public class RsiState {
     double rsi = 50.0;
 
     // === Trend state derived from RS (avgGain / avgLoss)
-    public enum Trend { UP, DOWN, FLAT }
     private Trend trend = Trend.FLAT;
     private BigDecimal rs = BigDecimal.ONE; // RS = avgGain / avgLoss
 
@@ -0,0 +1,61 @@
+package nur.kg.rsibot.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// One tick through the RSI state, BigDecimal RsiState against DoubleRsiState.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RsiStateBenchmark {
+
+    private static final int PRICES = 4096;
+
+    @Param({"14"})
+    public int period;
+
+    private BigDecimal[] decimals;
+    private double[] doubles;
+    private RsiState bigDecimal;
+    private DoubleRsiState primitive;
+    private int i;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        decimals = new BigDecimal[PRICES];
+        doubles = new double[PRICES];
+        BigDecimal price = new BigDecimal("65000.00");
+        for (int p = 0; p < PRICES; p++) {
+            price = price.add(BigDecimal.valueOf(random.nextInt(2001) - 1000, 2));
+            decimals[p] = price;
+            doubles[p] = price.doubleValue();
+        }
+        bigDecimal = new RsiState(period);
+        primitive = new DoubleRsiState(period, Clock.systemUTC());
+        for (int p = 0; p < PRICES; p++) {
+            bigDecimal.update(decimals[p]);
+            primitive.update(doubles[p]);
+        }
+    }
+
+    @Benchmark
+    public void bigDecimal(Blackhole bh) {
+        bigDecimal.update(decimals[i++ & (PRICES - 1)]);
+        bh.consume(bigDecimal.trend());
+    }
+
+    @Benchmark
+    public void primitive(Blackhole bh) {
+        primitive.update(doubles[i++ & (PRICES - 1)]);
+        bh.consume(primitive.trend());
+    }
+}
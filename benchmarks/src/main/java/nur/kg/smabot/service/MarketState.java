@@ -11,6 +11,7 @@ import java.time.Instant;
 import java.util.ArrayDeque;
 import java.util.Deque;
 
+// Baseline for MarketStateBenchmark: the BigDecimal SMA windows the bot ran on before FixedPointMarketState replaced them.
 public class MarketState {
     private final Deque<BigDecimal> shortWindow = new ArrayDeque<>();
     private final Deque<BigDecimal> longWindow = new ArrayDeque<>();
@@ -59,4 +60,4 @@ public class MarketState {
     void markAction() {
         lastActionAt = Instant.now();
     }
-}
\ No newline at end of file
+}
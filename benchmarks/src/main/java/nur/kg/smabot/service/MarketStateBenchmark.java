@@ -0,0 +1,66 @@
+package nur.kg.smabot.service;
+
+import nur.kg.cryptobot.market.FixedPoint;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// One tick through the SMA windows: update plus both averages, BigDecimal MarketState against FixedPointMarketState.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarketStateBenchmark {
+
+    private static final int PRICES = 4096;
+
+    @Param({"20:100"})
+    public String windows;
+
+    private BigDecimal[] decimals;
+    private long[] scaled;
+    private MarketState bigDecimal;
+    private FixedPointMarketState fixedPoint;
+    private int i;
+
+    @Setup
+    public void setup() {
+        int shortSize = Integer.parseInt(windows.split(":")[0]);
+        int longSize = Integer.parseInt(windows.split(":")[1]);
+        Random random = new Random(1);
+        decimals = new BigDecimal[PRICES];
+        scaled = new long[PRICES];
+        BigDecimal price = new BigDecimal("65000.00");
+        for (int p = 0; p < PRICES; p++) {
+            price = price.add(BigDecimal.valueOf(random.nextInt(2001) - 1000, 2));
+            decimals[p] = price;
+            scaled[p] = FixedPoint.toScaled(price);
+        }
+        bigDecimal = new MarketState(shortSize, longSize);
+        fixedPoint = new FixedPointMarketState(shortSize, longSize, Clock.systemUTC());
+        for (int p = 0; p < PRICES; p++) {
+            bigDecimal.update(decimals[p]);
+            fixedPoint.update(scaled[p]);
+        }
+    }
+
+    @Benchmark
+    public void bigDecimal(Blackhole bh) {
+        bigDecimal.update(decimals[i++ & (PRICES - 1)]);
+        bh.consume(bigDecimal.shortAverage());
+        bh.consume(bigDecimal.longAverage());
+    }
+
+    @Benchmark
+    public void fixedPoint(Blackhole bh) {
+        fixedPoint.update(scaled[i++ & (PRICES - 1)]);
+        bh.consume(fixedPoint.shortAverage());
+        bh.consume(fixedPoint.longAverage());
+    }
+}
@@ -0,0 +1,41 @@
+package nur.kg.smabot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nur.kg.cryptobot.client.OrderIds;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.Side;
+import nur.kg.domain.enums.Symbol;
+import nur.kg.domain.request.OrderRequest;
+import nur.kg.smabot.config.BotProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+// OrderRequest construction for an SMA signal: bracket prices, id and builder.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SmaOrderBenchmark {
+
+    private SmaMarketService service;
+    private TickerDto tick;
+
+    @Setup
+    public void setup() {
+        service = new SmaMarketService(new BotProperties("bench", 20, 100),
+                new MetricsService(new SimpleMeterRegistry()), null, null, Clock.systemUTC());
+        tick = TickerDto.builder().symbol(Symbol.values()[0]).exchange(Exchange.values()[0]).last(new BigDecimal("65123.45")).build();
+    }
+
+    @Benchmark
+    public OrderRequest openWithBracket() {
+        return service.toOpenRequestWithBracket(tick, Side.BUY, "open_long", OrderIds.next());
+    }
+}
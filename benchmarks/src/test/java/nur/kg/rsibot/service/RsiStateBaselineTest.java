@@ -0,0 +1,42 @@
+package nur.kg.rsibot.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// DoubleRsiState against the BigDecimal baseline it replaced, the pair RsiStateBenchmark measures.
+class RsiStateBaselineTest {
+
+    @Test
+    void staysWithinToleranceOfBigDecimalState() {
+        assertWithinTolerance(14, 42L);
+        assertWithinTolerance(5, 7L);
+    }
+
+    private static void assertWithinTolerance(int period, long seed) {
+        Random random = new Random(seed);
+        RsiState reference = new RsiState(period);
+        DoubleRsiState fast = new DoubleRsiState(period, Clock.systemUTC());
+
+        BigDecimal price = new BigDecimal("65000.00");
+        for (int i = 0; i < 50_000; i++) {
+            price = price.add(BigDecimal.valueOf(random.nextInt(2001) - 1000, 2));
+            reference.update(price);
+            fast.update(price.doubleValue());
+
+            assertEquals(reference.ready(), fast.ready(), "ready at tick " + i);
+            if (!reference.ready()) continue;
+
+            assertEquals(reference.rsi(), fast.rsi(), DoubleRsiState.RSI_TOLERANCE, "rsi at tick " + i);
+            double rs = reference.rs().doubleValue();
+            assertEquals(rs, fast.rs(), Math.abs(rs) * DoubleRsiState.RS_TOLERANCE, "rs at tick " + i);
+            boolean nearThreshold = Math.abs(rs - 1.05) < 1.05 * DoubleRsiState.RS_TOLERANCE
+                    || Math.abs(rs - 0.95) < 0.95 * DoubleRsiState.RS_TOLERANCE;
+            if (!nearThreshold) assertEquals(reference.trend(), fast.trend(), "trend at tick " + i);
+        }
+    }
+}
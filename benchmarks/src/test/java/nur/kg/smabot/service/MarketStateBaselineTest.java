@@ -0,0 +1,58 @@
+package nur.kg.smabot.service;
+
+import nur.kg.cryptobot.market.FixedPoint;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// FixedPointMarketState against the BigDecimal baseline it replaced, the pair MarketStateBenchmark measures.
+class MarketStateBaselineTest {
+
+    private static final int[] SCALES = {2, 4, 8};
+
+    @Test
+    void matchesBigDecimalStateTickByTick() {
+        for (int maxScale : SCALES) {
+            assertSameDecisions(20, 100, maxScale, 42L);
+            assertSameDecisions(3, 7, maxScale, 7L);
+            assertSameDecisions(50, 10, maxScale, 13L);
+        }
+    }
+
+    // every tick quotes the walk with a scale drawn up to maxScale, so the reference's sums widen as they go
+    private static void assertSameDecisions(int shortSize, int longSize, int maxScale, long seed) {
+        Random random = new Random(seed);
+        MarketState reference = new MarketState(shortSize, longSize);
+        FixedPointMarketState fixed = new FixedPointMarketState(shortSize, longSize, Clock.systemUTC());
+
+        BigDecimal price = new BigDecimal("65000.00000000");
+        for (int i = 0; i < 20_000; i++) {
+            // mostly small steps with occasional flat runs so the averages tie now and then
+            int step = random.nextInt(10) < 2 ? 0 : random.nextInt(2001) - 1000;
+            price = price.add(BigDecimal.valueOf(step, 2)).add(BigDecimal.valueOf(step == 0 ? 0 : random.nextInt(1_000_000), FixedPoint.SCALE));
+            int scale;
+            do {
+                scale = SCALES[random.nextInt(SCALES.length)];
+            } while (scale > maxScale);
+            BigDecimal quoted = price.setScale(scale, RoundingMode.HALF_UP);
+
+            reference.update(quoted);
+            fixed.update(FixedPoint.toScaled(quoted), quoted.scale());
+
+            assertEquals(reference.ready(), fixed.ready(), "ready at tick " + i);
+            if (!reference.ready()) continue;
+
+            BigDecimal shortAvg = reference.shortAverage();
+            BigDecimal longAvg = reference.longAverage();
+            assertEquals(FixedPoint.toScaled(shortAvg), fixed.shortAverage(), "short average at tick " + i);
+            assertEquals(FixedPoint.toScaled(longAvg), fixed.longAverage(), "long average at tick " + i);
+            assertEquals(Integer.signum(shortAvg.compareTo(longAvg)),
+                    Long.signum(Long.compare(fixed.shortAverage(), fixed.longAverage())), "crossover at tick " + i);
+        }
+    }
+}
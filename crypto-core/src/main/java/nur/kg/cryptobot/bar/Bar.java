@@ -0,0 +1,11 @@
+package nur.kg.cryptobot.bar;
+
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.Symbol;
+
+import java.time.Duration;
+
+// A closed OHLCV bar; prices and volume are FixedPoint longs, openTime is epoch millis of the bar start.
+public record Bar(Exchange exchange, Symbol symbol, Duration timeframe, long openTime,
+                  long open, long high, long low, long close, long volume, int ticks) {
+}
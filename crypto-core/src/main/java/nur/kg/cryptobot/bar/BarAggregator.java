@@ -0,0 +1,217 @@
+package nur.kg.cryptobot.bar;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import nur.kg.cryptobot.config.BarProperties;
+import nur.kg.cryptobot.market.FixedPoint;
+import nur.kg.cryptobot.market.MarketIds;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.Symbol;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Builds OHLCV bars per (exchange, symbol) for every configured timeframe straight from the tick stream, before
+// conflation. Bars are aligned to epoch multiples of the timeframe using the tick timestamp. A bar closes on the first
+// tick of a later bar, or from a background sweep once its end is closeGrace behind the clock, so quiet symbols still
+// close on time; empty intervals produce no bar. Ticks for an already closed interval are counted and skipped.
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class BarAggregator {
+
+    private static final long NONE = Long.MIN_VALUE;
+    private static final long SWEEP_MILLIS = 200;
+
+    private final BarProperties properties;
+    private final MetricsService metricsService;
+    private final Clock clock;
+
+    private final Sinks.Many<Bar> closes = Sinks.many().multicast().directBestEffort();
+    // bars closed under a series lock, pushed to subscribers once it is released
+    private final Queue<Bar> outbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean emitting = new AtomicBoolean();
+    private Duration[] timeframes;
+    private long[] frames;
+    private String[] labels;
+    private Series[] series; // by MarketIds id
+    private ScheduledExecutorService sweeper;
+
+    @PostConstruct
+    public void start() {
+        List<Duration> configured = properties.timeframes();
+        timeframes = configured.toArray(new Duration[0]);
+        frames = new long[timeframes.length];
+        labels = new String[timeframes.length];
+        for (int f = 0; f < timeframes.length; f++) {
+            frames[f] = timeframes[f].toMillis();
+            labels[f] = label(timeframes[f]);
+        }
+        series = new Series[MarketIds.COUNT];
+        for (int id = 0; id < series.length; id++) series[id] = new Series(frames.length, properties.history());
+        if (!properties.enabled()) return;
+
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bar-close");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(() -> closeDue(clock.millis() - properties.closeGrace().toMillis()),
+                SWEEP_MILLIS, SWEEP_MILLIS, TimeUnit.MILLISECONDS);
+        log.info("Bar aggregation on for timeframes {}", List.of(labels));
+    }
+
+    public Flux<TickerDto> observe(Flux<TickerDto> ticks) {
+        return properties.enabled() ? ticks.doOnNext(this::onTick) : ticks;
+    }
+
+    public Flux<Bar> closes() {
+        return closes.asFlux();
+    }
+
+    public Flux<Bar> closes(Duration timeframe) {
+        indexOf(timeframe);
+        return closes.asFlux().filter(b -> b.timeframe().equals(timeframe));
+    }
+
+    public BarHistory history(Exchange exchange, Symbol symbol, Duration timeframe) {
+        return series[MarketIds.of(exchange, symbol)].history[indexOf(timeframe)];
+    }
+
+    public void onTick(TickerDto t) {
+        if (t == null || t.symbol() == null || t.last() == null) return;
+        long ts = t.ts() == null ? clock.millis() : t.ts().toEpochMilli();
+        long price = FixedPoint.toScaled(t.last());
+        long volume = t.volume() == null ? 0 : FixedPoint.toScaled(t.volume());
+        Series s = series[MarketIds.of(t.exchange(), t.symbol())];
+        synchronized (s) {
+            for (int f = 0; f < frames.length; f++) {
+                long start = ts - Math.floorMod(ts, frames[f]);
+                if (start < s.closedUntil[f] || (s.start[f] != NONE && start < s.start[f])) {
+                    metricsService.getLateBarTicksCounter(labels[f]).increment();
+                    continue;
+                }
+                if (s.start[f] != NONE && start > s.start[f]) close(s, f, t.exchange(), t.symbol());
+                if (s.start[f] == NONE) {
+                    s.start[f] = start;
+                    s.open[f] = price;
+                    s.high[f] = price;
+                    s.low[f] = price;
+                    s.volume[f] = 0;
+                    s.ticks[f] = 0;
+                }
+                if (price > s.high[f]) s.high[f] = price;
+                if (price < s.low[f]) s.low[f] = price;
+                s.close[f] = price;
+                s.volume[f] += volume;
+                s.ticks[f]++;
+            }
+        }
+        publish();
+    }
+
+    // closes every open bar that ended at or before the given epoch millis
+    void closeDue(long untilMillis) {
+        for (int id = 0; id < series.length; id++) {
+            Series s = series[id];
+            synchronized (s) {
+                for (int f = 0; f < frames.length; f++) {
+                    if (s.start[f] != NONE && s.start[f] + frames[f] <= untilMillis) {
+                        close(s, f, MarketIds.exchange(id), MarketIds.symbol(id));
+                    }
+                }
+            }
+        }
+        publish();
+    }
+
+    private void close(Series s, int f, Exchange exchange, Symbol symbol) {
+        s.history[f].append(s.start[f], s.open[f], s.high[f], s.low[f], s.close[f], s.volume[f]);
+        Bar bar = new Bar(exchange, symbol, timeframes[f], s.start[f], s.open[f], s.high[f], s.low[f], s.close[f], s.volume[f], s.ticks[f]);
+        s.closedUntil[f] = s.start[f] + frames[f];
+        s.start[f] = NONE;
+        metricsService.getBarsClosedCounter(labels[f]).increment();
+        outbox.add(bar);
+    }
+
+    // outside any series lock. Series of different symbols close concurrently and one thread at a time drains what
+    // they closed; subscribers that cannot keep up miss bars, and a bar the sink refuses is dropped and counted
+    private void publish() {
+        while (!outbox.isEmpty() && emitting.compareAndSet(false, true)) {
+            try {
+                Bar bar;
+                while ((bar = outbox.poll()) != null) {
+                    Sinks.EmitResult result = closes.tryEmitNext(bar);
+                    if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+                        metricsService.getBarsDroppedCounter(labels[indexOf(bar.timeframe())]).increment();
+                    }
+                }
+            } finally {
+                emitting.set(false);
+            }
+        }
+    }
+
+    private int indexOf(Duration timeframe) {
+        for (int f = 0; f < timeframes.length; f++) {
+            if (timeframes[f].equals(timeframe)) return f;
+        }
+        throw new IllegalArgumentException("Timeframe " + timeframe + " is not in bars.timeframes");
+    }
+
+    static String label(Duration timeframe) {
+        long ms = timeframe.toMillis();
+        if (ms % 3_600_000 == 0) return ms / 3_600_000 + "h";
+        if (ms % 60_000 == 0) return ms / 60_000 + "m";
+        if (ms % 1_000 == 0) return ms / 1_000 + "s";
+        return ms + "ms";
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweeper != null) sweeper.shutdownNow();
+    }
+
+    // the open bar of each timeframe plus its closed history
+    private static final class Series {
+        final long[] start;
+        final long[] open;
+        final long[] high;
+        final long[] low;
+        final long[] close;
+        final long[] volume;
+        final int[] ticks;
+        final long[] closedUntil;
+        final BarHistory[] history;
+
+        Series(int timeframes, int capacity) {
+            start = new long[timeframes];
+            Arrays.fill(start, NONE);
+            open = new long[timeframes];
+            high = new long[timeframes];
+            low = new long[timeframes];
+            close = new long[timeframes];
+            volume = new long[timeframes];
+            ticks = new int[timeframes];
+            closedUntil = new long[timeframes];
+            Arrays.fill(closedUntil, NONE);
+            history = new BarHistory[timeframes];
+            for (int f = 0; f < timeframes; f++) history[f] = new BarHistory(capacity);
+        }
+    }
+}
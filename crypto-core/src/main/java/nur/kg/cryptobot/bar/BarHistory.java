@@ -0,0 +1,73 @@
+package nur.kg.cryptobot.bar;
+
+// Last closed bars of one (exchange, symbol, timeframe) in parallel primitive rings; index 0 is the newest.
+// Written by the aggregator under its series lock; readers on other threads may race with an append.
+public final class BarHistory {
+
+    private final long[] openTime;
+    private final long[] open;
+    private final long[] high;
+    private final long[] low;
+    private final long[] close;
+    private final long[] volume;
+    private int next;
+    private int size;
+
+    BarHistory(int capacity) {
+        openTime = new long[capacity];
+        open = new long[capacity];
+        high = new long[capacity];
+        low = new long[capacity];
+        close = new long[capacity];
+        volume = new long[capacity];
+    }
+
+    void append(long t, long o, long h, long l, long c, long v) {
+        openTime[next] = t;
+        open[next] = o;
+        high[next] = h;
+        low[next] = l;
+        close[next] = c;
+        volume[next] = v;
+        if (++next == openTime.length) next = 0;
+        if (size < openTime.length) size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return openTime.length;
+    }
+
+    public long openTime(int back) {
+        return openTime[slot(back)];
+    }
+
+    public long open(int back) {
+        return open[slot(back)];
+    }
+
+    public long high(int back) {
+        return high[slot(back)];
+    }
+
+    public long low(int back) {
+        return low[slot(back)];
+    }
+
+    public long close(int back) {
+        return close[slot(back)];
+    }
+
+    public long volume(int back) {
+        return volume[slot(back)];
+    }
+
+    private int slot(int back) {
+        if (back < 0 || back >= size) throw new IndexOutOfBoundsException("bar " + back + " of " + size);
+        int i = next - 1 - back;
+        return i < 0 ? i + openTime.length : i;
+    }
+}
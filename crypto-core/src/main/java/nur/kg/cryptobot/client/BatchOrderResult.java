@@ -0,0 +1,13 @@
+package nur.kg.cryptobot.client;
+
+// Outcome of one order of a POST /api/orders/batch, in request order; error is null when the order was accepted.
+public record BatchOrderResult(String id, String error) {
+
+    public static BatchOrderResult accepted(String id) {
+        return new BatchOrderResult(id, null);
+    }
+
+    public static BatchOrderResult rejected(String id, String error) {
+        return new BatchOrderResult(id, error);
+    }
+}
@@ -0,0 +1,144 @@
+package nur.kg.cryptobot.client;
+
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ChannelOption;
+import lombok.extern.log4j.Log4j2;
+import nur.kg.cryptobot.codec.OrderRequestJsonEncoder;
+import nur.kg.cryptobot.config.ExchangeProperties;
+import nur.kg.cryptobot.metrics.MetricsService;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// The connections of one exchange endpoint: a ConnectionProvider shared by its gateways, which pools per remote
+// address. Connections are opened at startup and kept hot by pings, so an order after startup or a quiet spell does
+// not pay the TCP and TLS handshakes.
+@Log4j2
+final class ExchangeConnections {
+
+    private static final OrderRequestJsonEncoder ORDER_JSON = new OrderRequestJsonEncoder();
+    // set when a request is sent, read once it holds a connection
+    private static final String ACQUIRE_START = ExchangeConnections.class.getName() + ".acquireStart";
+
+    private final String endpoint;
+    private final ExchangeProperties.Pool pool;
+    private final ConnectionProvider provider;
+    private final Timer acquire;
+    private final Map<String, WebClient> clients = new LinkedHashMap<>();
+    private Disposable keepAlive;
+
+    ExchangeConnections(String endpoint, ExchangeProperties.Pool pool, MetricsService metricsService) {
+        this.endpoint = endpoint;
+        this.pool = pool;
+        this.acquire = metricsService.getPoolAcquireTimer(endpoint);
+        this.provider = ConnectionProvider.builder("exchange-" + endpoint)
+                .maxConnections(pool.maxConnections())
+                .pendingAcquireMaxCount(pool.pendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.pendingAcquireTimeout())
+                .maxIdleTime(pool.maxIdleTime())
+                .evictInBackground(pool.evictInBackground())
+                .metrics(true, () -> new PoolGauges(metricsService))
+                .build();
+    }
+
+    WebClient client(String url, ExchangeFilterFunction filter) {
+        HttpClient http = HttpClient.create(provider)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .doOnRequest((request, connection) -> request.currentContextView().<Long>getOrEmpty(ACQUIRE_START)
+                        .ifPresent(start -> acquire.record(System.nanoTime() - start, TimeUnit.NANOSECONDS)));
+        if (pool.http2()) {
+            http = url.startsWith("https:")
+                    ? http.protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                    : http.protocol(HttpProtocol.H2C);
+        }
+        WebClient client = WebClient.builder()
+                .baseUrl(url)
+                .clientConnector(new ReactorClientHttpConnector(http))
+                // typed custom writers are consulted before the default Jackson writer
+                .codecs(codecs -> codecs.customCodecs().register(ORDER_JSON))
+                .filter(filter)
+                .filter((request, next) -> next.exchange(request)
+                        .contextWrite(ctx -> ctx.put(ACQUIRE_START, System.nanoTime())))
+                .build();
+        clients.put(url, client);
+        return client;
+    }
+
+    // Pings every gateway with prewarm concurrent requests now and every keepAlive after. Concurrent requests cannot
+    // share an HTTP/1.1 connection, so each gateway ends up with prewarm open connections. Over h2 they would all be
+    // streams of one connection, and a single ping warms it.
+    void warmUp() {
+        if (pool.prewarm() <= 0) return;
+        Flux<Long> rounds = pool.keepAlive().isZero() ? Flux.just(0L) : Flux.interval(Duration.ZERO, pool.keepAlive());
+        keepAlive = rounds
+                .onBackpressureDrop()
+                .concatMap(round -> ping(round == 0))
+                .subscribe();
+    }
+
+    void close() {
+        if (keepAlive != null) keepAlive.dispose();
+        provider.disposeLater().subscribe();
+    }
+
+    private Mono<Void> ping(boolean first) {
+        return Flux.fromIterable(clients.entrySet())
+                .flatMap(gateway -> Flux.range(0, warmed())
+                        .flatMap(i -> gateway.getValue().get()
+                                .uri(pool.keepAlivePath())
+                                // any answer, 404 included, proves the connection
+                                .exchangeToMono(response -> response.releaseBody())
+                                .timeout(Gateway.TIMEOUT))
+                        .then()
+                        .doOnSuccess(v -> {
+                            if (first) log.info("Pre-warmed {} connections to {} gateway {}", warmed(), endpoint, gateway.getKey());
+                        })
+                        .onErrorResume(e -> {
+                            // the breaker reports a gateway that stays down, repeated pings only log at debug
+                            if (first) {
+                                log.warn("Pre-warming connections to {} gateway {} failed: {}", endpoint, gateway.getKey(), e.toString());
+                            } else {
+                                log.debug("Keep-alive ping to {} gateway {} failed: {}", endpoint, gateway.getKey(), e.toString());
+                            }
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    private int warmed() {
+        return pool.http2() ? Math.min(1, pool.prewarm()) : pool.prewarm();
+    }
+
+    private final class PoolGauges implements ConnectionProvider.MeterRegistrar {
+
+        private final MetricsService metricsService;
+
+        PoolGauges(MetricsService metricsService) {
+            this.metricsService = metricsService;
+        }
+
+        @Override
+        public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+            metricsService.registerConnectionPoolGauges(endpoint, remoteAddress.toString(),
+                    metrics::acquiredSize, metrics::idleSize, metrics::pendingAcquireSize);
+        }
+
+        @Override
+        public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+            metricsService.removeConnectionPoolGauges(endpoint, remoteAddress.toString());
+        }
+    }
+}
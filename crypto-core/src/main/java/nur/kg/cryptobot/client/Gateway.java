@@ -0,0 +1,160 @@
+package nur.kg.cryptobot.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+// One url of an exchange with its latency estimate and circuit breaker. Closed: usable. Open: ejected until openUntil.
+// Half-open once that passes: a single probe is let through, its success closes the breaker, its failure reopens it.
+// Exchange rejections (4xx) prove the gateway works and count as successes.
+@Log4j2
+final class Gateway {
+
+    static final Duration TIMEOUT = Duration.ofSeconds(3);
+    private static final double ALPHA = 0.2;
+    private static final int WINDOW = 128;
+    private static final int MIN_SAMPLES = 20;
+    private static final long REVISIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    final String url;
+    private final WebClient client;
+    private final int failureThreshold;
+    private final long openForNanos;
+    private final Timer latency;
+    private final Counter ejections;
+
+    // latency state, guarded by this
+    private double ewmaNanos;
+    private final long[] recent = new long[WINDOW];
+    private int samples;
+    private long p95Nanos = -1;
+    private long lastSentAt;
+
+    // breaker state, guarded by this except for the probe flag
+    private int failures;
+    private long openUntil; // System.nanoTime() deadline, 0 while closed
+    private final AtomicBoolean probing = new AtomicBoolean();
+
+    Gateway(String url, WebClient client, int failureThreshold, Duration openFor, Timer latency, Counter ejections) {
+        this.url = url;
+        this.client = client;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openForNanos = openFor.toNanos();
+        this.latency = latency;
+        this.ejections = ejections;
+    }
+
+    // probe: this send holds the half-open probe slot and frees it once settled
+    <T> Mono<T> send(Function<WebClient, Mono<T>> request, boolean probe) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            synchronized (this) {
+                lastSentAt = start;
+            }
+            return request.apply(client)
+                    .timeout(TIMEOUT)
+                    .doOnSuccess(v -> onSuccess(System.nanoTime() - start, probe))
+                    .doOnError(e -> {
+                        if (e instanceof WebClientResponseException r && r.getStatusCode().is4xxClientError()) {
+                            onSuccess(System.nanoTime() - start, probe);
+                        } else {
+                            onFailure(e, probe);
+                        }
+                    })
+                    .doOnCancel(() -> onCancel(System.nanoTime() - start, probe));
+        });
+    }
+
+    synchronized boolean closed() {
+        return openUntil == 0;
+    }
+
+    // true when the breaker is half-open and the caller won the single probe slot
+    boolean tryProbe(long now) {
+        synchronized (this) {
+            if (openUntil == 0 || now - openUntil < 0) return false;
+        }
+        return probing.compareAndSet(false, true);
+    }
+
+    // hands back a probe slot won by tryProbe for an attempt that was never sent
+    void releaseProbe() {
+        probing.set(false);
+    }
+
+    // Routing cost: the EWMA latency, or 0 for a gateway never tried or not sent to for a second, so such a gateway
+    // is picked once to refresh an estimate that may be stale, e.g. from a cold first request.
+    synchronized double cost(long now) {
+        return samples == 0 || now - lastSentAt > REVISIT_NANOS ? 0 : ewmaNanos;
+    }
+
+    // null until enough samples for a meaningful p95
+    synchronized Duration hedgeDelay(Duration floor) {
+        if (samples < MIN_SAMPLES) return null;
+        if (p95Nanos < 0) {
+            int n = Math.min(samples, WINDOW);
+            long[] sorted = Arrays.copyOf(recent, n);
+            Arrays.sort(sorted);
+            p95Nanos = sorted[(int) Math.ceil(n * 0.95) - 1];
+        }
+        return p95Nanos > floor.toNanos() ? Duration.ofNanos(p95Nanos) : floor;
+    }
+
+    private void onSuccess(long nanos, boolean probe) {
+        latency.record(nanos, TimeUnit.NANOSECONDS);
+        boolean readmitted;
+        synchronized (this) {
+            ewmaNanos = samples == 0 ? nanos : ewmaNanos + ALPHA * (nanos - ewmaNanos);
+            recent[samples++ % WINDOW] = nanos;
+            // recomputed lazily, at most every 16 samples
+            if ((samples & 15) == 0) p95Nanos = -1;
+            failures = 0;
+            readmitted = openUntil != 0;
+            openUntil = 0;
+        }
+        if (probe) probing.set(false);
+        if (readmitted) log.info("Gateway {} readmitted", url);
+    }
+
+    // A cancelled attempt, typically a hedge loser, took at least nanos. That bound may raise the estimate but never
+    // lowers it, so a primary that turned slow stops being first choice while a backup cancelled early keeps its own.
+    // It does not judge the breaker.
+    private void onCancel(long nanos, boolean probe) {
+        synchronized (this) {
+            if (samples == 0 || nanos > ewmaNanos) {
+                ewmaNanos = samples == 0 ? nanos : ewmaNanos + ALPHA * (nanos - ewmaNanos);
+                recent[samples++ % WINDOW] = nanos;
+                if ((samples & 15) == 0) p95Nanos = -1;
+            }
+        }
+        if (probe) probing.set(false);
+    }
+
+    private void onFailure(Throwable e, boolean probe) {
+        boolean ejected = false;
+        synchronized (this) {
+            // a failing gateway must not look fast: count the attempt as a full timeout
+            long penalty = TIMEOUT.toNanos();
+            ewmaNanos = samples == 0 ? penalty : ewmaNanos + ALPHA * (penalty - ewmaNanos);
+            if (openUntil != 0 || ++failures >= failureThreshold) {
+                openUntil = System.nanoTime() + openForNanos;
+                failures = 0;
+                ejected = true;
+            }
+        }
+        if (probe) probing.set(false);
+        if (ejected) {
+            ejections.increment();
+            log.warn("Gateway {} ejected for {}ms: {}", url, TimeUnit.NANOSECONDS.toMillis(openForNanos), e.toString());
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package nur.kg.cryptobot.client;
+
+import io.micrometer.core.instrument.Counter;
+import nur.kg.cryptobot.config.ExchangeProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// Routes the requests of one exchange over its gateways. An attempt goes to a half-open gateway that is due a probe,
+// else to the closed gateway with the lowest EWMA latency; untried and idle gateways go first. With hedging on, an attempt
+// still unanswered after its gateway's p95 is raced against a copy on the next best gateway; the first answer wins
+// and the other is cancelled, so the exchange must deduplicate order ids. The primary's error is an answer too and
+// surfaces as is, while a failed hedge leaves the race to the primary. Every attempt, hedges included, takes a token
+// from the exchange's rate limiter first. Attempts that failed in transit or with a retryable status are retried with
+// backoff, and the failed gateway is penalised, so retries move to another gateway; rejections are final. A retry
+// may wait for its token up to the limiter's maxWait, and if the bucket is paused beyond that it is retried on backoff.
+final class GatewayRouter {
+
+    // safe to repeat as the exchange deduplicates order ids
+    private static final Set<Integer> RETRYABLE = Set.of(
+            HttpStatus.REQUEST_TIMEOUT.value(), HttpStatus.TOO_MANY_REQUESTS.value(), HttpStatus.INTERNAL_SERVER_ERROR.value(),
+            HttpStatus.BAD_GATEWAY.value(), HttpStatus.SERVICE_UNAVAILABLE.value(), HttpStatus.GATEWAY_TIMEOUT.value());
+    private static final Set<Integer> REFUSED = Set.of(HttpStatus.TOO_MANY_REQUESTS.value(), HttpStatus.SERVICE_UNAVAILABLE.value());
+
+    private final String endpoint;
+    private final List<Gateway> gateways;
+    private final ExchangeProperties.Routing routing;
+    private final OrderRateLimiter limiter;
+    private final Counter hedges;
+    private final Counter hedgeWins;
+
+    GatewayRouter(String endpoint, List<Gateway> gateways, ExchangeProperties.Routing routing, OrderRateLimiter limiter,
+                  Counter hedges, Counter hedgeWins) {
+        this.endpoint = endpoint;
+        this.gateways = List.copyOf(gateways);
+        this.routing = routing;
+        this.limiter = limiter;
+        this.hedges = hedges;
+        this.hedgeWins = hedgeWins;
+    }
+
+    <T> Mono<T> call(OrderRateLimiter.Priority priority, Function<WebClient, Mono<T>> request) {
+        return call(priority, request, GatewayRouter::retryable);
+    }
+
+    // retries only the failures retryable accepts, for requests the exchange cannot deduplicate as a whole
+    <T> Mono<T> call(OrderRateLimiter.Priority priority, Function<WebClient, Mono<T>> request, Predicate<Throwable> retryable) {
+        return Mono.defer(() -> {
+            AtomicBoolean admitted = new AtomicBoolean();
+            return Mono.defer(() -> attempt(priority, admitted.getAndSet(true), request))
+                    .retryWhen(Retry.backoff(3, Duration.ofMillis(200)).maxBackoff(Duration.ofSeconds(2))
+                            .filter(retryable));
+        });
+    }
+
+    static boolean retryable(Throwable e) {
+        if (e instanceof WebClientResponseException r) return RETRYABLE.contains(r.getStatusCode().value());
+        return e instanceof WebClientRequestException || e instanceof TimeoutException || e instanceof RetryRateLimitedException;
+    }
+
+    // turned away before the exchange acted on any of it: throttled, unavailable or never connected
+    static boolean refused(Throwable e) {
+        if (e instanceof WebClientResponseException r) return REFUSED.contains(r.getStatusCode().value());
+        return e instanceof WebClientRequestException && e.getCause() instanceof ConnectException || e instanceof RetryRateLimitedException;
+    }
+
+    private <T> Mono<T> attempt(OrderRateLimiter.Priority priority, boolean retry, Function<WebClient, Mono<T>> request) {
+        long wait = retry ? limiter.reserveRetry(priority) : limiter.reserve(priority);
+        if (wait < 0) {
+            String message = "Order rate limit of exchange " + endpoint + " exhausted";
+            return Mono.error(retry ? new RetryRateLimitedException(message) : new IllegalStateException(message));
+        }
+        return wait == 0 ? route(request) : Mono.delay(Duration.ofNanos(wait)).then(Mono.defer(() -> route(request)));
+    }
+
+    private <T> Mono<T> route(Function<WebClient, Mono<T>> request) {
+        Pick primary = pick(null);
+        if (primary == null) return Mono.error(new IllegalStateException("No healthy gateway for exchange: " + endpoint));
+        Mono<T> first = primary.send(request);
+        if (!routing.hedge() || gateways.size() < 2) return first;
+        Duration delay = primary.gateway().hedgeDelay(routing.hedgeFloor());
+        if (delay == null) return first;
+
+        // never signals unless the hedge answers, so only the primary can end the race with an error or nothing
+        Mono<T> second = Mono.delay(delay).flatMap(tick -> {
+            Pick backup = pick(primary.gateway());
+            if (backup == null) return Mono.<T>never();
+            // a hedge is optional, it only goes out on a token that is free right now; a probe slot it won goes back
+            if (!limiter.tryAcquire()) {
+                backup.release();
+                return Mono.<T>never();
+            }
+            hedges.increment();
+            return backup.send(request).doOnNext(v -> hedgeWins.increment()).onErrorResume(e -> Mono.never());
+        });
+        // the loser is cancelled, a pending hedge timer included
+        return Mono.firstWithSignal(first, second);
+    }
+
+    Pick pick(Gateway excluded) {
+        long now = System.nanoTime();
+        Gateway best = null;
+        double bestCost = Double.MAX_VALUE;
+        for (Gateway g : gateways) {
+            if (g == excluded) continue;
+            if (g.closed()) {
+                double cost = g.cost(now);
+                if (cost < bestCost) {
+                    best = g;
+                    bestCost = cost;
+                }
+            } else if (g.tryProbe(now)) {
+                return new Pick(g, true);
+            }
+        }
+        return best == null ? null : new Pick(best, false);
+    }
+
+    // a retry refused by the limiter: still owed its slot, so it is retried on backoff rather than given up
+    static final class RetryRateLimitedException extends IllegalStateException {
+        RetryRateLimitedException(String message) {
+            super(message);
+        }
+    }
+
+    // probe: the attempt holds the gateway's half-open probe slot
+    record Pick(Gateway gateway, boolean probe) {
+        <T> Mono<T> send(Function<WebClient, Mono<T>> request) {
+            return gateway.send(request, probe);
+        }
+
+        // for a pick that is not sent after all
+        void release() {
+            if (probe) gateway.releaseProbe();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package nur.kg.cryptobot.client;
+
+import nur.kg.cryptobot.market.MarketIds;
+import nur.kg.domain.request.OrderRequest;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+// One strategy's orders in flight, at most one per market, in a lock-free table indexed by MarketIds. A signal for a
+// market that already has an order in flight is suppressed instead of sent again, and every signal let through gets an
+// id of its own. The id doubles as the idempotency key: an order whose outcome is still unknown once the router has
+// given up on it, because it failed in transit, timed out or exhausted the router's retries, is sent once more as the
+// very same request, so the exchange drops the repeat if the first got through after all. The router already spent
+// its own retries on it, so there is a single resend, and none once the exchange would no longer remember the key.
+public final class InflightOrders {
+
+    // how long the exchange deduplicates an idempotency key
+    static final Duration DEDUP_WINDOW = Duration.ofMinutes(10);
+    static final int RESENDS = 1;
+    static final Duration RESEND_BACKOFF = Duration.ofSeconds(1);
+
+    private final AtomicReferenceArray<Slot> slots = new AtomicReferenceArray<>(MarketIds.COUNT);
+    private final long dedupWindow;
+    private final Duration resendBackoff;
+    private final LongSupplier clock;
+
+    public InflightOrders() {
+        this(DEDUP_WINDOW, RESEND_BACKOFF, System::nanoTime);
+    }
+
+    InflightOrders(Duration dedupWindow, Duration resendBackoff, LongSupplier clock) {
+        this.dedupWindow = dedupWindow.toNanos();
+        this.resendBackoff = resendBackoff;
+        this.clock = clock;
+    }
+
+    // a fresh id for the market's next order, or null when the market already has one in flight. Nothing is held
+    // until the order is tracked, so an id that is never sent leaves the market free
+    public String acquire(int market) {
+        return slots.get(market) == null ? OrderIds.next() : null;
+    }
+
+    // takes market for order when subscribed, sends it, sending it again unchanged while its outcome is unknown, and
+    // frees the market once it settles. An order racing another one for the same market fails unsent
+    public <T> Mono<T> track(int market, OrderRequest order, Function<OrderRequest, Mono<T>> send) {
+        return Mono.defer(() -> {
+            if (!slots.compareAndSet(market, null, new Slot(order.id(), clock.getAsLong()))) {
+                return Mono.<T>error(new IllegalStateException("Market " + market + " already has an order in flight"));
+            }
+            return Mono.defer(() -> send.apply(order))
+                    .retryWhen(Retry.backoff(RESENDS, resendBackoff)
+                            .filter(e -> uncertain(e) && remembered(market, order.id())))
+                    .doOnTerminate(() -> settle(market, order.id()))
+                    .doOnCancel(() -> settle(market, order.id()));
+        });
+    }
+
+    public int inflight(int market) {
+        return slots.get(market) != null ? 1 : 0;
+    }
+
+    // a resend is only dropped as a repeat while the exchange still remembers the first attempt's key
+    private boolean remembered(int market, String id) {
+        Slot slot = slots.get(market);
+        return slot != null && slot.id().equals(id) && clock.getAsLong() - slot.sentAt() < dedupWindow;
+    }
+
+    private void settle(int market, String id) {
+        Slot slot = slots.get(market);
+        if (slot != null && slot.id().equals(id)) slots.compareAndSet(market, slot, null);
+    }
+
+    // Only an answer from the exchange rejecting the order, or a refusal by the router before anything was sent, says
+    // the order did not get through. Anything the router would have retried may have, and so may an error it does not
+    // recognise, whatever it arrives wrapped in: retries exhausted, composites, reactive wrappers
+    static boolean uncertain(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof OrderInDoubtException) return true;
+            if (Exceptions.isMultiple(t)) return Exceptions.unwrapMultiple(t).stream().anyMatch(InflightOrders::uncertain);
+            if (Exceptions.isRetryExhausted(t)) continue;
+            if (GatewayRouter.retryable(t)) return true;
+            if (t instanceof WebClientResponseException || t instanceof IllegalStateException) return false;
+        }
+        return true;
+    }
+
+    // the order went out but its outcome cannot be told from the answer, e.g. a batch answer that does not match the
+    // batch order for order
+    static final class OrderInDoubtException extends RuntimeException {
+        OrderInDoubtException(String message) {
+            super(message);
+        }
+    }
+
+    // sentAt: nanos when the order was first sent, which is when track was subscribed
+    private record Slot(String id, long sentAt) {
+    }
+}
@@ -1,64 +1,103 @@
 package nur.kg.cryptobot.client;
 
 import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.log4j.Log4j2;
 import nur.kg.cryptobot.config.ExchangeProperties;
+import nur.kg.cryptobot.metrics.MetricsService;
 import nur.kg.domain.request.OrderRequest;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
-import reactor.util.retry.Retry;
 
-import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Log4j2
 @Service
-@RequiredArgsConstructor
 public class MarketClient {
 
+    // the same on every attempt of a request, retries and hedges included, so the exchange can drop repeats
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final ExchangeProperties exchangeProperties;
+    private final MetricsService metricsService;
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
 
-    private final Map<String, WebClient> clients = new ConcurrentHashMap<>();
+    @Autowired
+    public MarketClient(ExchangeProperties exchangeProperties, MetricsService metricsService) {
+        this.exchangeProperties = exchangeProperties;
+        this.metricsService = metricsService;
+    }
+
+    // for stand-ins that override processOrder and never reach an exchange
+    protected MarketClient() {
+        this(new ExchangeProperties(List.of(), null, null, null, null), null);
+    }
 
     @PostConstruct
     public void init() {
+        ExchangeProperties.Batch batch = exchangeProperties.batch();
+        ExchangeProperties.Routing routing = exchangeProperties.routing();
         exchangeProperties.urls().forEach(ep -> {
-            WebClient wc = WebClient.builder()
-                    .baseUrl(ep.url())
-                    .build();
-            clients.put(ep.name().toLowerCase(), wc);
+            String name = ep.name().toLowerCase();
+            ExchangeConnections connections = new ExchangeConnections(name, ep.pool(exchangeProperties.pool()), metricsService);
+            OrderRateLimiter limiter = new OrderRateLimiter(name, exchangeProperties.rateLimit(), metricsService);
+            List<Gateway> gateways = new ArrayList<>();
+            for (String url : ep.gateways()) {
+                gateways.add(new Gateway(url, connections.client(url, limiter.headerObserver()), routing.failureThreshold(), routing.openFor(),
+                        metricsService.getGatewayLatencyTimer(name, url), metricsService.getGatewayEjectionsCounter(name, url)));
+            }
+            GatewayRouter router = new GatewayRouter(name, gateways, routing, limiter,
+                    metricsService.getOrderHedgesCounter(name), metricsService.getOrderHedgeWinsCounter(name));
+            OrderBatcher batcher = batch.enabled() ? new OrderBatcher(name, router, batch, metricsService) : null;
+            connections.warmUp();
+            endpoints.put(name, new Endpoint(router, batcher, connections));
         });
-        log.info("Initialized MarketClient endpoints: {}", clients.keySet());
+        log.info("Initialized MarketClient endpoints: {}{}", endpoints.keySet(),
+                batch.enabled() ? " (batching up to " + batch.maxSize() + " orders per " + batch.window().toMillis() + "ms)" : "");
     }
 
     public Mono<Void> processOrder(OrderRequest orderRequest) {
         String key = orderRequest.exchange() == null ? null : orderRequest.exchange().name().toLowerCase();
-        WebClient wc = selectClient(key);
-        if (wc == null) {
+        Endpoint endpoint = selectEndpoint(key);
+        if (endpoint == null) {
             return Mono.error(new IllegalStateException("No WebClient configured for exchange: " + key));
         }
+        if (endpoint.batcher() != null) return endpoint.batcher().submit(orderRequest);
 
-        return wc.post()
-                .uri("/api/orders")
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(orderRequest)
-                .retrieve()
-                .toBodilessEntity()
-                .timeout(Duration.ofSeconds(3))
-                .retryWhen(Retry.backoff(3, Duration.ofMillis(200)).maxBackoff(Duration.ofSeconds(2)))
+        return endpoint.router().call(OrderRateLimiter.priority(orderRequest), client -> client.post()
+                        .uri("/api/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(IDEMPOTENCY_KEY, orderRequest.id())
+                        .bodyValue(orderRequest)
+                        .retrieve()
+                        .toBodilessEntity())
                 .then();
     }
 
-    private WebClient selectClient(String key) {
+    private Endpoint selectEndpoint(String key) {
         if (key != null) {
-            WebClient wc = clients.get(key);
-            if (wc != null) return wc;
+            Endpoint endpoint = endpoints.get(key);
+            if (endpoint != null) return endpoint;
         }
         // fallback: single endpoint or first configured
-        return clients.size() == 1 ? clients.values().iterator().next() : null;
+        return endpoints.size() == 1 ? endpoints.values().iterator().next() : null;
+    }
+
+    @PreDestroy
+    public void close() {
+        // sends what is still queued instead of failing it; pooled connections close once released
+        endpoints.values().forEach(e -> {
+            if (e.batcher() != null) e.batcher().close();
+            e.connections().close();
+        });
+    }
+
+    private record Endpoint(GatewayRouter router, OrderBatcher batcher, ExchangeConnections connections) {
     }
 }
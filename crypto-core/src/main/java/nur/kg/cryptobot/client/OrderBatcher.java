@@ -0,0 +1,136 @@
+package nur.kg.cryptobot.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import nur.kg.cryptobot.config.ExchangeProperties;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.request.OrderRequest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Coalesces the orders for one endpoint into POST /api/orders/batch requests. A batch goes out once it holds maxSize
+// orders or window after its first order, whichever comes first, and batches do not wait for each other. Every caller
+// gets the outcome of its own order: the exchange answers per order, a request that fails on every gateway fails
+// every order in it. A batch is only sent again when the exchange refused it outright; after any other failure some of
+// its orders may have been accepted, so they fail in doubt and their strategies decide on a resend under the same ids.
+// Up to queueCapacity orders wait for their batch, more are refused, as is every order once the batcher has stopped.
+@Log4j2
+final class OrderBatcher {
+
+    private static final ParameterizedTypeReference<List<BatchOrderResult>> RESULTS = new ParameterizedTypeReference<>() {
+    };
+    private static final long EMIT_SPIN = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final String endpoint;
+    private final GatewayRouter router;
+    private final int maxSize;
+    private final Sinks.Many<Pending> queue;
+    private final DistributionSummary batchSize;
+    private final Counter sizeFlushes;
+    private final Counter timeFlushes;
+    private final Timer queueDelay;
+
+    OrderBatcher(String endpoint, GatewayRouter router, ExchangeProperties.Batch batch, MetricsService metricsService) {
+        this.endpoint = endpoint;
+        this.router = router;
+        this.maxSize = batch.maxSize();
+        this.batchSize = metricsService.getOrderBatchSizeSummary(endpoint);
+        this.sizeFlushes = metricsService.getOrderBatchFlushCounter(endpoint, "size");
+        this.timeFlushes = metricsService.getOrderBatchFlushCounter(endpoint, "time");
+        this.queueDelay = metricsService.getOrderBatchQueueTimer(endpoint);
+        this.queue = Sinks.many().unicast().onBackpressureBuffer(Queues.<Pending>get(batch.queueCapacity()).get());
+        // fair backpressure: a full house of batches in flight holds the next one back instead of failing the stream
+        queue.asFlux()
+                .bufferTimeout(maxSize, batch.window(), true)
+                .flatMap(this::send, Queues.SMALL_BUFFER_SIZE)
+                .subscribe(null, e -> log.error("Order batcher of {} stopped", endpoint, e));
+    }
+
+    Mono<Void> submit(OrderRequest order) {
+        return Mono.defer(() -> {
+            Sinks.One<Void> result = Sinks.one();
+            Pending pending = new Pending(order, result, System.nanoTime());
+            // callers on different threads race to emit, the loser spins until the sink is free
+            long deadline = System.nanoTime() + EMIT_SPIN;
+            Sinks.EmitResult emitted;
+            while ((emitted = queue.tryEmitNext(pending)) == Sinks.EmitResult.FAIL_NON_SERIALIZED && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            return switch (emitted) {
+                case OK -> result.asMono();
+                case FAIL_OVERFLOW -> Mono.error(new IllegalStateException("Order batch queue of " + endpoint + " is full"));
+                case FAIL_TERMINATED, FAIL_CANCELLED -> Mono.error(new IllegalStateException("Order batcher of " + endpoint + " is closed"));
+                default -> Mono.error(new IllegalStateException("Order batcher of " + endpoint + " refused the order: " + emitted));
+            };
+        });
+    }
+
+    void close() {
+        queue.tryEmitComplete();
+    }
+
+    private Mono<Void> send(List<Pending> batch) {
+        long now = System.nanoTime();
+        batchSize.record(batch.size());
+        (batch.size() >= maxSize ? sizeFlushes : timeFlushes).increment();
+        List<OrderRequest> orders = new ArrayList<>(batch.size());
+        for (Pending p : batch) {
+            queueDelay.record(now - p.enqueuedAt(), TimeUnit.NANOSECONDS);
+            orders.add(p.order());
+        }
+
+        OrderRateLimiter.Priority priority = OrderRateLimiter.Priority.NORMAL;
+        for (Pending p : batch) {
+            if (OrderRateLimiter.priority(p.order()) == OrderRateLimiter.Priority.URGENT) priority = OrderRateLimiter.Priority.URGENT;
+        }
+
+        String key = OrderIds.next();
+        return router.call(priority, client -> client.post()
+                        .uri("/api/orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(MarketClient.IDEMPOTENCY_KEY, key)
+                        // written as one array by the connection's OrderRequestJsonEncoder
+                        .body(Flux.fromIterable(orders), OrderRequest.class)
+                        .retrieve()
+                        .bodyToMono(RESULTS), GatewayRouter::refused)
+                .doOnNext(results -> complete(batch, results))
+                .doOnError(e -> {
+                    log.warn("Batch of {} orders to {} failed: {}", batch.size(), endpoint, e.toString());
+                    for (Pending p : batch) p.result().tryEmitError(e);
+                })
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private void complete(List<Pending> batch, List<BatchOrderResult> results) {
+        if (results.size() != batch.size()) {
+            // the batch was accepted, but which of its orders were placed is unknown
+            InflightOrders.OrderInDoubtException e = new InflightOrders.OrderInDoubtException(
+                    "Batch answer from " + endpoint + " has " + results.size() + " results for " + batch.size() + " orders");
+            for (Pending p : batch) p.result().tryEmitError(e);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            BatchOrderResult r = results.get(i);
+            Sinks.One<Void> result = batch.get(i).result();
+            if (r.error() == null) {
+                result.tryEmitEmpty();
+            } else {
+                result.tryEmitError(new IllegalStateException("Order " + r.id() + " rejected: " + r.error()));
+            }
+        }
+    }
+
+    private record Pending(OrderRequest order, Sinks.One<Void> result, long enqueuedAt) {
+    }
+}
@@ -0,0 +1,42 @@
+package nur.kg.cryptobot.client;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Client order ids: 11 hex digits of the process start time, 8 of a random node id drawn once from SecureRandom, then
+// 12 of a sequence, 31 characters in all (exchanges allow 36). The start time and node keep processes apart, the
+// sequence keeps one process unique, and ids of one process sort in issue order.
+public final class OrderIds {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final int PREFIX = 19;
+    static final int LENGTH = PREFIX + 12;
+    private static final OrderIds SHARED = new OrderIds(System.currentTimeMillis(), new SecureRandom().nextInt());
+
+    private final byte[] prefix = new byte[PREFIX];
+    private final AtomicLong sequence = new AtomicLong();
+
+    OrderIds(long startMillis, int node) {
+        hex(prefix, 0, 11, startMillis);
+        hex(prefix, 11, 8, node & 0xffffffffL);
+    }
+
+    public static String next() {
+        return SHARED.nextId();
+    }
+
+    String nextId() {
+        byte[] id = new byte[LENGTH];
+        System.arraycopy(prefix, 0, id, 0, PREFIX);
+        hex(id, PREFIX, 12, sequence.incrementAndGet());
+        return new String(id, StandardCharsets.ISO_8859_1);
+    }
+
+    private static void hex(byte[] out, int offset, int digits, long value) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            out[i] = HEX[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package nur.kg.cryptobot.client;
+
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.log4j.Log4j2;
+import nur.kg.cryptobot.config.ExchangeProperties;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.enums.OrderType;
+import nur.kg.domain.request.OrderRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Token bucket for the order requests of one exchange as a GCRA on one AtomicLong: tat is the theoretical arrival
+// time of the next request, which may go while tat - now stays within the burst tolerance. Waiting reserves a future
+// slot by moving tat, so waiting urgent orders are served in turn without a queue. The exchange's rate-limit headers
+// only ever tighten the bucket: a reported remaining budget below the local one, or a pause until its reset.
+@Log4j2
+final class OrderRateLimiter {
+
+    enum Priority { URGENT, NORMAL }
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    // pause after a 429 that does not say for how long, and the longest pause honoured
+    private static final long DEFAULT_PAUSE = SECOND;
+    private static final long MAX_PAUSE = TimeUnit.MINUTES.toNanos(1);
+    private static final long EPOCH_SECONDS_FLOOR = 1_000_000_000L;
+
+    private final String endpoint;
+    private final long interval;
+    private final long tolerance;
+    private final long normalTolerance;
+    private final long maxWait;
+    private final LongSupplier clock;
+    private final AtomicLong tat;
+    private final Counter urgentRejected;
+    private final Counter normalRejected;
+    private final Counter delayed;
+
+    OrderRateLimiter(String endpoint, ExchangeProperties.RateLimit limit, MetricsService metricsService) {
+        this(endpoint, limit, metricsService, System::nanoTime);
+    }
+
+    OrderRateLimiter(String endpoint, ExchangeProperties.RateLimit limit, MetricsService metricsService, LongSupplier clock) {
+        this.endpoint = endpoint;
+        int burst = Math.max(1, limit.burst());
+        this.interval = limit.rate() > 0 ? (long) (SECOND / limit.rate()) : 0;
+        this.tolerance = interval * (burst - 1);
+        this.normalTolerance = interval * Math.max(0, burst - 1 - limit.reserved());
+        this.maxWait = limit.maxWait().toNanos();
+        this.clock = clock;
+        this.tat = new AtomicLong(clock.getAsLong());
+        this.urgentRejected = metricsService.getRateLimitRejectedCounter(endpoint, "urgent");
+        this.normalRejected = metricsService.getRateLimitRejectedCounter(endpoint, "normal");
+        this.delayed = metricsService.getRateLimitDelayedCounter(endpoint);
+        metricsService.registerRateLimitGauges(endpoint, interval > 0 ? this::tokens : null, this::blockedSeconds);
+    }
+
+    static Priority priority(OrderRequest order) {
+        return order.type() == OrderType.MARKET ? Priority.URGENT : Priority.NORMAL;
+    }
+
+    // nanos the request has to wait for its token, -1 when it is rejected instead
+    long reserve(Priority priority) {
+        return reserve(priority, priority == Priority.URGENT ? tolerance + maxWait : normalTolerance);
+    }
+
+    // a retry was let through once already, so it may wait for its token like an urgent order: typically the
+    // failed attempt's 429 paused the bucket, and a normal order would find it closed until the reserve refills
+    long reserveRetry(Priority priority) {
+        return reserve(priority, tolerance + maxWait);
+    }
+
+    // a normal token that is free right now, or none: for optional requests such as a hedge, which neither wait for
+    // a slot nor count as rejected orders when there is none
+    boolean tryAcquire() {
+        return take(normalTolerance) >= 0;
+    }
+
+    private long reserve(Priority priority, long allowed) {
+        long ahead = take(allowed);
+        if (ahead < 0) {
+            (priority == Priority.URGENT ? urgentRejected : normalRejected).increment();
+            return -1;
+        }
+        long wait = ahead - tolerance;
+        if (wait <= 0) return 0;
+        delayed.increment();
+        return wait;
+    }
+
+    // how far tat was ahead of now when a slot was taken, -1 when that is beyond allowed and nothing was taken
+    private long take(long allowed) {
+        while (true) {
+            long now = clock.getAsLong();
+            long current = tat.get();
+            long ahead = current - now;
+            if (ahead <= 0) {
+                if (interval == 0) return 0;
+                ahead = 0;
+            }
+            if (ahead > allowed) return -1;
+            if (tat.compareAndSet(current, now + ahead + interval)) return ahead;
+        }
+    }
+
+    // feeds the headers of order responses back into the bucket; pings do not count against the order budget
+    ExchangeFilterFunction headerObserver() {
+        return (request, next) -> request.method() == HttpMethod.GET
+                ? next.exchange(request)
+                : next.exchange(request).doOnNext(response -> observe(response.statusCode(), response.headers().asHttpHeaders()));
+    }
+
+    void observe(HttpStatusCode status, HttpHeaders headers) {
+        long now = clock.getAsLong();
+        boolean limited = status.value() == HttpStatus.TOO_MANY_REQUESTS.value() || status.value() == HttpStatus.SERVICE_UNAVAILABLE.value();
+        Long retryAfter = limited ? number(headers, HttpHeaders.RETRY_AFTER) : null;
+        if (retryAfter != null) {
+            pauseUntil(now, now + TimeUnit.SECONDS.toNanos(retryAfter));
+            return;
+        }
+        Long remaining = number(headers, "X-Bapi-Limit-Status", "X-RateLimit-Remaining");
+        if (remaining != null && remaining <= 0 || status.value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            Long reset = resetAt(headers, now);
+            pauseUntil(now, reset != null ? reset : now + DEFAULT_PAUSE);
+        } else if (remaining != null && interval > 0) {
+            // no more than remaining tokens left: tat at least where the bucket holds exactly that many
+            raiseTat(now + tolerance + interval - Math.min(remaining, tolerance / interval + 1) * interval);
+        }
+    }
+
+    double tokens() {
+        long ahead = Math.max(0, tat.get() - clock.getAsLong());
+        return Math.max(0, (double) (tolerance + interval - ahead) / interval);
+    }
+
+    // until a normal order could go again
+    double blockedSeconds() {
+        long blocked = tat.get() - clock.getAsLong() - normalTolerance;
+        return blocked <= 0 ? 0 : (double) blocked / SECOND;
+    }
+
+    private void pauseUntil(long now, long until) {
+        long pause = Math.min(until - now, MAX_PAUSE);
+        if (pause <= 0) return;
+        // the first request after the pause finds tat just within tolerance
+        if (raiseTat(now + pause + tolerance)) {
+            log.info("Exchange {} rate limit: pausing orders for {}ms", endpoint, TimeUnit.NANOSECONDS.toMillis(pause));
+        }
+    }
+
+    private boolean raiseTat(long atLeast) {
+        while (true) {
+            long current = tat.get();
+            if (current - atLeast >= 0) return false;
+            if (tat.compareAndSet(current, atLeast)) return true;
+        }
+    }
+
+    // Bybit sends the reset as epoch millis; X-RateLimit-Reset counts seconds, until the reset or since the epoch
+    private static Long resetAt(HttpHeaders headers, long now) {
+        Long millis = number(headers, "X-Bapi-Limit-Reset-Timestamp");
+        if (millis != null) return now + TimeUnit.MILLISECONDS.toNanos(millis - System.currentTimeMillis());
+        Long seconds = number(headers, "X-RateLimit-Reset");
+        if (seconds == null) return null;
+        if (seconds > EPOCH_SECONDS_FLOOR) return now + TimeUnit.MILLISECONDS.toNanos(seconds * 1000 - System.currentTimeMillis());
+        return now + TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    private static Long number(HttpHeaders headers, String... names) {
+        for (String name : names) {
+            String value = headers.getFirst(name);
+            if (value == null) continue;
+            try {
+                return (long) Double.parseDouble(value.trim());
+            } catch (NumberFormatException e) {
+                // e.g. a Retry-After http date, treated as absent
+                return null;
+            }
+        }
+        return null;
+    }
+}
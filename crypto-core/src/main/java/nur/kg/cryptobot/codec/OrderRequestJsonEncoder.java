@@ -0,0 +1,248 @@
+package nur.kg.cryptobot.codec;
+
+import io.netty.buffer.ByteBuf;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.OrderType;
+import nur.kg.domain.enums.Side;
+import nur.kg.domain.enums.Symbol;
+import nur.kg.domain.request.OrderRequest;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// JSON encoder for OrderRequest that writes an order straight into one buffer from the factory, pooled on the netty
+// client, out of pre-encoded field names and enum constants; only strings and numbers are encoded per order. The
+// output matches Jackson's for the record, except that numbers are always plain and control characters always take
+// the six character unicode escape. A Flux is written as one JSON array.
+public class OrderRequestJsonEncoder implements Encoder<OrderRequest> {
+
+    private static final List<MimeType> MIME_TYPES = List.of(MediaType.APPLICATION_JSON);
+    private static final int ESTIMATED_SIZE = 384;
+
+    private static final byte[] ID = ascii("{\"id\":");
+    private static final byte[] SYMBOL = ascii(",\"symbol\":");
+    private static final byte[] SIDE = ascii(",\"side\":");
+    private static final byte[] TYPE = ascii(",\"type\":");
+    private static final byte[] QTY = ascii(",\"qty\":");
+    private static final byte[] LIMIT_PRICE = ascii(",\"limitPrice\":");
+    private static final byte[] TP = ascii(",\"tp\":");
+    private static final byte[] SL = ascii(",\"sl\":");
+    private static final byte[] REASON = ascii(",\"reason\":");
+    private static final byte[] EXCHANGE = ascii(",\"exchange\":");
+    private static final byte[] BOT_ID = ascii(",\"botId\":");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    private static final byte[][] SYMBOLS = quoted(Symbol.values());
+    private static final byte[][] SIDES = quoted(Side.values());
+    private static final byte[][] TYPES = quoted(OrderType.values());
+    private static final byte[][] EXCHANGES = quoted(Exchange.values());
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, @Nullable MimeType mimeType) {
+        return OrderRequest.class == elementType.toClass()
+                && (mimeType == null || MediaType.APPLICATION_JSON.isCompatibleWith(mimeType));
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<? extends OrderRequest> input, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        if (input instanceof Mono) {
+            return Mono.from(input).map(order -> encodeValue(order, bufferFactory, elementType, mimeType, hints)).flux();
+        }
+        return Flux.from(input).collectList().map(orders -> encodeArray(orders, bufferFactory)).flux();
+    }
+
+    @Override
+    public DataBuffer encodeValue(OrderRequest order, DataBufferFactory bufferFactory,
+                                  ResolvableType valueType, @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return encode(bufferFactory, ESTIMATED_SIZE, out -> write(order, out));
+    }
+
+    public DataBuffer encodeArray(List<? extends OrderRequest> orders, DataBufferFactory bufferFactory) {
+        return encode(bufferFactory, ESTIMATED_SIZE * Math.max(1, orders.size()), out -> {
+            out.put((byte) '[');
+            for (int i = 0; i < orders.size(); i++) {
+                if (i > 0) out.put((byte) ',');
+                write(orders.get(i), out);
+            }
+            out.put((byte) ']');
+        });
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    // writes through the buffer's own ByteBuffer rather than byte by byte through the DataBuffer, retrying with twice
+    // the room in the rare case the estimate was short
+    private static DataBuffer encode(DataBufferFactory bufferFactory, int capacity, Consumer<ByteBuffer> writer) {
+        while (true) {
+            DataBuffer buffer = bufferFactory.allocateBuffer(capacity);
+            try {
+                return write(buffer, writer);
+            } catch (BufferOverflowException e) {
+                DataBufferUtils.release(buffer);
+                capacity *= 2;
+            } catch (RuntimeException e) {
+                DataBufferUtils.release(buffer);
+                throw e;
+            }
+        }
+    }
+
+    private static DataBuffer write(DataBuffer buffer, Consumer<ByteBuffer> writer) {
+        // a pooled netty buffer lends its cached NIO view; other buffers go through a fresh one
+        if (buffer instanceof NettyDataBuffer netty && netty.getNativeBuffer().nioBufferCount() == 1) {
+            ByteBuf buf = netty.getNativeBuffer();
+            ByteBuffer out = buf.internalNioBuffer(buf.writerIndex(), buf.writableBytes());
+            int start = out.position();
+            writer.accept(out);
+            buf.writerIndex(buf.writerIndex() + out.position() - start);
+            return buffer;
+        }
+        int written;
+        try (DataBuffer.ByteBufferIterator it = buffer.writableByteBuffers()) {
+            ByteBuffer out = it.next();
+            int start = out.position();
+            writer.accept(out);
+            written = out.position() - start;
+        }
+        return buffer.writePosition(buffer.writePosition() + written);
+    }
+
+    private static void write(OrderRequest order, ByteBuffer out) {
+        out.put(ID);
+        string(order.id(), out);
+        out.put(SYMBOL);
+        constant(order.symbol(), SYMBOLS, out);
+        out.put(SIDE);
+        constant(order.side(), SIDES, out);
+        out.put(TYPE);
+        constant(order.type(), TYPES, out);
+        out.put(QTY);
+        number(order.qty(), out);
+        out.put(LIMIT_PRICE);
+        number(order.limitPrice(), out);
+        out.put(TP);
+        number(order.tp(), out);
+        out.put(SL);
+        number(order.sl(), out);
+        out.put(REASON);
+        string(order.reason(), out);
+        out.put(EXCHANGE);
+        constant(order.exchange(), EXCHANGES, out);
+        out.put(BOT_ID);
+        string(order.botId(), out);
+        out.put((byte) '}');
+    }
+
+    private static void constant(@Nullable Enum<?> value, byte[][] encoded, ByteBuffer out) {
+        out.put(value == null ? NULL : encoded[value.ordinal()]);
+    }
+
+    // prices and quantities fit a long unscaled, so their digits are printed from it, right to left; anything wider or
+    // with a negative scale goes through toPlainString
+    private static void number(@Nullable BigDecimal value, ByteBuffer out) {
+        if (value == null) {
+            out.put(NULL);
+            return;
+        }
+        int scale = value.scale();
+        if (scale < 0 || scale > 18 || value.precision() > 18) {
+            out.put(ascii(value.toPlainString()));
+            return;
+        }
+        long unscaled = value.unscaledValue().longValue();
+        if (unscaled < 0) out.put((byte) '-');
+        long digits = Math.abs(unscaled);
+        int length = Math.max(digitCount(digits), scale + 1) + (scale > 0 ? 1 : 0);
+        if (length > out.remaining()) throw new BufferOverflowException();
+        int start = out.position();
+        for (int i = start + length - 1, place = 0; i >= start; i--, place++) {
+            if (scale > 0 && place == scale) {
+                out.put(i, (byte) '.');
+            } else {
+                out.put(i, (byte) ('0' + digits % 10));
+                digits /= 10;
+            }
+        }
+        out.position(start + length);
+    }
+
+    private static int digitCount(long value) {
+        int count = 1;
+        while (value >= 10) {
+            value /= 10;
+            count++;
+        }
+        return count;
+    }
+
+    // UTF-8 with JSON escapes; ids, reasons and bot ids are ASCII in practice, which takes the first branch only
+    private static void string(@Nullable String value, ByteBuffer out) {
+        if (value == null) {
+            out.put(NULL);
+            return;
+        }
+        out.put((byte) '"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                out.put((byte) c);
+            } else if (c == '"' || c == '\\') {
+                out.put((byte) '\\');
+                out.put((byte) c);
+            } else if (c < 0x20) {
+                out.put((byte) '\\');
+                out.put((byte) 'u');
+                out.put((byte) '0');
+                out.put((byte) '0');
+                out.put(HEX[c >> 4]);
+                out.put(HEX[c & 0xf]);
+            } else if (c < 0x800) {
+                out.put((byte) (0xc0 | c >> 6));
+                out.put((byte) (0x80 | c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                out.put((byte) (0xf0 | cp >> 18));
+                out.put((byte) (0x80 | cp >> 12 & 0x3f));
+                out.put((byte) (0x80 | cp >> 6 & 0x3f));
+                out.put((byte) (0x80 | cp & 0x3f));
+            } else {
+                out.put((byte) (0xe0 | c >> 12));
+                out.put((byte) (0x80 | c >> 6 & 0x3f));
+                out.put((byte) (0x80 | c & 0x3f));
+            }
+        }
+        out.put((byte) '"');
+    }
+
+    private static byte[][] quoted(Enum<?>[] values) {
+        byte[][] encoded = new byte[values.length][];
+        for (Enum<?> value : values) encoded[value.ordinal()] = ascii('"' + value.name() + '"');
+        return encoded;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
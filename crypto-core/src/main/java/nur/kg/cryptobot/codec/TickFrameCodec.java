@@ -0,0 +1,172 @@
+package nur.kg.cryptobot.codec;
+
+import nur.kg.cryptobot.market.FixedPoint;
+import nur.kg.cryptobot.market.MarketIds;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.Symbol;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// Length-prefixed binary tick frame, big-endian:
+//   int   length      bytes that follow (BODY_LENGTH today, larger values are skipped for forward compatibility)
+//   short symbolId    Symbol ordinal
+//   short exchangeId  Exchange ordinal, -1 when unknown
+//   long  price       FixedPoint scaled last price
+//   long  exchangeTs  exchange timestamp, epoch micros, 0 when unknown
+//   long  sequence    feed sequence number, consecutive per (exchange, symbol)
+public final class TickFrameCodec {
+
+    public static final int BODY_LENGTH = 2 + 2 + 8 + 8 + 8;
+    public static final int FRAME_LENGTH = 4 + BODY_LENGTH;
+
+    private static final Symbol[] SYMBOLS = Symbol.values();
+    private static final Exchange[] EXCHANGES = Exchange.values();
+
+    private TickFrameCodec() {
+    }
+
+    // reference encoder for feed handlers
+    public static void encode(ByteBuffer out, Symbol symbol, Exchange exchange, long price, long exchangeTs, long sequence) {
+        out.putInt(BODY_LENGTH);
+        out.putShort((short) symbol.ordinal());
+        out.putShort((short) (exchange == null ? -1 : exchange.ordinal()));
+        out.putLong(price);
+        out.putLong(exchangeTs);
+        out.putLong(sequence);
+    }
+
+    public static byte[] encode(Symbol symbol, Exchange exchange, long price, long exchangeTs, long sequence) {
+        ByteBuffer out = ByteBuffer.allocate(FRAME_LENGTH);
+        encode(out, symbol, exchange, price, exchangeTs, sequence);
+        return out.array();
+    }
+
+    // ticks.ts for an exchangeTs field, null when the feed did not set one
+    public static Instant timestamp(long exchangeTs) {
+        return exchangeTs > 0 ? Instant.ofEpochSecond(exchangeTs / 1_000_000, exchangeTs % 1_000_000 * 1_000) : null;
+    }
+
+    public static Flux<TickerDto> decode(Publisher<DataBuffer> input) {
+        return decode(input, GapHandler.NONE);
+    }
+
+    public static Flux<TickerDto> decode(Publisher<DataBuffer> input, GapHandler gaps) {
+        return Flux.defer(() -> {
+            FrameDecoder frames = new FrameDecoder(gaps);
+            return Flux.from(input)
+                    .concatMapIterable(buffer -> {
+                        try {
+                            return frames.feed(buffer);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .concatWith(Flux.defer(() -> {
+                        frames.finish();
+                        return Flux.empty();
+                    }));
+        });
+    }
+
+    public interface FrameHandler {
+        void onFrame(Symbol symbol, Exchange exchange, long price, long exchangeTs, long sequence);
+    }
+
+    // told how many frames a market's feed skipped whenever a frame's sequence jumps past the one after its previous
+    public interface GapHandler {
+        GapHandler NONE = (market, missed) -> {
+        };
+
+        void onGap(int market, long missed);
+    }
+
+    // Incremental frame reader: frames split across buffers are reassembled in a small fixed carry buffer.
+    // Tracks each market's last sequence; a sequence at or below it (a feed restart) is taken as the new start.
+    public static final class FrameDecoder {
+        private final ByteBuffer carry = ByteBuffer.allocate(FRAME_LENGTH);
+        private final long[] sequences = new long[MarketIds.COUNT];
+        private final boolean[] seen = new boolean[MarketIds.COUNT];
+        private final GapHandler gaps;
+        private int skip;
+
+        public FrameDecoder() {
+            this(GapHandler.NONE);
+        }
+
+        public FrameDecoder(GapHandler gaps) {
+            this.gaps = gaps;
+        }
+
+        public List<TickerDto> feed(DataBuffer buffer) {
+            List<TickerDto> out = new ArrayList<>();
+            try (DataBuffer.ByteBufferIterator it = buffer.readableByteBuffers()) {
+                while (it.hasNext()) {
+                    feed(it.next(), (symbol, exchange, price, ts, seq) -> out.add(TickerDto.builder()
+                            .symbol(symbol)
+                            .exchange(exchange)
+                            .last(FixedPoint.toDecimal(price))
+                            .ts(timestamp(ts))
+                            .build()));
+                }
+            }
+            return out;
+        }
+
+        public void feed(ByteBuffer in, FrameHandler handler) {
+            while (in.hasRemaining()) {
+                if (skip > 0) {
+                    int n = Math.min(skip, in.remaining());
+                    in.position(in.position() + n);
+                    skip -= n;
+                    continue;
+                }
+                if (carry.position() == 0 && in.remaining() >= FRAME_LENGTH) {
+                    int length = in.getInt(in.position());
+                    read(in, in.position(), handler);
+                    in.position(in.position() + FRAME_LENGTH);
+                    skip = length - BODY_LENGTH;
+                    continue;
+                }
+                int n = Math.min(carry.remaining(), in.remaining());
+                carry.put(carry.position(), in, in.position(), n);
+                carry.position(carry.position() + n);
+                in.position(in.position() + n);
+                if (!carry.hasRemaining()) {
+                    read(carry, 0, handler);
+                    skip = carry.getInt(0) - BODY_LENGTH;
+                    carry.clear();
+                }
+            }
+        }
+
+        public void finish() {
+            if (carry.position() > 0 || skip > 0) throw new DecodingException("Truncated tick frame at end of stream");
+        }
+
+        private void read(ByteBuffer in, int at, FrameHandler handler) {
+            int length = in.getInt(at);
+            if (length < BODY_LENGTH) throw new DecodingException("Tick frame length " + length + " < " + BODY_LENGTH);
+            int symbolId = in.getShort(at + 4);
+            int exchangeId = in.getShort(at + 6);
+            if (symbolId < 0 || symbolId >= SYMBOLS.length) throw new DecodingException("Unknown symbol id " + symbolId);
+            if (exchangeId < -1 || exchangeId >= EXCHANGES.length) throw new DecodingException("Unknown exchange id " + exchangeId);
+            Symbol symbol = SYMBOLS[symbolId];
+            Exchange exchange = exchangeId < 0 ? null : EXCHANGES[exchangeId];
+            long sequence = in.getLong(at + 24);
+            int market = MarketIds.of(exchange, symbol);
+            if (seen[market] && sequence > sequences[market] + 1) gaps.onGap(market, sequence - sequences[market] - 1);
+            sequences[market] = sequence;
+            seen[market] = true;
+            handler.onFrame(symbol, exchange, in.getLong(at + 8), in.getLong(at + 16), sequence);
+        }
+    }
+}
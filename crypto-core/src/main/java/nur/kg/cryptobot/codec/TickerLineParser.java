@@ -0,0 +1,327 @@
+package nur.kg.cryptobot.codec;
+
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.Symbol;
+import org.springframework.core.codec.DecodingException;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+// Parses one NDJSON ticker object straight from a ByteBuffer into every TickerDto field. Enums are matched against
+// pre-encoded names and prices and volume are accumulated as unscaled longs, so only the timestamp, when present, is
+// read through a String. ts takes what Jackson takes for an Instant: ISO-8601 text or epoch seconds with an optional
+// fraction. Unknown fields are skipped. Not thread-safe, one instance per stream.
+public final class TickerLineParser {
+
+    private static final Symbol[] SYMBOLS = Symbol.values();
+    private static final Exchange[] EXCHANGES = Exchange.values();
+    private static final byte[][] SYMBOL_NAMES = names(SYMBOLS);
+    private static final byte[][] EXCHANGE_NAMES = names(EXCHANGES);
+
+    private static final byte[] KEY_SYMBOL = ascii("symbol");
+    private static final byte[] KEY_EXCHANGE = ascii("exchange");
+    private static final byte[] KEY_LAST = ascii("last");
+    private static final byte[] KEY_BID = ascii("bid");
+    private static final byte[] KEY_ASK = ascii("ask");
+    private static final byte[] KEY_VOLUME = ascii("volume");
+    private static final byte[] KEY_TS = ascii("ts");
+
+    // slots of the decimal fields
+    private static final int LAST = 0;
+    private static final int BID = 1;
+    private static final int ASK = 2;
+    private static final int VOLUME = 3;
+    private static final String[] FIELDS = {"last", "bid", "ask", "volume"};
+
+    private ByteBuffer buf;
+    private int pos;
+    private int end;
+
+    private Symbol symbol;
+    private Exchange exchange;
+    private final boolean[] present = new boolean[4];
+    private final long[] unscaled = new long[4];
+    private final int[] scales = new int[4];
+    private final BigDecimal[] fallbacks = new BigDecimal[4];
+    private Instant ts;
+
+    // returns false for a blank line
+    public boolean parse(ByteBuffer buf, int from, int to) {
+        this.buf = buf;
+        this.pos = from;
+        this.end = to;
+        symbol = null;
+        exchange = null;
+        for (int i = 0; i < present.length; i++) {
+            present[i] = false;
+            fallbacks[i] = null;
+        }
+        ts = null;
+
+        skipWhitespace();
+        if (pos >= end) return false;
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') return true;
+
+        while (true) {
+            skipWhitespace();
+            expect('"');
+            int keyStart = pos;
+            int keyEnd = skipStringBody();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+
+            if (keyEquals(keyStart, keyEnd, KEY_SYMBOL)) {
+                int i = readEnum(SYMBOL_NAMES, "symbol");
+                symbol = i < 0 ? null : SYMBOLS[i];
+            } else if (keyEquals(keyStart, keyEnd, KEY_EXCHANGE)) {
+                int i = readEnum(EXCHANGE_NAMES, "exchange");
+                exchange = i < 0 ? null : EXCHANGES[i];
+            } else if (keyEquals(keyStart, keyEnd, KEY_LAST)) {
+                readDecimal(LAST);
+            } else if (keyEquals(keyStart, keyEnd, KEY_BID)) {
+                readDecimal(BID);
+            } else if (keyEquals(keyStart, keyEnd, KEY_ASK)) {
+                readDecimal(ASK);
+            } else if (keyEquals(keyStart, keyEnd, KEY_VOLUME)) {
+                readDecimal(VOLUME);
+            } else if (keyEquals(keyStart, keyEnd, KEY_TS)) {
+                readTimestamp();
+            } else {
+                skipValue();
+            }
+
+            skipWhitespace();
+            byte b = next();
+            if (b == '}') return true;
+            if (b != ',') throw error("Expected ',' or '}'");
+        }
+    }
+
+    public Symbol symbol() {
+        return symbol;
+    }
+
+    public Exchange exchange() {
+        return exchange;
+    }
+
+    public boolean hasLast() {
+        return present[LAST];
+    }
+
+    public BigDecimal last() {
+        return decimal(LAST);
+    }
+
+    public TickerDto toDto() {
+        return new TickerDto(symbol, exchange, decimal(LAST), decimal(BID), decimal(ASK), decimal(VOLUME), ts);
+    }
+
+    private BigDecimal decimal(int field) {
+        if (!present[field]) return null;
+        if (fallbacks[field] != null) return fallbacks[field];
+        return BigDecimal.valueOf(unscaled[field], scales[field]);
+    }
+
+    private int readEnum(byte[][] names, String field) {
+        if (peek() == 'n') {
+            expectLiteral("null");
+            return -1;
+        }
+        expect('"');
+        int start = pos;
+        int stop = skipStringBody();
+        int len = stop - start;
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].length == len && keyEquals(start, stop, names[i])) return i;
+        }
+        throw error("Unknown " + field + " '" + text(start, stop) + "'");
+    }
+
+    private void readDecimal(int field) {
+        byte b = peek();
+        if (b == 'n') {
+            expectLiteral("null");
+            present[field] = false;
+            return;
+        }
+        boolean quoted = b == '"';
+        if (quoted) pos++;
+
+        int start = pos;
+        boolean negative = false;
+        if (peek() == '-') {
+            negative = true;
+            pos++;
+        }
+        long value = 0;
+        int digits = 0;
+        boolean anyDigit = false;
+        int scale = -1;
+        boolean fallback = false;
+        while (pos < end) {
+            b = buf.get(pos);
+            if (b >= '0' && b <= '9') {
+                anyDigit = true;
+                if (digits == 18) fallback = true;
+                else value = value * 10 + (b - '0');
+                if (value != 0 || scale >= 0) digits++;
+                if (scale >= 0) scale++;
+            } else if (b == '.' && scale < 0) {
+                scale = 0;
+            } else if (b == 'e' || b == 'E' || b == '+' || (b == '-' && pos > start)) {
+                fallback = true;
+            } else {
+                break;
+            }
+            pos++;
+        }
+        int stop = pos;
+        if (!anyDigit) throw error("Expected number");
+        if (quoted) expect('"');
+
+        present[field] = true;
+        if (fallback) {
+            try {
+                fallbacks[field] = new BigDecimal(text(start, stop));
+            } catch (NumberFormatException e) {
+                throw error("Invalid " + FIELDS[field] + " '" + text(start, stop) + "'");
+            }
+        } else {
+            fallbacks[field] = null;
+            unscaled[field] = negative ? -value : value;
+            scales[field] = Math.max(scale, 0);
+        }
+    }
+
+    private void readTimestamp() {
+        byte b = peek();
+        if (b == 'n') {
+            expectLiteral("null");
+            ts = null;
+            return;
+        }
+        if (b == '"') {
+            pos++;
+            int start = pos;
+            int stop = skipStringBody();
+            try {
+                ts = Instant.parse(text(start, stop));
+            } catch (DateTimeParseException e) {
+                throw error("Invalid ts '" + text(start, stop) + "'");
+            }
+            return;
+        }
+        int start = pos;
+        while (pos < end && (b = buf.get(pos)) != ',' && b != '}' && b != ' ' && b != '\t' && b != '\r' && b != '\n') pos++;
+        try {
+            BigDecimal seconds = new BigDecimal(text(start, pos));
+            ts = Instant.ofEpochSecond(seconds.longValue(), seconds.remainder(BigDecimal.ONE).movePointRight(9).intValue());
+        } catch (NumberFormatException | ArithmeticException | DateTimeException e) {
+            throw error("Invalid ts '" + text(start, pos) + "'");
+        }
+    }
+
+    private void skipValue() {
+        byte b = peek();
+        if (b == '"') {
+            pos++;
+            skipStringBody();
+            return;
+        }
+        int depth = 0;
+        while (pos < end) {
+            b = buf.get(pos);
+            if (b == '"') {
+                pos++;
+                skipStringBody();
+                continue;
+            }
+            if (b == '{' || b == '[') depth++;
+            else if (b == '}' || b == ']') {
+                if (depth == 0) return;
+                depth--;
+            } else if (b == ',' && depth == 0) {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    // positioned after the opening quote; returns the index of the closing quote and moves past it
+    private int skipStringBody() {
+        while (pos < end) {
+            byte b = buf.get(pos);
+            if (b == '\\') {
+                pos += 2;
+            } else if (b == '"') {
+                return pos++;
+            } else {
+                pos++;
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private boolean keyEquals(int start, int stop, byte[] key) {
+        if (stop - start != key.length) return false;
+        for (int i = 0; i < key.length; i++) {
+            if (buf.get(start + i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    private void expectLiteral(String literal) {
+        for (int i = 0; i < literal.length(); i++) expect(literal.charAt(i));
+    }
+
+    private void expect(char c) {
+        if (next() != c) throw error("Expected '" + c + "'");
+    }
+
+    private byte next() {
+        if (pos >= end) throw error("Unexpected end of line");
+        return buf.get(pos++);
+    }
+
+    private byte peek() {
+        if (pos >= end) throw error("Unexpected end of line");
+        return buf.get(pos);
+    }
+
+    private void skipWhitespace() {
+        while (pos < end) {
+            byte b = buf.get(pos);
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') return;
+            pos++;
+        }
+    }
+
+    private String text(int start, int stop) {
+        byte[] bytes = new byte[stop - start];
+        for (int i = 0; i < bytes.length; i++) bytes[i] = buf.get(start + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private DecodingException error(String message) {
+        return new DecodingException(message + " at offset " + pos + " in ticker line");
+    }
+
+    private static byte[][] names(Enum<?>[] values) {
+        byte[][] names = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) names[i] = ascii(values[i].name());
+        return names;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,128 @@
+package nur.kg.cryptobot.codec;
+
+import nur.kg.domain.dto.TickerDto;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// NDJSON decoder for TickerDto that splits lines and parses them in place from the incoming DataBuffers.
+// Only a line that straddles two buffers is copied, into a per-stream carry buffer.
+public class TickerNdjsonDecoder implements Decoder<TickerDto> {
+
+    private static final List<MimeType> MIME_TYPES = List.of(MediaType.APPLICATION_NDJSON);
+
+    private final int maxLineLength;
+
+    public TickerNdjsonDecoder(int maxLineLength) {
+        this.maxLineLength = maxLineLength;
+    }
+
+    @Override
+    public boolean canDecode(ResolvableType elementType, @Nullable MimeType mimeType) {
+        return TickerDto.class == elementType.toClass()
+                && (mimeType == null || MediaType.APPLICATION_NDJSON.isCompatibleWith(mimeType));
+    }
+
+    @Override
+    public Flux<TickerDto> decode(Publisher<DataBuffer> input, ResolvableType elementType,
+                                  @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return Flux.defer(() -> {
+            LineDecoder lines = new LineDecoder(maxLineLength);
+            return Flux.from(input)
+                    .concatMapIterable(buffer -> {
+                        try {
+                            return lines.feed(buffer);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(lines.finish())));
+        });
+    }
+
+    @Override
+    public Mono<TickerDto> decodeToMono(Publisher<DataBuffer> input, ResolvableType elementType,
+                                        @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return decode(input, elementType, mimeType, hints).next();
+    }
+
+    @Override
+    public List<MimeType> getDecodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    public static final class LineDecoder {
+        private final int maxLineLength;
+        private final TickerLineParser parser = new TickerLineParser();
+        private ByteBuffer carry = ByteBuffer.allocate(256);
+
+        public LineDecoder(int maxLineLength) {
+            this.maxLineLength = maxLineLength;
+        }
+
+        public List<TickerDto> feed(DataBuffer buffer) {
+            List<TickerDto> out = new ArrayList<>();
+            try (DataBuffer.ByteBufferIterator it = buffer.readableByteBuffers()) {
+                while (it.hasNext()) scan(it.next(), out);
+            }
+            return out;
+        }
+
+        public List<TickerDto> finish() {
+            List<TickerDto> out = new ArrayList<>(1);
+            if (carry.position() > 0) parseCarry(out);
+            return out;
+        }
+
+        private void scan(ByteBuffer bb, List<TickerDto> out) {
+            int start = bb.position();
+            int limit = bb.limit();
+            for (int i = start; i < limit; i++) {
+                if (bb.get(i) != '\n') continue;
+                if (carry.position() > 0) {
+                    append(bb, start, i);
+                    parseCarry(out);
+                } else {
+                    if (i - start > maxLineLength) throw tooLong();
+                    if (parser.parse(bb, start, i)) out.add(parser.toDto());
+                }
+                start = i + 1;
+            }
+            if (start < limit) append(bb, start, limit);
+        }
+
+        private void parseCarry(List<TickerDto> out) {
+            if (parser.parse(carry, 0, carry.position())) out.add(parser.toDto());
+            carry.clear();
+        }
+
+        private void append(ByteBuffer bb, int from, int to) {
+            int len = to - from;
+            if (carry.position() + len > maxLineLength) throw tooLong();
+            if (carry.remaining() < len) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.min(maxLineLength, Math.max(carry.capacity() * 2, carry.position() + len)));
+                carry.flip();
+                bigger.put(carry);
+                carry = bigger;
+            }
+            carry.put(bb.duplicate().limit(to).position(from));
+        }
+
+        private DataBufferLimitException tooLong() {
+            return new DataBufferLimitException("Ticker line exceeds the limit of " + maxLineLength + " bytes");
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package nur.kg.cryptobot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "bars")
+public record BarProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue({"1s", "1m", "5m", "1h"}) List<Duration> timeframes,
+        @DefaultValue("500") int history,
+        @DefaultValue("1s") Duration closeGrace) {
+
+    public BarProperties {
+        if (history < 1) throw new IllegalArgumentException("bars.history must be positive");
+        for (Duration tf : timeframes) {
+            if (tf.toMillis() < 1) throw new IllegalArgumentException("bars.timeframes must be at least 1ms: " + tf);
+        }
+    }
+}
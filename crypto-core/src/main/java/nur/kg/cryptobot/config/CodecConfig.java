@@ -0,0 +1,20 @@
+package nur.kg.cryptobot.config;
+
+import nur.kg.cryptobot.codec.TickerNdjsonDecoder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+@Configuration
+@ConditionalOnProperty(prefix = "ingest", name = "fast-ndjson", havingValue = "true", matchIfMissing = true)
+public class CodecConfig implements WebFluxConfigurer {
+
+    private static final int MAX_TICKER_LINE = 64 * 1024;
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        // typed custom readers are consulted before the default Jackson NDJSON reader
+        configurer.customCodecs().register(new TickerNdjsonDecoder(MAX_TICKER_LINE));
+    }
+}
@@ -4,5 +4,6 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
-@EnableConfigurationProperties(ExchangeProperties.class)
+@EnableConfigurationProperties({ExchangeProperties.class, PipelineProperties.class, IngestProperties.class,
+        JournalProperties.class, SnapshotProperties.class, HostProperties.class, BarProperties.class, MetricsProperties.class})
 public class CorePropertiesConfig { }
\ No newline at end of file
@@ -1,3 +1,20 @@
 package nur.kg.cryptobot.config;
 
-public record ExchangeEndpoint(String name, String url) {}
\ No newline at end of file
+import java.util.ArrayList;
+import java.util.List;
+
+// url is the primary gateway of the exchange, urls optional further gateways for the same exchange;
+// pool overrides exchange.pool for this exchange
+public record ExchangeEndpoint(String name, String url, List<String> urls, ExchangeProperties.Pool pool) {
+
+    public List<String> gateways() {
+        List<String> all = new ArrayList<>();
+        if (url != null) all.add(url);
+        if (urls != null) urls.stream().filter(u -> !all.contains(u)).forEach(all::add);
+        return all;
+    }
+
+    public ExchangeProperties.Pool pool(ExchangeProperties.Pool defaults) {
+        return pool != null ? pool : defaults;
+    }
+}
@@ -1,11 +1,72 @@
 package nur.kg.cryptobot.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.DefaultValue;
 import org.springframework.context.annotation.PropertySource;
 
+import java.time.Duration;
 import java.util.List;
 
 @PropertySource("classpath:application.yaml")
 @ConfigurationProperties(prefix = "exchange")
-public record ExchangeProperties(List<ExchangeEndpoint> urls) {
-}
\ No newline at end of file
+public record ExchangeProperties(
+        List<ExchangeEndpoint> urls,
+        @DefaultValue Batch batch,
+        @DefaultValue Routing routing,
+        @DefaultValue Pool pool,
+        @DefaultValue RateLimit rateLimit) {
+
+    // orders to one endpoint within window of the first queued one, up to maxSize, go out as one batch request;
+    // past queueCapacity orders waiting for their batch, more are refused
+    public record Batch(
+            @DefaultValue("false") boolean enabled,
+            @DefaultValue("32") int maxSize,
+            @DefaultValue("2ms") Duration window,
+            @DefaultValue("1024") int queueCapacity) {
+    }
+
+    // hedge: race a second gateway once an attempt outlives the p95 of its gateway (never sooner than hedgeFloor);
+    // a gateway failing failureThreshold attempts in a row is ejected for openFor
+    public record Routing(
+            @DefaultValue("false") boolean hedge,
+            @DefaultValue("2ms") Duration hedgeFloor,
+            @DefaultValue("3") int failureThreshold,
+            @DefaultValue("5s") Duration openFor) {
+    }
+
+    // Connections of one endpoint, shared by its gateways. http2 speaks h2 over TLS and prior-knowledge h2c otherwise.
+    // prewarm connections per gateway are opened at startup and pinged on keepAlivePath every keepAlive (0 = never),
+    // which has to stay below maxIdleTime and the exchange's own idle timeout to keep them open. With http2 a gateway
+    // multiplexes its requests over a single connection, so any prewarm above 0 warms just that one.
+    public record Pool(
+            @DefaultValue("16") int maxConnections,
+            @DefaultValue("256") int pendingAcquireMaxCount,
+            @DefaultValue("1s") Duration pendingAcquireTimeout,
+            @DefaultValue("30s") Duration maxIdleTime,
+            @DefaultValue("10s") Duration evictInBackground,
+            @DefaultValue("false") boolean http2,
+            @DefaultValue("2") int prewarm,
+            @DefaultValue("10s") Duration keepAlive,
+            @DefaultValue("/api/ping") String keepAlivePath) {
+
+        public static final Pool DEFAULTS = defaults("exchange.pool", Pool.class);
+    }
+
+    // Order requests per exchange: rate per second in bursts of up to burst (rate 0 = no limit, only exchange-requested
+    // pauses). The last reserved tokens of a burst are kept for urgent (market) orders, which may also wait up to
+    // maxWait for a token; other orders are rejected rather than queued once the bucket runs dry.
+    public record RateLimit(
+            @DefaultValue("0") double rate,
+            @DefaultValue("10") int burst,
+            @DefaultValue("2") int reserved,
+            @DefaultValue("500ms") Duration maxWait) {
+
+        public static final RateLimit NONE = defaults("exchange.rate-limit", RateLimit.class);
+    }
+
+    // what binding finds with no properties set: every component at its @DefaultValue, so constants stay in step with them
+    private static <T> T defaults(String name, Class<T> type) {
+        return new Binder().bindOrCreate(name, type);
+    }
+}
@@ -0,0 +1,17 @@
+package nur.kg.cryptobot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+@ConfigurationProperties(prefix = "host")
+public record HostProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("4096") int queueCapacity,
+        @DefaultValue List<StrategySpec> strategies) {
+
+    public HostProperties {
+        if (queueCapacity < 1) throw new IllegalArgumentException("host.queue-capacity must be positive");
+    }
+}
@@ -0,0 +1,17 @@
+package nur.kg.cryptobot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "ingest")
+public record IngestProperties(
+        @DefaultValue("true") boolean fastNdjson,
+        @DefaultValue WebSocket websocket) {
+
+    public record WebSocket(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("/ws/tickers") String path,
+            @DefaultValue("16") int maxSessions,
+            @DefaultValue("256") int prefetch) {
+    }
+}
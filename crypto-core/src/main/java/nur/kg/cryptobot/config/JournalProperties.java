@@ -0,0 +1,30 @@
+package nur.kg.cryptobot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties(prefix = "journal")
+public record JournalProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("journal") String directory,
+        @DefaultValue("64MB") DataSize segmentSize,
+        @DefaultValue("16") int retainSegments,
+        @DefaultValue("65536") int bufferCapacity) {
+
+    // a segment is mapped as one buffer, so it cannot exceed what a MappedByteBuffer addresses
+    public static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+    // the ring rounds its capacity up to a power of two
+    public static final int MAX_BUFFER_CAPACITY = 1 << 30;
+
+    public JournalProperties {
+        if (segmentSize == null || segmentSize.toBytes() < 1 || segmentSize.toBytes() > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("journal.segment-size must be between 1B and " + MAX_SEGMENT_SIZE + "B: " + segmentSize);
+        }
+        // the newest segment is the one being written, it is never up for deletion
+        if (retainSegments < 1) throw new IllegalArgumentException("journal.retain-segments must be positive");
+        if (bufferCapacity < 1 || bufferCapacity > MAX_BUFFER_CAPACITY) {
+            throw new IllegalArgumentException("journal.buffer-capacity must be between 1 and " + MAX_BUFFER_CAPACITY);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package nur.kg.cryptobot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "metrics")
+public record MetricsProperties(
+        @DefaultValue("1") int priceSampleEvery) {
+
+    public static final MetricsProperties DEFAULTS = new MetricsProperties(1);
+}
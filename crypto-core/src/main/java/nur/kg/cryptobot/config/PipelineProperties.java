@@ -0,0 +1,25 @@
+package nur.kg.cryptobot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "pipeline")
+public record PipelineProperties(
+        @DefaultValue("SERIAL") Mode mode,
+        @DefaultValue("0") int shards,
+        @DefaultValue("4096") int queueCapacity,
+        @DefaultValue("SYMBOL") PartitionKey partitionBy,
+        @DefaultValue("false") boolean conflate) {
+
+    public PipelineProperties {
+        if (queueCapacity < 1) throw new IllegalArgumentException("pipeline.queue-capacity must be positive");
+    }
+
+    public enum Mode { SERIAL, SHARDED }
+
+    public enum PartitionKey { SYMBOL, EXCHANGE_SYMBOL }
+
+    public int effectiveShards() {
+        return shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+    }
+}
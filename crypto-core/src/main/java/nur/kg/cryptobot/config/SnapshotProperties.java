@@ -0,0 +1,14 @@
+package nur.kg.cryptobot.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "snapshot")
+public record SnapshotProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("snapshot") String directory,
+        @DefaultValue("10s") Duration interval,
+        @DefaultValue("2m") Duration maxAge) {
+}
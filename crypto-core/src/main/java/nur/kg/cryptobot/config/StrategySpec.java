@@ -0,0 +1,33 @@
+package nur.kg.cryptobot.config;
+
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// One hosted strategy instance. maxOrders per budgetWindow caps what it may send, 0 means no cap.
+public record StrategySpec(
+        String id,
+        String type,
+        @DefaultValue("0") int maxOrders,
+        @DefaultValue("1m") Duration budgetWindow,
+        @DefaultValue Map<String, String> params) {
+
+    public StrategySpec {
+        if (id == null || id.isBlank()) throw new IllegalArgumentException("host strategy needs an id");
+        if (type == null || type.isBlank()) throw new IllegalArgumentException("host strategy " + id + " needs a type");
+        if (maxOrders < 0) throw new IllegalArgumentException("host strategy " + id + ": max-orders must not be negative");
+    }
+
+    // binds params as if they were the strategy's own "bot" block, with the spec id as bot.id,
+    // so defaults and validation of the strategy's properties record still apply
+    public <T> T bind(Class<T> type) {
+        Map<String, String> source = new HashMap<>();
+        params.forEach((k, v) -> source.put("bot." + k, v));
+        source.put("bot.id", id);
+        return new Binder(new MapConfigurationPropertySource(source)).bindOrCreate("bot", type);
+    }
+}
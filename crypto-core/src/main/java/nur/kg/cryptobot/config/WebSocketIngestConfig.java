@@ -0,0 +1,22 @@
+package nur.kg.cryptobot.config;
+
+import nur.kg.cryptobot.ingest.TickIngestHub;
+import nur.kg.cryptobot.ingest.TickWebSocketHandler;
+import nur.kg.cryptobot.metrics.MetricsService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
+
+import java.util.Map;
+
+@Configuration
+@ConditionalOnProperty(prefix = "ingest.websocket", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class WebSocketIngestConfig {
+
+    @Bean
+    public HandlerMapping tickWebSocketMapping(IngestProperties properties, TickIngestHub hub, MetricsService metricsService) {
+        return new SimpleUrlHandlerMapping(Map.of(properties.websocket().path(), new TickWebSocketHandler(hub, metricsService)), -1);
+    }
+}
@@ -1,8 +1,11 @@
 package nur.kg.cryptobot.controller;
 
 import lombok.RequiredArgsConstructor;
-import nur.kg.cryptobot.market.MarketService;
+import nur.kg.cryptobot.codec.TickFrameCodec;
+import nur.kg.cryptobot.ingest.IngestPipeline;
+import nur.kg.cryptobot.metrics.MetricsService;
 import nur.kg.domain.dto.TickerDto;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -16,10 +19,18 @@ import reactor.core.publisher.Mono;
 @RequestMapping("/api")
 public class MarketController {
 
-    private final MarketService marketService;
+    private final IngestPipeline pipeline;
+    private final MetricsService metricsService;
 
+    // both feed the one shared pipeline and complete once their ticks are in it
     @PostMapping(value = "/tickers/stream", consumes = MediaType.APPLICATION_NDJSON_VALUE)
     public Mono<Void> stream(@RequestBody Flux<TickerDto> stream) {
-        return marketService.processMarket(stream);
+        return pipeline.ingest(stream);
+    }
+
+    @PostMapping(value = "/tickers/binary", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Mono<Void> binary(@RequestBody Flux<DataBuffer> frames) {
+        return pipeline.ingest(TickFrameCodec.decode(frames,
+                (market, missed) -> metricsService.getTicksMissedCounter(market).increment(missed)));
     }
 }
@@ -0,0 +1,30 @@
+package nur.kg.cryptobot.host;
+
+import io.micrometer.core.instrument.Counter;
+import nur.kg.cryptobot.client.MarketClient;
+import nur.kg.domain.request.OrderRequest;
+import reactor.core.publisher.Mono;
+
+// Per-strategy view of the shared MarketClient: orders beyond the strategy's budget fail without reaching the exchange.
+class BudgetedMarketClient extends MarketClient {
+
+    private final MarketClient delegate;
+    private final OrderBudget budget;
+    private final Counter rejected;
+
+    BudgetedMarketClient(MarketClient delegate, OrderBudget budget, Counter rejected) {
+        super();
+        this.delegate = delegate;
+        this.budget = budget;
+        this.rejected = rejected;
+    }
+
+    @Override
+    public Mono<Void> processOrder(OrderRequest orderRequest) {
+        return Mono.defer(() -> {
+            if (budget.tryAcquire()) return delegate.processOrder(orderRequest);
+            rejected.increment();
+            return Mono.error(new IllegalStateException("Order budget exhausted for " + orderRequest.botId()));
+        });
+    }
+}
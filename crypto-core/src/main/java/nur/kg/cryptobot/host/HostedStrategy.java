@@ -0,0 +1,16 @@
+package nur.kg.cryptobot.host;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// A strategy instance run by the StrategyHost. It sees every tick together with the shared indicator snapshot taken
+// for it, and leases the indicators it reads through the context's registry, releasing them when the stream ends.
+public interface HostedStrategy {
+
+    Mono<Void> processHosted(Flux<HostedTick> ticks);
+
+    // same meaning as MarketService.conflatable
+    default boolean conflatable() {
+        return true;
+    }
+}
@@ -0,0 +1,8 @@
+package nur.kg.cryptobot.host;
+
+import nur.kg.cryptobot.indicator.IndicatorSnapshot;
+import nur.kg.domain.dto.TickerDto;
+
+// a tick as the host hands it to its strategies, with the shared indicators as they stood right after it
+public record HostedTick(TickerDto tick, IndicatorSnapshot indicators) {
+}
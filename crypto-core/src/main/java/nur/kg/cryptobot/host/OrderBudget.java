@@ -0,0 +1,34 @@
+package nur.kg.cryptobot.host;
+
+import java.time.Clock;
+import java.time.Duration;
+
+// Fixed window order allowance for one hosted strategy.
+final class OrderBudget {
+
+    private final int maxOrders;
+    private final long windowMillis;
+    private final Clock clock;
+
+    private long windowStart;
+    private int used;
+
+    OrderBudget(int maxOrders, Duration window, Clock clock) {
+        this.maxOrders = maxOrders;
+        this.windowMillis = window.toMillis();
+        this.clock = clock;
+        this.windowStart = clock.millis();
+    }
+
+    synchronized boolean tryAcquire() {
+        if (maxOrders == 0) return true;
+        long now = clock.millis();
+        if (now - windowStart >= windowMillis) {
+            windowStart = now;
+            used = 0;
+        }
+        if (used == maxOrders) return false;
+        used++;
+        return true;
+    }
+}
@@ -0,0 +1,24 @@
+package nur.kg.cryptobot.host;
+
+import io.micrometer.core.instrument.Timer;
+import nur.kg.cryptobot.client.MarketClient;
+import nur.kg.cryptobot.indicator.IndicatorRegistry;
+import nur.kg.cryptobot.market.TickPipeline;
+import nur.kg.cryptobot.metrics.MetricsService;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// what a hosted strategy is built from: metrics tagged with its id, a client that enforces its order budget
+// and the shared indicators to lease from; the host advances them and sends their snapshot along with each tick
+public record StrategyContext(MetricsService metrics, MarketClient client, TickPipeline pipeline, Clock clock,
+                              IndicatorRegistry indicators, Timer tickTimer) {
+
+    // wrap the strategy's handling of one tick, from the moment its consumer takes it up until the work settles
+    public Mono<Void> timed(Supplier<Mono<Void>> processing) {
+        long start = System.nanoTime();
+        return processing.get().doFinally(s -> tickTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
+}
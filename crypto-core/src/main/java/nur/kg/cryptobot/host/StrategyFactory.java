@@ -0,0 +1,11 @@
+package nur.kg.cryptobot.host;
+
+import nur.kg.cryptobot.config.StrategySpec;
+
+// Registered as a bean by each strategy module; the host picks the factory whose type() matches host.strategies[].type.
+public interface StrategyFactory {
+
+    String type();
+
+    HostedStrategy create(StrategySpec spec, StrategyContext context);
+}
@@ -0,0 +1,128 @@
+package nur.kg.cryptobot.host;
+
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import nur.kg.cryptobot.client.MarketClient;
+import nur.kg.cryptobot.config.HostProperties;
+import nur.kg.cryptobot.config.StrategySpec;
+import nur.kg.cryptobot.indicator.IndicatorRegistry;
+import nur.kg.cryptobot.market.MarketIds;
+import nur.kg.cryptobot.market.MarketService;
+import nur.kg.cryptobot.market.TickPipeline;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.dto.TickerDto;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Runs any number of strategy instances in one process behind a single ingest path: each tick is decoded once by
+// the controller, applied once to the shared indicators and handed, with a snapshot of them, to every strategy
+// through its own bounded queue.
+// Strategies keep separate state, metrics (strategy tag) and order budgets; one that falls a full queue behind
+// loses ticks instead of stalling the others, and one that fails is restarted on a fresh queue while the rest go on.
+@Log4j2
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "host", name = "enabled", havingValue = "true")
+public class StrategyHost implements MarketService {
+
+    private final HostProperties properties;
+    private final MetricsService metricsService;
+    private final MarketClient client;
+    private final TickPipeline pipeline;
+    private final Clock clock;
+    private final IndicatorRegistry indicators;
+    private final List<StrategyFactory> factories;
+
+    private List<Hosted> strategies;
+
+    @PostConstruct
+    public void init() {
+        if (properties.strategies().isEmpty()) throw new IllegalStateException("host.enabled is set but host.strategies is empty");
+        Map<String, StrategyFactory> byType = factories.stream()
+                .collect(Collectors.toMap(f -> f.type().toLowerCase(Locale.ROOT), Function.identity()));
+        Set<String> ids = new HashSet<>();
+        List<Hosted> hosted = new ArrayList<>();
+        for (StrategySpec spec : properties.strategies()) {
+            if (!ids.add(spec.id())) throw new IllegalStateException("Duplicate host strategy id: " + spec.id());
+            StrategyFactory factory = byType.get(spec.type().toLowerCase(Locale.ROOT));
+            if (factory == null) {
+                throw new IllegalStateException("No strategy factory for type " + spec.type() + ", available: " + byType.keySet());
+            }
+            OrderBudget budget = new OrderBudget(spec.maxOrders(), spec.budgetWindow(), clock);
+            MarketClient budgeted = new BudgetedMarketClient(client, budget, metricsService.getOrderBudgetRejectedCounter(spec.id()));
+            StrategyContext context = new StrategyContext(metricsService.forStrategy(spec.id()), budgeted, pipeline, clock, indicators,
+                    metricsService.getStrategyTickTimer(spec.id()));
+            hosted.add(new Hosted(spec.id(), factory.create(spec, context),
+                    metricsService.getStrategyTicksDroppedCounter(spec.id()), metricsService.getStrategyFailuresCounter(spec.id())));
+        }
+        strategies = List.copyOf(hosted);
+        metricsService.registerActiveIndicatorsGauge(indicators::activeIndicators);
+        log.info("Strategy host running {}", properties.strategies().stream()
+                .map(s -> s.id() + "(" + s.type() + ")").collect(Collectors.joining(", ")));
+    }
+
+    @Override
+    public Mono<Void> processMarket(Flux<TickerDto> ticks) {
+        return Mono.defer(() -> {
+            int n = strategies.size();
+            AtomicReferenceArray<Sinks.Many<HostedTick>> queues = new AtomicReferenceArray<>(n);
+            AtomicBoolean ended = new AtomicBoolean();
+            List<Mono<Void>> runs = new ArrayList<>(n + 1);
+            for (int i = 0; i < n; i++) runs.add(run(strategies.get(i), queues, i, ended));
+            runs.add(ticks
+                    .doOnNext(t -> {
+                        int market = MarketIds.of(t);
+                        if (market != MarketIds.NONE) metricsService.getHostTicksReceivedCounter(market).increment();
+                        HostedTick hosted = new HostedTick(t, indicators.onTick(t));
+                        for (int i = 0; i < n; i++) {
+                            if (queues.get(i).tryEmitNext(hosted).isFailure()) strategies.get(i).dropped().increment();
+                        }
+                    })
+                    // strategies only see the feed end, a failing feed fails this run by itself
+                    .doFinally(s -> {
+                        ended.set(true);
+                        for (int i = 0; i < n; i++) queues.get(i).tryEmitComplete();
+                    })
+                    .then());
+            return Mono.when(runs);
+        });
+    }
+
+    // Each (re)subscription gets a fresh queue: a unicast queue whose consumer failed takes no new one, and the
+    // ticks sent to the failed run in the meantime count as dropped.
+    private Mono<Void> run(Hosted h, AtomicReferenceArray<Sinks.Many<HostedTick>> queues, int i, AtomicBoolean ended) {
+        return Mono.defer(() -> {
+                    Sinks.Many<HostedTick> queue = Sinks.many().unicast()
+                            .onBackpressureBuffer(Queues.<HostedTick>get(properties.queueCapacity()).get());
+                    queues.set(i, queue);
+                    if (ended.get()) queue.tryEmitComplete();
+                    return h.service().processHosted(queue.asFlux());
+                })
+                .doOnError(e -> {
+                    h.failures().increment();
+                    log.error("Hosted strategy {} failed, restarting it", h.id(), e);
+                })
+                .retry();
+    }
+
+    private record Hosted(String id, HostedStrategy service, Counter dropped, Counter failures) {
+    }
+}
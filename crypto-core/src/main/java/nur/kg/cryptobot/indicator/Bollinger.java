@@ -0,0 +1,89 @@
+package nur.kg.cryptobot.indicator;
+
+import nur.kg.cryptobot.market.FixedPoint;
+
+// Bollinger bands: n-tick simple average +/- k population standard deviations. The running sum of squares is
+// rebuilt from the window once per wrap so rounding drift cannot accumulate.
+public final class Bollinger implements Indicator {
+
+    private final int n;
+    private final double k;
+    private final double[] window;
+    private int next;
+    private int count;
+    private double sum;
+    private double sumSq;
+
+    Bollinger(int n, double k) {
+        this.n = n;
+        this.k = k;
+        this.window = new double[n];
+    }
+
+    private Bollinger(Bollinger from) {
+        this.n = from.n;
+        this.k = from.k;
+        this.window = null;
+        this.count = from.count;
+        this.sum = from.sum;
+        this.sumSq = from.sumSq;
+    }
+
+    @Override
+    public void update(long price, long volume) {
+        double x = FixedPoint.toDouble(price);
+        if (count == window.length) {
+            double old = window[next];
+            sum -= old;
+            sumSq -= old * old;
+        } else {
+            count++;
+        }
+        window[next] = x;
+        sum += x;
+        sumSq += x * x;
+        if (++next == window.length) {
+            next = 0;
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        double s = 0;
+        double sq = 0;
+        for (int i = 0; i < count; i++) {
+            s += window[i];
+            sq += window[i] * window[i];
+        }
+        sum = s;
+        sumSq = sq;
+    }
+
+    @Override
+    public boolean ready() {
+        return count == n;
+    }
+
+    @Override
+    public Bollinger snapshot() {
+        return new Bollinger(this);
+    }
+
+    public double middle() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    public double deviation() {
+        if (count == 0) return 0;
+        double mean = sum / count;
+        return Math.sqrt(Math.max(0, sumSq / count - mean * mean));
+    }
+
+    public double upper() {
+        return middle() + k * deviation();
+    }
+
+    public double lower() {
+        return middle() - k * deviation();
+    }
+}
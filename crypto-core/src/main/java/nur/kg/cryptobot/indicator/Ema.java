@@ -0,0 +1,52 @@
+package nur.kg.cryptobot.indicator;
+
+import nur.kg.cryptobot.market.FixedPoint;
+
+// Exponential moving average, alpha = 2 / (n + 1), seeded with the simple average of the first n values.
+public final class Ema implements Indicator {
+
+    private final int n;
+    private final double alpha;
+    private int count;
+    private double value;
+
+    Ema(int n) {
+        this.n = n;
+        this.alpha = 2.0 / (n + 1);
+    }
+
+    private Ema(Ema from) {
+        this.n = from.n;
+        this.alpha = from.alpha;
+        this.count = from.count;
+        this.value = from.value;
+    }
+
+    @Override
+    public void update(long price, long volume) {
+        add(FixedPoint.toDouble(price));
+    }
+
+    void add(double x) {
+        if (count < n) {
+            value += x;
+            if (++count == n) value /= n;
+            return;
+        }
+        value += alpha * (x - value);
+    }
+
+    @Override
+    public boolean ready() {
+        return count == n;
+    }
+
+    @Override
+    public Ema snapshot() {
+        return new Ema(this);
+    }
+
+    public double value() {
+        return value;
+    }
+}
@@ -0,0 +1,14 @@
+package nur.kg.cryptobot.indicator;
+
+// Incremental indicator fed one tick at a time, price and volume as FixedPoint longs.
+// Instances held by the IndicatorRegistry are shared and advanced on the ingest thread: consumers read the
+// snapshot taken right after their tick, never the live instance.
+public interface Indicator {
+
+    void update(long price, long volume);
+
+    boolean ready();
+
+    // read-only copy of the current values, without the window behind them
+    Indicator snapshot();
+}
@@ -0,0 +1,56 @@
+package nur.kg.cryptobot.indicator;
+
+import java.util.List;
+import java.util.Map;
+
+// One consumer's hold on a set of shared indicators for a market. Read-only; close() releases the hold and
+// indicators nobody holds any more are dropped from the registry. get and ready read the live instances, which is
+// only meaningful on the thread advancing the registry; other consumers check snapshots against specs().
+public final class IndicatorLease implements AutoCloseable {
+
+    private final IndicatorRegistry registry;
+    private final int market;
+    private final Map<IndicatorSpec, Indicator> indicators;
+    private final List<IndicatorSpec> specs;
+    private final Indicator[] all;
+    private boolean closed;
+
+    IndicatorLease(IndicatorRegistry registry, int market, Map<IndicatorSpec, Indicator> indicators) {
+        this.registry = registry;
+        this.market = market;
+        this.indicators = indicators;
+        this.specs = List.copyOf(indicators.keySet());
+        this.all = indicators.values().toArray(new Indicator[0]);
+    }
+
+    public int market() {
+        return market;
+    }
+
+    public List<IndicatorSpec> specs() {
+        return specs;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Indicator> T get(IndicatorSpec spec) {
+        Indicator indicator = indicators.get(spec);
+        if (indicator == null) throw new IllegalArgumentException(spec + " is not part of this lease");
+        return (T) indicator;
+    }
+
+    public boolean ready() {
+        for (Indicator indicator : all) {
+            if (!indicator.ready()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        registry.release(market, indicators.keySet());
+    }
+}
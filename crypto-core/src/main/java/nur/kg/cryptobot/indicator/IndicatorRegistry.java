@@ -0,0 +1,110 @@
+package nur.kg.cryptobot.indicator;
+
+import nur.kg.cryptobot.market.FixedPoint;
+import nur.kg.cryptobot.market.MarketIds;
+import nur.kg.domain.dto.TickerDto;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Indicators shared by every strategy in the process. Each distinct (market, spec) exists once, is reference
+// counted through leases and advanced exactly once per tick by whoever owns the tick stream (the strategy host),
+// so adding a strategy that reuses existing indicators adds no per-tick indicator work.
+// Live values reflect the latest tick applied; consumers running behind the feed read the snapshot onTick returned
+// for their tick instead.
+@Component
+public class IndicatorRegistry {
+
+    private static final Active NONE = new Active(new IndicatorSpec[0], new Indicator[0]);
+
+    private final PerMarket[] markets;
+
+    public IndicatorRegistry() {
+        markets = new PerMarket[MarketIds.COUNT];
+        for (int i = 0; i < markets.length; i++) markets[i] = new PerMarket();
+    }
+
+    // market is a MarketIds id, so the same pair on two exchanges gets separate indicators
+    public IndicatorLease lease(int market, List<IndicatorSpec> specs) {
+        PerMarket s = markets[market];
+        Map<IndicatorSpec, Indicator> leased = new LinkedHashMap<>();
+        synchronized (s) {
+            for (IndicatorSpec spec : specs) {
+                if (leased.containsKey(spec)) continue;
+                Held held = s.held.computeIfAbsent(spec, sp -> new Held(sp.create()));
+                held.refs++;
+                leased.put(spec, held.indicator);
+            }
+            s.publish();
+        }
+        return new IndicatorLease(this, market, leased);
+    }
+
+    // applies t to its market's indicators and returns their values right after it
+    public IndicatorSnapshot onTick(TickerDto t) {
+        if (t == null || t.symbol() == null || t.last() == null) return IndicatorSnapshot.EMPTY;
+        PerMarket s = markets[MarketIds.of(t.exchange(), t.symbol())];
+        if (s.active.indicators.length == 0) return IndicatorSnapshot.EMPTY;
+        long price = FixedPoint.toScaled(t.last());
+        long volume = t.volume() == null ? 0 : FixedPoint.toScaled(t.volume());
+        synchronized (s) {
+            // re-read under the lock, a lease may have been added or closed meanwhile
+            Active active = s.active;
+            Indicator[] values = new Indicator[active.indicators.length];
+            for (int i = 0; i < values.length; i++) {
+                active.indicators[i].update(price, volume);
+                values[i] = active.indicators[i].snapshot();
+            }
+            return new IndicatorSnapshot(active.specs, values);
+        }
+    }
+
+    public int activeIndicators() {
+        int n = 0;
+        for (PerMarket s : markets) n += s.active.indicators.length;
+        return n;
+    }
+
+    void release(int market, Collection<IndicatorSpec> specs) {
+        PerMarket s = markets[market];
+        synchronized (s) {
+            for (IndicatorSpec spec : specs) {
+                Held held = s.held.get(spec);
+                if (held != null && --held.refs == 0) s.held.remove(spec);
+            }
+            s.publish();
+        }
+    }
+
+    private static final class PerMarket {
+        final Map<IndicatorSpec, Held> held = new HashMap<>();
+        volatile Active active = NONE;
+
+        void publish() {
+            if (held.isEmpty()) {
+                active = NONE;
+                return;
+            }
+            IndicatorSpec[] specs = held.keySet().toArray(new IndicatorSpec[0]);
+            Indicator[] indicators = new Indicator[specs.length];
+            for (int i = 0; i < specs.length; i++) indicators[i] = held.get(specs[i]).indicator;
+            active = new Active(specs, indicators);
+        }
+    }
+
+    private record Active(IndicatorSpec[] specs, Indicator[] indicators) {
+    }
+
+    private static final class Held {
+        final Indicator indicator;
+        int refs;
+
+        Held(Indicator indicator) {
+            this.indicator = indicator;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package nur.kg.cryptobot.indicator;
+
+import java.util.List;
+
+// A market's shared indicators as they stood right after one tick. Taken by the registry as it applies the tick and
+// handed along with it, so a consumer running behind the feed still decides on the values of the tick it is processing.
+public final class IndicatorSnapshot {
+
+    public static final IndicatorSnapshot EMPTY = new IndicatorSnapshot(new IndicatorSpec[0], new Indicator[0]);
+
+    private final IndicatorSpec[] specs;
+    private final Indicator[] values;
+
+    IndicatorSnapshot(IndicatorSpec[] specs, Indicator[] values) {
+        this.specs = specs;
+        this.values = values;
+    }
+
+    // null when nobody held spec for this market at the time of the tick
+    @SuppressWarnings("unchecked")
+    public <T extends Indicator> T get(IndicatorSpec spec) {
+        for (int i = 0; i < specs.length; i++) {
+            if (specs[i].equals(spec)) return (T) values[i];
+        }
+        return null;
+    }
+
+    public boolean ready(List<IndicatorSpec> required) {
+        for (IndicatorSpec spec : required) {
+            Indicator value = get(spec);
+            if (value == null || !value.ready()) return false;
+        }
+        return true;
+    }
+}
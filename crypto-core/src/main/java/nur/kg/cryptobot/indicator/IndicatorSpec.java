@@ -0,0 +1,60 @@
+package nur.kg.cryptobot.indicator;
+
+// Identity of an indicator: two consumers asking for equal specs on a symbol share one instance.
+public record IndicatorSpec(Kind kind, int period, int slowPeriod, int signalPeriod, double width) {
+
+    public enum Kind { SMA, EMA, RSI, MACD, BOLLINGER, VWAP }
+
+    public IndicatorSpec {
+        if (kind == null) throw new IllegalArgumentException("Indicator kind is required");
+        if (period < 1) throw new IllegalArgumentException(kind + " period must be positive");
+        if (kind == Kind.MACD && (slowPeriod <= period || signalPeriod < 1)) {
+            throw new IllegalArgumentException("MACD needs 0 < fast < slow and a positive signal period");
+        }
+        if (kind == Kind.BOLLINGER && !(width > 0)) throw new IllegalArgumentException("Bollinger width must be positive");
+    }
+
+    public static IndicatorSpec sma(int n) {
+        return new IndicatorSpec(Kind.SMA, n, 0, 0, 0);
+    }
+
+    public static IndicatorSpec ema(int n) {
+        return new IndicatorSpec(Kind.EMA, n, 0, 0, 0);
+    }
+
+    public static IndicatorSpec rsi(int n) {
+        return new IndicatorSpec(Kind.RSI, n, 0, 0, 0);
+    }
+
+    public static IndicatorSpec macd(int fast, int slow, int signal) {
+        return new IndicatorSpec(Kind.MACD, fast, slow, signal, 0);
+    }
+
+    public static IndicatorSpec bollinger(int n, double k) {
+        return new IndicatorSpec(Kind.BOLLINGER, n, 0, 0, k);
+    }
+
+    public static IndicatorSpec vwap(int n) {
+        return new IndicatorSpec(Kind.VWAP, n, 0, 0, 0);
+    }
+
+    Indicator create() {
+        return switch (kind) {
+            case SMA -> new Sma(period);
+            case EMA -> new Ema(period);
+            case RSI -> new Rsi(period);
+            case MACD -> new Macd(period, slowPeriod, signalPeriod);
+            case BOLLINGER -> new Bollinger(period, width);
+            case VWAP -> new Vwap(period);
+        };
+    }
+
+    @Override
+    public String toString() {
+        return switch (kind) {
+            case MACD -> "MACD(" + period + "," + slowPeriod + "," + signalPeriod + ")";
+            case BOLLINGER -> "BOLLINGER(" + period + "," + width + ")";
+            default -> kind + "(" + period + ")";
+        };
+    }
+}
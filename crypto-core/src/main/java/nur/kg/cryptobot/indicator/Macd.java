@@ -0,0 +1,57 @@
+package nur.kg.cryptobot.indicator;
+
+import nur.kg.cryptobot.market.FixedPoint;
+
+// MACD line (fast EMA - slow EMA), its signal EMA and the histogram between them.
+public final class Macd implements Indicator {
+
+    private final Ema fast;
+    private final Ema slow;
+    private final Ema signal;
+    private double line;
+
+    Macd(int fast, int slow, int signal) {
+        this.fast = new Ema(fast);
+        this.slow = new Ema(slow);
+        this.signal = new Ema(signal);
+    }
+
+    private Macd(Macd from) {
+        this.fast = from.fast.snapshot();
+        this.slow = from.slow.snapshot();
+        this.signal = from.signal.snapshot();
+        this.line = from.line;
+    }
+
+    @Override
+    public void update(long price, long volume) {
+        double x = FixedPoint.toDouble(price);
+        fast.add(x);
+        slow.add(x);
+        if (!fast.ready() || !slow.ready()) return;
+        line = fast.value() - slow.value();
+        signal.add(line);
+    }
+
+    @Override
+    public boolean ready() {
+        return signal.ready();
+    }
+
+    @Override
+    public Macd snapshot() {
+        return new Macd(this);
+    }
+
+    public double line() {
+        return line;
+    }
+
+    public double signal() {
+        return signal.value();
+    }
+
+    public double histogram() {
+        return line - signal.value();
+    }
+}
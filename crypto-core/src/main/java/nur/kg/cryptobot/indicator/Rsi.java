@@ -0,0 +1,94 @@
+package nur.kg.cryptobot.indicator;
+
+import nur.kg.cryptobot.market.FixedPoint;
+
+// Wilder RSI: the first n changes seed the average gain and loss, later ones are smoothed with weight 1/n.
+// Same arithmetic as the RSI bot's DoubleRsiState, including the RS sentinel when there were no losses.
+public final class Rsi implements Indicator {
+
+    public static final double NO_LOSS_RS = 999999999.0;
+
+    private final int n;
+    private boolean hasPrev;
+    private double prevPrice;
+    private int seedCount;
+    private boolean seeded;
+    private double avgGain;
+    private double avgLoss;
+    private double rs = 1.0;
+    private double rsi = 50.0;
+
+    Rsi(int n) {
+        this.n = n;
+    }
+
+    private Rsi(Rsi from) {
+        this.n = from.n;
+        this.hasPrev = from.hasPrev;
+        this.prevPrice = from.prevPrice;
+        this.seedCount = from.seedCount;
+        this.seeded = from.seeded;
+        this.avgGain = from.avgGain;
+        this.avgLoss = from.avgLoss;
+        this.rs = from.rs;
+        this.rsi = from.rsi;
+    }
+
+    @Override
+    public void update(long scaled, long volume) {
+        double price = FixedPoint.toDouble(scaled);
+        if (!hasPrev) {
+            prevPrice = price;
+            hasPrev = true;
+            return;
+        }
+
+        double change = price - prevPrice;
+        double gain = change > 0 ? change : 0.0;
+        double loss = change < 0 ? -change : 0.0;
+
+        if (!seeded) {
+            avgGain += gain;
+            avgLoss += loss;
+            if (++seedCount >= n) {
+                avgGain /= n;
+                avgLoss /= n;
+                seeded = true;
+                compute();
+            }
+        } else {
+            avgGain = (avgGain * (n - 1) + gain) / n;
+            avgLoss = (avgLoss * (n - 1) + loss) / n;
+            compute();
+        }
+        prevPrice = price;
+    }
+
+    private void compute() {
+        if (avgLoss == 0.0) {
+            rs = NO_LOSS_RS;
+            rsi = 100.0;
+            return;
+        }
+        rs = avgGain / avgLoss;
+        rsi = 100.0 - 100.0 / (1.0 + rs);
+    }
+
+    @Override
+    public boolean ready() {
+        return seeded;
+    }
+
+    @Override
+    public Rsi snapshot() {
+        return new Rsi(this);
+    }
+
+    public double rs() {
+        return rs;
+    }
+
+    public double rsi() {
+        return rsi;
+    }
+}
@@ -0,0 +1,53 @@
+package nur.kg.cryptobot.indicator;
+
+import nur.kg.cryptobot.market.FixedPoint;
+
+// Simple moving average over the last n ticks, exact in FixedPoint (same arithmetic as the SMA bot's windows).
+public final class Sma implements Indicator {
+
+    private final int n;
+    private final long[] prices;
+    private int next;
+    private int count;
+    private long sum;
+
+    Sma(int n) {
+        this.n = n;
+        this.prices = new long[n];
+    }
+
+    private Sma(Sma from) {
+        this.n = from.n;
+        this.prices = null;
+        this.count = from.count;
+        this.sum = from.sum;
+    }
+
+    @Override
+    public void update(long price, long volume) {
+        if (count == prices.length) sum -= prices[next];
+        else count++;
+        prices[next] = price;
+        sum += price;
+        if (++next == prices.length) next = 0;
+    }
+
+    @Override
+    public boolean ready() {
+        return count == n;
+    }
+
+    @Override
+    public Sma snapshot() {
+        return new Sma(this);
+    }
+
+    public long average() {
+        return count == 0 ? 0 : FixedPoint.average(sum, count);
+    }
+
+    // rounded to the decimals the prices came with, see FixedPoint.average(long, int, int)
+    public long average(int scale) {
+        return count == 0 ? 0 : FixedPoint.average(sum, count, scale);
+    }
+}
@@ -0,0 +1,84 @@
+package nur.kg.cryptobot.indicator;
+
+import nur.kg.cryptobot.market.FixedPoint;
+
+// Volume weighted average price over the last n ticks, weighting each tick by the volume it carries.
+// Falls back to the plain average while the window holds no volume. Sums are rebuilt once per wrap, as in Bollinger.
+public final class Vwap implements Indicator {
+
+    private final int n;
+    private final double[] prices;
+    private final double[] volumes;
+    private int next;
+    private int count;
+    private double priceSum;
+    private double notional;
+    private double volume;
+
+    Vwap(int n) {
+        this.n = n;
+        this.prices = new double[n];
+        this.volumes = new double[n];
+    }
+
+    private Vwap(Vwap from) {
+        this.n = from.n;
+        this.prices = null;
+        this.volumes = null;
+        this.count = from.count;
+        this.priceSum = from.priceSum;
+        this.notional = from.notional;
+        this.volume = from.volume;
+    }
+
+    @Override
+    public void update(long price, long tickVolume) {
+        double p = FixedPoint.toDouble(price);
+        double v = tickVolume > 0 ? FixedPoint.toDouble(tickVolume) : 0.0;
+        if (count == prices.length) {
+            priceSum -= prices[next];
+            notional -= prices[next] * volumes[next];
+            volume -= volumes[next];
+        } else {
+            count++;
+        }
+        prices[next] = p;
+        volumes[next] = v;
+        priceSum += p;
+        notional += p * v;
+        volume += v;
+        if (++next == prices.length) {
+            next = 0;
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        double ps = 0;
+        double ns = 0;
+        double vs = 0;
+        for (int i = 0; i < count; i++) {
+            ps += prices[i];
+            ns += prices[i] * volumes[i];
+            vs += volumes[i];
+        }
+        priceSum = ps;
+        notional = ns;
+        volume = vs;
+    }
+
+    @Override
+    public boolean ready() {
+        return count == n;
+    }
+
+    @Override
+    public Vwap snapshot() {
+        return new Vwap(this);
+    }
+
+    public double value() {
+        if (count == 0) return 0;
+        return volume > 0 ? notional / volume : priceSum / count;
+    }
+}
@@ -0,0 +1,90 @@
+package nur.kg.cryptobot.ingest;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import nur.kg.cryptobot.bar.BarAggregator;
+import nur.kg.cryptobot.config.IngestProperties;
+import nur.kg.cryptobot.journal.TickJournal;
+import nur.kg.cryptobot.market.MarketService;
+import nur.kg.domain.dto.TickerDto;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+// The one MarketService pipeline of the process. Every ingest path, the NDJSON and binary endpoints and the WebSocket
+// sessions alike, feeds its ticks in as an inner publisher of a single flatMap: strategy state is only ever touched
+// from one TickPipeline run, in one order per market, and each source's demand propagates back to its own transport.
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class IngestPipeline {
+
+    private static final Duration MIN_BACKOFF = Duration.ofMillis(100);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(5);
+
+    private final IngestProperties properties;
+    private final MarketService marketService;
+    private final TickJournal journal;
+    private final BarAggregator bars;
+
+    private final Sinks.Many<Flux<TickerDto>> sources = Sinks.many().unicast().onBackpressureBuffer();
+    private Disposable pipeline;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // the merge outlives the MarketService subscription: a tick that fails processing ends that subscription only,
+        // it is resubscribed to the same merge after a backoff and the connected sources carry on with their next tick
+        Flux<TickerDto> merged = bars.observe(journal.record(
+                        sources.asFlux().flatMap(s -> s, Integer.MAX_VALUE, properties.websocket().prefetch())))
+                .publish()
+                .autoConnect();
+        pipeline = Mono.defer(() -> marketService.processMarket(merged))
+                .doOnError(e -> log.error("Ingest pipeline failed, resubscribing", e))
+                .retryWhen(backoff())
+                .subscribe();
+    }
+
+    // completes once the source's ticks are drained into the pipeline, or with the source's own error; a failing source
+    // never takes the shared pipeline down
+    public Mono<Void> ingest(Flux<TickerDto> ticks) {
+        Sinks.Empty<Void> done = Sinks.empty();
+        Flux<TickerDto> source = ticks
+                .onErrorResume(e -> {
+                    done.tryEmitError(e);
+                    return Flux.empty();
+                })
+                .doFinally(sig -> done.tryEmitEmpty());
+
+        sources.emitNext(source, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+        return done.asMono();
+    }
+
+    // doubles from MIN_BACKOFF up to MAX_BACKOFF while failures follow each other; a pipeline that ran for longer than
+    // MAX_BACKOFF before failing again starts over from MIN_BACKOFF
+    private static Retry backoff() {
+        return Retry.from(signals -> Flux.defer(() -> {
+            long[] state = {0, 0}; // current backoff, when the pipeline was last resubscribed
+            return signals.concatMap(signal -> {
+                long now = System.nanoTime();
+                state[0] = now - state[1] > MAX_BACKOFF.toNanos()
+                        ? MIN_BACKOFF.toNanos()
+                        : Math.min(state[0] * 2, MAX_BACKOFF.toNanos());
+                state[1] = now + state[0];
+                return Mono.delay(Duration.ofNanos(state[0]));
+            });
+        }));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (pipeline != null) pipeline.dispose();
+    }
+}
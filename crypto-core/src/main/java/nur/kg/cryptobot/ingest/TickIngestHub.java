@@ -0,0 +1,62 @@
+package nur.kg.cryptobot.ingest;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import nur.kg.cryptobot.config.IngestProperties;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.dto.TickerDto;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Admits up to ingest.websocket.max-sessions producer sessions into the shared IngestPipeline and keeps their counts.
+@Log4j2
+@Component
+@ConditionalOnProperty(prefix = "ingest.websocket", name = "enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class TickIngestHub {
+
+    private final IngestProperties properties;
+    private final IngestPipeline pipeline;
+    private final MetricsService metricsService;
+
+    private final AtomicInteger activeSessions = new AtomicInteger();
+
+    @PostConstruct
+    public void init() {
+        metricsService.registerActiveSessionsGauge(activeSessions);
+    }
+
+    // completes when the session's ticks are drained or fail; a failing session never takes the shared pipeline down.
+    // Past max-sessions connected the session is refused with a SessionLimitException rather than left waiting for a slot
+    public Mono<Void> attach(String feed, Flux<TickerDto> ticks) {
+        int maxSessions = properties.websocket().maxSessions();
+        if (activeSessions.incrementAndGet() > maxSessions) {
+            activeSessions.decrementAndGet();
+            metricsService.getSessionRejectedCounter(feed).increment();
+            log.warn("Ingest session for feed {} refused, {} sessions already connected", feed, maxSessions);
+            return Mono.error(new SessionLimitException(maxSessions));
+        }
+
+        // released before the pipeline reports the session done, so a feed reconnecting right away finds its slot free
+        Runnable ended = () -> {
+            activeSessions.decrementAndGet();
+            metricsService.getSessionDisconnectsCounter(feed).increment();
+        };
+        return pipeline.ingest(ticks
+                .doOnSubscribe(s -> log.info("Ingest session opened for feed {}", feed))
+                .doOnError(e -> log.warn("Ingest session for feed {} failed: {}", feed, e.toString()))
+                .doOnTerminate(ended)
+                .doOnCancel(ended));
+    }
+
+    public static final class SessionLimitException extends IllegalStateException {
+        SessionLimitException(int maxSessions) {
+            super("Ingest session limit of " + maxSessions + " reached");
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package nur.kg.cryptobot.ingest;
+
+import lombok.RequiredArgsConstructor;
+import nur.kg.cryptobot.codec.TickFrameCodec;
+import nur.kg.cryptobot.codec.TickerNdjsonDecoder;
+import nur.kg.cryptobot.market.FixedPoint;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.dto.TickerDto;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// ws://host/ws/tickers?feed=bybit -- text messages carry NDJSON ticker lines, binary messages carry TickFrameCodec frames
+@RequiredArgsConstructor
+public class TickWebSocketHandler implements WebSocketHandler {
+
+    private static final Pattern FEED_NAME = Pattern.compile("[A-Za-z0-9_-]{1,32}");
+    private static final int MAX_TICKER_LINE = 64 * 1024;
+
+    private final TickIngestHub hub;
+    private final MetricsService metricsService;
+
+    @Override
+    public Mono<Void> handle(WebSocketSession session) {
+        String feed = feedOf(session);
+        TickerNdjsonDecoder.LineDecoder lines = new TickerNdjsonDecoder.LineDecoder(MAX_TICKER_LINE);
+        TickFrameCodec.FrameDecoder frames = new TickFrameCodec.FrameDecoder(
+                (market, missed) -> metricsService.getTicksMissedCounter(market).increment(missed));
+
+        // decode inside map(): the transport releases each payload once onNext returns
+        return hub.attach(feed, session.receive()
+                        .map(message -> decode(message, feed, lines, frames))
+                        .concatMapIterable(ticks -> ticks))
+                // 1013 Try Again Later: the feed may reconnect once a slot frees up
+                .onErrorResume(TickIngestHub.SessionLimitException.class,
+                        e -> session.close(CloseStatus.SERVICE_OVERLOAD.withReason(e.getMessage())));
+    }
+
+    List<TickerDto> decode(WebSocketMessage message, String feed,
+                           TickerNdjsonDecoder.LineDecoder lines, TickFrameCodec.FrameDecoder frames) {
+        List<TickerDto> ticks;
+        long nowMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        if (message.getType() == WebSocketMessage.Type.TEXT) {
+            ticks = new ArrayList<>(lines.feed(message.getPayload()));
+            ticks.addAll(lines.finish());
+            for (TickerDto t : ticks) {
+                if (t.ts() != null) recordLag(feed, nowMicros, ChronoUnit.MICROS.between(Instant.EPOCH, t.ts()));
+            }
+        } else if (message.getType() == WebSocketMessage.Type.BINARY) {
+            ticks = new ArrayList<>();
+            try (var it = message.getPayload().readableByteBuffers()) {
+                while (it.hasNext()) {
+                    ByteBuffer bb = it.next();
+                    frames.feed(bb, (symbol, exchange, price, exchangeTs, sequence) -> {
+                        if (exchangeTs > 0) recordLag(feed, nowMicros, exchangeTs);
+                        ticks.add(TickerDto.builder().symbol(symbol).exchange(exchange).last(FixedPoint.toDecimal(price))
+                                .ts(TickFrameCodec.timestamp(exchangeTs)).build());
+                    });
+                }
+            }
+        } else {
+            return List.of();
+        }
+        metricsService.getSessionTicksCounter(feed).increment(ticks.size());
+        return ticks;
+    }
+
+    private void recordLag(String feed, long nowMicros, long exchangeMicros) {
+        metricsService.getSessionLagTimer(feed).record(Math.max(0, nowMicros - exchangeMicros), TimeUnit.MICROSECONDS);
+    }
+
+    private static String feedOf(WebSocketSession session) {
+        String feed = UriComponentsBuilder.fromUri(session.getHandshakeInfo().getUri()).build().getQueryParams().getFirst("feed");
+        return feed != null && FEED_NAME.matcher(feed).matches() ? feed.toLowerCase() : "unknown";
+    }
+}
@@ -0,0 +1,37 @@
+package nur.kg.cryptobot.journal;
+
+// Segment layout: a 16 byte header (magic, version, record size, reserved) followed by fixed 32 byte records:
+//   long  receivedAtMicros  epoch micros, 0 marks the unwritten tail of a segment
+//   short symbolId          Symbol ordinal
+//   short exchangeId        Exchange ordinal, -1 when unknown
+//   int   priceScale        decimals the last price carried, within 0..FixedPoint.SCALE (reserved, 0, in version 1)
+//   long  price             FixedPoint scaled last price, NO_PRICE when the tick had none
+//   long  sequence          journal sequence within one process run
+final class JournalFormat {
+
+    static final int MAGIC = 0x544A4E4C; // "TJNL"
+    static final int VERSION = 2;
+    // without priceScale, read back at FixedPoint.SCALE
+    static final int VERSION_UNSCALED = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 32;
+    static final long NO_PRICE = Long.MIN_VALUE;
+
+    static final String SEGMENT_PREFIX = "ticks-";
+    static final String SEGMENT_SUFFIX = ".journal";
+
+    private JournalFormat() {
+    }
+
+    static String segmentName(long index) {
+        return String.format("%s%016d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX);
+    }
+
+    static boolean isSegment(String fileName) {
+        return fileName.startsWith(SEGMENT_PREFIX) && fileName.endsWith(SEGMENT_SUFFIX);
+    }
+
+    static long segmentIndex(String fileName) {
+        return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+}
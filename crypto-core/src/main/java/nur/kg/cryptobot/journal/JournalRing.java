@@ -0,0 +1,67 @@
+package nur.kg.cryptobot.journal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bounded multi-producer / single-consumer ring of primitive tick records. Producers claim a slot with one CAS
+// and publish it with a release store; offer() never blocks and fails when the consumer is a full ring behind.
+final class JournalRing {
+
+    interface Consumer {
+        void accept(long sequence, long receivedAtMicros, int symbolId, int exchangeId, long price, int scale);
+    }
+
+    private final int mask;
+    private final long[] times;
+    private final long[] prices;
+    private final int[] ids;
+    private final byte[] scales;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+
+    JournalRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.times = new long[size];
+        this.prices = new long[size];
+        this.ids = new int[size];
+        this.scales = new byte[size];
+        this.published = new AtomicLongArray(size);
+    }
+
+    boolean offer(long receivedAtMicros, int symbolId, int exchangeId, long price, int scale) {
+        long seq;
+        do {
+            seq = claimed.get();
+            if (seq - consumed > mask) return false;
+        } while (!claimed.compareAndSet(seq, seq + 1));
+
+        int i = (int) seq & mask;
+        times[i] = receivedAtMicros;
+        prices[i] = price;
+        ids[i] = (symbolId << 16) | (exchangeId & 0xFFFF);
+        scales[i] = (byte) scale;
+        published.lazySet(i, seq + 1);
+        return true;
+    }
+
+    int drain(Consumer consumer, int max) {
+        long next = consumed;
+        int n = 0;
+        while (n < max) {
+            int i = (int) next & mask;
+            if (published.get(i) != next + 1) break;
+            int id = ids[i];
+            consumer.accept(next, times[i], id >>> 16, (short) id, prices[i], scales[i]);
+            next++;
+            n++;
+        }
+        if (n > 0) consumed = next;
+        return n;
+    }
+
+    int size() {
+        return (int) (claimed.get() - consumed);
+    }
+}
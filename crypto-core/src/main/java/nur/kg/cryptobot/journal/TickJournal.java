@@ -0,0 +1,167 @@
+package nur.kg.cryptobot.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import nur.kg.cryptobot.config.JournalProperties;
+import nur.kg.cryptobot.market.FixedPoint;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.dto.TickerDto;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+// Appends every ingested tick to rolling memory-mapped segments. The ingest thread only copies a few primitives into
+// a lock-free ring; a dedicated writer thread moves them into the mapped segment, rolls files and enforces retention.
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class TickJournal {
+
+    private static final int DRAIN_BATCH = 4096;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final JournalProperties properties;
+    private final MetricsService metricsService;
+
+    private final LongAdder appendNanos = new LongAdder();
+    private final LongAdder appends = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private final long baseMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    private final long baseNanos = System.nanoTime();
+
+    private JournalRing ring;
+    private Thread writer;
+    private volatile boolean running;
+
+    private Path directory;
+    private int recordsPerSegment;
+    private long segmentIndex;
+    private MappedByteBuffer segment;
+
+    @PostConstruct
+    public void start() {
+        if (!properties.enabled()) return;
+
+        directory = Path.of(properties.directory());
+        recordsPerSegment = (int) ((properties.segmentSize().toBytes() - JournalFormat.HEADER_SIZE) / JournalFormat.RECORD_SIZE);
+        if (recordsPerSegment <= 0) throw new IllegalArgumentException("journal.segment-size too small: " + properties.segmentSize());
+        try {
+            Files.createDirectories(directory);
+            segmentIndex = segments(directory).stream().mapToLong(p -> JournalFormat.segmentIndex(p.getFileName().toString())).max().orElse(-1) + 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open tick journal in " + directory, e);
+        }
+
+        ring = new JournalRing(properties.bufferCapacity());
+        metricsService.registerJournalMetrics(appends, appendNanos, dropped, ring::size);
+
+        running = true;
+        writer = new Thread(this::writeLoop, "tick-journal");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Tick journal writing to {} ({} records per segment, keeping {} segments)",
+                directory.toAbsolutePath(), recordsPerSegment, properties.retainSegments());
+    }
+
+    public Flux<TickerDto> record(Flux<TickerDto> ticks) {
+        return properties.enabled() ? ticks.doOnNext(this::append) : ticks;
+    }
+
+    public void append(TickerDto tick) {
+        if (ring == null || tick == null || tick.symbol() == null) return;
+        long start = System.nanoTime();
+        long price = tick.last() == null ? JournalFormat.NO_PRICE : FixedPoint.toScaled(tick.last());
+        // kept so a replayed price carries the decimals the live one did, which the averages round to
+        int scale = tick.last() == null ? 0 : Math.max(0, Math.min(tick.last().scale(), FixedPoint.SCALE));
+        int exchange = tick.exchange() == null ? -1 : tick.exchange().ordinal();
+        if (!ring.offer(baseMicros + (start - baseNanos) / 1000, tick.symbol().ordinal(), exchange, price, scale)) {
+            dropped.increment();
+        }
+        appendNanos.add(System.nanoTime() - start);
+        appends.increment();
+    }
+
+    private void writeLoop() {
+        JournalRing.Consumer sink = this::write;
+        while (running || ring.size() > 0) {
+            try {
+                if (ring.drain(sink, DRAIN_BATCH) == 0) LockSupport.parkNanos(IDLE_PARK_NANOS);
+            } catch (RuntimeException e) {
+                log.error("Tick journal write failed, stopping journal", e);
+                running = false;
+                return;
+            }
+        }
+        if (segment != null) segment.force();
+    }
+
+    private void write(long sequence, long receivedAtMicros, int symbolId, int exchangeId, long price, int scale) {
+        if (segment == null || !segment.hasRemaining()) roll();
+        segment.putLong(receivedAtMicros);
+        segment.putShort((short) symbolId);
+        segment.putShort((short) exchangeId);
+        segment.putInt(scale);
+        segment.putLong(price);
+        segment.putLong(sequence);
+    }
+
+    private void roll() {
+        if (segment != null) segment.force();
+        Path file = directory.resolve(JournalFormat.segmentName(segmentIndex++));
+        long size = JournalFormat.HEADER_SIZE + (long) recordsPerSegment * JournalFormat.RECORD_SIZE;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create journal segment " + file, e);
+        }
+        segment.putInt(JournalFormat.MAGIC);
+        segment.putInt(JournalFormat.VERSION);
+        segment.putInt(JournalFormat.RECORD_SIZE);
+        segment.putInt(0);
+        enforceRetention();
+    }
+
+    private void enforceRetention() {
+        try {
+            List<Path> all = segments(directory);
+            for (int i = 0; i < all.size() - properties.retainSegments(); i++) {
+                Files.deleteIfExists(all.get(i));
+            }
+        } catch (IOException e) {
+            log.warn("Tick journal retention failed: {}", e.toString());
+        }
+    }
+
+    static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> JournalFormat.isSegment(p.getFileName().toString())).sorted().toList();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package nur.kg.cryptobot.journal;
+
+import nur.kg.cryptobot.market.FixedPoint;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.Symbol;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Sequential reader over the segments of a tick journal directory, oldest first.
+public final class TickJournalReader {
+
+    public interface RecordHandler {
+        void onRecord(long receivedAtMicros, Symbol symbol, Exchange exchange, long price, int scale, long sequence);
+    }
+
+    // price passed to RecordHandler for ticks recorded without a last price
+    public static final long NO_PRICE = JournalFormat.NO_PRICE;
+
+    private static final Symbol[] SYMBOLS = Symbol.values();
+    private static final Exchange[] EXCHANGES = Exchange.values();
+
+    private final Path directory;
+
+    public TickJournalReader(Path directory) {
+        this.directory = directory;
+    }
+
+    public long forEach(RecordHandler handler) throws IOException {
+        long count = 0;
+        for (Path segment : segments()) count += read(segment, handler);
+        return count;
+    }
+
+    public List<Path> segments() throws IOException {
+        return TickJournal.segments(directory);
+    }
+
+    public static long read(Path segment, RecordHandler handler) throws IOException {
+        MappedByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buf.remaining() < JournalFormat.HEADER_SIZE || buf.getInt() != JournalFormat.MAGIC) {
+            throw new IOException("Not a tick journal segment: " + segment);
+        }
+        int version = buf.getInt();
+        int recordSize = buf.getInt();
+        buf.getInt();
+        if (version != JournalFormat.VERSION && version != JournalFormat.VERSION_UNSCALED || recordSize != JournalFormat.RECORD_SIZE) {
+            throw new IOException("Unsupported journal segment version " + version + " in " + segment);
+        }
+
+        long count = 0;
+        while (buf.remaining() >= JournalFormat.RECORD_SIZE) {
+            long receivedAt = buf.getLong();
+            if (receivedAt == 0) break;
+            int symbolId = buf.getShort();
+            int exchangeId = buf.getShort();
+            int scale = buf.getInt();
+            if (version == JournalFormat.VERSION_UNSCALED) scale = FixedPoint.SCALE;
+            long price = buf.getLong();
+            long sequence = buf.getLong();
+            handler.onRecord(receivedAt, SYMBOLS[symbolId], exchangeId < 0 ? null : EXCHANGES[exchangeId], price, scale, sequence);
+            count++;
+        }
+        return count;
+    }
+
+    // the price comes back at the scale it was recorded with, so strategies round it as they did live
+    public static TickerDto toTicker(Symbol symbol, Exchange exchange, long price, int scale) {
+        return TickerDto.builder()
+                .symbol(symbol)
+                .exchange(exchange)
+                .last(price == JournalFormat.NO_PRICE ? null : FixedPoint.toDecimal(price, scale))
+                .build();
+    }
+}
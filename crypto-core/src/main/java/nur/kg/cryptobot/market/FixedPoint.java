@@ -0,0 +1,50 @@
+package nur.kg.cryptobot.market;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public final class FixedPoint {
+
+    // prices travel as longs with 8 implied decimals: 65000.12 -> 6_500_012_000_000
+    public static final int SCALE = 8;
+    public static final long ONE = 100_000_000L;
+
+    private static final long[] POW10 = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, ONE};
+
+    private FixedPoint() {
+    }
+
+    public static long toScaled(BigDecimal value) {
+        return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toDecimal(long scaled) {
+        return BigDecimal.valueOf(scaled, SCALE);
+    }
+
+    // at scale decimals (0..SCALE), for a value that carried no more than that before it was scaled
+    public static BigDecimal toDecimal(long scaled, int scale) {
+        return BigDecimal.valueOf(scaled, SCALE).setScale(scale, RoundingMode.HALF_UP);
+    }
+
+    public static double toDouble(long scaled) {
+        return (double) scaled / ONE;
+    }
+
+    // sum / n rounded HALF_UP, same as BigDecimal.divide(n, RoundingMode.HALF_UP) at SCALE
+    public static long average(long sum, int n) {
+        return divideHalfUp(sum, n);
+    }
+
+    // sum / n rounded HALF_UP to scale decimals (0..SCALE) and given back in FixedPoint units: what
+    // BigDecimal.divide(n, RoundingMode.HALF_UP) gives for a sum of prices carrying at most scale decimals
+    public static long average(long sum, int n, int scale) {
+        long unit = POW10[SCALE - scale];
+        return divideHalfUp(sum, n * unit) * unit;
+    }
+
+    private static long divideHalfUp(long sum, long divisor) {
+        if (sum >= 0) return (2 * sum + divisor) / (2 * divisor);
+        return -((-2 * sum + divisor) / (2 * divisor));
+    }
+}
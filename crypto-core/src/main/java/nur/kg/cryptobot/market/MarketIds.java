@@ -0,0 +1,44 @@
+package nur.kg.cryptobot.market;
+
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.Symbol;
+
+// Dense int id per (exchange, symbol) so per-market state, meters and positions can live in plain arrays indexed by
+// id instead of hash maps. Both sides are enums, so ids are pure arithmetic on the ordinals and need no lookup:
+// id = (exchange ordinal + 1) * symbols + symbol ordinal, with row 0 for ticks that carry no exchange.
+public final class MarketIds {
+
+    private static final Exchange[] EXCHANGES = Exchange.values();
+    private static final Symbol[] SYMBOLS = Symbol.values();
+
+    public static final int COUNT = (EXCHANGES.length + 1) * SYMBOLS.length;
+    public static final int NONE = -1;
+
+    private MarketIds() {
+    }
+
+    public static int of(Exchange exchange, Symbol symbol) {
+        return (exchange == null ? 0 : (exchange.ordinal() + 1) * SYMBOLS.length) + symbol.ordinal();
+    }
+
+    // NONE for ticks without a symbol
+    public static int of(TickerDto t) {
+        return t.symbol() == null ? NONE : of(t.exchange(), t.symbol());
+    }
+
+    // null for the row of ticks without an exchange
+    public static Exchange exchange(int id) {
+        int row = id / SYMBOLS.length;
+        return row == 0 ? null : EXCHANGES[row - 1];
+    }
+
+    public static Symbol symbol(int id) {
+        return SYMBOLS[id % SYMBOLS.length];
+    }
+
+    public static String label(int id) {
+        Exchange exchange = exchange(id);
+        return (exchange == null ? "" : exchange.name() + ":") + symbol(id).name();
+    }
+}
@@ -6,4 +6,10 @@ import reactor.core.publisher.Mono;
 
 public interface MarketService {
     Mono<Void> processMarket(Flux<TickerDto> ticks);
+
+    // Strategies whose indicators need every tick (e.g. tick-count windows) return false to opt out of the pipeline's
+    // conflation when pipeline.conflate is on; the others pass true to TickPipeline.dispatch
+    default boolean conflatable() {
+        return true;
+    }
 }
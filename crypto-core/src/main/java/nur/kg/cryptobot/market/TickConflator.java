@@ -0,0 +1,36 @@
+package nur.kg.cryptobot.market;
+
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.dto.TickerDto;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+// Latest-wins hand-off from the feed to one consumer. A market's slot holds its newest unconsumed tick and only a tick
+// landing in an empty slot is passed on, as a claim the consumer redeems for whatever the slot holds by the time it
+// gets there. However much is buffered in between, the consumer never works on a tick older than the market's latest.
+final class TickConflator<T> {
+
+    private final Function<T, TickerDto> tickOf;
+    private final MetricsService metricsService;
+    private final AtomicReferenceArray<T> slots = new AtomicReferenceArray<>(MarketIds.COUNT);
+
+    TickConflator(Function<T, TickerDto> tickOf, MetricsService metricsService) {
+        this.tickOf = tickOf;
+        this.metricsService = metricsService;
+    }
+
+    // true when item has to be passed on, false when it replaced a tick still waiting in its slot
+    boolean offer(T item) {
+        int market = MarketIds.of(tickOf.apply(item));
+        if (market == MarketIds.NONE || slots.getAndSet(market, item) == null) return true;
+        metricsService.getTicksConflatedCounter(market).increment();
+        return false;
+    }
+
+    // the market's latest tick for a claim passed on by offer
+    T take(T claim) {
+        int market = MarketIds.of(tickOf.apply(claim));
+        return market == MarketIds.NONE ? claim : slots.getAndSet(market, null);
+    }
+}
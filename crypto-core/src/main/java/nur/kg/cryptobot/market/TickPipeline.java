@@ -0,0 +1,178 @@
+package nur.kg.cryptobot.market;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import nur.kg.cryptobot.config.PipelineProperties;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.dto.TickerDto;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+@Log4j2
+@Component
+public class TickPipeline {
+
+    private final PipelineProperties properties;
+    private final MetricsService metricsService;
+
+    private final int shards;
+    private final Scheduler scheduler;
+    private final AtomicInteger[] queueDepths;
+
+    public TickPipeline(PipelineProperties properties, MetricsService metricsService) {
+        this.properties = properties;
+        this.metricsService = metricsService;
+
+        if (properties.mode() == PipelineProperties.Mode.SHARDED) {
+            this.shards = properties.effectiveShards();
+            this.scheduler = Schedulers.newParallel("tick-shard", shards);
+            this.queueDepths = new AtomicInteger[shards];
+            for (int i = 0; i < shards; i++) {
+                queueDepths[i] = new AtomicInteger();
+                metricsService.registerShardQueueGauge(i, queueDepths[i]);
+            }
+            log.info("Tick pipeline: {} shards partitioned by {}", shards, properties.partitionBy());
+        } else {
+            this.shards = 1;
+            this.scheduler = null;
+            this.queueDepths = null;
+        }
+        metricsService.registerShardCountGauge(shards);
+    }
+
+    // Serial mode keeps the single concatMap chain. Sharded mode hashes each tick to a shard so one
+    // symbol always lands on the same worker (strict per-symbol order) while shards run independently.
+    public Flux<Void> dispatch(Flux<TickerDto> ticks, Function<TickerDto, Mono<Void>> handler) {
+        return dispatch(ticks, Function.identity(), false, handler);
+    }
+
+    // conflatable consumers get latest-wins per market when pipeline.conflate is on
+    public Flux<Void> dispatch(Flux<TickerDto> ticks, boolean conflatable, Function<TickerDto, Mono<Void>> handler) {
+        return dispatch(ticks, Function.identity(), conflatable, handler);
+    }
+
+    // for elements that carry a tick along with data of their own (a hosted tick and its indicator snapshot),
+    // routed by that tick
+    public <T> Flux<Void> dispatch(Flux<T> items, Function<T, TickerDto> tickOf, boolean conflatable,
+                                   Function<T, Mono<Void>> handler) {
+        if (!conflatable || !properties.conflate()) {
+            return route(items, tickOf, properties.queueCapacity(), false, handler);
+        }
+
+        // conflation sits where the handler picks work up: the feed is drained into per-market slots and what
+        // travels through the queues is at most one claim per market, redeemed for the latest tick on arrival.
+        // A dropped claim would strand its slot, so shard queues get room for every market
+        TickConflator<T> conflator = new TickConflator<>(tickOf, metricsService);
+        return route(items.filter(conflator::offer).onBackpressureBuffer(), tickOf, MarketIds.COUNT, true,
+                claim -> handler.apply(conflator.take(claim)));
+    }
+
+    private <T> Flux<Void> route(Flux<T> items, Function<T, TickerDto> tickOf, int capacity, boolean shed,
+                                 Function<T, Mono<Void>> handler) {
+        if (scheduler == null) {
+            return items.concatMap(handler);
+        }
+
+        ShardGate[] gates = shed ? null : gates(capacity);
+        Flux<Queued<T>> queued = items.map(item -> new Queued<>(item, shardOf(tickOf.apply(item)), System.nanoTime()));
+        if (gates != null) queued = queued.concatMap(q -> gates[q.shard()].tryEnter() ? Mono.just(q) : gates[q.shard()].enter().thenReturn(q), 0);
+
+        return queued
+                .doOnNext(q -> queueDepths[q.shard()].incrementAndGet())
+                .groupBy(Queued::shard)
+                .flatMap(shard -> buffer(shard, capacity, shed)
+                        .publishOn(scheduler, 1)
+                        .concatMap(q -> {
+                            queueDepths[q.shard()].decrementAndGet();
+                            if (gates != null) gates[q.shard()].leave();
+                            metricsService.getShardLagTimer(q.shard()).record(System.nanoTime() - q.enqueuedAt(), TimeUnit.NANOSECONDS);
+                            return handler.apply(q.item());
+                        }, 0), shards);
+    }
+
+    // drain the group eagerly so a stalled shard never stops groupBy feeding the others. Only conflation claims are
+    // shed past capacity, and with room for every market there never is a surplus; ticks themselves are held back by
+    // the shard's gate at capacity, so without pipeline.conflate nothing is ever missing, whatever the consumer
+    private <T> Flux<Queued<T>> buffer(Flux<Queued<T>> shard, int capacity, boolean shed) {
+        if (shed) return shard.onBackpressureBuffer(capacity, this::onDropped, BufferOverflowStrategy.DROP_OLDEST);
+        return shard.onBackpressureBuffer();
+    }
+
+    private ShardGate[] gates(int capacity) {
+        ShardGate[] gates = new ShardGate[shards];
+        for (int i = 0; i < shards; i++) gates[i] = new ShardGate(capacity);
+        return gates;
+    }
+
+    private void onDropped(Queued<?> q) {
+        queueDepths[q.shard()].decrementAndGet();
+        metricsService.getShardTicksDroppedCounter(q.shard()).increment();
+    }
+
+    int shardOf(TickerDto t) {
+        if (t == null || t.symbol() == null) return 0;
+        int key = properties.partitionBy() == PipelineProperties.PartitionKey.EXCHANGE_SYMBOL
+                ? MarketIds.of(t.exchange(), t.symbol())
+                : t.symbol().ordinal();
+        return key % shards;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) scheduler.dispose();
+    }
+
+    private record Queued<T>(T item, int shard, long enqueuedAt) {}
+
+    // admits at most capacity ticks into a shard ahead of its worker. The feed is taken one tick at a time, so a tick
+    // for a full shard holds it back until that worker picks one up; ticks the other shards already hold keep flowing
+    private static final class ShardGate {
+
+        private final int capacity;
+        private int queued;
+        private MonoSink<Void> waiting;
+
+        ShardGate(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized boolean tryEnter() {
+            if (queued == capacity) return false;
+            queued++;
+            return true;
+        }
+
+        Mono<Void> enter() {
+            return Mono.create(sink -> {
+                synchronized (this) {
+                    if (queued < capacity) queued++;
+                    else {
+                        waiting = sink;
+                        return;
+                    }
+                }
+                sink.success();
+            });
+        }
+
+        // a waiting tick takes over the slot of the one leaving
+        void leave() {
+            MonoSink<Void> next;
+            synchronized (this) {
+                next = waiting;
+                waiting = null;
+                if (next == null) queued--;
+            }
+            if (next != null) next.success();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package nur.kg.cryptobot.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+// Tick-rate meters of one market, resolved once and held in the strategy's state so the tick path does no lookup.
+// Received ticks go to a striped adder the registry sums on scrape; the price distribution records one tick in every
+// priceSampleEvery, converting the price only for sampled ticks.
+public final class MarketMeters {
+
+    private final LongAdder ticks;
+    private final DistributionSummary price;
+    private final int sampleEvery;
+    private int sinceSample; // from the market's processing thread only; a lost update just shifts the sample
+
+    MarketMeters(LongAdder ticks, DistributionSummary price, int sampleEvery) {
+        this.ticks = ticks;
+        this.price = price;
+        this.sampleEvery = Math.max(1, sampleEvery);
+    }
+
+    public void tickReceived() {
+        ticks.increment();
+    }
+
+    public void recordPrice(BigDecimal last) {
+        if (++sinceSample < sampleEvery) return;
+        sinceSample = 0;
+        price.record(last.doubleValue());
+    }
+}
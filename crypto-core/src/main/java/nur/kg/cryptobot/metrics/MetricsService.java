@@ -1,77 +1,513 @@
 package nur.kg.cryptobot.metrics;
 
 import io.micrometer.core.instrument.*;
-import lombok.RequiredArgsConstructor;
-import nur.kg.domain.enums.Symbol;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import nur.kg.cryptobot.config.MetricsProperties;
+import nur.kg.cryptobot.market.MarketIds;
+import nur.kg.domain.enums.Exchange;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
 
 @Component
-@RequiredArgsConstructor
 public class MetricsService {
 
+    // Per-market meters sit in arrays indexed by MarketIds. A racing first lookup registers twice, which the registry
+    // resolves to the same meter, so the slots need no lock.
+    private static final Tags[] MARKET_TAGS = new Tags[MarketIds.COUNT];
+
+    static {
+        for (int id = 0; id < MarketIds.COUNT; id++) {
+            Exchange exchange = MarketIds.exchange(id);
+            MARKET_TAGS[id] = Tags.of("market", MarketIds.symbol(id).name(), "exchange", exchange == null ? "none" : exchange.name());
+        }
+    }
+
     private final MeterRegistry registry;
+    private final MetricsProperties properties;
+
+    private final MarketMeters[] marketMeters = new MarketMeters[MarketIds.COUNT];
+    private final Counter[] ordersSubmittedCounters = new Counter[MarketIds.COUNT];
+    private final Counter[] ordersFailedCounters = new Counter[MarketIds.COUNT];
+    private final Counter[] ordersSuppressedCounters = new Counter[MarketIds.COUNT];
+    private final Timer[] orderProcessingTimers = new Timer[MarketIds.COUNT];
+    private final Counter[] ticksConflatedCounters = new Counter[MarketIds.COUNT];
+    private final Counter[] ticksMissedCounters = new Counter[MarketIds.COUNT];
+    private final Map<Integer, Timer> shardLagTimers = new ConcurrentHashMap<>();
+    private final Map<Integer, Counter> shardDroppedCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> sessionTicksCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> sessionDisconnectsCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> sessionRejectedCounters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> sessionLagTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> snapshotWriteTimers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> snapshotSizeSummaries = new ConcurrentHashMap<>();
+    private final Counter[] hostTicksCounters = new Counter[MarketIds.COUNT];
+    private final Map<String, Timer> strategyTickTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> strategyTicksDroppedCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> strategyFailuresCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> orderBudgetRejectedCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> barsClosedCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> lateBarTicksCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> barsDroppedCounters = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> orderBatchSizeSummaries = new ConcurrentHashMap<>();
+    private final Map<String, Counter> orderBatchFlushCounters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> orderBatchQueueTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> gatewayLatencyTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> gatewayEjectionsCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> orderHedgesCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> orderHedgeWinsCounters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> poolAcquireTimers = new ConcurrentHashMap<>();
+    private final Map<String, List<Meter>> poolGauges = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rateLimitRejectedCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rateLimitDelayedCounters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public MetricsService(MeterRegistry registry, MetricsProperties properties) {
+        this.registry = registry;
+        this.properties = properties;
+    }
+
+    public MetricsService(MeterRegistry registry) {
+        this(registry, MetricsProperties.DEFAULTS);
+    }
+
+    // Meters registered through the returned view carry a strategy tag, so hosted strategies report the usual
+    // market.* series side by side in one registry.
+    public MetricsService forStrategy(String strategy) {
+        CompositeMeterRegistry tagged = new CompositeMeterRegistry(registry.config().clock());
+        tagged.config().commonTags("strategy", strategy);
+        tagged.add(registry);
+        return new MetricsService(tagged, properties);
+    }
 
-    private final Map<Symbol, Counter> ticksReceivedCounters = new ConcurrentHashMap<>();
-    private final Map<Symbol, Counter> ordersSubmittedCounters = new ConcurrentHashMap<>();
-    private final Map<Symbol, Counter> ordersFailedCounters = new ConcurrentHashMap<>();
-    private final Map<Symbol, Timer> orderProcessingTimers = new ConcurrentHashMap<>();
-    private final Map<Symbol, DistributionSummary> priceSummaries = new ConcurrentHashMap<>();
+    public MarketMeters marketMeters(int market) {
+        MarketMeters meters = marketMeters[market];
+        return meters != null ? meters : createMarketMeters(market);
+    }
 
-    public Counter getTicksReceivedCounter(Symbol market) {
-        return ticksReceivedCounters.computeIfAbsent(market, m ->
-                Counter.builder("market.ticks.received")
-                        .description("Total incoming ticks received")
-                        .tags("market", m.name())
+    // locked so racing first lookups share one adder; the unlocked read relies on MarketMeters' final fields
+    private synchronized MarketMeters createMarketMeters(int market) {
+        MarketMeters meters = marketMeters[market];
+        if (meters != null) return meters;
+        LongAdder ticks = new LongAdder();
+        FunctionCounter.builder("market.ticks.received", ticks, LongAdder::sum)
+                .description("Total incoming ticks received")
+                .tags(MARKET_TAGS[market])
+                .register(registry);
+        DistributionSummary price = DistributionSummary.builder("market.tick.price")
+                .description("Distribution of tick prices, one in every metrics.price-sample-every ticks")
+                .baseUnit("USD")
+                .tags(MARKET_TAGS[market])
+                .register(registry);
+        meters = new MarketMeters(ticks, price, properties.priceSampleEvery());
+        marketMeters[market] = meters;
+        return meters;
+    }
+
+    public Counter getTicksConflatedCounter(int market) {
+        Counter meter = ticksConflatedCounters[market];
+        if (meter == null) {
+            meter = Counter.builder("market.ticks.conflated")
+                    .description("Ticks replaced by a newer tick before the strategy consumed them")
+                    .tags(MARKET_TAGS[market])
+                    .register(registry);
+            ticksConflatedCounters[market] = meter;
+        }
+        return meter;
+    }
+
+    public Counter getTicksMissedCounter(int market) {
+        Counter meter = ticksMissedCounters[market];
+        if (meter == null) {
+            meter = Counter.builder("market.ticks.missed")
+                    .description("Ticks a binary feed skipped, from gaps in the market's frame sequence")
+                    .tags(MARKET_TAGS[market])
+                    .register(registry);
+            ticksMissedCounters[market] = meter;
+        }
+        return meter;
+    }
+
+    public Counter getOrdersSubmittedCounter(int market) {
+        Counter meter = ordersSubmittedCounters[market];
+        if (meter == null) {
+            meter = Counter.builder("market.orders.submitted")
+                    .description("Total orders submitted")
+                    .tags(MARKET_TAGS[market])
+                    .register(registry);
+            ordersSubmittedCounters[market] = meter;
+        }
+        return meter;
+    }
+
+    public Counter getOrdersFailedCounter(int market) {
+        Counter meter = ordersFailedCounters[market];
+        if (meter == null) {
+            meter = Counter.builder("market.orders.failed")
+                    .description("Total failed orders")
+                    .tags(MARKET_TAGS[market])
+                    .register(registry);
+            ordersFailedCounters[market] = meter;
+        }
+        return meter;
+    }
+
+    public Timer getOrderProcessingTimer(int market) {
+        Timer meter = orderProcessingTimers[market];
+        if (meter == null) {
+            meter = Timer.builder("market.order.processing.duration")
+                    .description("Time spent processing an order (including client call)")
+                    .publishPercentileHistogram()
+                    .tags(MARKET_TAGS[market])
+                    .register(registry);
+            orderProcessingTimers[market] = meter;
+        }
+        return meter;
+    }
+
+    public Counter getOrdersSuppressedCounter(int market) {
+        Counter meter = ordersSuppressedCounters[market];
+        if (meter == null) {
+            meter = Counter.builder("market.orders.suppressed")
+                    .description("Signals dropped because the market already had an order in flight")
+                    .tags(MARKET_TAGS[market])
+                    .register(registry);
+            ordersSuppressedCounters[market] = meter;
+        }
+        return meter;
+    }
+
+    public void registerInflightOrdersGauge(int market, IntSupplier inflight) {
+        Gauge.builder("market.orders.inflight", inflight::getAsInt)
+                .description("Number of orders currently in flight")
+                .tags(MARKET_TAGS[market])
+                .register(registry);
+    }
+
+    public Timer getShardLagTimer(int shard) {
+        return shardLagTimers.computeIfAbsent(shard, s ->
+                Timer.builder("market.pipeline.shard.lag")
+                        .description("Time a tick waits in its shard queue before processing starts")
+                        .tags("shard", String.valueOf(s))
                         .register(registry)
         );
     }
 
-    public Counter getOrdersSubmittedCounter(Symbol market) {
-        return ordersSubmittedCounters.computeIfAbsent(market, m ->
-                Counter.builder("market.orders.submitted")
-                        .description("Total orders submitted")
-                        .tags("market", m.name())
+    public Counter getShardTicksDroppedCounter(int shard) {
+        return shardDroppedCounters.computeIfAbsent(shard, s ->
+                Counter.builder("market.pipeline.shard.dropped")
+                        .description("Oldest ticks dropped because a pipeline shard's queue was full")
+                        .tags("shard", String.valueOf(s))
                         .register(registry)
         );
     }
 
-    public Counter getOrdersFailedCounter(Symbol market) {
-        return ordersFailedCounters.computeIfAbsent(market, m ->
-                Counter.builder("market.orders.failed")
-                        .description("Total failed orders")
-                        .tags("market", m.name())
+    public void registerShardQueueGauge(int shard, AtomicInteger depth) {
+        Gauge.builder("market.pipeline.shard.queue", depth, AtomicInteger::get)
+                .description("Ticks queued for a pipeline shard")
+                .tags("shard", String.valueOf(shard))
+                .register(registry);
+    }
+
+    public void registerShardCountGauge(int shards) {
+        Gauge.builder("market.pipeline.shards", () -> shards)
+                .description("Number of tick pipeline shards")
+                .register(registry);
+    }
+
+    public Counter getSessionTicksCounter(String feed) {
+        return sessionTicksCounters.computeIfAbsent(feed, f ->
+                Counter.builder("ingest.session.ticks")
+                        .description("Ticks received over streaming ingest sessions")
+                        .tags("feed", f)
+                        .register(registry)
+        );
+    }
+
+    public Counter getSessionDisconnectsCounter(String feed) {
+        return sessionDisconnectsCounters.computeIfAbsent(feed, f ->
+                Counter.builder("ingest.session.disconnects")
+                        .description("Streaming ingest sessions that ended")
+                        .tags("feed", f)
+                        .register(registry)
+        );
+    }
+
+    public Counter getSessionRejectedCounter(String feed) {
+        return sessionRejectedCounters.computeIfAbsent(feed, f ->
+                Counter.builder("ingest.session.rejected")
+                        .description("Streaming ingest sessions refused because ingest.websocket.max-sessions were connected")
+                        .tags("feed", f)
+                        .register(registry)
+        );
+    }
+
+    public Timer getSessionLagTimer(String feed) {
+        return sessionLagTimers.computeIfAbsent(feed, f ->
+                Timer.builder("ingest.session.lag")
+                        .description("Delay between the exchange timestamp of a tick and its arrival")
+                        .tags("feed", f)
+                        .register(registry)
+        );
+    }
+
+    public void registerActiveSessionsGauge(AtomicInteger sessions) {
+        Gauge.builder("ingest.sessions.active", sessions, AtomicInteger::get)
+                .description("Streaming ingest sessions currently connected")
+                .register(registry);
+    }
+
+    public void registerJournalMetrics(LongAdder appends, LongAdder appendNanos, LongAdder dropped, IntSupplier backlog) {
+        FunctionTimer.builder("journal.append.overhead", appends, LongAdder::sum, a -> appendNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Time added to the ingest path by journaling a tick")
+                .register(registry);
+        FunctionCounter.builder("journal.ticks.dropped", dropped, LongAdder::sum)
+                .description("Ticks not journaled because the writer fell a full buffer behind")
+                .register(registry);
+        Gauge.builder("journal.backlog", backlog, IntSupplier::getAsInt)
+                .description("Ticks waiting for the journal writer")
+                .register(registry);
+    }
+
+    public Timer getSnapshotWriteTimer(String source) {
+        return snapshotWriteTimers.computeIfAbsent(source, s ->
+                Timer.builder("snapshot.write.duration")
+                        .description("Time to serialize and persist a state snapshot")
+                        .tags("source", s)
                         .register(registry)
         );
     }
 
-    public Timer getOrderProcessingTimer(Symbol market) {
-        return orderProcessingTimers.computeIfAbsent(market, m ->
-                Timer.builder("market.order.processing.duration")
-                        .description("Time spent processing an order (including client call)")
+    public DistributionSummary getSnapshotSizeSummary(String source) {
+        return snapshotSizeSummaries.computeIfAbsent(source, s ->
+                DistributionSummary.builder("snapshot.size")
+                        .description("Size of the written state snapshot")
+                        .baseUnit("bytes")
+                        .tags("source", s)
+                        .register(registry)
+        );
+    }
+
+    public Counter getHostTicksReceivedCounter(int market) {
+        Counter meter = hostTicksCounters[market];
+        if (meter == null) {
+            meter = Counter.builder("host.ticks.received")
+                    .description("Ticks decoded once by the strategy host before fan-out")
+                    .tags(MARKET_TAGS[market])
+                    .register(registry);
+            hostTicksCounters[market] = meter;
+        }
+        return meter;
+    }
+
+    public Timer getStrategyTickTimer(String strategy) {
+        return strategyTickTimers.computeIfAbsent(strategy, s ->
+                Timer.builder("host.strategy.tick.duration")
+                        .description("Time a hosted strategy spends processing one tick, order submission included")
                         .publishPercentileHistogram()
-                        .tags("market", m.name())
+                        .tags("strategy", s)
                         .register(registry)
         );
     }
 
-    public DistributionSummary getPriceSummary(Symbol market) {
-        return priceSummaries.computeIfAbsent(market, m ->
-                DistributionSummary.builder("market.tick.price")
-                        .description("Distribution of tick prices")
-                        .baseUnit("USD")
-                        .tags("market", m.name())
+    public Counter getStrategyTicksDroppedCounter(String strategy) {
+        return strategyTicksDroppedCounters.computeIfAbsent(strategy, s ->
+                Counter.builder("host.strategy.ticks.dropped")
+                        .description("Ticks dropped because a hosted strategy's queue was full")
+                        .tags("strategy", s)
                         .register(registry)
         );
     }
 
-    public void registerInflightOrdersGauge(AtomicInteger inflight) {
+    public Counter getStrategyFailuresCounter(String strategy) {
+        return strategyFailuresCounters.computeIfAbsent(strategy, s ->
+                Counter.builder("host.strategy.failures")
+                        .description("Times a hosted strategy's run failed and was restarted")
+                        .tags("strategy", s)
+                        .register(registry)
+        );
+    }
 
-        Gauge.builder("market.orders.inflight", inflight, AtomicInteger::get)
-                .description("Number of orders currently in flight")
+    public Counter getOrderBudgetRejectedCounter(String strategy) {
+        return orderBudgetRejectedCounters.computeIfAbsent(strategy, s ->
+                Counter.builder("host.strategy.orders.rejected")
+                        .description("Orders refused because the strategy used up its order budget")
+                        .tags("strategy", s)
+                        .register(registry)
+        );
+    }
+
+    public void registerActiveIndicatorsGauge(IntSupplier active) {
+        Gauge.builder("host.indicators.active", active, IntSupplier::getAsInt)
+                .description("Distinct shared indicators currently advanced on every tick")
+                .register(registry);
+    }
+
+    public Counter getBarsClosedCounter(String timeframe) {
+        return barsClosedCounters.computeIfAbsent(timeframe, tf ->
+                Counter.builder("bars.closed")
+                        .description("OHLCV bars closed and published")
+                        .tags("timeframe", tf)
+                        .register(registry)
+        );
+    }
+
+    public Counter getLateBarTicksCounter(String timeframe) {
+        return lateBarTicksCounters.computeIfAbsent(timeframe, tf ->
+                Counter.builder("bars.ticks.late")
+                        .description("Ticks whose timestamp falls in an already closed bar")
+                        .tags("timeframe", tf)
+                        .register(registry)
+        );
+    }
+
+    public Counter getBarsDroppedCounter(String timeframe) {
+        return barsDroppedCounters.computeIfAbsent(timeframe, tf ->
+                Counter.builder("bars.dropped")
+                        .description("Closed bars the close stream refused to publish")
+                        .tags("timeframe", tf)
+                        .register(registry)
+        );
+    }
+
+    public DistributionSummary getOrderBatchSizeSummary(String endpoint) {
+        return orderBatchSizeSummaries.computeIfAbsent(endpoint, e ->
+                DistributionSummary.builder("client.order.batch.size")
+                        .description("Orders per batch request")
+                        .tags("endpoint", e)
+                        .register(registry)
+        );
+    }
+
+    public Counter getOrderBatchFlushCounter(String endpoint, String reason) {
+        return orderBatchFlushCounters.computeIfAbsent(endpoint + '/' + reason, k ->
+                Counter.builder("client.order.batch.flushes")
+                        .description("Batch requests sent, by whether the batch filled up (size) or its window ran out (time)")
+                        .tags("endpoint", endpoint, "reason", reason)
+                        .register(registry)
+        );
+    }
+
+    public Timer getOrderBatchQueueTimer(String endpoint) {
+        return orderBatchQueueTimers.computeIfAbsent(endpoint, e ->
+                Timer.builder("client.order.batch.queue.delay")
+                        .description("Time an order waits for its batch to be sent")
+                        .publishPercentileHistogram()
+                        .tags("endpoint", e)
+                        .register(registry)
+        );
+    }
+
+    public Timer getGatewayLatencyTimer(String endpoint, String url) {
+        return gatewayLatencyTimers.computeIfAbsent(endpoint + ' ' + url, k ->
+                Timer.builder("client.gateway.latency")
+                        .description("Round trip of one attempt to an exchange gateway")
+                        .publishPercentileHistogram()
+                        .tags("endpoint", endpoint, "gateway", url)
+                        .register(registry)
+        );
+    }
+
+    public Counter getGatewayEjectionsCounter(String endpoint, String url) {
+        return gatewayEjectionsCounters.computeIfAbsent(endpoint + ' ' + url, k ->
+                Counter.builder("client.gateway.ejections")
+                        .description("Times a gateway's circuit breaker opened")
+                        .tags("endpoint", endpoint, "gateway", url)
+                        .register(registry)
+        );
+    }
+
+    public Counter getOrderHedgesCounter(String endpoint) {
+        return orderHedgesCounters.computeIfAbsent(endpoint, e ->
+                Counter.builder("client.order.hedges")
+                        .description("Hedge requests sent because an attempt outlived its gateway's p95")
+                        .tags("endpoint", e)
+                        .register(registry)
+        );
+    }
+
+    public Counter getOrderHedgeWinsCounter(String endpoint) {
+        return orderHedgeWinsCounters.computeIfAbsent(endpoint, e ->
+                Counter.builder("client.order.hedge.wins")
+                        .description("Hedge requests answered before the attempt they hedged")
+                        .tags("endpoint", e)
+                        .register(registry)
+        );
+    }
+
+    public Timer getPoolAcquireTimer(String endpoint) {
+        return poolAcquireTimers.computeIfAbsent(endpoint, e ->
+                Timer.builder("client.pool.acquire")
+                        .description("Time from sending a request until it has a connection, including any connect")
+                        .publishPercentileHistogram()
+                        .tags("endpoint", e)
+                        .register(registry)
+        );
+    }
+
+    // One pool per remote address of an endpoint. A pool created again for the same address must not be reported
+    // through the gauges of its predecessor, so they are removed when the pool goes away.
+    public void registerConnectionPoolGauges(String endpoint, String remote, IntSupplier active, IntSupplier idle, IntSupplier pending) {
+        String key = endpoint + ' ' + remote;
+        removeConnectionPoolGauges(endpoint, remote);
+        poolGauges.put(key, List.of(
+                Gauge.builder("client.pool.connections", active, IntSupplier::getAsInt)
+                        .description("Pooled connections to an exchange, by whether a request holds them")
+                        .tags("endpoint", endpoint, "remote", remote, "state", "active")
+                        .register(registry),
+                Gauge.builder("client.pool.connections", idle, IntSupplier::getAsInt)
+                        .description("Pooled connections to an exchange, by whether a request holds them")
+                        .tags("endpoint", endpoint, "remote", remote, "state", "idle")
+                        .register(registry),
+                Gauge.builder("client.pool.pending", pending, IntSupplier::getAsInt)
+                        .description("Requests waiting for a pooled connection")
+                        .tags("endpoint", endpoint, "remote", remote)
+                        .register(registry)));
+    }
+
+    public void removeConnectionPoolGauges(String endpoint, String remote) {
+        List<Meter> gauges = poolGauges.remove(endpoint + ' ' + remote);
+        if (gauges != null) gauges.forEach(registry::remove);
+    }
+
+    public Counter getRateLimitRejectedCounter(String endpoint, String priority) {
+        return rateLimitRejectedCounters.computeIfAbsent(endpoint + '/' + priority, k ->
+                Counter.builder("client.ratelimit.rejected")
+                        .description("Orders refused locally because the exchange's request budget ran out")
+                        .tags("endpoint", endpoint, "priority", priority)
+                        .register(registry)
+        );
+    }
+
+    public Counter getRateLimitDelayedCounter(String endpoint) {
+        return rateLimitDelayedCounters.computeIfAbsent(endpoint, e ->
+                Counter.builder("client.ratelimit.delayed")
+                        .description("Urgent orders that waited for a token")
+                        .tags("endpoint", e)
+                        .register(registry)
+        );
+    }
+
+    // tokens is null for an endpoint without a configured rate
+    public void registerRateLimitGauges(String endpoint, DoubleSupplier tokens, DoubleSupplier blockedSeconds) {
+        if (tokens != null) {
+            Gauge.builder("client.ratelimit.tokens", tokens, DoubleSupplier::getAsDouble)
+                    .description("Order requests an exchange's budget allows right now")
+                    .tags("endpoint", endpoint)
+                    .register(registry);
+        }
+        Gauge.builder("client.ratelimit.blocked", blockedSeconds, DoubleSupplier::getAsDouble)
+                .description("Time until a normal order may go again, after a drained budget or an exchange-requested pause")
+                .baseUnit("seconds")
+                .tags("endpoint", endpoint)
                 .register(registry);
     }
 }
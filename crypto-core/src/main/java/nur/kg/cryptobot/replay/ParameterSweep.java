@@ -0,0 +1,114 @@
+package nur.kg.cryptobot.replay;
+
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nur.kg.cryptobot.client.MarketClient;
+import nur.kg.cryptobot.market.MarketService;
+import nur.kg.cryptobot.metrics.MetricsService;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Offline grid search: every parameter combination is replayed over the same decoded tapes on a fork-join pool,
+// one (combination, tape) replay per leaf task, and the combinations are ranked by total PnL.
+public class ParameterSweep {
+
+    public interface StrategyFactory<P> {
+        MarketService create(P params, MarketClient client, Clock clock);
+    }
+
+    public record Outcome<P>(P params, ReplayResult result) {
+    }
+
+    private final int parallelism;
+
+    public ParameterSweep(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    // meters become no-ops, so thousands of runs neither contend on nor accumulate shared counters
+    public static MetricsService discardingMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        registry.config().meterFilter(MeterFilter.deny());
+        return new MetricsService(registry);
+    }
+
+    public <P> List<Outcome<P>> run(List<P> grid, List<ReplayTape> tapes, StrategyFactory<P> factory) {
+        ReplayResult[] results = new ReplayResult[grid.size() * tapes.size()];
+        // a pool per run, so the same sweep can be run again over other grids or tapes
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new Slice<>(grid, tapes, factory, results, 0, results.length));
+        } finally {
+            pool.shutdown();
+        }
+
+        List<Outcome<P>> outcomes = new ArrayList<>(grid.size());
+        for (int i = 0; i < grid.size(); i++) {
+            List<ReplayResult> runs = Arrays.asList(results).subList(i * tapes.size(), (i + 1) * tapes.size());
+            outcomes.add(new Outcome<>(grid.get(i), ReplayResult.merge(String.valueOf(grid.get(i)), runs)));
+        }
+        outcomes.sort(Comparator.comparingDouble((Outcome<P> o) -> o.result().pnl()).reversed());
+        return outcomes;
+    }
+
+    private static final class Slice<P> extends RecursiveAction {
+        private final List<P> grid;
+        private final List<ReplayTape> tapes;
+        private final StrategyFactory<P> factory;
+        private final ReplayResult[] results;
+        private final int from;
+        private final int to;
+
+        Slice(List<P> grid, List<ReplayTape> tapes, StrategyFactory<P> factory, ReplayResult[] results, int from, int to) {
+            this.grid = grid;
+            this.tapes = tapes;
+            this.factory = factory;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Slice<>(grid, tapes, factory, results, from, mid),
+                        new Slice<>(grid, tapes, factory, results, mid, to));
+                return;
+            }
+            P params = grid.get(from / tapes.size());
+            ReplayTape tape = tapes.get(from % tapes.size());
+            results[from] = ReplayEngine.replay(tape, (client, clock) -> factory.create(params, client, clock));
+        }
+    }
+
+    // "from:to:step", inclusive on both ends
+    public static int[] intRange(String spec) {
+        String[] p = spec.split(":");
+        int from = Integer.parseInt(p[0]);
+        int to = p.length > 1 ? Integer.parseInt(p[1]) : from;
+        int step = p.length > 2 ? Integer.parseInt(p[2]) : 1;
+        if (step <= 0) throw new IllegalArgumentException("Step must be positive: " + spec);
+        int[] values = new int[to < from ? 0 : (to - from) / step + 1];
+        for (int i = 0; i < values.length; i++) values[i] = from + i * step;
+        return values;
+    }
+
+    public static List<BigDecimal> decimalRange(String spec) {
+        String[] p = spec.split(":");
+        BigDecimal from = new BigDecimal(p[0]);
+        BigDecimal to = p.length > 1 ? new BigDecimal(p[1]) : from;
+        BigDecimal step = p.length > 2 ? new BigDecimal(p[2]) : BigDecimal.ONE;
+        if (step.signum() <= 0) throw new IllegalArgumentException("Step must be positive: " + spec);
+        List<BigDecimal> values = new ArrayList<>();
+        for (BigDecimal v = from; v.compareTo(to) <= 0; v = v.add(step)) values.add(v);
+        return values;
+    }
+}
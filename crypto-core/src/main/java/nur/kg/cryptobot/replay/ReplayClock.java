@@ -0,0 +1,70 @@
+package nur.kg.cryptobot.replay;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+// Clock driven by replayed tick timestamps instead of wall time.
+public class ReplayClock extends Clock {
+
+    private volatile long micros;
+
+    public ReplayClock(long epochMicros) {
+        this.micros = epochMicros;
+    }
+
+    public void setMicros(long epochMicros) {
+        this.micros = epochMicros;
+    }
+
+    @Override
+    public long millis() {
+        return micros / 1000;
+    }
+
+    @Override
+    public Instant instant() {
+        long m = micros;
+        return Instant.ofEpochSecond(m / 1_000_000, (m % 1_000_000) * 1000);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    // a view on the same replayed instant, so it moves on with the replay
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return zone.equals(ZoneOffset.UTC) ? this : new Zoned(zone);
+    }
+
+    private final class Zoned extends Clock {
+        private final ZoneId zone;
+
+        Zoned(ZoneId zone) {
+            this.zone = zone;
+        }
+
+        @Override
+        public long millis() {
+            return ReplayClock.this.millis();
+        }
+
+        @Override
+        public Instant instant() {
+            return ReplayClock.this.instant();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return ReplayClock.this.withZone(zone);
+        }
+    }
+}
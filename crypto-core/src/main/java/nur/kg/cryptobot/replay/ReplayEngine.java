@@ -0,0 +1,85 @@
+package nur.kg.cryptobot.replay;
+
+import nur.kg.cryptobot.client.MarketClient;
+import nur.kg.cryptobot.config.PipelineProperties;
+import nur.kg.cryptobot.market.MarketService;
+import nur.kg.cryptobot.market.TickPipeline;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.dto.TickerDto;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import reactor.core.publisher.Flux;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Drives real MarketService implementations over recorded ticks without HTTP. Every run gets its own strategy
+// instance, virtual clock and simulated client; independent tapes run in parallel.
+public class ReplayEngine {
+
+    public interface StrategyFactory {
+        MarketService create(MarketClient client, Clock clock);
+    }
+
+    private final int parallelism;
+
+    public ReplayEngine(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    // the replay relies on the serial pipeline completing each tick synchronously before the next one is emitted
+    public static TickPipeline serialPipeline(MetricsService metricsService) {
+        return new TickPipeline(new PipelineProperties(PipelineProperties.Mode.SERIAL, 1, 1, PipelineProperties.PartitionKey.SYMBOL, false), metricsService);
+    }
+
+    // the services log every order at INFO, which would dominate a replay run outside of Spring Boot
+    public static void quietLogging() {
+        LoggingSystem logging = LoggingSystem.get(ReplayEngine.class.getClassLoader());
+        logging.beforeInitialize();
+        logging.setLogLevel(LoggingSystem.ROOT_LOGGER_NAME, LogLevel.WARN);
+    }
+
+    public List<ReplayResult> run(Collection<ReplayTape> tapes, StrategyFactory factory) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, tapes.size())));
+        try {
+            List<Future<ReplayResult>> futures = new ArrayList<>();
+            for (ReplayTape tape : tapes) futures.add(executor.submit(() -> replay(tape, factory)));
+
+            List<ReplayResult> results = new ArrayList<>();
+            for (Future<ReplayResult> f : futures) {
+                try {
+                    results.add(f.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Replay failed", e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public static ReplayResult replay(ReplayTape tape, StrategyFactory factory) {
+        ReplayClock clock = new ReplayClock(tape.size() == 0 ? 0 : tape.timeAt(0));
+        SimulatedMarketClient client = new SimulatedMarketClient();
+        MarketService strategy = factory.create(client, clock);
+
+        long start = System.nanoTime();
+        strategy.processMarket(Flux.range(0, tape.size()).map(i -> {
+            clock.setMicros(tape.timeAt(i));
+            TickerDto tick = tape.tickAt(i);
+            client.onTick(tick);
+            return tick;
+        })).block();
+        long elapsed = System.nanoTime() - start;
+
+        return new ReplayResult(tape.name(), tape.size(), client.orders(), client.fills(), client.closedTrades(),
+                client.realizedPnl(), client.unrealizedPnl(), elapsed);
+    }
+}
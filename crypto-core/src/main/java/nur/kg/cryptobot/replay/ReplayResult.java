@@ -0,0 +1,36 @@
+package nur.kg.cryptobot.replay;
+
+import java.util.List;
+
+public record ReplayResult(String name, long ticks, int orders, int fills, int closedTrades,
+                           double realizedPnl, double unrealizedPnl, long elapsedNanos) {
+
+    public static ReplayResult merge(String name, List<ReplayResult> results) {
+        long ticks = 0, elapsed = 0;
+        int orders = 0, fills = 0, closed = 0;
+        double realized = 0, unrealized = 0;
+        for (ReplayResult r : results) {
+            ticks += r.ticks;
+            orders += r.orders;
+            fills += r.fills;
+            closed += r.closedTrades;
+            realized += r.realizedPnl;
+            unrealized += r.unrealizedPnl;
+            elapsed += r.elapsedNanos;
+        }
+        return new ReplayResult(name, ticks, orders, fills, closed, realized, unrealized, elapsed);
+    }
+
+    public double pnl() {
+        return realizedPnl + unrealizedPnl;
+    }
+
+    public double ticksPerSecond() {
+        return elapsedNanos == 0 ? 0 : ticks * 1e9 / elapsedNanos;
+    }
+
+    public String summary() {
+        return String.format("%-24s ticks=%,d orders=%d fills=%d closed=%d pnl=%.4f (realized %.4f) %,.0f ticks/s",
+                name, ticks, orders, fills, closedTrades, pnl(), realizedPnl, ticksPerSecond());
+    }
+}
@@ -0,0 +1,77 @@
+package nur.kg.cryptobot.replay;
+
+import nur.kg.cryptobot.journal.TickJournalReader;
+import nur.kg.cryptobot.market.MarketIds;
+import nur.kg.domain.dto.TickerDto;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Decoded ticks with their receive timestamps, built once and shared read-only by any number of replay runs.
+public final class ReplayTape {
+
+    private final String name;
+    private final long[] times;
+    private final TickerDto[] ticks;
+
+    public ReplayTape(String name, long[] times, TickerDto[] ticks) {
+        if (times.length != ticks.length) throw new IllegalArgumentException("times and ticks differ in length");
+        this.name = name;
+        this.times = times;
+        this.ticks = ticks;
+    }
+
+    public static ReplayTape fromJournal(Path directory) throws IOException {
+        List<TickerDto> ticks = new ArrayList<>();
+        long[][] times = {new long[1024]};
+        new TickJournalReader(directory).forEach((receivedAt, symbol, exchange, price, scale, sequence) -> {
+            if (ticks.size() == times[0].length) times[0] = Arrays.copyOf(times[0], times[0].length * 2);
+            times[0][ticks.size()] = receivedAt;
+            ticks.add(TickJournalReader.toTicker(symbol, exchange, price, scale));
+        });
+        return new ReplayTape(directory.getFileName().toString(), Arrays.copyOf(times[0], ticks.size()), ticks.toArray(TickerDto[]::new));
+    }
+
+    // one tape per (exchange, symbol), keyed by market id, so one exchange's orders never meet another's ticks
+    public Map<Integer, ReplayTape> byMarket() {
+        int[] counts = new int[MarketIds.COUNT];
+        for (TickerDto t : ticks) counts[MarketIds.of(t)]++;
+
+        ReplayTape[] tapes = new ReplayTape[MarketIds.COUNT];
+        Map<Integer, ReplayTape> byMarket = new TreeMap<>();
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] == 0) continue;
+            tapes[id] = new ReplayTape(name + "/" + MarketIds.label(id), new long[counts[id]], new TickerDto[counts[id]]);
+            byMarket.put(id, tapes[id]);
+        }
+        int[] fill = new int[MarketIds.COUNT];
+        for (int i = 0; i < ticks.length; i++) {
+            int id = MarketIds.of(ticks[i]);
+            int at = fill[id]++;
+            tapes[id].times[at] = times[i];
+            tapes[id].ticks[at] = ticks[i];
+        }
+        return byMarket;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int size() {
+        return ticks.length;
+    }
+
+    public long timeAt(int i) {
+        return times[i];
+    }
+
+    public TickerDto tickAt(int i) {
+        return ticks[i];
+    }
+}
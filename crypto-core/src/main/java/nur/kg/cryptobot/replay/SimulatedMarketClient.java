@@ -0,0 +1,119 @@
+package nur.kg.cryptobot.replay;
+
+import nur.kg.cryptobot.client.MarketClient;
+import nur.kg.cryptobot.market.MarketIds;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Side;
+import nur.kg.domain.request.OrderRequest;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+// Stand-in for MarketClient during replays. Orders are accepted immediately and filled against later ticks:
+// a LIMIT without price fills at the next tick of its market (exchange and symbol), a priced LIMIT once the market trades through it,
+// and the TP/SL bracket closes the trade when touched. Not thread-safe, one instance per replay run.
+public class SimulatedMarketClient extends MarketClient {
+
+    private final List<OrderRequest> pending = new ArrayList<>();
+    private final List<OpenTrade> open = new ArrayList<>();
+    // last price per market id, NaN until one is seen
+    private final double[] marks = new double[MarketIds.COUNT];
+
+    private int orders;
+    private int fills;
+    private int closedTrades;
+    private double realizedPnl;
+
+    public SimulatedMarketClient() {
+        super();
+        Arrays.fill(marks, Double.NaN);
+    }
+
+    @Override
+    public Mono<Void> processOrder(OrderRequest orderRequest) {
+        return Mono.fromRunnable(() -> {
+            orders++;
+            pending.add(orderRequest);
+        });
+    }
+
+    public void onTick(TickerDto tick) {
+        if (tick.last() == null || tick.symbol() == null) return;
+        double price = tick.last().doubleValue();
+        int market = MarketIds.of(tick);
+        marks[market] = price;
+
+        for (Iterator<OpenTrade> it = open.iterator(); it.hasNext(); ) {
+            OpenTrade trade = it.next();
+            if (trade.market != market) continue;
+            double exit = trade.exitPrice(price);
+            if (Double.isNaN(exit)) continue;
+            realizedPnl += trade.pnl(exit);
+            closedTrades++;
+            it.remove();
+        }
+
+        for (Iterator<OrderRequest> it = pending.iterator(); it.hasNext(); ) {
+            OrderRequest order = it.next();
+            if (MarketIds.of(order.exchange(), order.symbol()) != market) continue;
+            double fill = fillPrice(order, price);
+            if (Double.isNaN(fill)) continue;
+            fills++;
+            open.add(new OpenTrade(market, order.side(), fill, order.qty().doubleValue(),
+                    order.tp() == null ? Double.NaN : order.tp().doubleValue(),
+                    order.sl() == null ? Double.NaN : order.sl().doubleValue()));
+            it.remove();
+        }
+    }
+
+    private static double fillPrice(OrderRequest order, double price) {
+        if (order.limitPrice() == null) return price;
+        double limit = order.limitPrice().doubleValue();
+        if (order.side() == Side.BUY) return price <= limit ? limit : Double.NaN;
+        return price >= limit ? limit : Double.NaN;
+    }
+
+    // open trades marked at the last price seen for their market
+    public double unrealizedPnl() {
+        double pnl = 0;
+        for (OpenTrade trade : open) pnl += trade.pnl(marks[trade.market]);
+        return pnl;
+    }
+
+    public int orders() {
+        return orders;
+    }
+
+    public int fills() {
+        return fills;
+    }
+
+    public int closedTrades() {
+        return closedTrades;
+    }
+
+    public double realizedPnl() {
+        return realizedPnl;
+    }
+
+    private record OpenTrade(int market, Side side, double entry, double qty, double tp, double sl) {
+
+        double exitPrice(double price) {
+            if (side == Side.BUY) {
+                if (!Double.isNaN(sl) && price <= sl) return sl;
+                if (!Double.isNaN(tp) && price >= tp) return tp;
+            } else {
+                if (!Double.isNaN(sl) && price >= sl) return sl;
+                if (!Double.isNaN(tp) && price <= tp) return tp;
+            }
+            return Double.NaN;
+        }
+
+        double pnl(double exit) {
+            return (side == Side.BUY ? exit - entry : entry - exit) * qty;
+        }
+    }
+}
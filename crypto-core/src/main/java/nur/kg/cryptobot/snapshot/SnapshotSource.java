@@ -0,0 +1,18 @@
+package nur.kg.cryptobot.snapshot;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+// Strategy state that survives restarts. The snapshot thread only asks for a capture; the source copies each
+// market's state into a byte[] on its own processing thread, so images are consistent and ticks never wait on I/O.
+public interface SnapshotSource {
+
+    String snapshotName();
+
+    void requestCapture();
+
+    // latest image per MarketIds id, never mutated once published
+    Map<Integer, byte[]> capturedStates();
+
+    void restoreState(int market, ByteBuffer image);
+}
@@ -0,0 +1,179 @@
+package nur.kg.cryptobot.snapshot;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import nur.kg.cryptobot.config.SnapshotProperties;
+import nur.kg.cryptobot.market.MarketIds;
+import nur.kg.cryptobot.metrics.MetricsService;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Restores every SnapshotSource on startup and rewrites its snapshot file on a fixed delay from a background thread.
+// File: magic, version, created-at millis, entry count, then (market id, length, image) entries and a CRC32.
+// Version 1 files keyed state by symbol alone and are ignored.
+// Files are written beside the target and moved into place, so a crash mid-write leaves the previous snapshot.
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class StateSnapshotter {
+
+    static final int MAGIC = 0x534E4150; // "SNAP"
+    static final int VERSION = 3;
+    private static final int HEADER_SIZE = 20;
+
+    private final SnapshotProperties properties;
+    private final MetricsService metricsService;
+    private final Clock clock;
+    private final List<SnapshotSource> sources;
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        if (!properties.enabled() || sources.isEmpty()) return;
+
+        for (SnapshotSource source : sources) {
+            restore(source);
+            source.requestCapture();
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "state-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = properties.interval().toMillis();
+        executor.scheduleWithFixedDelay(this::snapshotAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // writes the images captured since the previous run and asks for fresh ones for the next
+    void snapshotAll() {
+        for (SnapshotSource source : sources) {
+            try {
+                write(source);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Snapshot of {} failed: {}", source.snapshotName(), e.toString());
+            }
+            source.requestCapture();
+        }
+    }
+
+    void write(SnapshotSource source) throws IOException {
+        long start = System.nanoTime();
+        Map<Integer, byte[]> states = Map.copyOf(source.capturedStates());
+        if (states.isEmpty()) return;
+
+        int size = HEADER_SIZE + 4;
+        for (byte[] image : states.values()) size += 6 + image.length;
+
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.putInt(MAGIC).putInt(VERSION).putLong(clock.millis()).putInt(states.size());
+        states.forEach((market, image) -> buf.putShort(market.shortValue()).putInt(image.length).put(image));
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, buf.position());
+        buf.putInt((int) crc.getValue());
+        buf.flip();
+
+        Path dir = Path.of(properties.directory());
+        Files.createDirectories(dir);
+        Path target = file(source);
+        Path tmp = dir.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) channel.write(buf);
+            channel.force(false);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        metricsService.getSnapshotWriteTimer(source.snapshotName()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        metricsService.getSnapshotSizeSummary(source.snapshotName()).record(size);
+    }
+
+    // restores nothing when the file is missing, corrupt or older than snapshot.max-age
+    int restore(SnapshotSource source) {
+        Path file = file(source);
+        ByteBuffer buf;
+        try {
+            buf = ByteBuffer.wrap(Files.readAllBytes(file));
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException e) {
+            log.warn("Cannot read snapshot {}: {}", file, e.toString());
+            return 0;
+        }
+
+        if (buf.remaining() < HEADER_SIZE + 4 || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+            log.warn("Ignoring snapshot {}: unknown format", file);
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, buf.limit() - 4);
+        if ((int) crc.getValue() != buf.getInt(buf.limit() - 4)) {
+            log.warn("Ignoring snapshot {}: checksum mismatch", file);
+            return 0;
+        }
+        Duration age = Duration.ofMillis(clock.millis() - buf.getLong(8));
+        if (age.compareTo(properties.maxAge()) > 0) {
+            log.warn("Ignoring snapshot {}: {}s old, max age is {}s", file, age.toSeconds(), properties.maxAge().toSeconds());
+            return 0;
+        }
+
+        int entries = buf.getInt(16);
+        buf.position(HEADER_SIZE).limit(buf.limit() - 4);
+        int restored = 0;
+        for (int i = 0; i < entries; i++) {
+            int market = buf.getShort();
+            int length = buf.getInt();
+            ByteBuffer image = buf.slice(buf.position(), length);
+            buf.position(buf.position() + length);
+            if (market < 0 || market >= MarketIds.COUNT) continue;
+            try {
+                source.restoreState(market, image);
+                restored++;
+            } catch (RuntimeException e) {
+                log.warn("Skipping {} state in snapshot {}: {}", MarketIds.label(market), file, e.toString());
+            }
+        }
+        log.info("Restored {} of {} states from {} ({}s old)", restored, entries, file, age.toSeconds());
+        return restored;
+    }
+
+    private Path file(SnapshotSource source) {
+        return Path.of(properties.directory()).resolve(source.snapshotName() + ".snapshot");
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor == null) return;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SnapshotSource source : sources) {
+            try {
+                write(source);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Final snapshot of {} failed: {}", source.snapshotName(), e.toString());
+            }
+        }
+    }
+}
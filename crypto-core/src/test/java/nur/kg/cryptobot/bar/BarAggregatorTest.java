@@ -0,0 +1,135 @@
+package nur.kg.cryptobot.bar;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nur.kg.cryptobot.config.BarProperties;
+import nur.kg.cryptobot.market.FixedPoint;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.Symbol;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BarAggregatorTest {
+
+    private static final long BASE = 472_222L * 3_600_000L; // an hour boundary
+    private static final Duration SECOND = Duration.ofSeconds(1);
+    private static final Duration MINUTE = Duration.ofMinutes(1);
+
+    private final MetricsService metrics = new MetricsService(new SimpleMeterRegistry());
+    // the sweep only closes bars ending a grace period before this clock, so it leaves the test's bars alone
+    private final BarAggregator bars = new BarAggregator(new BarProperties(true, List.of(SECOND, MINUTE), 3, SECOND),
+            metrics, Clock.fixed(Instant.ofEpochMilli(BASE), ZoneOffset.UTC));
+    private final Symbol symbol = Symbol.values()[0];
+    private final Exchange exchange = Exchange.values()[0];
+
+    @AfterEach
+    void stop() {
+        bars.stop();
+    }
+
+    @Test
+    void buildsOhlcvPerTimeframeAndClosesOnNextInterval() {
+        bars.start();
+        List<Bar> closed = new CopyOnWriteArrayList<>();
+        Disposable sub = bars.closes(SECOND).subscribe(closed::add);
+
+        tick(0, "100", "1");
+        tick(300, "103", "2");
+        tick(600, "99", "1");
+        tick(900, "101", "0.5");
+        tick(1_200, "102", "1");
+        sub.dispose();
+
+        assertEquals(1, closed.size());
+        Bar bar = closed.get(0);
+        assertEquals(BASE, bar.openTime());
+        assertEquals(scaled("100"), bar.open());
+        assertEquals(scaled("103"), bar.high());
+        assertEquals(scaled("99"), bar.low());
+        assertEquals(scaled("101"), bar.close());
+        assertEquals(scaled("4.5"), bar.volume());
+        assertEquals(4, bar.ticks());
+        assertEquals(0, bars.history(exchange, symbol, MINUTE).size());
+    }
+
+    @Test
+    void historyIsBoundedNewestFirst() {
+        bars.start();
+        for (int i = 0; i < 6; i++) tick(i * 1_000L, String.valueOf(100 + i), "1");
+
+        BarHistory history = bars.history(exchange, symbol, SECOND);
+        assertEquals(3, history.size());
+        assertEquals(scaled("104"), history.close(0));
+        assertEquals(scaled("102"), history.close(2));
+        assertEquals(BASE + 4_000, history.openTime(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> history.close(3));
+    }
+
+    @Test
+    void sweepClosesQuietSymbolsAndLaterTicksForThatBarAreLate() {
+        bars.start();
+        tick(10, "100", "1");
+
+        bars.closeDue(BASE + 999);
+        assertEquals(0, bars.history(exchange, symbol, SECOND).size());
+        bars.closeDue(BASE + 1_000);
+        assertEquals(1, bars.history(exchange, symbol, SECOND).size());
+
+        tick(500, "105", "1");
+        assertEquals(1.0, metrics.getLateBarTicksCounter("1s").count());
+        assertEquals(0.0, metrics.getLateBarTicksCounter("1m").count());
+        assertEquals(1.0, metrics.getBarsClosedCounter("1s").count());
+    }
+
+    @Test
+    void subscribersGetClosedBarsOutsideTheSeriesLock() {
+        bars.start();
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        // a subscriber feeding the same market from another thread would deadlock on the series lock
+        Disposable sub = bars.closes(SECOND).subscribe(bar -> {
+            seen.add(bar.openTime());
+            if (seen.size() == 1) {
+                CompletableFuture.runAsync(() -> tick(2_100, "101", "1")).orTimeout(5, TimeUnit.SECONDS).join();
+            }
+        });
+
+        tick(0, "100", "1");
+        tick(1_100, "100", "1");
+        sub.dispose();
+
+        assertEquals(List.of(BASE, BASE + 1_000), seen);
+        assertEquals(0.0, metrics.getBarsDroppedCounter("1s").count());
+    }
+
+    @Test
+    void unknownTimeframeIsRejected() {
+        bars.start();
+        assertThrows(IllegalArgumentException.class, () -> bars.history(exchange, symbol, Duration.ofMinutes(5)));
+        assertEquals("5m", BarAggregator.label(Duration.ofMinutes(5)));
+        assertEquals("250ms", BarAggregator.label(Duration.ofMillis(250)));
+    }
+
+    private void tick(long offsetMillis, String last, String volume) {
+        bars.onTick(TickerDto.builder().symbol(symbol).exchange(exchange).last(new BigDecimal(last))
+                .volume(new BigDecimal(volume)).ts(Instant.ofEpochMilli(BASE + offsetMillis)).build());
+    }
+
+    private static long scaled(String value) {
+        return FixedPoint.toScaled(new BigDecimal(value));
+    }
+}
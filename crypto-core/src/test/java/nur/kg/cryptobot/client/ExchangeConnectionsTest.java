@@ -0,0 +1,133 @@
+package nur.kg.cryptobot.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import nur.kg.cryptobot.config.ExchangeEndpoint;
+import nur.kg.cryptobot.config.ExchangeProperties;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.enums.Side;
+import nur.kg.domain.enums.Symbol;
+import nur.kg.domain.request.OrderRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExchangeConnectionsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger pings = new AtomicInteger();
+    private final AtomicReference<String> version = new AtomicReference<>();
+    private DisposableServer server;
+    private MarketClient client;
+
+    @AfterEach
+    void stop() {
+        if (client != null) client.close();
+        if (server != null) server.disposeNow();
+    }
+
+    @Test
+    void connectionsArePrewarmedAndReusedByOrders() throws InterruptedException {
+        start(HttpProtocol.HTTP11, pool(false, 3, Duration.ZERO));
+
+        awaitTrue(() -> pings.get() == 3 && idle() == 3);
+        assertEquals(3, connections.get());
+
+        order();
+        assertEquals(3, connections.get(), "the order went out on a warm connection");
+        assertEquals(4, registry.get("client.pool.acquire").timer().count());
+    }
+
+    @Test
+    void keepAlivePingsRepeatOnTheSameConnection() throws InterruptedException {
+        start(HttpProtocol.HTTP11, pool(false, 1, Duration.ofMillis(100)));
+
+        awaitTrue(() -> pings.get() >= 4);
+        assertEquals(1, connections.get());
+    }
+
+    @Test
+    void ordersGoOverHttp2WhenEnabled() throws InterruptedException {
+        start(HttpProtocol.H2C, pool(true, 1, Duration.ZERO));
+
+        order();
+        assertEquals("HTTP/2.0", version.get());
+    }
+
+    @Test
+    void http2PrewarmsTheOneConnectionItMultiplexes() throws InterruptedException {
+        start(HttpProtocol.H2C, pool(true, 3, Duration.ZERO));
+
+        awaitTrue(() -> pings.get() == 1);
+        order();
+        assertEquals(1, pings.get());
+        assertEquals(1, connections.get());
+    }
+
+    @Test
+    void defaultsAreTheDefaultValues() {
+        assertEquals(pool(false, 2, Duration.ofSeconds(10)), ExchangeProperties.Pool.DEFAULTS);
+        assertEquals(new ExchangeProperties.RateLimit(0, 10, 2, Duration.ofMillis(500)), ExchangeProperties.RateLimit.NONE);
+    }
+
+    private void start(HttpProtocol protocol, ExchangeProperties.Pool pool) {
+        server = HttpServer.create().port(0)
+                .protocol(protocol)
+                .doOnChannelInit((observer, channel, remote) -> connections.incrementAndGet())
+                .route(routes -> routes
+                        // a round trip long enough for concurrent pings to overlap, as they do over a network
+                        .get("/api/ping", (req, res) -> {
+                            pings.incrementAndGet();
+                            return Mono.delay(Duration.ofMillis(50)).then(res.status(HttpResponseStatus.NO_CONTENT).send().then());
+                        })
+                        .post("/api/orders", (req, res) -> {
+                            version.set(req.version().text());
+                            return req.receive().then(res.status(HttpResponseStatus.OK).send().then());
+                        }))
+                .bindNow();
+        ExchangeProperties properties = new ExchangeProperties(
+                List.of(new ExchangeEndpoint("bybit", "http://localhost:" + server.port(), null, null)),
+                new ExchangeProperties.Batch(false, 32, Duration.ofMillis(2), 1024),
+                new ExchangeProperties.Routing(false, Duration.ofMillis(2), 3, Duration.ofSeconds(5)),
+                pool, ExchangeProperties.RateLimit.NONE);
+        client = new MarketClient(properties, new MetricsService(registry));
+        client.init();
+    }
+
+    private static ExchangeProperties.Pool pool(boolean http2, int prewarm, Duration keepAlive) {
+        return new ExchangeProperties.Pool(16, 256, Duration.ofSeconds(1), Duration.ofSeconds(30), Duration.ofSeconds(10),
+                http2, prewarm, keepAlive, "/api/ping");
+    }
+
+    private double idle() {
+        var gauge = registry.find("client.pool.connections").tag("state", "idle").gauge();
+        return gauge == null ? -1 : gauge.value();
+    }
+
+    private void order() {
+        client.processOrder(OrderRequest.builder().id("o1").symbol(Symbol.values()[0]).side(Side.BUY)
+                .qty(BigDecimal.ONE).build()).block(Duration.ofSeconds(10));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package nur.kg.cryptobot.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import nur.kg.cryptobot.config.ExchangeEndpoint;
+import nur.kg.cryptobot.config.ExchangeProperties;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.enums.Side;
+import nur.kg.domain.enums.Symbol;
+import nur.kg.domain.request.OrderRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GatewayRoutingTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<DisposableServer> servers = new ArrayList<>();
+    // the next requests answered 429, by whichever gateway gets them
+    private final AtomicInteger throttled = new AtomicInteger();
+    private MarketClient client;
+
+    @AfterEach
+    void stop() {
+        servers.forEach(DisposableServer::disposeNow);
+    }
+
+    @Test
+    void ordersGoToTheFastestGateway() {
+        Stub slow = stub(40);
+        Stub fast = stub(0);
+        start(routing(false), slow, fast);
+
+        for (int i = 0; i < 20; i++) send(i);
+
+        assertTrue(slow.hits.get() <= 2, "slow gateway took " + slow.hits.get());
+        assertEquals(20, slow.hits.get() + fast.hits.get());
+    }
+
+    @Test
+    void failingGatewayIsEjectedAndProbedAgainAfterItsOpenPeriod() throws Exception {
+        Stub broken = stub(0);
+        broken.status.set(500);
+        Stub healthy = stub(0);
+        start(new ExchangeProperties.Routing(false, Duration.ofMillis(2), 1, Duration.ofSeconds(1)), broken, healthy);
+
+        for (int i = 0; i < 5; i++) send(i);
+        assertEquals(1, broken.hits.get());
+        assertEquals(1.0, ejections(broken));
+        // the retry on the healthy gateway carried the same key
+        assertEquals("o0", broken.keys.get(0));
+        assertEquals("o0", healthy.keys.get(0));
+
+        Thread.sleep(1_100);
+        broken.status.set(200);
+        // the half-open probe goes to the ejected gateway first and readmits it
+        send(99);
+        assertEquals(2, broken.hits.get());
+        assertEquals(1.0, ejections(broken));
+    }
+
+    @Test
+    void rejectedOrdersAreNotRetried() {
+        Stub primary = stub(0);
+        Stub other = stub(0);
+        primary.status.set(400);
+        other.status.set(400);
+        start(routing(false), primary, other);
+
+        assertThrows(WebClientResponseException.BadRequest.class, () -> send(0));
+        assertEquals(1, primary.hits.get() + other.hits.get());
+    }
+
+    @Test
+    void slowAttemptIsHedgedOnAnotherGateway() {
+        Stub primary = stub(0);
+        Stub backup = stub(300);
+        start(routing(true), primary, backup);
+        // a slow backup keeps the warm-up, and the p95 it builds, on the primary
+        for (int i = 0; i < 30; i++) send(i);
+
+        primary.delayMillis.set(2_000);
+        backup.delayMillis.set(20);
+        // warm-up sends beyond the p95 may have been hedged already
+        double hedgesBefore = counter("client.order.hedges");
+        double winsBefore = counter("client.order.hedge.wins");
+        long start = System.nanoTime();
+        send(100);
+        long tookMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(tookMillis < 1_000, "hedged order took " + tookMillis + "ms");
+        assertEquals(1.0, counter("client.order.hedges") - hedgesBefore);
+        assertEquals(1.0, counter("client.order.hedge.wins") - winsBefore);
+    }
+
+    @Test
+    void aHedgedRejectionFailsAtOnceWithoutAHedge() throws Exception {
+        Stub primary = stub(0);
+        Stub other = stub(0);
+        // a floor far above loopback latency: a hedge can only go out if the rejection leaves its timer running
+        start(new ExchangeProperties.Routing(true, Duration.ofMillis(200), 3, Duration.ofSeconds(5)), primary, other);
+        for (int i = 0; i < 30; i++) send(i);
+
+        primary.status.set(400);
+        other.status.set(400);
+        int hitsBefore = primary.hits.get() + other.hits.get();
+        double hedgesBefore = counter("client.order.hedges");
+
+        assertThrows(WebClientResponseException.BadRequest.class, () -> send(100));
+        Thread.sleep(400);
+        assertEquals(hitsBefore + 1, primary.hits.get() + other.hits.get());
+        assertEquals(hedgesBefore, counter("client.order.hedges"));
+    }
+
+    @Test
+    void aHedgedServerErrorIsRetriedAndSurfacesAsIs() {
+        Stub primary = stub(0);
+        Stub other = stub(0);
+        start(new ExchangeProperties.Routing(true, Duration.ofMillis(2), 10, Duration.ofSeconds(5)), primary, other);
+        for (int i = 0; i < 30; i++) send(i);
+
+        primary.status.set(503);
+        other.status.set(503);
+        int hitsBefore = primary.hits.get() + other.hits.get();
+
+        Throwable e = assertThrows(Throwable.class, () -> send(100));
+        assertTrue(Exceptions.isRetryExhausted(e), e.toString());
+        assertTrue(e.getCause() instanceof WebClientResponseException.ServiceUnavailable, e.getCause().toString());
+        assertTrue(primary.hits.get() + other.hits.get() - hitsBefore >= 4);
+    }
+
+    @Test
+    void aThrottledOrderIsRetriedOnceTheExchangePauseIsOver() {
+        Stub primary = stub(0);
+        Stub other = stub(0);
+        start(routing(false), primary, other);
+        send(0);
+
+        // the 429 pauses the bucket for a second, longer than a normal order may wait, but the retry was admitted once
+        throttled.set(1);
+        int hitsBefore = primary.hits.get() + other.hits.get();
+        send(1);
+
+        assertEquals(0, throttled.get());
+        assertEquals(hitsBefore + 2, primary.hits.get() + other.hits.get());
+    }
+
+    @Test
+    void aHedgeWithoutATokenHandsBackTheProbeSlotItWon() {
+        long[] now = {0};
+        OrderRateLimiter limiter = new OrderRateLimiter("bybit", new ExchangeProperties.RateLimit(10, 5, 2, Duration.ofMillis(250)),
+                new MetricsService(registry), () -> now[0]);
+        Gateway primary = gateway("primary");
+        Gateway reopening = gateway("reopening");
+        for (int i = 0; i < 20; i++) primary.send(c -> Mono.just("ok"), false).block();
+        // ejected, and half-open by the time the primary's attempt is hedged
+        assertThrows(IllegalStateException.class, () -> reopening.send(c -> Mono.error(new IllegalStateException()), false).block());
+        GatewayRouter router = new GatewayRouter("bybit", List.of(primary, reopening),
+                new ExchangeProperties.Routing(true, Duration.ofMillis(200), 1, Duration.ofMillis(100)), limiter,
+                registry.counter("hedges"), registry.counter("hedge.wins"));
+        // the primary attempt takes the last normal token
+        limiter.reserve(OrderRateLimiter.Priority.NORMAL);
+        limiter.reserve(OrderRateLimiter.Priority.NORMAL);
+
+        assertEquals("ok", router.call(OrderRateLimiter.Priority.NORMAL,
+                c -> Mono.delay(Duration.ofMillis(400)).thenReturn("ok")).block(Duration.ofSeconds(5)));
+
+        assertEquals(0.0, registry.counter("hedges").count());
+        assertEquals(0.0, registry.get("client.ratelimit.rejected").tag("priority", "normal").counter().count());
+        assertTrue(reopening.tryProbe(System.nanoTime()), "probe slot still held");
+    }
+
+    private Gateway gateway(String url) {
+        return new Gateway(url, WebClient.create(), 1, Duration.ofMillis(100), registry.timer("latency", "gateway", url),
+                registry.counter("ejections", "gateway", url));
+    }
+
+    private void send(int i) {
+        client.processOrder(OrderRequest.builder().id("o" + i).symbol(Symbol.values()[0]).side(Side.BUY)
+                .qty(BigDecimal.ONE).build()).block(Duration.ofSeconds(10));
+    }
+
+    private double counter(String name) {
+        return registry.get(name).counter().count();
+    }
+
+    private double ejections(Stub stub) {
+        return registry.get("client.gateway.ejections").tag("gateway", stub.url()).counter().count();
+    }
+
+    private static ExchangeProperties.Routing routing(boolean hedge) {
+        return new ExchangeProperties.Routing(hedge, Duration.ofMillis(2), 3, Duration.ofSeconds(5));
+    }
+
+    private void start(ExchangeProperties.Routing routing, Stub primary, Stub other) {
+        ExchangeProperties properties = new ExchangeProperties(
+                List.of(new ExchangeEndpoint("bybit", primary.url(), List.of(other.url()), null)),
+                new ExchangeProperties.Batch(false, 32, Duration.ofMillis(2), 1024), routing,
+                ExchangeProperties.Pool.DEFAULTS, ExchangeProperties.RateLimit.NONE);
+        client = new MarketClient(properties, new MetricsService(registry));
+        client.init();
+    }
+
+    private Stub stub(long delayMillis) {
+        Stub stub = new Stub();
+        stub.delayMillis.set(delayMillis);
+        stub.server = HttpServer.create().port(0)
+                .route(routes -> routes.post("/api/orders", (req, res) -> req.receive().then(Mono.defer(() -> {
+                    stub.hits.incrementAndGet();
+                    stub.keys.add(req.requestHeaders().get(MarketClient.IDEMPOTENCY_KEY));
+                    int status = throttled.getAndUpdate(n -> Math.max(0, n - 1)) > 0 ? 429 : stub.status.get();
+                    return Mono.delay(Duration.ofMillis(stub.delayMillis.get()))
+                            .then(res.status(HttpResponseStatus.valueOf(status)).send().then());
+                }))))
+                .bindNow();
+        servers.add(stub.server);
+        return stub;
+    }
+
+    private static final class Stub {
+        final AtomicInteger hits = new AtomicInteger();
+        final AtomicLong delayMillis = new AtomicLong();
+        final AtomicInteger status = new AtomicInteger(200);
+        final List<String> keys = new CopyOnWriteArrayList<>();
+        DisposableServer server;
+
+        String url() {
+            return "http://localhost:" + server.port();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package nur.kg.cryptobot.client;
+
+import nur.kg.domain.enums.Side;
+import nur.kg.domain.request.OrderRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InflightOrdersTest {
+
+    private long now;
+    private final InflightOrders orders = new InflightOrders(Duration.ofMinutes(10), Duration.ofMillis(1), () -> now);
+
+    @Test
+    void aMarketTakesOneOrderAtATime() {
+        String id = orders.acquire(3);
+        assertNotNull(id);
+        // an id alone holds nothing, the market is taken once its order is sent
+        assertEquals(0, orders.inflight(3));
+
+        Sinks.One<Void> answer = Sinks.one();
+        orders.track(3, order(id), o -> answer.asMono()).subscribe();
+        assertEquals(1, orders.inflight(3));
+        assertNull(orders.acquire(3));
+        // other markets are independent
+        assertNotNull(orders.acquire(4));
+        answer.tryEmitEmpty();
+
+        assertEquals(0, orders.inflight(3));
+        assertNotEquals(id, orders.acquire(3));
+    }
+
+    @Test
+    void anOrderWithAnUnknownOutcomeIsSentAgainAsTheSameRequest() {
+        String id = orders.acquire(0);
+        OrderRequest order = order(id);
+        List<OrderRequest> sent = new ArrayList<>();
+        orders.track(0, order, o -> {
+            sent.add(o);
+            return sent.size() < 2 ? Mono.error(unavailable()) : Mono.empty();
+        }).block(Duration.ofSeconds(5));
+
+        assertEquals(List.of(order, order), sent);
+        assertEquals(0, orders.inflight(0));
+        // the next signal is an order of its own
+        assertNotEquals(id, orders.acquire(0));
+    }
+
+    @Test
+    void anOrderIsResentOnlyOnce() {
+        AtomicInteger sent = new AtomicInteger();
+        // the router has spent its own retries on each attempt already
+        Mono<Void> track = orders.track(5, order(orders.acquire(5)), o -> {
+            sent.incrementAndGet();
+            return Mono.error(unavailable());
+        });
+
+        assertThrows(IllegalStateException.class, () -> track.block(Duration.ofSeconds(5)));
+        assertEquals(2, sent.get());
+        assertEquals(0, orders.inflight(5));
+    }
+
+    @Test
+    void anIdThatIsNeverSentLeavesTheMarketFree() {
+        String dropped = orders.acquire(6);
+        orders.track(6, order(dropped), o -> Mono.<Void>empty());
+        assertEquals(0, orders.inflight(6));
+
+        String id = orders.acquire(6);
+        assertNotNull(id);
+        orders.track(6, order(id), o -> Mono.<Void>empty()).block(Duration.ofSeconds(5));
+        assertEquals(0, orders.inflight(6));
+    }
+
+    @Test
+    void aRejectedOrderIsNotSentAgain() {
+        AtomicInteger sent = new AtomicInteger();
+        Mono<Void> track = orders.track(1, order(orders.acquire(1)), o -> {
+            sent.incrementAndGet();
+            return Mono.error(WebClientResponseException.create(HttpStatus.BAD_REQUEST.value(), "Bad Request", HttpHeaders.EMPTY, null, null));
+        });
+
+        assertThrows(WebClientResponseException.class, () -> track.block(Duration.ofSeconds(5)));
+        assertEquals(1, sent.get());
+        assertEquals(0, orders.inflight(1));
+    }
+
+    @Test
+    void resendsStopWithTheExchangesDedupWindow() {
+        AtomicInteger sent = new AtomicInteger();
+        Mono<Void> track = orders.track(2, order(orders.acquire(2)), o -> {
+            sent.incrementAndGet();
+            now += Duration.ofMinutes(11).toNanos();
+            return Mono.error(unavailable());
+        });
+
+        // a resend 11 minutes after the first attempt would be a new order to the exchange
+        assertThrows(WebClientResponseException.class, () -> track.block(Duration.ofSeconds(5)));
+        assertEquals(1, sent.get());
+        assertEquals(0, orders.inflight(2));
+    }
+
+    @Test
+    void anOutcomeIsUnknownUnlessTheOrderWasRejectedOrNeverSent() {
+        WebClientResponseException rejected = WebClientResponseException.create(HttpStatus.BAD_REQUEST.value(), "Bad Request", HttpHeaders.EMPTY, null, null);
+        assertFalse(InflightOrders.uncertain(rejected));
+        assertFalse(InflightOrders.uncertain(new IllegalStateException("Order rate limit of exchange bybit exhausted")));
+
+        assertTrue(InflightOrders.uncertain(Exceptions.retryExhausted("Retries exhausted: 3/3", unavailable())));
+        assertTrue(InflightOrders.uncertain(Exceptions.propagate(new TimeoutException())));
+        assertTrue(InflightOrders.uncertain(Exceptions.multiple(rejected, unavailable())));
+        assertTrue(InflightOrders.uncertain(new NoSuchElementException("All sources completed with error or without values")));
+        assertTrue(InflightOrders.uncertain(new InflightOrders.OrderInDoubtException("Batch answer from bybit has 1 results for 2 orders")));
+    }
+
+    @Test
+    void racingSignalsSendOneOrder() throws InterruptedException {
+        AtomicInteger sent = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < 1_000; i++) {
+                    String id = orders.acquire(7);
+                    if (id == null) continue;
+                    orders.track(7, order(id), o -> {
+                        sent.incrementAndGet();
+                        return Mono.<Void>never();
+                    }).subscribe(v -> {}, e -> {});
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        go.countDown();
+        for (Thread thread : threads) thread.join();
+        assertEquals(1, sent.get());
+    }
+
+    private static WebClientResponseException unavailable() {
+        return WebClientResponseException.create(HttpStatus.SERVICE_UNAVAILABLE.value(), "Service Unavailable", HttpHeaders.EMPTY, null, null);
+    }
+
+    private static OrderRequest order(String id) {
+        return OrderRequest.builder().id(id).side(Side.BUY).build();
+    }
+}
@@ -0,0 +1,162 @@
+package nur.kg.cryptobot.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nur.kg.cryptobot.config.ExchangeEndpoint;
+import nur.kg.cryptobot.config.ExchangeProperties;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.enums.Side;
+import nur.kg.domain.enums.Symbol;
+import nur.kg.domain.request.OrderRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarketClientBatchTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<Integer> batches = new CopyOnWriteArrayList<>();
+    private DisposableServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int failWith;
+    private volatile boolean dropLastResult;
+    private MarketClient client;
+
+    @BeforeEach
+    void start() {
+        // answers every batch, rejecting orders whose id starts with "bad", until it is told to fail whole requests or
+        // to leave an order out of its answer
+        server = HttpServer.create().port(0)
+                .route(routes -> routes.post("/api/orders/batch", (req, res) -> req.receive().aggregate().asByteArray()
+                        .doOnNext(body -> requests.incrementAndGet())
+                        .flatMap(body -> failWith != 0
+                                ? res.status(failWith).send().then()
+                                : res.header("Content-Type", "application/json").sendByteArray(Mono.just(answer(body))).then())))
+                .bindNow();
+        ExchangeProperties properties = new ExchangeProperties(
+                List.of(new ExchangeEndpoint("bybit", "http://localhost:" + server.port(), null, null)),
+                new ExchangeProperties.Batch(true, 4, Duration.ofMillis(50), 64),
+                // the only gateway stays in even through a run of failed requests
+                new ExchangeProperties.Routing(false, Duration.ofMillis(2), 10, Duration.ofSeconds(5)),
+                ExchangeProperties.Pool.DEFAULTS, ExchangeProperties.RateLimit.NONE);
+        client = new MarketClient(properties, new MetricsService(registry));
+        client.init();
+    }
+
+    @AfterEach
+    void stop() {
+        client.close();
+        server.disposeNow();
+    }
+
+    @Test
+    void ordersWithinTheWindowShareRequestsAndKeepTheirOwnOutcome() {
+        List<String> ids = List.of("o1", "o2", "bad3", "o4", "o5", "o6", "o7", "o8", "o9", "o10");
+        List<Mono<String>> outcomes = ids.stream()
+                .map(id -> client.processOrder(order(id)).thenReturn("ok").onErrorResume(e -> Mono.just(e.getMessage())))
+                .toList();
+
+        List<String> results = Flux.mergeSequential(outcomes).collectList().block(Duration.ofSeconds(5));
+
+        // concurrent requests may reach the server in any order
+        assertEquals(List.of(2, 4, 4), batches.stream().sorted().toList());
+        assertEquals("ok", results.get(0));
+        assertTrue(results.get(2).contains("bad3 rejected"), results.get(2));
+        assertEquals(9, results.stream().filter("ok"::equals).count());
+        assertEquals(2, registry.get("client.order.batch.flushes").tag("reason", "size").counter().count());
+        assertEquals(1, registry.get("client.order.batch.flushes").tag("reason", "time").counter().count());
+        assertEquals(3, registry.get("client.order.batch.size").summary().count());
+        assertEquals(10, registry.get("client.order.batch.queue.delay").timer().count());
+    }
+
+    @Test
+    void aFailedRequestFailsEveryOrderInIt() {
+        // a refused connect is not reliable here: pre-warmed keep-alive connections outlive the server's listener
+        failWith = 400;
+        List<Mono<String>> outcomes = List.of("o1", "o2").stream()
+                .map(id -> client.processOrder(order(id)).thenReturn("ok").onErrorResume(e -> Mono.just("failed")))
+                .toList();
+
+        assertEquals(List.of("failed", "failed"), Flux.mergeSequential(outcomes).collectList().block(Duration.ofSeconds(5)));
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    void aBatchIsOnlySentAgainWhenTheExchangeRefusedIt() {
+        // a 500 may come after some of the orders were placed
+        failWith = 500;
+        assertEquals("failed", outcome("o1"));
+        assertEquals(1, requests.get());
+
+        failWith = 503;
+        assertEquals("failed", outcome("o2"));
+        assertEquals(1 + 4, requests.get());
+    }
+
+    @Test
+    void anAnswerThatDoesNotMatchTheBatchLeavesEveryOrderInDoubt() {
+        dropLastResult = true;
+        List<Mono<Throwable>> outcomes = List.of("o1", "o2").stream()
+                .map(id -> client.processOrder(order(id)).then(Mono.<Throwable>empty()).onErrorResume(Mono::just))
+                .toList();
+
+        List<Throwable> errors = Flux.mergeSequential(outcomes).collectList().block(Duration.ofSeconds(5));
+        assertEquals(2, errors.size());
+        for (Throwable e : errors) assertTrue(InflightOrders.uncertain(e), e.toString());
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void aClosedBatcherRefusesOrdersAtOnce() {
+        client.close();
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> client.processOrder(order("o1")).block(Duration.ofSeconds(1)));
+        assertEquals("Order batcher of bybit is closed", e.getMessage());
+        assertEquals(0, requests.get());
+    }
+
+    private String outcome(String id) {
+        return client.processOrder(order(id)).thenReturn("ok")
+                .onErrorResume(e -> Mono.just("failed"))
+                .block(Duration.ofSeconds(10));
+    }
+
+    private byte[] answer(byte[] body) {
+        try {
+            JsonNode orders = mapper.readTree(body);
+            batches.add(orders.size());
+            ArrayNode results = mapper.createArrayNode();
+            for (JsonNode order : orders) {
+                String id = order.path("id").asText();
+                results.addObject().put("id", id).put("error", id.startsWith("bad") ? "invalid quantity" : null);
+            }
+            if (dropLastResult) results.remove(results.size() - 1);
+            return results.toString().getBytes(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static OrderRequest order(String id) {
+        return OrderRequest.builder().id(id).symbol(Symbol.values()[0]).side(Side.BUY).qty(BigDecimal.ONE).build();
+    }
+}
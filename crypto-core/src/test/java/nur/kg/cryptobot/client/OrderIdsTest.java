@@ -0,0 +1,48 @@
+package nur.kg.cryptobot.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderIdsTest {
+
+    @Test
+    void idsAreFixedLengthAndSortInIssueOrder() {
+        OrderIds ids = new OrderIds(1_760_000_000_000L, 0xcafe);
+        String previous = ids.nextId();
+        assertEquals("199c82cc000" + "0000cafe" + "000000000001", previous);
+        for (int i = 0; i < 10_000; i++) {
+            String id = ids.nextId();
+            assertEquals(OrderIds.LENGTH, id.length());
+            assertTrue(id.compareTo(previous) > 0, id + " after " + previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    void threadsNeverShareAnId() throws InterruptedException {
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) seen.add(OrderIds.next());
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) thread.join();
+        assertEquals(40_000, seen.size());
+    }
+
+    @Test
+    void processesStartedTogetherDifferByNode() {
+        assertNotEquals(new OrderIds(1L, 1).nextId(), new OrderIds(1L, 2).nextId());
+    }
+}
@@ -0,0 +1,121 @@
+package nur.kg.cryptobot.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nur.kg.cryptobot.config.ExchangeProperties;
+import nur.kg.cryptobot.metrics.MetricsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static nur.kg.cryptobot.client.OrderRateLimiter.Priority.NORMAL;
+import static nur.kg.cryptobot.client.OrderRateLimiter.Priority.URGENT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderRateLimiterTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private long now = 1_000_000 * MS;
+
+    // 10 per second: a token every 100ms, bursts of 5 with 2 kept for urgent orders, which wait up to 250ms
+    private OrderRateLimiter limiter() {
+        return new OrderRateLimiter("bybit", new ExchangeProperties.RateLimit(10, 5, 2, Duration.ofMillis(250)),
+                new MetricsService(registry), () -> now);
+    }
+
+    @Test
+    void normalOrdersLeaveTheReserveToUrgentOnesWhichMayWait() {
+        OrderRateLimiter limiter = limiter();
+
+        for (int i = 0; i < 3; i++) assertEquals(0, limiter.reserve(NORMAL));
+        assertEquals(-1, limiter.reserve(NORMAL));
+        assertEquals(0, limiter.reserve(URGENT));
+        assertEquals(0, limiter.reserve(URGENT));
+        // bucket empty: the next urgent orders queue for the following slots, until maxWait
+        assertEquals(100 * MS, limiter.reserve(URGENT));
+        assertEquals(200 * MS, limiter.reserve(URGENT));
+        assertEquals(-1, limiter.reserve(URGENT));
+        assertEquals(0.0, gauge("client.ratelimit.tokens"));
+
+        now += 1_000 * MS;
+        assertEquals(5.0, gauge("client.ratelimit.tokens"), 1e-9);
+        assertEquals(0, limiter.reserve(NORMAL));
+        assertEquals(1.0, registry.get("client.ratelimit.rejected").tag("priority", "normal").counter().count());
+        assertEquals(1.0, registry.get("client.ratelimit.rejected").tag("priority", "urgent").counter().count());
+        assertEquals(2.0, registry.get("client.ratelimit.delayed").counter().count());
+    }
+
+    @Test
+    void anOptionalRequestTakesOnlyAFreeNormalTokenAndIsNeverCountedAsRejected() {
+        OrderRateLimiter limiter = limiter();
+
+        for (int i = 0; i < 3; i++) assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        // the reserve is still there for urgent orders
+        assertEquals(0, limiter.reserve(URGENT));
+        assertEquals(0.0, registry.get("client.ratelimit.rejected").tag("priority", "normal").counter().count());
+        assertEquals(0.0, registry.get("client.ratelimit.delayed").counter().count());
+    }
+
+    @Test
+    void exchangeHeadersOnlyTightenTheBucket() {
+        OrderRateLimiter limiter = limiter();
+
+        limiter.observe(HttpStatusCode.valueOf(200), headers("X-Bapi-Limit-Status", "50"));
+        assertEquals(5.0, gauge("client.ratelimit.tokens"), 1e-9);
+
+        limiter.observe(HttpStatusCode.valueOf(200), headers("X-Bapi-Limit-Status", "1"));
+        assertEquals(1.0, gauge("client.ratelimit.tokens"), 1e-9);
+
+        limiter.observe(HttpStatusCode.valueOf(429), headers(HttpHeaders.RETRY_AFTER, "2"));
+        assertEquals(-1, limiter.reserve(URGENT));
+        // the bucket refills from a single token after the pause, so normal orders resume after the reserve
+        assertEquals(2.2, gauge("client.ratelimit.blocked"), 1e-9);
+        now += 2_000 * MS;
+        assertEquals(0, limiter.reserve(URGENT));
+        now += 300 * MS;
+        assertEquals(0, limiter.reserve(NORMAL));
+    }
+
+    @Test
+    void withoutARateOnlyExchangePausesApply() {
+        OrderRateLimiter limiter = new OrderRateLimiter("bybit", new ExchangeProperties.RateLimit(0, 10, 2, Duration.ofMillis(500)),
+                new MetricsService(registry), () -> now);
+        for (int i = 0; i < 1_000; i++) assertEquals(0, limiter.reserve(NORMAL));
+
+        limiter.observe(HttpStatusCode.valueOf(429), new HttpHeaders());
+        assertEquals(-1, limiter.reserve(NORMAL));
+        now += 700 * MS;
+        assertEquals(300 * MS, limiter.reserve(URGENT));
+        now += 300 * MS;
+        assertEquals(0, limiter.reserve(NORMAL));
+    }
+
+    @Test
+    void aRetryWaitsOutAPauseAsLongAsAnUrgentOrderWould() {
+        OrderRateLimiter limiter = limiter();
+        assertEquals(0, limiter.reserve(NORMAL));
+
+        limiter.observe(HttpStatusCode.valueOf(429), new HttpHeaders());
+        assertEquals(-1, limiter.reserveRetry(NORMAL));
+        now += 800 * MS;
+        assertEquals(-1, limiter.reserve(NORMAL));
+        assertEquals(200 * MS, limiter.reserveRetry(NORMAL));
+    }
+
+    private double gauge(String name) {
+        return registry.get(name).gauge().value();
+    }
+
+    private static HttpHeaders headers(String name, String value) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(name, value);
+        return headers;
+    }
+}
@@ -0,0 +1,92 @@
+package nur.kg.cryptobot.codec;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.OrderType;
+import nur.kg.domain.enums.Side;
+import nur.kg.domain.enums.Symbol;
+import nur.kg.domain.request.OrderRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderRequestJsonEncoderTest {
+
+    private static final ResolvableType ORDER = ResolvableType.forClass(OrderRequest.class);
+
+    private final OrderRequestJsonEncoder encoder = new OrderRequestJsonEncoder();
+    private final ObjectMapper jackson = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void writesWhatJacksonWrites() throws Exception {
+        OrderRequest full = OrderRequest.builder()
+                .id("0199f3a2b4c5e1d2c3b4a000000000001").symbol(Symbol.values()[0]).side(Side.SELL).type(OrderType.LIMIT)
+                .qty(new BigDecimal("0.001")).limitPrice(new BigDecimal("65123.45")).tp(new BigDecimal("64000.0000"))
+                .sl(new BigDecimal("-1.5")).reason("trend_down").exchange(Exchange.values()[0]).botId("rsi-bot")
+                .build();
+        OrderRequest sparse = OrderRequest.builder().id("o1").side(Side.BUY).qty(BigDecimal.ONE).build();
+
+        for (OrderRequest order : List.of(full, sparse)) {
+            assertEquals(jackson.writeValueAsString(order), encode(order));
+        }
+    }
+
+    @Test
+    void escapesStringsLikeJson() throws Exception {
+        String reason = "say \"hi\" \\ tab\t nul\u0000 café ₿ 🚀";
+        OrderRequest order = OrderRequest.builder().id("o1").reason(reason).botId("bot").build();
+
+        OrderRequest parsed = jackson.readValue(encode(order), OrderRequest.class);
+        assertEquals(reason, parsed.reason());
+    }
+
+    @Test
+    void writesNumbersPlain() {
+        for (String number : List.of("0", "-1.5", "0.001", "-0.00000001", "0E-8", "65123.45", "1E+3",
+                "123456789012345678901234.5", "0.1234567890123456789")) {
+            BigDecimal value = new BigDecimal(number);
+            String json = encode(OrderRequest.builder().qty(value).build());
+            assertTrue(json.contains("\"qty\":" + value.toPlainString() + ","), json);
+        }
+    }
+
+    @Test
+    void growsPastTheEstimate() throws Exception {
+        OrderRequest order = OrderRequest.builder().id("o1").reason("x".repeat(1_000)).build();
+        assertEquals(jackson.writeValueAsString(order), encode(order));
+    }
+
+    @Test
+    void writesAFluxAsOneArray() throws Exception {
+        List<OrderRequest> orders = List.of(
+                OrderRequest.builder().id("a").qty(BigDecimal.ONE).build(),
+                OrderRequest.builder().id("b").qty(BigDecimal.TEN).build());
+
+        List<DataBuffer> buffers = encoder.encode(Flux.fromIterable(orders), DefaultDataBufferFactory.sharedInstance,
+                ORDER, MediaType.APPLICATION_JSON, null).collectList().block();
+
+        assertEquals(1, buffers.size());
+        String json = buffers.get(0).toString(StandardCharsets.UTF_8);
+        assertEquals(jackson.writeValueAsString(orders), json);
+        assertEquals(orders, jackson.readValue(json, new TypeReference<List<OrderRequest>>() {
+        }));
+        assertTrue(encoder.canEncode(ORDER, MediaType.APPLICATION_JSON));
+    }
+
+    private String encode(OrderRequest order) {
+        DataBuffer buffer = encoder.encodeValue(order, DefaultDataBufferFactory.sharedInstance, ORDER, MediaType.APPLICATION_JSON, null);
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,101 @@
+package nur.kg.cryptobot.codec;
+
+import nur.kg.cryptobot.market.FixedPoint;
+import nur.kg.cryptobot.market.MarketIds;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.Symbol;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TickFrameCodecTest {
+
+    @Test
+    void roundTripsAcrossArbitraryBufferSplits() {
+        Random random = new Random(3);
+        Symbol[] symbols = Symbol.values();
+        Exchange[] exchanges = Exchange.values();
+
+        int count = 500;
+        ByteBuffer out = ByteBuffer.allocate(count * TickFrameCodec.FRAME_LENGTH);
+        List<TickerDto> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Symbol symbol = symbols[random.nextInt(symbols.length)];
+            Exchange exchange = i % 7 == 0 ? null : exchanges[random.nextInt(exchanges.length)];
+            long price = 6_000_000_000_000L + random.nextInt(1_000_000_000);
+            TickFrameCodec.encode(out, symbol, exchange, price, 1_700_000_000_000_000L + i, i);
+            expected.add(TickerDto.builder().symbol(symbol).exchange(exchange).last(FixedPoint.toDecimal(price))
+                    .ts(Instant.ofEpochSecond(1_700_000_000L, i * 1_000L)).build());
+        }
+        byte[] bytes = out.array();
+
+        for (int chunk : new int[]{1, 5, 31, 32, 33, 1000, bytes.length}) {
+            List<TickerDto> actual = TickFrameCodec.decode(chunks(bytes, chunk)).collectList().block();
+            assertEquals(expected, actual, "chunk " + chunk);
+        }
+    }
+
+    @Test
+    void reportsSequenceGapsPerMarket() {
+        Symbol symbol = Symbol.values()[0];
+        Exchange exchange = Exchange.values()[0];
+        ByteBuffer out = ByteBuffer.allocate(7 * TickFrameCodec.FRAME_LENGTH);
+        for (long seq : new long[]{1, 2, 5}) TickFrameCodec.encode(out, symbol, null, 1, 0, seq);
+        // another exchange's sequence is its own
+        for (long seq : new long[]{10, 11}) TickFrameCodec.encode(out, symbol, exchange, 1, 0, seq);
+        // a feed restart starts over without counting
+        for (long seq : new long[]{1, 2}) TickFrameCodec.encode(out, symbol, null, 1, 0, seq);
+        List<String> gaps = new ArrayList<>();
+
+        List<TickerDto> ticks = TickFrameCodec.decode(chunks(out.array(), 13), (market, missed) -> gaps.add(MarketIds.label(market) + "=" + missed))
+                .collectList().block();
+
+        assertEquals(7, ticks.size());
+        assertEquals(List.of(symbol.name() + "=2"), gaps);
+        assertNull(ticks.get(0).ts());
+    }
+
+    @Test
+    void skipsTrailingBytesOfLongerFrames() {
+        Symbol symbol = Symbol.values()[0];
+        ByteBuffer out = ByteBuffer.allocate(2 * TickFrameCodec.FRAME_LENGTH + 4);
+        TickFrameCodec.encode(out, symbol, null, 42, 0, 1);
+        out.putInt(0, TickFrameCodec.BODY_LENGTH + 4);
+        out.putInt(0xCAFEBABE);
+        TickFrameCodec.encode(out, symbol, null, 43, 0, 2);
+
+        List<TickerDto> actual = TickFrameCodec.decode(chunks(out.array(), 7)).collectList().block();
+
+        assertEquals(List.of(FixedPoint.toDecimal(42), FixedPoint.toDecimal(43)), actual.stream().map(TickerDto::last).toList());
+    }
+
+    @Test
+    void rejectsTruncatedStreams() {
+        byte[] frame = TickFrameCodec.encode(Symbol.values()[0], null, 1, 0, 0);
+        byte[] truncated = Arrays.copyOf(frame, frame.length - 1);
+
+        assertThrows(DecodingException.class, () -> TickFrameCodec.decode(chunks(truncated, 4)).blockLast());
+    }
+
+    private static Flux<DataBuffer> chunks(byte[] bytes, int size) {
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += size) {
+            buffers.add(DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i + size))));
+        }
+        return Flux.fromIterable(buffers);
+    }
+}
@@ -0,0 +1,108 @@
+package nur.kg.cryptobot.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.Symbol;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.DecoderHttpMessageReader;
+import org.springframework.http.codec.HttpMessageReader;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TickerNdjsonDecoderTest {
+
+    private static final ResolvableType TICKER = ResolvableType.forClass(TickerDto.class);
+
+    private final TickerNdjsonDecoder decoder = new TickerNdjsonDecoder(64 * 1024);
+    private final ObjectMapper jackson = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void matchesJacksonForEveryBufferSplit() throws Exception {
+        Symbol s0 = Symbol.values()[0];
+        Symbol s1 = Symbol.values()[Symbol.values().length - 1];
+        Exchange ex = Exchange.values()[0];
+        String ndjson = String.join("\n",
+                "{\"symbol\":\"" + s0 + "\",\"exchange\":\"" + ex + "\",\"last\":65000.12}",
+                "  { \"last\" : \"0.00012345\" , \"symbol\" : \"" + s1 + "\", \"exchange\": null }\r",
+                "",
+                "{\"note\":\"a \\\"quoted\\\" , } value\",\"meta\":{\"nested\":[1,{\"x\":\"]\"}]},\"symbol\":\"" + s0 + "\",\"last\":-12.5}",
+                "{\"symbol\":\"" + s1 + "\",\"exchange\":\"" + ex + "\",\"last\":1.5E+3}",
+                "{\"symbol\":\"" + s0 + "\",\"last\":123456789012345678901.25}",
+                "{\"symbol\":\"" + s0 + "\",\"exchange\":\"" + ex + "\",\"last\":null}",
+                "{\"symbol\":\"" + s0 + "\",\"exchange\":\"" + ex + "\",\"last\":65000.12,\"bid\":65000.10,\"ask\":\"65000.15\","
+                        + "\"volume\":1.25,\"ts\":\"2025-10-01T12:00:00.123456Z\"}",
+                "{\"ts\":1759320000.5,\"volume\":0,\"symbol\":\"" + s1 + "\",\"last\":1,\"bid\":null}",
+                "{\"ts\":1759320000,\"symbol\":\"" + s1 + "\",\"last\":2}");
+
+        List<TickerDto> expected = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            if (!line.isBlank()) expected.add(jackson.readValue(line, TickerDto.class));
+        }
+
+        byte[] bytes = ndjson.getBytes(StandardCharsets.UTF_8);
+        for (int chunk = 1; chunk <= bytes.length; chunk++) {
+            List<TickerDto> actual = decoder.decode(chunks(bytes, chunk), TICKER, MediaType.APPLICATION_NDJSON, null)
+                    .collectList()
+                    .block();
+            assertEquals(expected.size(), actual.size(), "chunk " + chunk);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i), actual.get(i), "chunk " + chunk + " line " + i);
+            }
+        }
+    }
+
+    @Test
+    void rejectsUnknownSymbols() {
+        byte[] bytes = "{\"symbol\":\"NOT_A_SYMBOL\",\"last\":1}\n".getBytes(StandardCharsets.US_ASCII);
+        assertThrows(DecodingException.class,
+                () -> decoder.decode(chunks(bytes, bytes.length), TICKER, MediaType.APPLICATION_NDJSON, null).blockLast());
+    }
+
+    @Test
+    void rejectsMalformedNumbersAsDecodingErrors() {
+        String symbol = Symbol.values()[0].name();
+        for (String line : List.of("{\"symbol\":\"" + symbol + "\",\"last\":1e}\n",
+                "{\"symbol\":\"" + symbol + "\",\"last\":1,\"volume\":\"2-3\"}\n",
+                "{\"symbol\":\"" + symbol + "\",\"last\":1,\"ts\":1e+}\n")) {
+            byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+            assertThrows(DecodingException.class,
+                    () -> decoder.decode(chunks(bytes, bytes.length), TICKER, MediaType.APPLICATION_NDJSON, null).blockLast(), line);
+        }
+    }
+
+    @Test
+    void takesPrecedenceOverJacksonForTickerStreams() {
+        ServerCodecConfigurer configurer = ServerCodecConfigurer.create();
+        new nur.kg.cryptobot.config.CodecConfig().configureHttpMessageCodecs(configurer);
+
+        HttpMessageReader<?> reader = configurer.getReaders().stream()
+                .filter(r -> r.canRead(TICKER, MediaType.APPLICATION_NDJSON))
+                .findFirst()
+                .orElseThrow();
+        assertInstanceOf(TickerNdjsonDecoder.class, ((DecoderHttpMessageReader<?>) reader).getDecoder());
+    }
+
+    private static Flux<DataBuffer> chunks(byte[] bytes, int size) {
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += size) {
+            buffers.add(DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i + size))));
+        }
+        return Flux.fromIterable(buffers);
+    }
+}
@@ -0,0 +1,186 @@
+package nur.kg.cryptobot.host;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nur.kg.cryptobot.config.HostProperties;
+import nur.kg.cryptobot.config.StrategySpec;
+import nur.kg.cryptobot.indicator.IndicatorLease;
+import nur.kg.cryptobot.indicator.IndicatorRegistry;
+import nur.kg.cryptobot.indicator.IndicatorSpec;
+import nur.kg.cryptobot.indicator.Sma;
+import nur.kg.cryptobot.market.FixedPoint;
+import nur.kg.cryptobot.market.MarketIds;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.cryptobot.replay.ReplayEngine;
+import nur.kg.cryptobot.replay.SimulatedMarketClient;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Side;
+import nur.kg.domain.enums.Symbol;
+import nur.kg.domain.request.OrderRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StrategyHostTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MetricsService metrics = new MetricsService(registry);
+    private final SimulatedMarketClient exchange = new SimulatedMarketClient();
+    private final Map<String, List<TickerDto>> seen = Map.of("a", new CopyOnWriteArrayList<>(), "b", new CopyOnWriteArrayList<>());
+
+    // sends one order per tick through the client it was given
+    private final StrategyFactory eager = new StrategyFactory() {
+        @Override
+        public String type() {
+            return "eager";
+        }
+
+        @Override
+        public HostedStrategy create(StrategySpec spec, StrategyContext context) {
+            return ticks -> ticks
+                    .map(HostedTick::tick)
+                    .doOnNext(t -> context.metrics().marketMeters(MarketIds.of(t)).tickReceived())
+                    .doOnNext(seen.get(spec.id())::add)
+                    .concatMap(t -> context.timed(() -> context.client().processOrder(order(spec.id(), t)).onErrorResume(e -> Mono.empty())))
+                    .then();
+        }
+    };
+
+    @Test
+    void everyStrategySeesEveryTickWithItsOwnMetricsAndBudget() {
+        StrategyHost host = host(spec("a", 0), spec("b", 2));
+
+        host.processMarket(Flux.range(0, 5).map(StrategyHostTest::tick)).block(Duration.ofSeconds(5));
+
+        assertEquals(5, seen.get("a").size());
+        assertEquals(seen.get("a"), seen.get("b"));
+        Symbol symbol = Symbol.values()[0];
+        assertEquals(5, registry.get("market.ticks.received").tags("strategy", "a", "market", symbol.name()).functionCounter().count());
+        assertEquals(5, registry.get("market.ticks.received").tags("strategy", "b", "market", symbol.name()).functionCounter().count());
+        assertEquals(5, registry.get("host.ticks.received").counter().count());
+        assertEquals(5, registry.get("host.strategy.tick.duration").tag("strategy", "a").timer().count());
+
+        assertEquals(7, exchange.orders());
+        assertEquals(3, registry.get("host.strategy.orders.rejected").tag("strategy", "b").counter().count());
+    }
+
+    @Test
+    void aLaggingStrategyReadsTheIndicatorsOfItsOwnTick() {
+        IndicatorRegistry indicators = new IndicatorRegistry();
+        IndicatorSpec sma = IndicatorSpec.sma(2);
+        List<Long> averages = new CopyOnWriteArrayList<>();
+        StrategyFactory slow = new StrategyFactory() {
+            @Override
+            public String type() {
+                return "slow";
+            }
+
+            @Override
+            public HostedStrategy create(StrategySpec spec, StrategyContext context) {
+                return ticks -> Mono.using(
+                        () -> context.indicators().lease(MarketIds.of(tick(0)), List.of(sma)),
+                        lease -> ticks
+                                // the host has applied every tick long before this one is looked at
+                                .delayElements(Duration.ofMillis(5))
+                                .doOnNext(h -> averages.add(h.indicators().<Sma>get(sma).average()))
+                                .then(),
+                        IndicatorLease::close);
+            }
+        };
+        StrategyHost host = new StrategyHost(new HostProperties(true, 64, List.of(new StrategySpec("s", "slow", 0, Duration.ofMinutes(1), Map.of()))),
+                metrics, exchange, ReplayEngine.serialPipeline(metrics), Clock.systemUTC(), indicators, List.of(slow));
+        host.init();
+
+        host.processMarket(Flux.range(0, 6).map(StrategyHostTest::tick)).block(Duration.ofSeconds(5));
+
+        // tick i is 100 + i, so the two-tick average after it is 99.5 + i
+        assertEquals(6, averages.size());
+        for (int i = 1; i < 6; i++) {
+            assertEquals(FixedPoint.toScaled(BigDecimal.valueOf(99.5 + i)), averages.get(i));
+        }
+        assertEquals(0, indicators.activeIndicators());
+    }
+
+    @Test
+    void aFailingStrategyIsRestartedWithoutStoppingTheOthers() {
+        List<Integer> flakySeen = new CopyOnWriteArrayList<>();
+        AtomicBoolean failed = new AtomicBoolean();
+        StrategyFactory flaky = new StrategyFactory() {
+            @Override
+            public String type() {
+                return "flaky";
+            }
+
+            @Override
+            public HostedStrategy create(StrategySpec spec, StrategyContext context) {
+                return ticks -> ticks
+                        .map(h -> h.tick().last().intValue())
+                        .doOnNext(p -> {
+                            if (p == 102 && failed.compareAndSet(false, true)) throw new IllegalStateException("bad tick");
+                            flakySeen.add(p);
+                        })
+                        .then();
+            }
+        };
+        StrategyHost host = new StrategyHost(new HostProperties(true, 64, List.of(spec("a", 0),
+                new StrategySpec("f", "flaky", 0, Duration.ofMinutes(1), Map.of()))),
+                metrics, exchange, ReplayEngine.serialPipeline(metrics), Clock.systemUTC(), new IndicatorRegistry(), List.of(eager, flaky));
+        host.init();
+
+        host.processMarket(Flux.range(0, 5).map(StrategyHostTest::tick)).block(Duration.ofSeconds(5));
+
+        assertEquals(5, seen.get("a").size());
+        assertEquals(List.of(100, 101, 103, 104), flakySeen);
+        assertEquals(1, registry.get("host.strategy.failures").tag("strategy", "f").counter().count());
+    }
+
+    @Test
+    void unknownTypeOrDuplicateIdFailsStartup() {
+        assertThrows(IllegalStateException.class, () -> host(new StrategySpec("a", "macd", 0, Duration.ofMinutes(1), Map.of())));
+        assertThrows(IllegalStateException.class, () -> host(spec("a", 0), spec("a", 0)));
+    }
+
+    @Test
+    void paramsBindLikeTheStrategyBotBlock() {
+        StrategySpec spec = new StrategySpec("SMA-fast", "sma", 0, Duration.ofMinutes(1), Map.of("short-window", "5"));
+
+        Windows bound = spec.bind(Windows.class);
+
+        assertEquals(new Windows("SMA-fast", 5, 100), bound);
+        assertEquals(20, new StrategySpec("x", "sma", 0, Duration.ofMinutes(1), Map.of()).bind(Windows.class).shortWindow());
+    }
+
+    public record Windows(String id, @DefaultValue("20") int shortWindow, @DefaultValue("100") int longWindow) {
+    }
+
+    private StrategyHost host(StrategySpec... specs) {
+        StrategyHost host = new StrategyHost(new HostProperties(true, 64, List.of(specs)), metrics, exchange,
+                ReplayEngine.serialPipeline(metrics), Clock.systemUTC(), new IndicatorRegistry(), List.of(eager));
+        host.init();
+        return host;
+    }
+
+    private static StrategySpec spec(String id, int maxOrders) {
+        return new StrategySpec(id, "EAGER", maxOrders, Duration.ofMinutes(1), Map.of());
+    }
+
+    private static OrderRequest order(String botId, TickerDto t) {
+        return OrderRequest.builder().id(botId + t.last()).symbol(t.symbol()).side(Side.BUY).qty(BigDecimal.ONE).botId(botId).build();
+    }
+
+    private static TickerDto tick(int i) {
+        return TickerDto.builder().symbol(Symbol.values()[0]).last(BigDecimal.valueOf(100 + i)).ts(Instant.EPOCH).build();
+    }
+}
@@ -0,0 +1,150 @@
+package nur.kg.cryptobot.indicator;
+
+import nur.kg.cryptobot.market.FixedPoint;
+import nur.kg.cryptobot.market.MarketIds;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.Symbol;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndicatorRegistryTest {
+
+    private final IndicatorRegistry registry = new IndicatorRegistry();
+    private final Symbol symbol = Symbol.values()[0];
+    private final int market = MarketIds.of(null, symbol);
+
+    @Test
+    void equalSpecsShareOneInstanceAdvancedOncePerTick() {
+        IndicatorLease a = registry.lease(market, List.of(IndicatorSpec.sma(3), IndicatorSpec.rsi(14)));
+        IndicatorLease b = registry.lease(market, List.of(IndicatorSpec.sma(3)));
+        assertSame(a.get(IndicatorSpec.sma(3)), b.get(IndicatorSpec.sma(3)));
+        assertEquals(2, registry.activeIndicators());
+
+        for (int p : new int[]{10, 11, 12, 13}) registry.onTick(tick(p, 1));
+
+        Sma sma = b.get(IndicatorSpec.sma(3));
+        assertTrue(sma.ready());
+        assertEquals(FixedPoint.toScaled(new BigDecimal("12")), sma.average());
+        assertFalse(a.ready());
+    }
+
+    @Test
+    void aSnapshotKeepsTheValuesOfItsTick() {
+        IndicatorSpec sma = IndicatorSpec.sma(2);
+        IndicatorSpec rsi = IndicatorSpec.rsi(2);
+        assertSame(IndicatorSnapshot.EMPTY, registry.onTick(tick(10, 1)));
+        registry.lease(market, List.of(sma, rsi));
+
+        registry.onTick(tick(10, 1));
+        IndicatorSnapshot first = registry.onTick(tick(12, 1));
+        for (int p : new int[]{8, 9, 20}) registry.onTick(tick(p, 1));
+
+        assertTrue(first.ready(List.of(sma)));
+        assertFalse(first.ready(List.of(sma, rsi)));
+        assertEquals(FixedPoint.toScaled(new BigDecimal("11")), first.<Sma>get(sma).average());
+        assertNull(first.get(IndicatorSpec.ema(2)));
+    }
+
+    @Test
+    void samePairOnTwoExchangesKeepsSeparateIndicators() {
+        Exchange[] exchanges = Exchange.values();
+        IndicatorLease first = registry.lease(MarketIds.of(exchanges[0], symbol), List.of(IndicatorSpec.sma(2)));
+        IndicatorLease second = registry.lease(MarketIds.of(exchanges[1], symbol), List.of(IndicatorSpec.sma(2)));
+        assertNotSame(first.get(IndicatorSpec.sma(2)), second.get(IndicatorSpec.sma(2)));
+
+        for (int p : new int[]{10, 20}) {
+            registry.onTick(TickerDto.builder().symbol(symbol).exchange(exchanges[0]).last(BigDecimal.valueOf(p)).build());
+        }
+        registry.onTick(TickerDto.builder().symbol(symbol).exchange(exchanges[1]).last(BigDecimal.valueOf(99)).build());
+
+        assertEquals(FixedPoint.toScaled(new BigDecimal("15")), first.<Sma>get(IndicatorSpec.sma(2)).average());
+        assertFalse(second.ready());
+    }
+
+    @Test
+    void indicatorsNobodyHoldsAreEvicted() {
+        IndicatorLease a = registry.lease(market, List.of(IndicatorSpec.sma(3), IndicatorSpec.ema(5)));
+        IndicatorLease b = registry.lease(market, List.of(IndicatorSpec.sma(3)));
+
+        a.close();
+        a.close();
+        assertEquals(1, registry.activeIndicators());
+        b.close();
+        assertEquals(0, registry.activeIndicators());
+
+        IndicatorLease fresh = registry.lease(market, List.of(IndicatorSpec.sma(3)));
+        registry.onTick(tick(10, 1));
+        assertFalse(fresh.ready());
+    }
+
+    @Test
+    void bandsVwapAndMacdMatchDirectComputation() {
+        IndicatorSpec bands = IndicatorSpec.bollinger(20, 2);
+        IndicatorSpec vwap = IndicatorSpec.vwap(20);
+        IndicatorSpec macd = IndicatorSpec.macd(3, 6, 4);
+        IndicatorLease lease = registry.lease(market, List.of(bands, vwap, macd));
+
+        Random random = new Random(7);
+        double[] prices = new double[95];
+        double[] volumes = new double[95];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = 100 + random.nextInt(1000) / 100.0;
+            volumes[i] = 1 + random.nextInt(50);
+            registry.onTick(tick(prices[i], volumes[i]));
+        }
+        assertTrue(lease.ready());
+
+        double sum = 0, sumSq = 0, notional = 0, volume = 0;
+        for (int i = prices.length - 20; i < prices.length; i++) {
+            sum += prices[i];
+            sumSq += prices[i] * prices[i];
+            notional += prices[i] * volumes[i];
+            volume += volumes[i];
+        }
+        double mean = sum / 20;
+        double sd = Math.sqrt(sumSq / 20 - mean * mean);
+        Bollinger b = lease.get(bands);
+        assertEquals(mean, b.middle(), 1e-9);
+        assertEquals(mean + 2 * sd, b.upper(), 1e-6);
+        assertEquals(mean - 2 * sd, b.lower(), 1e-6);
+        assertEquals(notional / volume, lease.<Vwap>get(vwap).value(), 1e-9);
+
+        double fast = ema(prices, 3, prices.length);
+        double slow = ema(prices, 6, prices.length);
+        assertEquals(fast - slow, lease.<Macd>get(macd).line(), 1e-9);
+    }
+
+    @Test
+    void rsiWithoutLossesReportsSentinel() {
+        IndicatorLease lease = registry.lease(market, List.of(IndicatorSpec.rsi(3)));
+        for (int p = 100; p < 105; p++) registry.onTick(tick(p, 0));
+
+        Rsi rsi = lease.get(IndicatorSpec.rsi(3));
+        assertEquals(Rsi.NO_LOSS_RS, rsi.rs());
+        assertEquals(100.0, rsi.rsi());
+    }
+
+    private static double ema(double[] xs, int n, int upTo) {
+        double v = 0;
+        for (int i = 0; i < n; i++) v += xs[i];
+        v /= n;
+        double alpha = 2.0 / (n + 1);
+        for (int i = n; i < upTo; i++) v += alpha * (xs[i] - v);
+        return v;
+    }
+
+    private TickerDto tick(double price, double volume) {
+        return TickerDto.builder().symbol(symbol).last(BigDecimal.valueOf(price)).volume(BigDecimal.valueOf(volume)).build();
+    }
+}
@@ -0,0 +1,87 @@
+package nur.kg.cryptobot.ingest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nur.kg.cryptobot.bar.BarAggregator;
+import nur.kg.cryptobot.config.BarProperties;
+import nur.kg.cryptobot.config.IngestProperties;
+import nur.kg.cryptobot.config.JournalProperties;
+import nur.kg.cryptobot.journal.TickJournal;
+import nur.kg.cryptobot.market.MarketService;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Symbol;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IngestPipelineTest {
+
+    static final IngestProperties PROPERTIES = new IngestProperties(true, new IngestProperties.WebSocket(true, "/ws/tickers", 4, 8));
+
+    @Test
+    void everySourceFeedsOneMarketServiceSubscription() {
+        AtomicInteger subscriptions = new AtomicInteger();
+        List<TickerDto> processed = new CopyOnWriteArrayList<>();
+        IngestPipeline pipeline = pipeline(ticks -> ticks.doOnSubscribe(s -> subscriptions.incrementAndGet())
+                .doOnNext(processed::add).then(), new MetricsService(new SimpleMeterRegistry()));
+
+        Symbol symbol = Symbol.values()[0];
+        // a long-lived source, as a WebSocket session, next to two short ones, as HTTP streams
+        Sinks.Many<TickerDto> session = Sinks.many().unicast().onBackpressureBuffer();
+        pipeline.ingest(session.asFlux()).subscribe();
+        session.tryEmitNext(tick(symbol, 1));
+        pipeline.ingest(Flux.range(2, 10).map(i -> tick(symbol, i))).block(Duration.ofSeconds(5));
+        pipeline.ingest(Flux.range(12, 10).map(i -> tick(symbol, i))).block(Duration.ofSeconds(5));
+        session.tryEmitNext(tick(symbol, 22));
+        pipeline.stop();
+
+        assertEquals(1, subscriptions.get());
+        assertEquals(22, processed.size());
+    }
+
+    @Test
+    void aFailingTickDoesNotStopLaterSources() throws Exception {
+        List<TickerDto> processed = new CopyOnWriteArrayList<>();
+        MarketService market = ticks -> ticks.doOnNext(t -> {
+            if (t.last().intValue() == 13) throw new IllegalArgumentException("bad tick");
+            processed.add(t);
+        }).then();
+        IngestPipeline pipeline = pipeline(market, new MetricsService(new SimpleMeterRegistry()));
+
+        Symbol symbol = Symbol.values()[0];
+        pipeline.ingest(Flux.range(0, 20).map(i -> tick(symbol, i))).block(Duration.ofSeconds(5));
+        pipeline.ingest(Flux.range(100, 10).map(i -> tick(symbol, i))).block(Duration.ofSeconds(5));
+
+        // the ticks after the failing one wait in the merge until the pipeline is resubscribed after its backoff
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (processed.size() < 29 && System.nanoTime() < deadline) Thread.sleep(10);
+        pipeline.stop();
+
+        assertEquals(29, processed.size());
+        assertTrue(processed.stream().noneMatch(t -> t.last().intValue() == 13));
+    }
+
+    static IngestPipeline pipeline(MarketService market, MetricsService metrics) {
+        TickJournal journal = new TickJournal(new JournalProperties(false, "journal", DataSize.ofMegabytes(1), 1, 1024), metrics);
+        BarAggregator bars = new BarAggregator(new BarProperties(false, List.of(Duration.ofSeconds(1)), 10, Duration.ofSeconds(1)), metrics, Clock.systemUTC());
+        IngestPipeline pipeline = new IngestPipeline(PROPERTIES, market, journal, bars);
+        pipeline.start();
+        return pipeline;
+    }
+
+    private static TickerDto tick(Symbol symbol, int price) {
+        return TickerDto.builder().symbol(symbol).last(BigDecimal.valueOf(price)).build();
+    }
+}
@@ -0,0 +1,70 @@
+package nur.kg.cryptobot.ingest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Symbol;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TickIngestHubTest {
+
+    @Test
+    void mergesSessionsAndIsolatesFailures() {
+        List<TickerDto> processed = new CopyOnWriteArrayList<>();
+        MetricsService metrics = new MetricsService(new SimpleMeterRegistry());
+        IngestPipeline pipeline = IngestPipelineTest.pipeline(ticks -> ticks.doOnNext(processed::add).then(), metrics);
+        TickIngestHub hub = hub(pipeline, metrics);
+
+        Symbol symbol = Symbol.values()[0];
+        hub.attach("a", Flux.range(0, 100).map(i -> tick(symbol, i))).block(Duration.ofSeconds(5));
+        assertThrows(IllegalStateException.class, () -> hub.attach("b", Flux.concat(
+                Flux.just(tick(symbol, 1000)), Flux.error(new IllegalStateException("socket reset")))).block(Duration.ofSeconds(5)));
+        hub.attach("c", Flux.range(0, 50).map(i -> tick(symbol, i))).block(Duration.ofSeconds(5));
+        pipeline.stop();
+
+        assertEquals(151, processed.size());
+        assertEquals(1.0, metrics.getSessionDisconnectsCounter("b").count());
+    }
+
+    @Test
+    void refusesSessionsPastTheLimit() {
+        MetricsService metrics = new MetricsService(new SimpleMeterRegistry());
+        IngestPipeline pipeline = IngestPipelineTest.pipeline(ticks -> ticks.then(), metrics);
+        TickIngestHub hub = hub(pipeline, metrics);
+
+        List<Sinks.Many<TickerDto>> open = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Sinks.Many<TickerDto> session = Sinks.many().unicast().onBackpressureBuffer();
+            hub.attach("a", session.asFlux()).subscribe();
+            open.add(session);
+        }
+        assertThrows(TickIngestHub.SessionLimitException.class, () -> hub.attach("b", Flux.never()).block(Duration.ofSeconds(5)));
+        assertEquals(1.0, metrics.getSessionRejectedCounter("b").count());
+
+        // a slot freed by a session ending is taken by the next one
+        open.get(0).tryEmitComplete();
+        hub.attach("b", Flux.just(tick(Symbol.values()[0], 1))).block(Duration.ofSeconds(5));
+        pipeline.stop();
+    }
+
+    private static TickIngestHub hub(IngestPipeline pipeline, MetricsService metrics) {
+        TickIngestHub hub = new TickIngestHub(IngestPipelineTest.PROPERTIES, pipeline, metrics);
+        hub.init();
+        return hub;
+    }
+
+    private static TickerDto tick(Symbol symbol, int price) {
+        return TickerDto.builder().symbol(symbol).last(BigDecimal.valueOf(price)).build();
+    }
+}
@@ -0,0 +1,50 @@
+package nur.kg.cryptobot.ingest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nur.kg.cryptobot.codec.TickFrameCodec;
+import nur.kg.cryptobot.codec.TickerNdjsonDecoder;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.Symbol;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TickWebSocketHandlerTest {
+
+    private final MetricsService metrics = new MetricsService(new SimpleMeterRegistry());
+    private final TickWebSocketHandler handler = new TickWebSocketHandler(null, metrics);
+    private final TickerNdjsonDecoder.LineDecoder lines = new TickerNdjsonDecoder.LineDecoder(1024);
+    private final TickFrameCodec.FrameDecoder frames = new TickFrameCodec.FrameDecoder();
+
+    @Test
+    void textAndBinarySessionsBothReportLag() {
+        Symbol symbol = Symbol.values()[0];
+        Instant sent = Instant.ofEpochMilli(System.currentTimeMillis() - 2_000);
+        String ndjson = "{\"symbol\":\"" + symbol + "\",\"last\":1,\"ts\":\"" + sent + "\"}\n"
+                + "{\"symbol\":\"" + symbol + "\",\"last\":2}\n";
+
+        assertEquals(2, handler.decode(message(WebSocketMessage.Type.TEXT, ndjson.getBytes(StandardCharsets.UTF_8)),
+                "text", lines, frames).size());
+        // only the tick carrying ts has a lag to report
+        assertEquals(1, metrics.getSessionLagTimer("text").count());
+        assertTrue(metrics.getSessionLagTimer("text").totalTime(TimeUnit.SECONDS) >= 2);
+
+        long sentMicros = TimeUnit.MILLISECONDS.toMicros(sent.toEpochMilli());
+        byte[] frame = TickFrameCodec.encode(symbol, Exchange.values()[0], 1, sentMicros, 0);
+        assertEquals(1, handler.decode(message(WebSocketMessage.Type.BINARY, frame), "binary", lines, frames).size());
+        assertEquals(1, metrics.getSessionLagTimer("binary").count());
+        assertTrue(metrics.getSessionLagTimer("binary").totalTime(TimeUnit.SECONDS) >= 2);
+    }
+
+    private static WebSocketMessage message(WebSocketMessage.Type type, byte[] bytes) {
+        return new WebSocketMessage(type, DefaultDataBufferFactory.sharedInstance.wrap(bytes));
+    }
+}
@@ -0,0 +1,111 @@
+package nur.kg.cryptobot.journal;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nur.kg.cryptobot.config.JournalProperties;
+import nur.kg.cryptobot.market.FixedPoint;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.Symbol;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TickJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rollsSegmentsKeepsRetentionAndReadsBackInOrder() throws Exception {
+        int perSegment = 100;
+        DataSize segmentSize = DataSize.ofBytes(JournalFormat.HEADER_SIZE + perSegment * JournalFormat.RECORD_SIZE);
+        TickJournal journal = new TickJournal(new JournalProperties(true, dir.toString(), segmentSize, 3, 1 << 16),
+                new MetricsService(new SimpleMeterRegistry()));
+        journal.start();
+
+        Symbol symbol = Symbol.values()[0];
+        Exchange exchange = Exchange.values()[0];
+        int ticks = 1050;
+        for (int i = 0; i < ticks; i++) {
+            journal.append(TickerDto.builder().symbol(symbol).exchange(i % 2 == 0 ? exchange : null).last(BigDecimal.valueOf(i, 2)).build());
+        }
+        journal.append(TickerDto.builder().symbol(symbol).build());
+        journal.stop();
+
+        TickJournalReader reader = new TickJournalReader(dir);
+        assertEquals(3, reader.segments().size());
+
+        List<Long> prices = new ArrayList<>();
+        List<Long> sequences = new ArrayList<>();
+        List<Exchange> exchanges = new ArrayList<>();
+        reader.forEach((receivedAt, s, ex, price, scale, seq) -> {
+            assertEquals(symbol, s);
+            prices.add(price);
+            sequences.add(seq);
+            exchanges.add(ex);
+        });
+
+        // 11 segments were written (1051 records), the oldest 8 were deleted
+        assertEquals(251, prices.size());
+        assertEquals(800L, sequences.get(0));
+        assertEquals(FixedPoint.toScaled(BigDecimal.valueOf(800, 2)), prices.get(0));
+        assertEquals(exchange, exchanges.get(0));
+        assertNull(exchanges.get(1));
+        assertEquals(JournalFormat.NO_PRICE, prices.get(prices.size() - 1));
+        assertNull(TickJournalReader.toTicker(symbol, null, prices.get(prices.size() - 1), 0).last());
+    }
+
+    @Test
+    void refusesSettingsThatWouldDeleteTheLiveSegmentOrOverflowIt() {
+        String d = dir.toString();
+        assertThrows(IllegalArgumentException.class, () -> new JournalProperties(true, d, DataSize.ofMegabytes(1), 0, 1024));
+        assertThrows(IllegalArgumentException.class, () -> new JournalProperties(true, d, DataSize.ofGigabytes(3), 3, 1024));
+        assertThrows(IllegalArgumentException.class, () -> new JournalProperties(true, d, DataSize.ofMegabytes(1), 3, 0));
+        new JournalProperties(true, d, DataSize.ofBytes(Integer.MAX_VALUE), 1, 1);
+    }
+
+    @Test
+    void replayedPricesAverageAsTheLiveOnesDid() throws Exception {
+        TickJournal journal = new TickJournal(new JournalProperties(true, dir.toString(), DataSize.ofKilobytes(4), 3, 1 << 10),
+                new MetricsService(new SimpleMeterRegistry()));
+        journal.start();
+        Symbol symbol = Symbol.values()[0];
+        List<TickerDto> live = List.of(tick(symbol, "65000.01"), tick(symbol, "65000.02"), tick(symbol, "65000.10"));
+        live.forEach(journal::append);
+        journal.stop();
+
+        List<TickerDto> replayed = new ArrayList<>();
+        new TickJournalReader(dir).forEach((receivedAt, s, ex, price, scale, seq) ->
+                replayed.add(TickJournalReader.toTicker(s, ex, price, scale)));
+
+        // same decimals, so the same HALF_UP rounding: 65000.015 averages to 65000.02, not 65000.015
+        assertEquals(live.stream().map(TickerDto::last).toList(), replayed.stream().map(TickerDto::last).toList());
+        assertEquals(average(live.subList(0, 2)), average(replayed.subList(0, 2)));
+        assertEquals(FixedPoint.toScaled(new BigDecimal("65000.02")), average(replayed.subList(0, 2)));
+    }
+
+    // as the SMA state averages: a fixed-point sum rounded to the widest scale seen
+    private static long average(List<TickerDto> ticks) {
+        long sum = 0;
+        int scale = 0;
+        for (TickerDto t : ticks) {
+            sum += FixedPoint.toScaled(t.last());
+            scale = Math.max(scale, t.last().scale());
+        }
+        return FixedPoint.average(sum, ticks.size(), scale);
+    }
+
+    private static TickerDto tick(Symbol symbol, String last) {
+        return TickerDto.builder().symbol(symbol).last(new BigDecimal(last)).build();
+    }
+}
@@ -0,0 +1,38 @@
+package nur.kg.cryptobot.market;
+
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.Symbol;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MarketIdsTest {
+
+    @Test
+    void everyPairGetsADistinctDenseIdThatMapsBack() {
+        BitSet seen = new BitSet();
+        for (Symbol symbol : Symbol.values()) {
+            int id = MarketIds.of(null, symbol);
+            seen.set(id);
+            assertNull(MarketIds.exchange(id));
+            assertEquals(symbol, MarketIds.symbol(id));
+            for (Exchange exchange : Exchange.values()) {
+                id = MarketIds.of(exchange, symbol);
+                seen.set(id);
+                assertEquals(exchange, MarketIds.exchange(id));
+                assertEquals(symbol, MarketIds.symbol(id));
+            }
+        }
+        assertEquals(MarketIds.COUNT, seen.cardinality());
+        assertEquals(MarketIds.COUNT, seen.length());
+    }
+
+    @Test
+    void ticksWithoutSymbolHaveNoId() {
+        assertEquals(MarketIds.NONE, MarketIds.of(TickerDto.builder().exchange(Exchange.values()[0]).build()));
+    }
+}
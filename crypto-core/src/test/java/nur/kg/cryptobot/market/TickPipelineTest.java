@@ -0,0 +1,175 @@
+package nur.kg.cryptobot.market;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nur.kg.cryptobot.config.PipelineProperties;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Symbol;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TickPipelineTest {
+
+    @Test
+    void keepsPerSymbolOrderWithoutBlockingOtherSymbols() {
+        Symbol slow = Symbol.values()[0];
+        Symbol fast = Symbol.values()[1];
+        PipelineProperties properties = new PipelineProperties(PipelineProperties.Mode.SHARDED, 8, 64, PipelineProperties.PartitionKey.SYMBOL, false);
+        TickPipeline pipeline = new TickPipeline(properties, new MetricsService(new SimpleMeterRegistry()));
+        assertTrue(pipeline.shardOf(tick(slow, 0)) != pipeline.shardOf(tick(fast, 0)));
+
+        Map<Symbol, List<Integer>> seen = new ConcurrentHashMap<>();
+        List<Symbol> completion = new CopyOnWriteArrayList<>();
+        Flux<TickerDto> ticks = Flux.range(0, 20).flatMapIterable(i -> List.of(tick(slow, i), tick(fast, i)));
+
+        pipeline.dispatch(ticks, t -> {
+                    List<Integer> list = seen.computeIfAbsent(t.symbol(), s -> new CopyOnWriteArrayList<>());
+                    list.add(t.last().intValue());
+                    if (list.size() == 20) completion.add(t.symbol());
+                    return t.symbol() == slow ? Mono.delay(Duration.ofMillis(10)).then() : Mono.empty();
+                })
+                .then()
+                .block(Duration.ofSeconds(10));
+        pipeline.shutdown();
+
+        List<Integer> expected = Flux.range(0, 20).collectList().block();
+        assertEquals(expected, seen.get(slow));
+        assertEquals(expected, seen.get(fast));
+        assertEquals(List.of(fast, slow), completion);
+    }
+
+    @Test
+    void aFullShardHoldsTheFeedBackWhileTheOtherShardsKeepFlowing() {
+        holdsTheFeedBackAtAFullShard(false);
+    }
+
+    @Test
+    void withConflationOffAFullShardHoldsConflatableConsumersBackToo() {
+        holdsTheFeedBackAtAFullShard(true);
+    }
+
+    private static void holdsTheFeedBackAtAFullShard(boolean conflatable) {
+        Symbol slow = Symbol.values()[0];
+        Symbol fast = Symbol.values()[1];
+        MetricsService metrics = new MetricsService(new SimpleMeterRegistry());
+        TickPipeline pipeline = new TickPipeline(properties(PipelineProperties.Mode.SHARDED, 16, false), metrics);
+        assertTrue(pipeline.shardOf(tick(slow, 0)) != pipeline.shardOf(tick(fast, 0)));
+        Map<Symbol, List<Integer>> seen = new ConcurrentHashMap<>();
+        CountDownLatch released = new CountDownLatch(1);
+
+        Flux<TickerDto> ticks = Flux.range(0, 500).flatMapIterable(i -> List.of(tick(slow, i), tick(fast, i)));
+        CompletableFuture<Void> processing = pipeline.dispatch(ticks, conflatable, t -> {
+                    seen.computeIfAbsent(t.symbol(), s -> new CopyOnWriteArrayList<>()).add(t.last().intValue());
+                    if (t.symbol() == slow) await(released);
+                    return Mono.empty();
+                })
+                .then()
+                .toFuture();
+
+        // the stalled shard fills up and holds the feed back, while the ticks already on the other shard get through
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (seen.getOrDefault(fast, List.of()).size() < 16 && System.nanoTime() < deadline) Thread.onSpinWait();
+        assertTrue(seen.get(fast).size() >= 16, seen.get(fast).size() + " fast ticks consumed");
+        assertTrue(seen.get(fast).size() < 500, "the feed ran past a full shard");
+        assertEquals(List.of(0), seen.get(slow));
+        assertFalse(processing.isDone());
+
+        released.countDown();
+        processing.orTimeout(10, TimeUnit.SECONDS).join();
+        pipeline.shutdown();
+
+        List<Integer> expected = Flux.range(0, 500).collectList().block();
+        assertEquals(expected, seen.get(slow));
+        assertEquals(expected, seen.get(fast));
+        for (int shard = 0; shard < 2; shard++) assertEquals(0, metrics.getShardTicksDroppedCounter(shard).count());
+    }
+
+    @Test
+    void aSlowSerialConsumerOnlyEverGetsTheLatestTick() {
+        conflatesForASlowConsumer(PipelineProperties.Mode.SERIAL);
+    }
+
+    @Test
+    void aSlowShardConsumerOnlyEverGetsTheLatestTick() {
+        conflatesForASlowConsumer(PipelineProperties.Mode.SHARDED);
+    }
+
+    @Test
+    void consumersThatNeedEveryTickBypassConflation() {
+        Symbol symbol = Symbol.values()[0];
+        for (boolean enabled : new boolean[]{true, false}) {
+            MetricsService metrics = new MetricsService(new SimpleMeterRegistry());
+            TickPipeline pipeline = new TickPipeline(properties(PipelineProperties.Mode.SERIAL, enabled), metrics);
+            List<TickerDto> consumed = new CopyOnWriteArrayList<>();
+
+            pipeline.dispatch(Flux.range(0, 200).map(i -> tick(symbol, i)), !enabled, t -> {
+                        consumed.add(t);
+                        return Mono.delay(Duration.ofMillis(1)).then();
+                    })
+                    .then()
+                    .block(Duration.ofSeconds(10));
+
+            assertEquals(200, consumed.size());
+            assertEquals(0, metrics.getTicksConflatedCounter(MarketIds.of(null, symbol)).count());
+        }
+    }
+
+    private static void conflatesForASlowConsumer(PipelineProperties.Mode mode) {
+        Symbol symbol = Symbol.values()[0];
+        MetricsService metrics = new MetricsService(new SimpleMeterRegistry());
+        TickPipeline pipeline = new TickPipeline(properties(mode, true), metrics);
+        List<Integer> consumed = new CopyOnWriteArrayList<>();
+
+        pipeline.dispatch(Flux.range(0, 1000).map(i -> tick(symbol, i)).subscribeOn(Schedulers.parallel()), true, t -> {
+                    consumed.add(t.last().intValue());
+                    return Mono.delay(Duration.ofMillis(1)).then();
+                })
+                .then()
+                .block(Duration.ofSeconds(10));
+        pipeline.shutdown();
+
+        double dropped = metrics.getTicksConflatedCounter(MarketIds.of(null, symbol)).count();
+        // the feed outruns a 1ms consumer by far, so most ticks are replaced before it gets to them
+        assertTrue(consumed.size() < 500, consumed.size() + " ticks consumed");
+        assertEquals(1000, consumed.size() + (long) dropped);
+        assertEquals(999, consumed.get(consumed.size() - 1));
+        for (int i = 1; i < consumed.size(); i++) assertTrue(consumed.get(i - 1) < consumed.get(i));
+    }
+
+    private static PipelineProperties properties(PipelineProperties.Mode mode, boolean conflate) {
+        return properties(mode, 64, conflate);
+    }
+
+    private static PipelineProperties properties(PipelineProperties.Mode mode, int queueCapacity, boolean conflate) {
+        return new PipelineProperties(mode, 2, queueCapacity, PipelineProperties.PartitionKey.SYMBOL, conflate);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static TickerDto tick(Symbol symbol, int price) {
+        return TickerDto.builder().symbol(symbol).last(BigDecimal.valueOf(price)).build();
+    }
+}
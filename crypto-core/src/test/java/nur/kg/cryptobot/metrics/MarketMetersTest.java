@@ -0,0 +1,50 @@
+package nur.kg.cryptobot.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nur.kg.cryptobot.config.MetricsProperties;
+import nur.kg.cryptobot.market.MarketIds;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.Symbol;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MarketMetersTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final int market = MarketIds.of(Exchange.values()[0], Symbol.values()[0]);
+
+    @Test
+    void ticksAreSummedOnReadAndPricesSampledOneInN() {
+        MetricsService metrics = new MetricsService(registry, new MetricsProperties(4));
+        MarketMeters meters = metrics.marketMeters(market);
+        assertSame(meters, metrics.marketMeters(market));
+
+        for (int i = 1; i <= 10; i++) {
+            meters.tickReceived();
+            meters.recordPrice(BigDecimal.valueOf(i));
+        }
+
+        String exchange = Exchange.values()[0].name();
+        assertEquals(10.0, registry.get("market.ticks.received").tag("exchange", exchange).functionCounter().count());
+        var price = registry.get("market.tick.price").tag("exchange", exchange).summary();
+        assertEquals(2, price.count());
+        assertEquals(12.0, price.totalAmount());
+    }
+
+    @Test
+    void strategyViewsKeepSeparateHandles() {
+        MetricsService metrics = new MetricsService(registry);
+        MarketMeters a = metrics.forStrategy("a").marketMeters(market);
+        MarketMeters b = metrics.forStrategy("b").marketMeters(market);
+        a.tickReceived();
+        b.tickReceived();
+        b.tickReceived();
+
+        assertEquals(1.0, registry.get("market.ticks.received").tag("strategy", "a").functionCounter().count());
+        assertEquals(2.0, registry.get("market.ticks.received").tag("strategy", "b").functionCounter().count());
+    }
+}
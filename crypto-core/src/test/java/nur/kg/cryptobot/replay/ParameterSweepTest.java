@@ -0,0 +1,71 @@
+package nur.kg.cryptobot.replay;
+
+import nur.kg.cryptobot.market.TickPipeline;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.OrderType;
+import nur.kg.domain.enums.Side;
+import nur.kg.domain.enums.Symbol;
+import nur.kg.domain.request.OrderRequest;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParameterSweepTest {
+
+    private final TickPipeline pipeline = ReplayEngine.serialPipeline(ParameterSweep.discardingMetrics());
+
+    @Test
+    void combinationsAreMergedAcrossTapesAndRankedByPnl() {
+        Symbol a = Symbol.values()[0];
+        Symbol b = Symbol.values()[1];
+        List<ReplayTape> tapes = List.of(tape(a, 100, 100, 105), tape(b, 10, 10, 12));
+
+        // parameter = take-profit distance; a long opened on the first tick closes once price reaches entry + tp
+        ParameterSweep.StrategyFactory<Integer> factory = (tp, client, clock) -> ticks -> ticks.transform(t -> pipeline.dispatch(t, dto -> {
+            if (dto != ticks0(tapes, dto.symbol())) return Mono.empty();
+            BigDecimal entry = dto.last();
+            return client.processOrder(OrderRequest.builder().id("o").symbol(dto.symbol()).side(Side.BUY)
+                    .type(OrderType.LIMIT).qty(BigDecimal.ONE)
+                    .tp(entry.add(BigDecimal.valueOf(tp))).sl(entry.subtract(BigDecimal.TEN)).build());
+        })).then();
+        ParameterSweep sweep = new ParameterSweep(2);
+        List<ParameterSweep.Outcome<Integer>> ranked = sweep.run(List.of(1, 5, 2), tapes, factory);
+
+        assertEquals(List.of(5, 2, 1), ranked.stream().map(ParameterSweep.Outcome::params).toList());
+        // tp=5 closes at 105 on the first tape and stays open at 12 (+2) on the second
+        assertEquals(7.0, ranked.get(0).result().pnl(), 1e-9);
+        assertEquals(6, ranked.get(0).result().ticks());
+        assertEquals(1, ranked.get(0).result().closedTrades());
+        assertEquals(2.0, ranked.get(2).result().pnl(), 1e-9);
+
+        // a sweep can be run again
+        assertEquals(List.of(5, 2), sweep.run(List.of(2, 5), tapes, factory).stream().map(ParameterSweep.Outcome::params).toList());
+    }
+
+    @Test
+    void rangesAreInclusive() {
+        assertArrayEquals(new int[]{5, 10, 15}, ParameterSweep.intRange("5:15:5"));
+        assertArrayEquals(new int[]{14}, ParameterSweep.intRange("14"));
+        assertEquals(List.of(new BigDecimal("0.01"), new BigDecimal("0.02"), new BigDecimal("0.03")),
+                ParameterSweep.decimalRange("0.01:0.03:0.01"));
+    }
+
+    private static TickerDto ticks0(List<ReplayTape> tapes, Symbol symbol) {
+        return tapes.stream().filter(t -> t.tickAt(0).symbol() == symbol).findFirst().orElseThrow().tickAt(0);
+    }
+
+    private static ReplayTape tape(Symbol symbol, int... prices) {
+        long[] times = new long[prices.length];
+        TickerDto[] ticks = new TickerDto[prices.length];
+        for (int i = 0; i < prices.length; i++) {
+            times[i] = i + 1;
+            ticks[i] = TickerDto.builder().symbol(symbol).last(BigDecimal.valueOf(prices[i])).build();
+        }
+        return new ReplayTape(symbol.name(), times, ticks);
+    }
+}
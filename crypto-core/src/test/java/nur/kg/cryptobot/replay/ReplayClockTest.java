@@ -0,0 +1,32 @@
+package nur.kg.cryptobot.replay;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ReplayClockTest {
+
+    @Test
+    void aZonedViewFollowsTheReplay() {
+        ReplayClock clock = new ReplayClock(1_700_000_000_123_456L);
+        assertSame(clock, clock.withZone(ZoneOffset.UTC));
+
+        ZoneId tokyo = ZoneId.of("Asia/Tokyo");
+        Clock zoned = clock.withZone(tokyo);
+        assertEquals(tokyo, zoned.getZone());
+        assertEquals(clock.instant(), zoned.instant());
+
+        clock.setMicros(1_700_000_060_000_000L);
+        assertEquals(Instant.ofEpochSecond(1_700_000_060L), zoned.instant());
+        assertEquals(1_700_000_060_000L, zoned.millis());
+        assertEquals(LocalDateTime.of(2023, 11, 15, 7, 14, 20), LocalDateTime.now(zoned));
+        assertSame(clock, zoned.withZone(ZoneOffset.UTC));
+    }
+}
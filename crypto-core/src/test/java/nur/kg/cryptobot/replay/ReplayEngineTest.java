@@ -0,0 +1,131 @@
+package nur.kg.cryptobot.replay;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nur.kg.cryptobot.market.MarketIds;
+import nur.kg.cryptobot.market.TickPipeline;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.OrderType;
+import nur.kg.domain.enums.Side;
+import nur.kg.domain.enums.Symbol;
+import nur.kg.domain.request.OrderRequest;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReplayEngineTest {
+
+    private final TickPipeline pipeline = ReplayEngine.serialPipeline(new MetricsService(new SimpleMeterRegistry()));
+
+    @Test
+    void strategySeesReplayTimeAndBracketIsFilledOnLaterTicks() {
+        Symbol symbol = Symbol.values()[0];
+        ReplayTape tape = tape(symbol, 100, 101, 99, 104, 103);
+        List<Long> seen = new ArrayList<>();
+
+        ReplayResult result = ReplayEngine.replay(tape, (client, clock) -> ticks -> ticks.transform(t -> pipeline.dispatch(t, dto -> {
+            seen.add(clock.millis());
+            if (dto.last().intValue() != 100) return Mono.empty();
+            return client.processOrder(order(symbol, Side.BUY, "103", "98"));
+        })).then());
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), seen);
+        assertEquals(1, result.orders());
+        assertEquals(1, result.fills());
+        assertEquals(1, result.closedTrades());
+        // filled at 101 on the next tick, take-profit hit at 103
+        assertEquals(2.0, result.realizedPnl(), 1e-9);
+        assertEquals(0.0, result.unrealizedPnl(), 1e-9);
+    }
+
+    @Test
+    void openTradesAreMarkedToTheLastPrice() {
+        Symbol symbol = Symbol.values()[0];
+        ReplayResult result = ReplayEngine.replay(tape(symbol, 100, 99, 97),
+                (client, clock) -> ticks -> ticks.filter(t -> t.last().intValue() == 100).concatMap(t -> client.processOrder(order(symbol, Side.SELL, "90", "110"))).then());
+
+        assertEquals(1, result.fills());
+        assertEquals(0, result.closedTrades());
+        assertEquals(2.0, result.unrealizedPnl(), 1e-9);
+    }
+
+    @Test
+    void tapesAreSplitByMarketAndRunIndependently() throws Exception {
+        Symbol a = Symbol.values()[0];
+        Symbol b = Symbol.values()[1];
+        Exchange exchange = Exchange.values()[0];
+        TickerDto[] ticks = {tick(a, 1), tick(b, 2), tick(a, 3), tick(b, 4), tick(exchange, b, 5), tick(b, 6)};
+        ReplayTape tape = new ReplayTape("mixed", new long[]{1, 2, 3, 4, 5, 6}, ticks);
+
+        Map<Integer, ReplayTape> split = tape.byMarket();
+        assertEquals(3, split.size());
+        assertEquals(2, split.get(MarketIds.of(null, a)).size());
+        assertEquals(3, split.get(MarketIds.of(null, b)).size());
+        assertEquals(6, split.get(MarketIds.of(null, b)).timeAt(2));
+        assertEquals(5, split.get(MarketIds.of(exchange, b)).timeAt(0));
+
+        List<ReplayResult> results = new ReplayEngine(2).run(split.values(), (client, clock) -> t -> t.then());
+        assertEquals(6, results.stream().mapToLong(ReplayResult::ticks).sum());
+    }
+
+    @Test
+    void ordersFillAndAreMarkedOnlyOnTheirOwnExchange() {
+        Symbol symbol = Symbol.values()[0];
+        Exchange exchange = Exchange.values()[0];
+        SimulatedMarketClient client = new SimulatedMarketClient();
+        client.processOrder(order(exchange, symbol, Side.BUY, "120", "80")).block();
+
+        client.onTick(tick(symbol, 100));
+        assertEquals(0, client.fills());
+        client.onTick(tick(exchange, symbol, 101));
+        assertEquals(1, client.fills());
+        // the other exchange trades through both legs, this one neither
+        client.onTick(tick(symbol, 130));
+        client.onTick(tick(symbol, 70));
+        client.onTick(tick(exchange, symbol, 103));
+        assertEquals(0, client.closedTrades());
+        assertEquals(2.0, client.unrealizedPnl(), 1e-9);
+    }
+
+    private static ReplayTape tape(Symbol symbol, int... prices) {
+        long[] times = new long[prices.length];
+        TickerDto[] ticks = new TickerDto[prices.length];
+        for (int i = 0; i < prices.length; i++) {
+            times[i] = (i + 1) * 1000L;
+            ticks[i] = tick(symbol, prices[i]);
+        }
+        return new ReplayTape("test", times, ticks);
+    }
+
+    private static TickerDto tick(Symbol symbol, int price) {
+        return tick(null, symbol, price);
+    }
+
+    private static TickerDto tick(Exchange exchange, Symbol symbol, int price) {
+        return TickerDto.builder().exchange(exchange).symbol(symbol).last(BigDecimal.valueOf(price)).build();
+    }
+
+    private static OrderRequest order(Symbol symbol, Side side, String tp, String sl) {
+        return order(null, symbol, side, tp, sl);
+    }
+
+    private static OrderRequest order(Exchange exchange, Symbol symbol, Side side, String tp, String sl) {
+        return OrderRequest.builder()
+                .id("o-1")
+                .exchange(exchange)
+                .symbol(symbol)
+                .side(side)
+                .type(OrderType.LIMIT)
+                .qty(BigDecimal.ONE)
+                .tp(new BigDecimal(tp))
+                .sl(new BigDecimal(sl))
+                .build();
+    }
+}
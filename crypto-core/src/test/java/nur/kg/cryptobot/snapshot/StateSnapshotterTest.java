@@ -0,0 +1,97 @@
+package nur.kg.cryptobot.snapshot;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nur.kg.cryptobot.config.SnapshotProperties;
+import nur.kg.cryptobot.market.MarketIds;
+import nur.kg.cryptobot.metrics.MetricsService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StateSnapshotterTest {
+
+    @TempDir
+    Path dir;
+
+    private final MetricsService metrics = new MetricsService(new SimpleMeterRegistry());
+
+    @Test
+    void capturedStatesRoundTrip() throws Exception {
+        FakeSource source = new FakeSource();
+        source.captured.put(0, new byte[]{1, 2, 3});
+        source.captured.put(MarketIds.COUNT - 1, new byte[0]);
+
+        snapshotter(source, Clock.systemUTC()).write(source);
+        assertTrue(Files.exists(dir.resolve("fake.snapshot")));
+        assertEquals(1, metrics.getSnapshotWriteTimer("fake").count());
+
+        FakeSource restored = new FakeSource();
+        assertEquals(2, snapshotter(restored, Clock.systemUTC()).restore(restored));
+        assertArrayEquals(new byte[]{1, 2, 3}, restored.restored.get(0));
+        assertArrayEquals(new byte[0], restored.restored.get(MarketIds.COUNT - 1));
+    }
+
+    @Test
+    void staleOrCorruptSnapshotsAreIgnored() throws Exception {
+        FakeSource source = new FakeSource();
+        source.captured.put(0, new byte[]{42});
+        Instant written = Instant.parse("2024-01-01T00:00:00Z");
+        snapshotter(source, Clock.fixed(written, ZoneOffset.UTC)).write(source);
+
+        Clock later = Clock.fixed(written.plus(Duration.ofMinutes(3)), ZoneOffset.UTC);
+        assertEquals(0, snapshotter(source, later).restore(new FakeSource()));
+        assertEquals(1, snapshotter(source, Clock.fixed(written.plusSeconds(30), ZoneOffset.UTC)).restore(new FakeSource()));
+
+        Path file = dir.resolve("fake.snapshot");
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 6] ^= 1;
+        Files.write(file, bytes);
+        assertEquals(0, snapshotter(source, Clock.fixed(written, ZoneOffset.UTC)).restore(new FakeSource()));
+    }
+
+    private StateSnapshotter snapshotter(SnapshotSource source, Clock clock) {
+        SnapshotProperties properties = new SnapshotProperties(true, dir.toString(), Duration.ofSeconds(10), Duration.ofMinutes(2));
+        return new StateSnapshotter(properties, metrics, clock, List.of(source));
+    }
+
+    private static final class FakeSource implements SnapshotSource {
+        final Map<Integer, byte[]> captured = new ConcurrentHashMap<>();
+        final Map<Integer, byte[]> restored = new HashMap<>();
+
+        @Override
+        public String snapshotName() {
+            return "fake";
+        }
+
+        @Override
+        public void requestCapture() {
+        }
+
+        @Override
+        public Map<Integer, byte[]> capturedStates() {
+            return captured;
+        }
+
+        @Override
+        public void restoreState(int market, ByteBuffer image) {
+            byte[] bytes = new byte[image.remaining()];
+            image.get(bytes);
+            restored.put(market, bytes);
+        }
+    }
+}
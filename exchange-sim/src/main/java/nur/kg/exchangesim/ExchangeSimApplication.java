@@ -0,0 +1,20 @@
+package nur.kg.exchangesim;
+
+import nur.kg.cryptobot.config.ClockConfig;
+import nur.kg.cryptobot.config.CodecConfig;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.context.annotation.Import;
+
+// only the tick codec and clock come from crypto-core, none of the bot beans
+@SpringBootApplication
+@ConfigurationPropertiesScan(basePackages = "nur.kg.exchangesim")
+@Import({CodecConfig.class, ClockConfig.class})
+public class ExchangeSimApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(ExchangeSimApplication.class, args);
+    }
+
+}
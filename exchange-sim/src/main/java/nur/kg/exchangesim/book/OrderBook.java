@@ -0,0 +1,342 @@
+package nur.kg.exchangesim.book;
+
+import java.util.Arrays;
+
+// Price-time priority book for one symbol, prices and quantities as FixedPoint longs. Orders live in parallel
+// primitive arrays addressed by an int handle and are chained FIFO per price level; each side keeps its levels in a
+// sorted array with the best price last, so the busy end of the book changes without shifting the rest.
+// Incoming limits match against resting orders, then ticks stand in for outside liquidity: resting limits the market
+// trades through fill at their price, stops trigger at the tick price and market orders fill at the next tick.
+// An entry with TP/SL gets a linked take-profit limit and stop once completely filled; whichever fills first cancels
+// the other, and a partial take-profit fill shrinks the stop by as much. Not thread-safe, callers serialize access
+// per book.
+public final class OrderBook {
+
+    public static final int BUY = 0;
+    public static final int SELL = 1;
+
+    public static final int ENTRY = 0;
+    public static final int TAKE_PROFIT = 1;
+    public static final int STOP_LOSS = 2;
+
+    public static final long NONE = Long.MIN_VALUE; // market order price, or no TP / SL
+
+    public interface FillListener {
+        void onFill(Object attachment, int kind, int side, long price, long qty, long remaining);
+    }
+
+    private static final byte FREE = 0, IN_BIDS = 1, IN_ASKS = 2, IN_BUY_STOPS = 3, IN_SELL_STOPS = 4, IN_MARKET = 5, ACTIVE = 6;
+
+    private final FillListener listener;
+
+    private long[] price;
+    private long[] remaining;
+    private long[] filled;
+    private long[] tp;
+    private long[] sl;
+    private int[] next;
+    private int[] prev;
+    private int[] linked;
+    private byte[] side;
+    private byte[] kind;
+    private byte[] where;
+    private Object[] attachment;
+    private int allocated;
+    private int freeHead = -1;
+    private int live;
+
+    private final Levels bids = new Levels(true);
+    private final Levels asks = new Levels(false);
+    private final Levels sellStops = new Levels(true);  // trigger as price falls, highest first
+    private final Levels buyStops = new Levels(false);  // trigger as price rises, lowest first
+    private int marketHead = -1;
+    private int marketTail = -1;
+    private long lastPrice = NONE;
+
+    public OrderBook(FillListener listener) {
+        this(listener, 1024);
+    }
+
+    public OrderBook(FillListener listener, int initialOrders) {
+        this.listener = listener;
+        grow(Math.max(16, initialOrders));
+    }
+
+    public void submit(int orderSide, long limitPrice, long qty, long takeProfit, long stopLoss, Object att) {
+        if (qty <= 0) throw new IllegalArgumentException("Quantity must be positive");
+        int o = allocate(orderSide, ENTRY, limitPrice, qty, att);
+        tp[o] = takeProfit;
+        sl[o] = stopLoss;
+        execute(o);
+    }
+
+    public void onTick(long last) {
+        lastPrice = last;
+        while (!bids.isEmpty() && bids.best() >= last) fillResting(bids, bids.best());
+        while (!asks.isEmpty() && asks.best() <= last) fillResting(asks, asks.best());
+        while (!sellStops.isEmpty() && sellStops.best() >= last) fillResting(sellStops, last);
+        while (!buyStops.isEmpty() && buyStops.best() <= last) fillResting(buyStops, last);
+        while (marketHead != -1) {
+            int o = marketHead;
+            marketHead = next[o];
+            if (marketHead == -1) marketTail = -1;
+            fill(o, last, remaining[o]);
+            complete(o);
+        }
+    }
+
+    public long bestBid() {
+        return bids.isEmpty() ? NONE : bids.best();
+    }
+
+    public long bestAsk() {
+        return asks.isEmpty() ? NONE : asks.best();
+    }
+
+    public long lastPrice() {
+        return lastPrice;
+    }
+
+    // orders still working: resting limits, pending stops and unfilled market orders
+    public int liveOrders() {
+        return live;
+    }
+
+    private void execute(int o) {
+        boolean buy = side[o] == BUY;
+        Levels opposite = buy ? asks : bids;
+        long limit = price[o];
+        while (remaining[o] > 0 && !opposite.isEmpty()) {
+            long px = opposite.best();
+            if (limit != NONE && (buy ? px > limit : px < limit)) break;
+            int maker = opposite.head();
+            long q = Math.min(remaining[o], remaining[maker]);
+            fill(maker, px, q);
+            fill(o, px, q);
+            if (remaining[maker] == 0) {
+                opposite.removeHead();
+                complete(maker);
+            }
+        }
+        if (remaining[o] == 0) {
+            complete(o);
+        } else if (limit == NONE) {
+            where[o] = IN_MARKET;
+            next[o] = -1;
+            if (marketTail == -1) marketHead = o;
+            else next[marketTail] = o;
+            marketTail = o;
+        } else {
+            where[o] = buy ? IN_BIDS : IN_ASKS;
+            (buy ? bids : asks).add(o, limit);
+        }
+    }
+
+    private void fillResting(Levels levels, long px) {
+        int o = levels.head();
+        levels.removeHead();
+        fill(o, px, remaining[o]);
+        complete(o);
+    }
+
+    private void fill(int o, long px, long q) {
+        remaining[o] -= q;
+        filled[o] += q;
+        // what the take-profit closed the stop no longer has to
+        if (kind[o] == TAKE_PROFIT && linked[o] != -1) remaining[linked[o]] -= q;
+        listener.onFill(attachment[o], kind[o], side[o], px, q, remaining[o]);
+    }
+
+    // o is fully filled and already unlinked from the book
+    private void complete(int o) {
+        where[o] = ACTIVE;
+        if (kind[o] == ENTRY && (tp[o] != NONE || sl[o] != NONE)) {
+            int exitSide = side[o] == BUY ? SELL : BUY;
+            int takeProfit = -1;
+            int stop = -1;
+            if (sl[o] != NONE) {
+                stop = allocate(exitSide, STOP_LOSS, sl[o], filled[o], attachment[o]);
+                where[stop] = exitSide == SELL ? IN_SELL_STOPS : IN_BUY_STOPS;
+                (exitSide == SELL ? sellStops : buyStops).add(stop, sl[o]);
+            }
+            if (tp[o] != NONE) {
+                takeProfit = allocate(exitSide, TAKE_PROFIT, tp[o], filled[o], attachment[o]);
+            }
+            if (stop != -1 && takeProfit != -1) {
+                linked[stop] = takeProfit;
+                linked[takeProfit] = stop;
+            }
+            free(o);
+            if (takeProfit != -1) execute(takeProfit);
+            return;
+        }
+        int other = linked[o];
+        free(o);
+        if (other != -1) cancel(other);
+    }
+
+    private void cancel(int o) {
+        switch (where[o]) {
+            case IN_BIDS -> bids.remove(o, price[o]);
+            case IN_ASKS -> asks.remove(o, price[o]);
+            case IN_SELL_STOPS -> sellStops.remove(o, price[o]);
+            case IN_BUY_STOPS -> buyStops.remove(o, price[o]);
+            default -> {
+                return;
+            }
+        }
+        free(o);
+    }
+
+    private int allocate(int orderSide, int orderKind, long orderPrice, long qty, Object att) {
+        if (freeHead == -1) grow(allocated * 2);
+        int o = freeHead;
+        freeHead = next[o];
+        side[o] = (byte) orderSide;
+        kind[o] = (byte) orderKind;
+        price[o] = orderPrice;
+        remaining[o] = qty;
+        filled[o] = 0;
+        tp[o] = NONE;
+        sl[o] = NONE;
+        linked[o] = -1;
+        next[o] = -1;
+        prev[o] = -1;
+        where[o] = ACTIVE;
+        attachment[o] = att;
+        live++;
+        return o;
+    }
+
+    private void free(int o) {
+        where[o] = FREE;
+        attachment[o] = null;
+        linked[o] = -1;
+        next[o] = freeHead;
+        freeHead = o;
+        live--;
+    }
+
+    private void grow(int capacity) {
+        int from = allocated;
+        price = Arrays.copyOf(price == null ? new long[0] : price, capacity);
+        remaining = Arrays.copyOf(remaining == null ? new long[0] : remaining, capacity);
+        filled = Arrays.copyOf(filled == null ? new long[0] : filled, capacity);
+        tp = Arrays.copyOf(tp == null ? new long[0] : tp, capacity);
+        sl = Arrays.copyOf(sl == null ? new long[0] : sl, capacity);
+        next = Arrays.copyOf(next == null ? new int[0] : next, capacity);
+        prev = Arrays.copyOf(prev == null ? new int[0] : prev, capacity);
+        linked = Arrays.copyOf(linked == null ? new int[0] : linked, capacity);
+        side = Arrays.copyOf(side == null ? new byte[0] : side, capacity);
+        kind = Arrays.copyOf(kind == null ? new byte[0] : kind, capacity);
+        where = Arrays.copyOf(where == null ? new byte[0] : where, capacity);
+        attachment = Arrays.copyOf(attachment == null ? new Object[0] : attachment, capacity);
+        for (int i = capacity - 1; i >= from; i--) {
+            next[i] = freeHead;
+            freeHead = i;
+        }
+        allocated = capacity;
+    }
+
+    // Price levels of one side, sorted by key with the best level last. Keys are prices, negated for sides whose
+    // best price is the lowest, so one ascending binary search serves all four.
+    private final class Levels {
+        private final boolean highestBest;
+        private long[] keys = new long[64];
+        private int[] heads = new int[64];
+        private int[] tails = new int[64];
+        private int size;
+
+        Levels(boolean highestBest) {
+            this.highestBest = highestBest;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long best() {
+            long k = keys[size - 1];
+            return highestBest ? k : -k;
+        }
+
+        int head() {
+            return heads[size - 1];
+        }
+
+        void add(int o, long px) {
+            long key = highestBest ? px : -px;
+            int i = find(key);
+            next[o] = -1;
+            if (i >= 0) {
+                int tail = tails[i];
+                next[tail] = o;
+                prev[o] = tail;
+                tails[i] = o;
+                return;
+            }
+            i = -i - 1;
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                heads = Arrays.copyOf(heads, size * 2);
+                tails = Arrays.copyOf(tails, size * 2);
+            }
+            int tailCount = size - i;
+            if (tailCount > 0) {
+                System.arraycopy(keys, i, keys, i + 1, tailCount);
+                System.arraycopy(heads, i, heads, i + 1, tailCount);
+                System.arraycopy(tails, i, tails, i + 1, tailCount);
+            }
+            keys[i] = key;
+            heads[i] = o;
+            tails[i] = o;
+            prev[o] = -1;
+            size++;
+        }
+
+        void removeHead() {
+            int level = size - 1;
+            int o = heads[level];
+            int n = next[o];
+            if (n == -1) {
+                size--;
+            } else {
+                heads[level] = n;
+                prev[n] = -1;
+            }
+        }
+
+        void remove(int o, long px) {
+            int i = find(highestBest ? px : -px);
+            if (i < 0) return;
+            int p = prev[o];
+            int n = next[o];
+            if (p == -1) heads[i] = n;
+            else next[p] = n;
+            if (n == -1) tails[i] = p;
+            else prev[n] = p;
+            if (heads[i] == -1) {
+                int tailCount = size - i - 1;
+                if (tailCount > 0) {
+                    System.arraycopy(keys, i + 1, keys, i, tailCount);
+                    System.arraycopy(heads, i + 1, heads, i, tailCount);
+                    System.arraycopy(tails, i + 1, tails, i, tailCount);
+                }
+                size--;
+            }
+        }
+
+        private int find(long key) {
+            int lo = 0;
+            int hi = size - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                long k = keys[mid];
+                if (k < key) lo = mid + 1;
+                else if (k > key) hi = mid - 1;
+                else return mid;
+            }
+            return -(lo + 1);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package nur.kg.exchangesim.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "simulator")
+public record SimulatorProperties(
+        @DefaultValue("100000") int dedupWindow,
+        @DefaultValue("4096") int fillBuffer
+) {
+    public SimulatorProperties {
+        if (dedupWindow < 1) throw new IllegalArgumentException("simulator.dedup-window must be positive");
+        if (fillBuffer < 1) throw new IllegalArgumentException("simulator.fill-buffer must be positive");
+    }
+}
@@ -0,0 +1,93 @@
+package nur.kg.exchangesim.controller;
+
+import lombok.RequiredArgsConstructor;
+import nur.kg.cryptobot.client.BatchOrderResult;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.request.OrderRequest;
+import nur.kg.exchangesim.config.SimulatorProperties;
+import nur.kg.exchangesim.service.ExchangeSimulator;
+import nur.kg.exchangesim.service.Fill;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.Function;
+
+@RestController
+@RequiredArgsConstructor
+public class SimulatorController {
+
+    private final ExchangeSimulator simulator;
+    private final SimulatorProperties properties;
+
+    // bots post to {url}/api/orders, so a url of http://host:8080/binance pins the exchange regardless of the body
+    @PostMapping(value = {"/api/orders", "/{exchange}/api/orders"}, consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<Void> order(@PathVariable(required = false) String exchange, @RequestBody OrderRequest order) {
+        return Mono.fromRunnable(() -> simulator.submit(order, exchange == null ? order.exchange() : exchange(exchange)));
+    }
+
+    // one result per order in request order; a rejected order does not fail the others
+    @PostMapping(value = {"/api/orders/batch", "/{exchange}/api/orders/batch"}, consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<List<BatchOrderResult>> orders(@PathVariable(required = false) String exchange, @RequestBody List<OrderRequest> orders) {
+        Exchange pinned = exchange == null ? null : exchange(exchange);
+        return Mono.fromCallable(() -> {
+            List<BatchOrderResult> results = new ArrayList<>(orders.size());
+            for (OrderRequest order : orders) {
+                try {
+                    simulator.submit(order, pinned == null ? order.exchange() : pinned);
+                    results.add(BatchOrderResult.accepted(order.id()));
+                } catch (IllegalArgumentException e) {
+                    results.add(BatchOrderResult.rejected(order.id(), e.getMessage()));
+                }
+            }
+            return results;
+        });
+    }
+
+    // bots keep their pooled connections warm with it
+    @GetMapping({"/api/ping", "/{exchange}/api/ping"})
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> ping() {
+        return Mono.empty();
+    }
+
+    @PostMapping(value = {"/api/tickers/stream", "/{exchange}/api/tickers/stream"}, consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<Void> ticks(@PathVariable(required = false) String exchange, @RequestBody Flux<TickerDto> stream) {
+        Flux<TickerDto> ticks = exchange == null ? stream : stream.map(withExchange(exchange(exchange)));
+        return ticks.doOnNext(simulator::onTick).then();
+    }
+
+    @GetMapping(value = "/api/fills", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<Fill> fills(@RequestParam(required = false) String botId) {
+        Flux<Fill> all = simulator.fills().onBackpressureBuffer(properties.fillBuffer(), BufferOverflowStrategy.DROP_OLDEST);
+        return botId == null ? all : all.filter(f -> Objects.equals(botId, f.botId()));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Mono<String> badRequest(IllegalArgumentException e) {
+        return Mono.just(e.getMessage());
+    }
+
+    private static Exchange exchange(String name) {
+        try {
+            return Exchange.valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown exchange: " + name);
+        }
+    }
+
+    private static Function<TickerDto, TickerDto> withExchange(Exchange exchange) {
+        return t -> t.exchange() == exchange ? t
+                : new TickerDto(t.symbol(), exchange, t.last(), t.bid(), t.ask(), t.volume(), t.ts());
+    }
+}
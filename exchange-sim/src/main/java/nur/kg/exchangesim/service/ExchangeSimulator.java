@@ -0,0 +1,144 @@
+package nur.kg.exchangesim.service;
+
+import lombok.extern.log4j.Log4j2;
+import nur.kg.cryptobot.market.FixedPoint;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.OrderType;
+import nur.kg.domain.enums.Side;
+import nur.kg.domain.enums.Symbol;
+import nur.kg.domain.request.OrderRequest;
+import nur.kg.exchangesim.book.OrderBook;
+import nur.kg.exchangesim.config.SimulatorProperties;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Log4j2
+@Service
+public class ExchangeSimulator {
+
+    private static final FillKind[] KINDS = {FillKind.ENTRY, FillKind.TAKE_PROFIT, FillKind.STOP_LOSS};
+
+    private static final long EMIT_SPIN = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Clock clock;
+    private final Market[][] markets = new Market[Exchange.values().length][Symbol.values().length];
+    private final Map<String, Boolean> recentIds;
+    private final Sinks.Many<Fill> fills = Sinks.many().multicast().directBestEffort();
+
+    public ExchangeSimulator(SimulatorProperties properties, Clock clock) {
+        this.clock = clock;
+        for (Market[] byExchange : markets) {
+            for (int s = 0; s < byExchange.length; s++) {
+                byExchange[s] = new Market();
+            }
+        }
+        int window = properties.dedupWindow();
+        // bots retry on timeout, so the same order id may arrive more than once
+        this.recentIds = new LinkedHashMap<>(Math.min(window, 1 << 16), 0.75f) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > window;
+            }
+        };
+    }
+
+    // false when the order id was already seen
+    public boolean submit(OrderRequest r, Exchange exchange) {
+        if (r.symbol() == null || r.side() == null) throw new IllegalArgumentException("Order needs symbol and side");
+        if (r.qty() == null || r.qty().signum() <= 0) throw new IllegalArgumentException("Order qty must be positive");
+        if (exchange == null) throw new IllegalArgumentException("Order needs an exchange");
+        boolean market = r.type() == OrderType.MARKET || r.limitPrice() == null;
+        if (r.id() != null) {
+            synchronized (recentIds) {
+                if (recentIds.putIfAbsent(r.id(), Boolean.TRUE) != null) return false;
+            }
+        }
+        Market m = markets[exchange.ordinal()][r.symbol().ordinal()];
+        Working w = new Working(r.id(), r.botId(), exchange, r.symbol());
+        synchronized (m) {
+            m.book.submit(r.side() == Side.BUY ? OrderBook.BUY : OrderBook.SELL,
+                    market ? OrderBook.NONE : FixedPoint.toScaled(r.limitPrice()),
+                    FixedPoint.toScaled(r.qty()),
+                    r.tp() == null ? OrderBook.NONE : FixedPoint.toScaled(r.tp()),
+                    r.sl() == null ? OrderBook.NONE : FixedPoint.toScaled(r.sl()),
+                    w);
+        }
+        m.publish();
+        return true;
+    }
+
+    public void onTick(TickerDto t) {
+        if (t.symbol() == null || t.exchange() == null || t.last() == null) return;
+        Market m = markets[t.exchange().ordinal()][t.symbol().ordinal()];
+        long last = FixedPoint.toScaled(t.last());
+        synchronized (m) {
+            m.book.onTick(last);
+        }
+        m.publish();
+    }
+
+    public Flux<Fill> fills() {
+        return fills.asFlux();
+    }
+
+    public int liveOrders(Exchange exchange, Symbol symbol) {
+        Market m = markets[exchange.ordinal()][symbol.ordinal()];
+        synchronized (m) {
+            return m.book.liveOrders();
+        }
+    }
+
+    // One symbol's book, matched under the market's monitor. Fills go to an outbox while matching and are pushed
+    // once the monitor is released, so a slow subscriber never holds up matching. One thread at a time drains the
+    // outbox; a thread finding it busy leaves its fills to that one, so a book's fills keep the order they happened in.
+    private final class Market {
+        final OrderBook book = new OrderBook(this::onFill);
+        private final Queue<Fill> outbox = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean emitting = new AtomicBoolean();
+
+        // under the monitor
+        private void onFill(Object attachment, int kind, int side, long price, long qty, long remaining) {
+            Working w = (Working) attachment;
+            outbox.add(new Fill(w.id(), w.botId(), w.exchange(), w.symbol(), side == OrderBook.BUY ? Side.BUY : Side.SELL,
+                    KINDS[kind], FixedPoint.toDecimal(price), FixedPoint.toDecimal(qty), FixedPoint.toDecimal(remaining),
+                    Instant.now(clock)));
+        }
+
+        // outside the monitor
+        void publish() {
+            while (!outbox.isEmpty() && emitting.compareAndSet(false, true)) {
+                try {
+                    Fill fill;
+                    while ((fill = outbox.poll()) != null) emit(fill);
+                } finally {
+                    emitting.set(false);
+                }
+            }
+        }
+    }
+
+    // books of different symbols emit concurrently; a subscriber that cannot keep up just misses fills
+    private void emit(Fill fill) {
+        log.debug("Fill {}", fill);
+        long deadline = System.nanoTime() + EMIT_SPIN;
+        Sinks.EmitResult result;
+        while ((result = fills.tryEmitNext(fill)) == Sinks.EmitResult.FAIL_NON_SERIALIZED && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) log.debug("Fill {} not pushed: {}", fill.orderId(), result);
+    }
+
+    private record Working(String id, String botId, Exchange exchange, Symbol symbol) {
+    }
+}
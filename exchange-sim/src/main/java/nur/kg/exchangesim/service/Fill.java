@@ -0,0 +1,22 @@
+package nur.kg.exchangesim.service;
+
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.Side;
+import nur.kg.domain.enums.Symbol;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public record Fill(
+        String orderId,
+        String botId,
+        Exchange exchange,
+        Symbol symbol,
+        Side side,
+        FillKind kind,
+        BigDecimal price,
+        BigDecimal qty,
+        BigDecimal remaining,
+        Instant ts
+) {
+}
@@ -0,0 +1,5 @@
+package nur.kg.exchangesim.service;
+
+public enum FillKind {
+    ENTRY, TAKE_PROFIT, STOP_LOSS
+}
@@ -0,0 +1,117 @@
+package nur.kg.exchangesim.book;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static nur.kg.exchangesim.book.OrderBook.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OrderBookTest {
+
+    private record Event(Object order, int kind, int side, long price, long qty, long remaining) {
+    }
+
+    private final List<Event> fills = new ArrayList<>();
+    private final OrderBook book = new OrderBook((att, kind, side, price, qty, remaining) ->
+            fills.add(new Event(att, kind, side, price, qty, remaining)), 16);
+
+    @Test
+    void matchesBestPriceFirstThenTimeWithinLevel() {
+        book.submit(SELL, 101, 5, NONE, NONE, "a1");
+        book.submit(SELL, 100, 5, NONE, NONE, "a2");
+        book.submit(SELL, 100, 5, NONE, NONE, "a3");
+
+        book.submit(BUY, 101, 12, NONE, NONE, "b");
+
+        List<Object> makers = fills.stream().filter(e -> e.side() == SELL).map(Event::order).toList();
+        assertEquals(List.of("a2", "a3", "a1"), makers);
+        assertEquals(new Event("a1", ENTRY, SELL, 101, 2, 3), fills.get(fills.size() - 2));
+        assertEquals(new Event("b", ENTRY, BUY, 101, 2, 0), fills.get(fills.size() - 1));
+        assertEquals(101, book.bestAsk());
+        assertEquals(NONE, book.bestBid());
+    }
+
+    @Test
+    void restingLimitsFillAtTheirPriceWhenTheMarketTradesThrough() {
+        book.submit(BUY, 100, 1, NONE, NONE, "b1");
+        book.submit(BUY, 99, 1, NONE, NONE, "b2");
+        book.submit(SELL, 105, 1, NONE, NONE, "a");
+
+        book.onTick(102);
+        assertEquals(0, fills.size());
+
+        book.onTick(99);
+        assertEquals(List.of(new Event("b1", ENTRY, BUY, 100, 1, 0), new Event("b2", ENTRY, BUY, 99, 1, 0)), fills);
+        assertEquals(1, book.liveOrders());
+    }
+
+    @Test
+    void marketOrderWithoutLiquidityFillsAtNextTick() {
+        book.submit(SELL, NONE, 3, NONE, NONE, "m");
+        assertEquals(0, fills.size());
+
+        book.onTick(250);
+
+        assertEquals(List.of(new Event("m", ENTRY, SELL, 250, 3, 0)), fills);
+        assertEquals(0, book.liveOrders());
+    }
+
+    @Test
+    void takeProfitFillCancelsTheStop() {
+        book.submit(BUY, 100, 2, 110, 95, "long");
+        book.onTick(100);
+        assertEquals(2, book.liveOrders());
+        assertEquals(110, book.bestAsk());
+
+        book.onTick(111);
+
+        assertEquals(new Event("long", TAKE_PROFIT, SELL, 110, 2, 0), fills.get(1));
+        assertEquals(0, book.liveOrders());
+        book.onTick(90);
+        assertEquals(2, fills.size());
+    }
+
+    @Test
+    void partialTakeProfitFillShrinksTheStop() {
+        book.submit(BUY, 100, 4, 110, 95, "long");
+        book.onTick(100);
+        book.submit(BUY, 110, 1, NONE, NONE, "b");
+        assertEquals(new Event("long", TAKE_PROFIT, SELL, 110, 1, 3), fills.get(1));
+
+        book.onTick(94);
+
+        assertEquals(new Event("long", STOP_LOSS, SELL, 94, 3, 0), fills.get(fills.size() - 1));
+        assertEquals(NONE, book.bestAsk());
+        assertEquals(0, book.liveOrders());
+    }
+
+    @Test
+    void stopTriggersAtTickPriceAndCancelsTakeProfit() {
+        book.submit(SELL, 100, 1, 90, 105, "short");
+        book.onTick(100);
+
+        book.onTick(107);
+
+        assertEquals(new Event("short", STOP_LOSS, BUY, 107, 1, 0), fills.get(1));
+        assertEquals(NONE, book.bestBid());
+        assertEquals(0, book.liveOrders());
+    }
+
+    @Test
+    void poolGrowsAndRecyclesHandles() {
+        for (int i = 0; i < 1000; i++) {
+            book.submit(BUY, 1000 - i % 50, 1, NONE, NONE, i);
+        }
+        assertEquals(1000, book.liveOrders());
+        book.submit(SELL, 1, 1000, NONE, NONE, "sweep");
+        assertEquals(0, book.liveOrders());
+
+        for (int i = 0; i < 1000; i++) {
+            book.submit(SELL, 2000 + i % 7, 1, NONE, NONE, i);
+        }
+        assertEquals(2000, book.bestAsk());
+        assertEquals(1000, book.liveOrders());
+    }
+}
@@ -0,0 +1,126 @@
+package nur.kg.exchangesim.service;
+
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.OrderType;
+import nur.kg.domain.enums.Side;
+import nur.kg.domain.enums.Symbol;
+import nur.kg.domain.request.OrderRequest;
+import nur.kg.exchangesim.config.SimulatorProperties;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExchangeSimulatorTest {
+
+    private final ExchangeSimulator simulator = new ExchangeSimulator(new SimulatorProperties(2, 16), Clock.systemUTC());
+    private final Symbol symbol = Symbol.values()[0];
+    private final Exchange exchange = Exchange.values()[0];
+
+    @Test
+    void bracketOrderFillsFromTicksAndIsPushedToSubscribers() {
+        List<Fill> fills = new CopyOnWriteArrayList<>();
+        Disposable subscription = simulator.fills().subscribe(fills::add);
+
+        assertTrue(simulator.submit(order("o-1", "100.5"), exchange));
+        simulator.onTick(tick("100.40"));
+        simulator.onTick(tick("103.10"));
+        subscription.dispose();
+
+        assertEquals(2, fills.size());
+        assertEquals(new BigDecimal("100.50000000"), fills.get(0).price());
+        assertEquals(FillKind.ENTRY, fills.get(0).kind());
+        assertEquals(FillKind.TAKE_PROFIT, fills.get(1).kind());
+        assertEquals(Side.SELL, fills.get(1).side());
+        assertEquals("o-1", fills.get(1).orderId());
+        assertEquals("SMA", fills.get(1).botId());
+        assertEquals(0, simulator.liveOrders(exchange, symbol));
+    }
+
+    @Test
+    void aStalledSubscriberDoesNotHoldUpMatching() throws Exception {
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<FillKind> kinds = new CopyOnWriteArrayList<>();
+        Disposable subscription = simulator.fills().subscribe(fill -> {
+            if (!"o-1".equals(fill.orderId())) return;
+            kinds.add(fill.kind());
+            stalled.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertTrue(simulator.submit(order("o-1", "100.5"), exchange));
+        Thread filling = new Thread(() -> simulator.onTick(tick("100.40")));
+        filling.start();
+        assertTrue(stalled.await(5, TimeUnit.SECONDS));
+
+        // the stalled fill's book and every other one keep matching meanwhile
+        long start = System.nanoTime();
+        simulator.onTick(tick("103.10"));
+        Symbol other = Symbol.values()[1];
+        simulator.submit(OrderRequest.builder().id("o-2").symbol(other).side(Side.SELL).type(OrderType.MARKET)
+                .qty(new BigDecimal("0.001")).exchange(exchange).botId("RSI").build(), exchange);
+        simulator.onTick(TickerDto.builder().symbol(other).exchange(exchange).last(new BigDecimal("50")).build());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, simulator.liveOrders(exchange, other));
+        assertEquals(0, simulator.liveOrders(exchange, symbol));
+
+        // the take profit filled meanwhile follows its entry once the subscriber is back
+        release.countDown();
+        filling.join();
+        subscription.dispose();
+        assertEquals(List.of(FillKind.ENTRY, FillKind.TAKE_PROFIT), kinds);
+    }
+
+    @Test
+    void retriedOrderIdsAreIgnoredWithinTheWindow() {
+        assertTrue(simulator.submit(order("o-1", "100"), exchange));
+        assertFalse(simulator.submit(order("o-1", "100"), exchange));
+        assertEquals(1, simulator.liveOrders(exchange, symbol));
+
+        simulator.submit(order("o-2", "100"), exchange);
+        simulator.submit(order("o-3", "100"), exchange);
+        assertTrue(simulator.submit(order("o-1", "100"), exchange));
+    }
+
+    @Test
+    void rejectsOrdersWithoutQuantity() {
+        OrderRequest bad = OrderRequest.builder().id("x").symbol(symbol).side(Side.BUY).type(OrderType.LIMIT).build();
+        assertThrows(IllegalArgumentException.class, () -> simulator.submit(bad, exchange));
+    }
+
+    private OrderRequest order(String id, String limit) {
+        return OrderRequest.builder()
+                .id(id)
+                .symbol(symbol)
+                .side(Side.BUY)
+                .type(OrderType.LIMIT)
+                .qty(new BigDecimal("0.001"))
+                .limitPrice(new BigDecimal(limit))
+                .tp(new BigDecimal("103"))
+                .sl(new BigDecimal("99"))
+                .exchange(exchange)
+                .botId("SMA")
+                .build();
+    }
+
+    private TickerDto tick(String last) {
+        return TickerDto.builder().symbol(symbol).exchange(exchange).last(new BigDecimal(last)).ts(Instant.now()).build();
+    }
+}
@@ -0,0 +1,123 @@
+package nur.kg.loadtool;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import nur.kg.domain.enums.Symbol;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Local stand-in for the exchange: accepts POST /api/orders and /api/orders/batch, answers 200 at once and records how long after the
+// triggering tick was sent each order arrived. The triggering price is recovered from the order the way each
+// strategy builds it: the SMA bot puts its stop 0.50 from last, the RSI bot rounds its limit down from last*(1 -/+ offset).
+final class ExchangeStub {
+
+    private static final long SMA_STOP_DISTANCE_CENTS = 50;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Recorder latency = new Recorder(TimeUnit.SECONDS.toNanos(60), 3);
+    private final LongAdder orders = new LongAdder();
+    private final LongAdder unmatched = new LongAdder();
+    private final TickSource ticks;
+    private final LoadOptions options;
+    private DisposableServer server;
+
+    ExchangeStub(TickSource ticks, LoadOptions options) {
+        this.ticks = ticks;
+        this.options = options;
+    }
+
+    void start() {
+        server = HttpServer.create()
+                .port(options.stubPort())
+                .route(routes -> routes
+                        .post("/api/orders", (req, res) -> req.receive().aggregate().asByteArray()
+                                .doOnNext(body -> onOrder(parse(body)))
+                                .then(res.status(HttpResponseStatus.OK).send()))
+                        .get("/api/ping", (req, res) -> res.status(HttpResponseStatus.NO_CONTENT).send())
+                        .post("/api/orders/batch", (req, res) -> res.status(HttpResponseStatus.OK)
+                                .header("Content-Type", "application/json")
+                                .sendByteArray(req.receive().aggregate().asByteArray().map(this::onBatch))))
+                .bindNow();
+    }
+
+    void stop() {
+        if (server != null) server.disposeNow();
+    }
+
+    private JsonNode parse(byte[] body) {
+        try {
+            return mapper.readTree(body);
+        } catch (IOException e) {
+            return mapper.missingNode();
+        }
+    }
+
+    // every order in the batch is accepted, the answer lists them in request order
+    private byte[] onBatch(byte[] body) {
+        ArrayNode results = mapper.createArrayNode();
+        for (JsonNode order : parse(body)) {
+            onOrder(order);
+            results.addObject().put("id", order.path("id").asText());
+        }
+        return results.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void onOrder(JsonNode order) {
+        long now = System.nanoTime();
+        orders.increment();
+        try {
+            Symbol symbol = Symbol.valueOf(order.path("symbol").asText());
+            boolean buy = "BUY".equals(order.path("side").asText());
+            long sent = switch (options.strategy()) {
+                case SMA -> {
+                    long stop = cents(order.path("sl"));
+                    long last = buy ? stop + SMA_STOP_DISTANCE_CENTS : stop - SMA_STOP_DISTANCE_CENTS;
+                    yield ticks.match(symbol, last, last);
+                }
+                case RSI -> {
+                    // limit = floor(last * (1 -/+ offset)), so last lies in [limit, limit + 1) / (1 -/+ offset)
+                    long limit = cents(order.path("limitPrice"));
+                    long factor = buy ? 1_000_000 - options.rsiOffsetPpm() : 1_000_000 + options.rsiOffsetPpm();
+                    long from = Math.floorDiv(limit * 1_000_000 + factor - 1, factor);
+                    long to = Math.floorDiv((limit + 1) * 1_000_000 - 1, factor);
+                    yield ticks.match(symbol, from, to);
+                }
+            };
+            if (sent == 0 || sent > now) {
+                unmatched.increment();
+                return;
+            }
+            latency.recordValue(Math.min(now - sent, TimeUnit.SECONDS.toNanos(60)));
+        } catch (RuntimeException e) {
+            unmatched.increment();
+        }
+    }
+
+    private static long cents(JsonNode price) {
+        return new BigDecimal(price.asText()).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    // latency recorded since the previous call
+    Histogram intervalLatency() {
+        return latency.getIntervalHistogram();
+    }
+
+    long orders() {
+        return orders.sum();
+    }
+
+    long unmatched() {
+        return unmatched.sum();
+    }
+}
@@ -0,0 +1,70 @@
+package nur.kg.loadtool;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+public record LoadOptions(
+        String botUrl,
+        String metricsUrl,
+        int stubPort,
+        Strategy strategy,
+        int symbols,
+        Path journal,
+        int rate,
+        int maxRate,
+        double stepFactor,
+        Duration stepDuration,
+        Duration warmup,
+        boolean search,
+        double keepUpRatio,
+        Duration maxP99,
+        long rsiOffsetPpm
+) {
+
+    // how the stub recovers the triggering tick price from an order, see TickSource
+    public enum Strategy { SMA, RSI }
+
+    static final String USAGE = """
+            Usage: LoadTool [options]
+              --bot=http://localhost:8081              bot base url, ticks go to /api/tickers/stream
+              --metrics=http://localhost:8083/actuator/prometheus   bot scrape endpoint, '' to disable
+              --stub-port=8080                         exchange stub port (the bot's exchange.urls entry)
+              --strategy=sma|rsi                       order shape used to correlate orders with ticks
+              --symbols=N                              number of symbols to stream (default all)
+              --journal=DIR                            replay prices from a tick journal instead of a random walk
+              --rate=1000                              ticks/s, starting rate when searching
+              --max-rate=1000000 --step-factor=1.5 --step-seconds=10
+              --warmup-seconds=10                      unreported run at --rate first, so JIT and pools settle
+              --fixed                                  run one step at --rate instead of searching for saturation
+              --keep-up=0.95                           processed/offered ratio a step must reach
+              --max-p99-ms=100                         tick-to-order p99 a step must stay under
+              --rsi-offset=0.001                       bot.price-offset of the RSI bot
+            """;
+
+    static LoadOptions parse(String[] args) {
+        Map<String, String> o = new HashMap<>();
+        for (String a : args) {
+            if (!a.startsWith("--")) throw new IllegalArgumentException("Unexpected argument " + a);
+            int eq = a.indexOf('=');
+            o.put(eq < 0 ? a.substring(2) : a.substring(2, eq), eq < 0 ? "true" : a.substring(eq + 1));
+        }
+        return new LoadOptions(
+                o.getOrDefault("bot", "http://localhost:8081"),
+                o.getOrDefault("metrics", "http://localhost:8083/actuator/prometheus"),
+                Integer.parseInt(o.getOrDefault("stub-port", "8080")),
+                Strategy.valueOf(o.getOrDefault("strategy", "sma").toUpperCase()),
+                Integer.parseInt(o.getOrDefault("symbols", "0")),
+                o.containsKey("journal") ? Path.of(o.get("journal")) : null,
+                Integer.parseInt(o.getOrDefault("rate", "1000")),
+                Integer.parseInt(o.getOrDefault("max-rate", "1000000")),
+                Double.parseDouble(o.getOrDefault("step-factor", "1.5")),
+                Duration.ofSeconds(Long.parseLong(o.getOrDefault("step-seconds", "10"))),
+                Duration.ofSeconds(Long.parseLong(o.getOrDefault("warmup-seconds", "10"))),
+                !Boolean.parseBoolean(o.getOrDefault("fixed", "false")),
+                Double.parseDouble(o.getOrDefault("keep-up", "0.95")),
+                Duration.ofMillis(Long.parseLong(o.getOrDefault("max-p99-ms", "100"))),
+                Math.round(Double.parseDouble(o.getOrDefault("rsi-offset", "0.001")) * 1_000_000));
+    }
+}
@@ -0,0 +1,136 @@
+package nur.kg.loadtool;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.HdrHistogram.Histogram;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Streams NDJSON ticks into a running bot at a fixed or stepped rate while standing in for its exchange, and reports
+// per step: offered and processed ticks/s, tick-to-order latency and the bot's GC pauses. In search mode the rate
+// grows by --step-factor until the bot stops keeping up, and the last step that kept up is the saturation point.
+public final class LoadTool {
+
+    private static final Duration PACE = Duration.ofMillis(1);
+
+    record Step(int offered, double sent, double processed, long orders, long unmatched, Histogram latency,
+                double gcPauses, double gcPauseSeconds, double gcPauseMax) {
+
+        boolean keptUp(LoadOptions options) {
+            boolean throughput = processed >= offered * options.keepUpRatio();
+            boolean latencyOk = latency.getTotalCount() == 0
+                    || latency.getValueAtPercentile(99) <= options.maxP99().toNanos();
+            return throughput && latencyOk;
+        }
+
+        String format() {
+            String lat = latency.getTotalCount() == 0 ? "no orders matched" : String.format("p50=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms",
+                    latency.getValueAtPercentile(50) / 1e6, latency.getValueAtPercentile(99) / 1e6,
+                    latency.getValueAtPercentile(99.9) / 1e6, latency.getMaxValue() / 1e6);
+            String processedText = Double.isNaN(processed) ? "n/a" : String.format("%,.0f", processed);
+            String gc = Double.isNaN(gcPauses) ? "gc n/a" : String.format("gc pauses=%d total=%.1fms max=%.1fms",
+                    (long) gcPauses, gcPauseSeconds * 1e3, gcPauseMax * 1e3);
+            return String.format("offered %,9d/s  sent %,11.0f/s  processed %11s/s  orders %,d (%d unmatched)  %s  %s",
+                    offered, sent, processedText, orders, unmatched, lat, gc);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (List.of(args).contains("--help")) {
+            System.out.println(LoadOptions.USAGE);
+            return;
+        }
+        LoadOptions options = LoadOptions.parse(args);
+        TickSource ticks = options.journal() == null
+                ? TickSource.randomWalk(options.symbols())
+                : TickSource.fromJournal(options.journal(), options.symbols());
+        ExchangeStub stub = new ExchangeStub(ticks, options);
+        stub.start();
+        PrometheusScraper scraper = new PrometheusScraper(options.metricsUrl());
+        System.out.printf("Streaming %d symbols to %s, exchange stub on :%d%n", ticks.symbolCount(), options.botUrl(), options.stubPort());
+
+        try {
+            if (!options.warmup().isZero()) {
+                System.out.printf("Warming up for %ds at %,d ticks/s%n", options.warmup().toSeconds(), options.rate());
+                runStep(options, options.warmup(), ticks, stub, scraper, options.rate());
+            }
+            List<Step> steps = new ArrayList<>();
+            Step lastGood = null;
+            for (double rate = options.rate(); rate <= options.maxRate(); rate *= options.stepFactor()) {
+                Step step = runStep(options, options.stepDuration(), ticks, stub, scraper, (int) rate);
+                steps.add(step);
+                System.out.println(step.format());
+                if (!options.search()) break;
+                if (!step.keptUp(options)) break;
+                lastGood = step;
+            }
+            if (options.search()) {
+                System.out.println(lastGood == null
+                        ? "Saturated already at the starting rate " + options.rate() + " ticks/s"
+                        : String.format("Saturation point: about %,d ticks/s (next step reached %,.0f processed)",
+                        lastGood.offered(), steps.get(steps.size() - 1).processed()));
+            }
+        } finally {
+            stub.stop();
+        }
+    }
+
+    private static Step runStep(LoadOptions options, Duration duration, TickSource ticks, ExchangeStub stub, PrometheusScraper scraper, int rate) {
+        Map<String, Double> before = scraper.scrape();
+        long ordersBefore = stub.orders();
+        long unmatchedBefore = stub.unmatched();
+        stub.intervalLatency();
+
+        AtomicLong sent = new AtomicLong();
+        long start = System.nanoTime();
+        // each pacing tick emits whatever the schedule is behind by; pacing ticks dropped under backpressure
+        // are made up by the next one up to a 100ms burst, so the offered rate is only missed when the bot pushes back
+        int maxBurst = Math.max(1, rate / 10);
+        Flux<ByteBuf> body = Flux.interval(PACE, Schedulers.single())
+                .onBackpressureDrop()
+                .take(duration)
+                .<ByteBuf>handle((i, sink) -> {
+                    long now = System.nanoTime();
+                    long due = (long) ((now - start) / 1e9 * rate) - sent.get();
+                    int n = (int) Math.min(maxBurst, due);
+                    if (n <= 0) return;
+                    sent.addAndGet(n);
+                    sink.next(Unpooled.wrappedBuffer(ticks.batch(n, now)));
+                });
+
+        HttpClient.create()
+                .headers(h -> h.set(HttpHeaderNames.CONTENT_TYPE, "application/x-ndjson"))
+                .post()
+                .uri(options.botUrl() + "/api/tickers/stream")
+                .send(body)
+                .responseSingle((res, content) -> Mono.just(res.status().code()))
+                .onErrorResume(e -> {
+                    System.err.println("Stream failed: " + e);
+                    return Mono.empty();
+                })
+                .block();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Map<String, Double> after = scraper.scrape();
+        return new Step(rate, sent.get() / seconds,
+                delta(before, after, PrometheusScraper.TICKS) / seconds,
+                stub.orders() - ordersBefore, stub.unmatched() - unmatchedBefore, stub.intervalLatency(),
+                delta(before, after, PrometheusScraper.GC_PAUSE_COUNT),
+                delta(before, after, PrometheusScraper.GC_PAUSE_SUM),
+                after.getOrDefault(PrometheusScraper.GC_PAUSE_MAX, Double.NaN));
+    }
+
+    private static double delta(Map<String, Double> before, Map<String, Double> after, String metric) {
+        if (!after.containsKey(metric)) return Double.NaN;
+        return after.get(metric) - before.getOrDefault(metric, 0.0);
+    }
+}
@@ -0,0 +1,53 @@
+package nur.kg.loadtool;
+
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// Reads the bot's Prometheus text endpoint and folds each metric over its label sets: sum for counters and
+// histogram sums/counts, max for *_max gauges.
+final class PrometheusScraper {
+
+    static final String TICKS = "market_ticks_received_total";
+    static final String GC_PAUSE_COUNT = "jvm_gc_pause_seconds_count";
+    static final String GC_PAUSE_SUM = "jvm_gc_pause_seconds_sum";
+    static final String GC_PAUSE_MAX = "jvm_gc_pause_seconds_max";
+
+    private final String url;
+    private final HttpClient client = HttpClient.create().responseTimeout(Duration.ofSeconds(5));
+
+    PrometheusScraper(String url) {
+        this.url = url;
+    }
+
+    Map<String, Double> scrape() {
+        if (url == null || url.isBlank()) return Map.of();
+        try {
+            String body = client.get().uri(url).responseContent().aggregate().asString().block(Duration.ofSeconds(10));
+            return body == null ? Map.of() : parse(body);
+        } catch (RuntimeException e) {
+            return Map.of();
+        }
+    }
+
+    static Map<String, Double> parse(String body) {
+        Map<String, Double> values = new HashMap<>();
+        for (String line : body.split("\n")) {
+            if (line.isEmpty() || line.charAt(0) == '#') continue;
+            int nameEnd = line.indexOf('{');
+            int valueStart = line.lastIndexOf(' ');
+            if (valueStart < 0) continue;
+            String name = line.substring(0, nameEnd < 0 ? valueStart : nameEnd);
+            double value;
+            try {
+                value = Double.parseDouble(line.substring(valueStart + 1));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            values.merge(name, value, name.endsWith("_max") ? Math::max : Double::sum);
+        }
+        return values;
+    }
+}
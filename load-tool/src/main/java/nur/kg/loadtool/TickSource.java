@@ -0,0 +1,188 @@
+package nur.kg.loadtool;
+
+import nur.kg.cryptobot.journal.TickJournalReader;
+import nur.kg.cryptobot.market.FixedPoint;
+import nur.kg.domain.enums.Exchange;
+import nur.kg.domain.enums.Symbol;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Produces NDJSON ticks with two-decimal prices, round-robin over the symbols, either as a bounded random walk or
+// looping over prices recorded in a tick journal. The latest ticks of each symbol are kept, price and send time, in a
+// preallocated ring, so the stub can map an order back to the tick that triggered it without any per-tick allocation.
+// Only touched by the generator thread, apart from match() which the stub calls.
+final class TickSource {
+
+    private static final long WALK_RANGE = 50_000; // cents either side of the base price
+    private static final int HISTORY = 1 << 16; // ticks remembered per symbol, a power of two
+    private static final byte[] SYMBOL_KEY = "{\"symbol\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EXCHANGE_KEY = "\",\"exchange\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LAST_KEY = "\",\"last\":".getBytes(StandardCharsets.US_ASCII);
+
+    private final Symbol[] symbols;
+    private final byte[][] symbolNames;
+    private final byte[] exchange = Exchange.values()[0].name().getBytes(StandardCharsets.US_ASCII);
+    private final long[] minCents;
+    private final long[] maxCents;
+    // ring slot seq & (HISTORY - 1) holds the symbol's tick number seq while seq >= written - HISTORY
+    private final long[][] historyCents;
+    private final long[][] historySentAt;
+    private final AtomicLong[] written;
+    private final AtomicLong[] matched;
+    private final long[][] recorded; // per symbol, null for the random walk
+    private final int[] cursor;
+    private final long[] walk;
+    private final SplittableRandom random = new SplittableRandom(1);
+    private int next;
+
+    private TickSource(Symbol[] symbols, long[] minCents, long[] maxCents, long[][] recorded) {
+        this.symbols = symbols;
+        this.minCents = minCents;
+        this.maxCents = maxCents;
+        this.recorded = recorded;
+        this.symbolNames = new byte[symbols.length][];
+        this.historyCents = new long[symbols.length][HISTORY];
+        this.historySentAt = new long[symbols.length][HISTORY];
+        this.written = new AtomicLong[symbols.length];
+        this.matched = new AtomicLong[symbols.length];
+        this.cursor = new int[symbols.length];
+        this.walk = new long[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            symbolNames[i] = symbols[i].name().getBytes(StandardCharsets.US_ASCII);
+            written[i] = new AtomicLong();
+            matched[i] = new AtomicLong();
+            walk[i] = (minCents[i] + maxCents[i]) / 2;
+        }
+    }
+
+    static TickSource randomWalk(int symbolCount) {
+        Symbol[] symbols = symbols(symbolCount);
+        long[] min = new long[symbols.length];
+        long[] max = new long[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            long base = 1_000_000 + i * 200_000L;
+            min[i] = base - WALK_RANGE;
+            max[i] = base + WALK_RANGE;
+        }
+        return new TickSource(symbols, min, max, null);
+    }
+
+    static TickSource fromJournal(Path directory, int symbolCount) throws IOException {
+        Symbol[] all = Symbol.values();
+        long[][] prices = new long[all.length][64];
+        int[] counts = new int[all.length];
+        new TickJournalReader(directory).forEach((receivedAt, symbol, exchange, price, scale, sequence) -> {
+            if (price == TickJournalReader.NO_PRICE) return;
+            int s = symbol.ordinal();
+            if (counts[s] == prices[s].length) prices[s] = Arrays.copyOf(prices[s], counts[s] * 2);
+            prices[s][counts[s]++] = Math.max(1, (price + FixedPoint.ONE / 200) / (FixedPoint.ONE / 100));
+        });
+
+        List<Symbol> present = new ArrayList<>();
+        for (Symbol s : all) if (counts[s.ordinal()] > 0) present.add(s);
+        if (present.isEmpty()) throw new IllegalArgumentException("No priced ticks in journal " + directory);
+        Symbol[] symbols = present.subList(0, symbolCount <= 0 ? present.size() : Math.min(symbolCount, present.size())).toArray(Symbol[]::new);
+
+        long[] min = new long[symbols.length];
+        long[] max = new long[symbols.length];
+        long[][] recorded = new long[symbols.length][];
+        for (int i = 0; i < symbols.length; i++) {
+            recorded[i] = Arrays.copyOf(prices[symbols[i].ordinal()], counts[symbols[i].ordinal()]);
+            min[i] = Arrays.stream(recorded[i]).min().orElseThrow();
+            max[i] = Arrays.stream(recorded[i]).max().orElseThrow();
+        }
+        return new TickSource(symbols, min, max, recorded);
+    }
+
+    private static Symbol[] symbols(int count) {
+        Symbol[] all = Symbol.values();
+        return Arrays.copyOf(all, count <= 0 ? all.length : Math.min(count, all.length));
+    }
+
+    int symbolCount() {
+        return symbols.length;
+    }
+
+    // appends n ticks to out as NDJSON and stamps their prices with now
+    byte[] batch(int n, long now) {
+        byte[] out = new byte[n * 80];
+        int pos = 0;
+        for (int k = 0; k < n; k++) {
+            int s = next;
+            if (++next == symbols.length) next = 0;
+            long cents = nextPrice(s);
+            long seq = written[s].get();
+            historyCents[s][(int) (seq & (HISTORY - 1))] = cents;
+            historySentAt[s][(int) (seq & (HISTORY - 1))] = now;
+            written[s].lazySet(seq + 1);
+
+            if (out.length - pos < 80) out = Arrays.copyOf(out, out.length * 2);
+            pos = put(out, pos, SYMBOL_KEY);
+            pos = put(out, pos, symbolNames[s]);
+            pos = put(out, pos, EXCHANGE_KEY);
+            pos = put(out, pos, exchange);
+            pos = put(out, pos, LAST_KEY);
+            pos = putPrice(out, pos, cents);
+            out[pos++] = '}';
+            out[pos++] = '\n';
+        }
+        return Arrays.copyOf(out, pos);
+    }
+
+    private long nextPrice(int s) {
+        if (recorded != null) {
+            long[] prices = recorded[s];
+            long p = prices[cursor[s]];
+            if (++cursor[s] == prices.length) cursor[s] = 0;
+            return p;
+        }
+        long p = walk[s] + random.nextInt(-5, 6);
+        if (p < minCents[s] || p > maxCents[s]) p = walk[s] - (p - walk[s]);
+        walk[s] = p;
+        return p;
+    }
+
+    // Send time of the earliest tick priced within [fromCents, toCents] at or after the tick of the symbol's previous
+    // match, or 0 if there is none. Orders of a symbol follow the order of their ticks, and the walk repeats prices
+    // often: a repeat sent after the triggering tick must not make the order look faster than it was.
+    long match(Symbol symbol, long fromCents, long toCents) {
+        for (int s = 0; s < symbols.length; s++) {
+            if (symbols[s] != symbol) continue;
+            long end = written[s].get();
+            for (long seq = Math.max(matched[s].get(), end - HISTORY); seq < end; seq++) {
+                int slot = (int) (seq & (HISTORY - 1));
+                long cents = historyCents[s][slot];
+                long sentAt = historySentAt[s][slot];
+                // the generator may have lapped the slot while it was read
+                if (written[s].get() - seq > HISTORY) continue;
+                if (cents < fromCents || cents > toCents) continue;
+                matched[s].accumulateAndGet(seq, Math::max);
+                return sentAt;
+            }
+            return 0;
+        }
+        return 0;
+    }
+
+    private static int put(byte[] out, int pos, byte[] bytes) {
+        System.arraycopy(bytes, 0, out, pos, bytes.length);
+        return pos + bytes.length;
+    }
+
+    private static int putPrice(byte[] out, int pos, long cents) {
+        String whole = Long.toString(cents / 100);
+        for (int i = 0; i < whole.length(); i++) out[pos++] = (byte) whole.charAt(i);
+        int frac = (int) (cents % 100);
+        out[pos++] = '.';
+        out[pos++] = (byte) ('0' + frac / 10);
+        out[pos++] = (byte) ('0' + frac % 10);
+        return pos;
+    }
+}
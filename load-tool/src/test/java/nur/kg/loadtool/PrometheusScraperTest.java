@@ -0,0 +1,25 @@
+package nur.kg.loadtool;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PrometheusScraperTest {
+
+    @Test
+    void prometheusTextIsFoldedOverLabels() {
+        Map<String, Double> values = PrometheusScraper.parse("""
+                # HELP market_ticks_received_total Total incoming ticks received
+                market_ticks_received_total{market="BTCUSDT"} 10.0
+                market_ticks_received_total{market="ETHUSDT"} 5.0
+                jvm_gc_pause_seconds_max{action="end of minor GC"} 0.004
+                jvm_gc_pause_seconds_max{action="end of major GC"} 0.020
+                process_uptime_seconds 12.5
+                """);
+        assertEquals(15.0, values.get(PrometheusScraper.TICKS));
+        assertEquals(0.020, values.get(PrometheusScraper.GC_PAUSE_MAX));
+        assertEquals(12.5, values.get("process_uptime_seconds"));
+    }
+}
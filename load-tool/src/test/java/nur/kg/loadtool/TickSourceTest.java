@@ -0,0 +1,58 @@
+package nur.kg.loadtool;
+
+import nur.kg.cryptobot.codec.TickerLineParser;
+import nur.kg.cryptobot.market.FixedPoint;
+import nur.kg.domain.enums.Symbol;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TickSourceTest {
+
+    @Test
+    void batchesAreNdjsonAndEveryPriceIsStamped() {
+        TickSource source = TickSource.randomWalk(2);
+        byte[] batch = source.batch(100, 42);
+        String[] lines = new String(batch, StandardCharsets.US_ASCII).split("\n");
+        assertEquals(100, lines.length);
+
+        TickerLineParser parser = new TickerLineParser();
+        for (String line : lines) {
+            ByteBuffer buf = ByteBuffer.wrap(line.getBytes(StandardCharsets.US_ASCII));
+            assertTrue(parser.parse(buf, 0, buf.limit()), line);
+            long cents = FixedPoint.toScaled(parser.last()) / (FixedPoint.ONE / 100);
+            assertEquals(42, source.match(parser.symbol(), cents, cents), line);
+        }
+    }
+
+    @Test
+    void aRepeatedPriceMatchesItsEarliestSendSinceThePreviousMatch() {
+        TickSource source = TickSource.randomWalk(1);
+        long first = price(source.batch(1, 10));
+        long[] later = new long[300];
+        for (int i = 0; i < later.length; i++) later[i] = price(source.batch(1, 20 + i));
+        int repeat = 0;
+        while (later[repeat] != first) repeat++;
+        long between = later[repeat - 1];
+        int betweenAt = 0;
+        while (later[betweenAt] != between) betweenAt++;
+        Symbol symbol = Symbol.values()[0];
+
+        assertEquals(10, source.match(symbol, first, first));
+        // an order for a price sent after the first tick moves past it, so the first price now matches its repeat
+        assertEquals(20 + betweenAt, source.match(symbol, between, between));
+        assertEquals(20 + repeat, source.match(symbol, first, first));
+        assertEquals(0, source.match(symbol, Long.MIN_VALUE, 0));
+    }
+
+    private static long price(byte[] line) {
+        TickerLineParser parser = new TickerLineParser();
+        ByteBuffer buf = ByteBuffer.wrap(line);
+        assertTrue(parser.parse(buf, 0, buf.limit() - 1));
+        return FixedPoint.toScaled(parser.last()) / (FixedPoint.ONE / 100);
+    }
+}
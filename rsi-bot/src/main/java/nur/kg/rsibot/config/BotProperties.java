@@ -1,7 +1,19 @@
 package nur.kg.rsibot.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.math.BigDecimal;
 
 @ConfigurationProperties(prefix = "bot")
-public record BotProperties(String id) {
+public record BotProperties(
+        String id,
+        @DefaultValue("14") int period,
+        @DefaultValue("0.01") BigDecimal slPct,
+        @DefaultValue("0.02") BigDecimal tpPct,
+        @DefaultValue("0.001") BigDecimal priceOffset
+) {
+    public BotProperties {
+        if (period < 1) throw new IllegalArgumentException("bot.period must be positive");
+    }
 }
@@ -0,0 +1,39 @@
+package nur.kg.rsibot.replay;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nur.kg.cryptobot.market.TickPipeline;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.cryptobot.replay.ReplayEngine;
+import nur.kg.cryptobot.replay.ReplayResult;
+import nur.kg.cryptobot.replay.ReplayTape;
+import nur.kg.rsibot.config.BotProperties;
+import nur.kg.rsibot.service.RsiTrendService;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Replays one or more tick journal directories through RsiTrendService, one run per journal and symbol.
+// Usage: RsiReplay <journal-dir>...
+public final class RsiReplay {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: RsiReplay <journal-dir>...");
+            System.exit(2);
+        }
+
+        ReplayEngine.quietLogging();
+        List<ReplayTape> tapes = new ArrayList<>();
+        for (String dir : args) tapes.addAll(ReplayTape.fromJournal(Path.of(dir)).byMarket().values());
+
+        MetricsService metrics = new MetricsService(new SimpleMeterRegistry());
+        TickPipeline pipeline = ReplayEngine.serialPipeline(metrics);
+        BotProperties bot = new BotProperties("rsi-replay", 14, new BigDecimal("0.01"), new BigDecimal("0.02"), new BigDecimal("0.001"));
+
+        List<ReplayResult> results = new ReplayEngine(Runtime.getRuntime().availableProcessors())
+                .run(tapes, (client, clock) -> new RsiTrendService(bot, metrics, client, pipeline, clock));
+        results.forEach(r -> System.out.println(r.summary()));
+    }
+}
@@ -0,0 +1,61 @@
+package nur.kg.rsibot.replay;
+
+import nur.kg.cryptobot.market.TickPipeline;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.cryptobot.replay.ParameterSweep;
+import nur.kg.cryptobot.replay.ReplayEngine;
+import nur.kg.cryptobot.replay.ReplayTape;
+import nur.kg.rsibot.config.BotProperties;
+import nur.kg.rsibot.service.RsiTrendService;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Grid search over the RSI period, bracket percentages and limit offset.
+// Usage: RsiSweep <journal-dir> [--period=..] [--sl=..] [--tp=..] [--offset=..] [--top=n] [--threads=n], ranges as from:to:step
+public final class RsiSweep {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: RsiSweep <journal-dir> [--period=7:28:7] [--sl=0.005:0.02:0.005] [--tp=0.01:0.04:0.01] [--offset=0.001] [--top=20] [--threads=n]");
+            System.exit(2);
+        }
+        Map<String, String> opts = Stream.of(args).skip(1).filter(a -> a.startsWith("--") && a.contains("="))
+                .collect(Collectors.toMap(a -> a.substring(2, a.indexOf('=')), a -> a.substring(a.indexOf('=') + 1)));
+
+        ReplayEngine.quietLogging();
+        List<ReplayTape> tapes = List.copyOf(ReplayTape.fromJournal(Path.of(args[0])).byMarket().values());
+
+        List<BotProperties> grid = new ArrayList<>();
+        for (int period : ParameterSweep.intRange(opts.getOrDefault("period", "7:28:7"))) {
+            for (BigDecimal sl : ParameterSweep.decimalRange(opts.getOrDefault("sl", "0.005:0.02:0.005"))) {
+                for (BigDecimal tp : ParameterSweep.decimalRange(opts.getOrDefault("tp", "0.01:0.04:0.01"))) {
+                    for (BigDecimal offset : ParameterSweep.decimalRange(opts.getOrDefault("offset", "0.001"))) {
+                        grid.add(new BotProperties("rsi-sweep", period, sl, tp, offset));
+                    }
+                }
+            }
+        }
+
+        MetricsService metrics = ParameterSweep.discardingMetrics();
+        TickPipeline pipeline = ReplayEngine.serialPipeline(metrics);
+        int threads = Integer.parseInt(opts.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        long start = System.nanoTime();
+        List<ParameterSweep.Outcome<BotProperties>> ranked = new ParameterSweep(threads)
+                .run(grid, tapes, (params, client, clock) -> new RsiTrendService(params, metrics, client, pipeline, clock));
+        long elapsed = System.nanoTime() - start;
+
+        long ticks = tapes.stream().mapToLong(ReplayTape::size).sum() * grid.size();
+        System.out.printf("%d combinations x %d tapes, %,d ticks replayed in %.1fs (%,.0f ticks/s)%n",
+                grid.size(), tapes.size(), ticks, elapsed / 1e9, ticks * 1e9 / elapsed);
+        ranked.stream().limit(Integer.parseInt(opts.getOrDefault("top", "20")))
+                .forEach(o -> System.out.printf("period=%-3d sl=%s tp=%s offset=%s %s%n", o.params().period(),
+                        o.params().slPct(), o.params().tpPct(), o.params().priceOffset(), o.result().summary()));
+    }
+}
@@ -0,0 +1,159 @@
+package nur.kg.rsibot.service;
+
+import nur.kg.cryptobot.metrics.MarketMeters;
+import nur.kg.domain.enums.Position;
+
+import java.nio.ByteBuffer;
+import java.time.Clock;
+
+// RSI state in double precision: seeding, Wilder smoothing and RS hysteresis with no per-tick garbage.
+// Against BigDecimal arithmetic at scale 10 (the former RsiState, now the benchmarks' baseline) RSI stays within
+// RSI_TOLERANCE and RS within RS_TOLERANCE (relative); the trend only differs when RS sits within RS_TOLERANCE of
+// RS_UP / RS_DOWN.
+public class DoubleRsiState {
+    public static final double RSI_TOLERANCE = 1e-6;
+    public static final double RS_TOLERANCE = 1e-8;
+
+    // derived from RS (avgGain / avgLoss) with hysteresis around 1
+    public enum Trend { UP, DOWN, FLAT }
+
+    final int period;
+    private final Clock clock;
+    boolean seeded = false;
+    boolean hasPrev = false;
+    double prevPrice;
+    double avgGain = 0.0;
+    double avgLoss = 0.0;
+
+    double prevRsi = 50.0;
+    double rsi = 50.0;
+
+    private Trend trend = Trend.FLAT;
+    private double rs = 1.0; // RS = avgGain / avgLoss
+
+    public Position pos = Position.NONE;
+    public long lastUpdate = 0L; // epoch millis
+
+    // Hysteresis thresholds to reduce noise
+    private static final double RS_UP = 1.05;
+    private static final double RS_DOWN = 0.95;
+    private static final double RS_NO_LOSS = 999999999.0; // sentinel large
+
+    int seedCount = 0;
+    long capturedEpoch; // snapshot epoch of the last capture(), processing thread only
+    MarketMeters meters; // bound by the service, not part of the image
+
+    private static final int IMAGE_SIZE = 4 + 2 + 4 + 6 * 8 + 2 + 8;
+
+    public DoubleRsiState(int period, Clock clock) {
+        this.period = period;
+        this.clock = clock;
+    }
+
+    public void update(double price) {
+        if (!hasPrev) {
+            prevPrice = price;
+            hasPrev = true;
+            return;
+        }
+
+        double change = price - prevPrice;
+        double gain = change > 0 ? change : 0.0;
+        double loss = change < 0 ? -change : 0.0;
+
+        if (!seeded) {
+            avgGain += gain;
+            avgLoss += loss;
+            seedCount++;
+            if (seedCount >= period) {
+                avgGain /= period;
+                avgLoss /= period;
+                seeded = true;
+                computeRsiAndTrend();
+            }
+        } else {
+            avgGain = (avgGain * (period - 1) + gain) / period;
+            avgLoss = (avgLoss * (period - 1) + loss) / period;
+            computeRsiAndTrend();
+        }
+
+        prevPrice = price;
+        lastUpdate = clock.millis();
+    }
+
+    private void computeRsiAndTrend() {
+        prevRsi = rsi;
+
+        if (avgLoss == 0.0) {
+            // no losses -> RS is infinite, RSI = 100, strong uptrend
+            rsi = 100.0;
+            rs = RS_NO_LOSS;
+            trend = Trend.UP;
+            return;
+        }
+
+        rs = avgGain / avgLoss;
+        rsi = 100.0 - 100.0 / (1.0 + rs);
+        trend = trendOf(rs);
+    }
+
+    // also applied to the shared Rsi indicator, whose no-loss RS uses the same sentinel
+    static Trend trendOf(double rs) {
+        if (rs > RS_UP) return Trend.UP;
+        if (rs < RS_DOWN) return Trend.DOWN;
+        return Trend.FLAT;
+    }
+
+    public boolean ready() {
+        return seeded;
+    }
+
+    public Trend trend() {
+        return trend;
+    }
+
+    public boolean isUptrend() {
+        return trend == Trend.UP;
+    }
+
+    public boolean isDowntrend() {
+        return trend == Trend.DOWN;
+    }
+
+    public double rs() {
+        return rs;
+    }
+
+    public double rsi() {
+        return rsi;
+    }
+
+    byte[] capture() {
+        ByteBuffer buf = ByteBuffer.allocate(IMAGE_SIZE);
+        buf.putInt(period).put((byte) (seeded ? 1 : 0)).put((byte) (hasPrev ? 1 : 0)).putInt(seedCount);
+        buf.putDouble(prevPrice).putDouble(avgGain).putDouble(avgLoss).putDouble(prevRsi).putDouble(rsi).putDouble(rs);
+        buf.put((byte) trend.ordinal()).put((byte) pos.ordinal()).putLong(lastUpdate);
+        return buf.array();
+    }
+
+    // averages are only meaningful for the period they were smoothed with
+    static DoubleRsiState restore(ByteBuffer image, int period, Clock clock) {
+        if (image.remaining() != IMAGE_SIZE) throw new IllegalArgumentException("Malformed state image");
+        int captured = image.getInt();
+        if (captured != period) throw new IllegalArgumentException("Captured period " + captured + " != " + period);
+        DoubleRsiState state = new DoubleRsiState(period, clock);
+        state.seeded = image.get() == 1;
+        state.hasPrev = image.get() == 1;
+        state.seedCount = image.getInt();
+        state.prevPrice = image.getDouble();
+        state.avgGain = image.getDouble();
+        state.avgLoss = image.getDouble();
+        state.prevRsi = image.getDouble();
+        state.rsi = image.getDouble();
+        state.rs = image.getDouble();
+        state.trend = Trend.values()[image.get()];
+        state.pos = Position.values()[image.get()];
+        state.lastUpdate = image.getLong();
+        return state;
+    }
+}
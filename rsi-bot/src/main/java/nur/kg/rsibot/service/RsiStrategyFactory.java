@@ -0,0 +1,23 @@
+package nur.kg.rsibot.service;
+
+import nur.kg.cryptobot.config.StrategySpec;
+import nur.kg.cryptobot.host.HostedStrategy;
+import nur.kg.cryptobot.host.StrategyContext;
+import nur.kg.cryptobot.host.StrategyFactory;
+import nur.kg.rsibot.config.BotProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+public class RsiStrategyFactory implements StrategyFactory {
+
+    @Override
+    public String type() {
+        return "rsi";
+    }
+
+    @Override
+    public HostedStrategy create(StrategySpec spec, StrategyContext context) {
+        return new RsiTrendService(spec.bind(BotProperties.class), context.metrics(), context.client(), context.pipeline(), context.clock())
+                .hostedBy(context);
+    }
+}
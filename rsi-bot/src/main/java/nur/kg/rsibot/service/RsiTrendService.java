@@ -2,9 +2,21 @@ package nur.kg.rsibot.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import nur.kg.cryptobot.client.InflightOrders;
 import nur.kg.cryptobot.client.MarketClient;
+import nur.kg.cryptobot.host.HostedStrategy;
+import nur.kg.cryptobot.host.HostedTick;
+import nur.kg.cryptobot.host.StrategyContext;
+import nur.kg.cryptobot.indicator.IndicatorLease;
+import nur.kg.cryptobot.indicator.IndicatorSnapshot;
+import nur.kg.cryptobot.indicator.IndicatorSpec;
+import nur.kg.cryptobot.indicator.Rsi;
+import nur.kg.cryptobot.market.MarketIds;
 import nur.kg.cryptobot.market.MarketService;
+import nur.kg.cryptobot.market.TickPipeline;
+import nur.kg.cryptobot.metrics.MarketMeters;
 import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.cryptobot.snapshot.SnapshotSource;
 import nur.kg.domain.dto.TickerDto;
 import nur.kg.domain.enums.OrderType;
 import nur.kg.domain.enums.Position;
@@ -12,81 +24,194 @@ import nur.kg.domain.enums.Side;
 import nur.kg.domain.enums.TradeAction;
 import nur.kg.domain.request.OrderRequest;
 import nur.kg.rsibot.config.BotProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
 @Log4j2
 @Service
 @RequiredArgsConstructor
-public class RsiTrendService implements MarketService {
+// in host mode instances are created per host.strategies entry by the strategy factory instead
+@ConditionalOnProperty(prefix = "host", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class RsiTrendService implements MarketService, SnapshotSource, HostedStrategy {
 
     private final BotProperties botProperties;
     private final MetricsService metricsService;
     private final MarketClient client;
+    private final TickPipeline pipeline;
+    private final Clock clock;
 
-    private final AtomicInteger inflight = new AtomicInteger();
-    private final Map<nur.kg.domain.enums.Symbol, RsiState> stateMap = new ConcurrentHashMap<>();
+    // at most one order per market in flight; repeated signals are dropped until it settles
+    private final InflightOrders inflightOrders = new InflightOrders();
+    // by MarketIds id; a market's slot is only touched from its pipeline shard, or by restore before ticks flow
+    private final DoubleRsiState[] states = new DoubleRsiState[MarketIds.COUNT];
+    private final Map<Integer, byte[]> captured = new ConcurrentHashMap<>();
+    private volatile long snapshotEpoch;
+    // hosted only: RSI shared through the registry and advanced by the host, not by this service; values are read
+    // from each tick's snapshot
+    private StrategyContext host;
+    private IndicatorSpec rsiSpec;
+
+    RsiTrendService hostedBy(StrategyContext host) {
+        this.host = host;
+        rsiSpec = IndicatorSpec.rsi(botProperties.period());
+        return this;
+    }
 
     private static final BigDecimal DEFAULT_QTY = new BigDecimal("0.001");
     private static final int PRICE_SCALE = 2;
 
-    private static final BigDecimal PRICE_OFFSET = new BigDecimal("0.001");
+    @Override
+    public Mono<Void> processMarket(Flux<TickerDto> ticks) {
+        return run(ticks
+                .doOnNext(t -> metricsService.marketMeters(MarketIds.of(t)).tickReceived())
+                .transform(t -> pipeline.dispatch(t, conflatable(), dto -> processSingle(dto, null, null))));
+    }
 
-    private static final BigDecimal SL_PCT = new BigDecimal("0.01");
-    private static final BigDecimal TP_PCT = new BigDecimal("0.02");
+    // a market is leased on its first tick of this run and released when the run ends. The leases belong to the run and
+    // not to the service: the host may start a run again, e.g. after a failure, while an earlier one is still winding
+    // down, and ending one must not release what another is still reading
+    @Override
+    public Mono<Void> processHosted(Flux<HostedTick> ticks) {
+        return Mono.defer(() -> {
+            IndicatorLease[] leases = new IndicatorLease[MarketIds.COUNT];
+            return run(ticks
+                    .doOnNext(h -> metricsService.marketMeters(MarketIds.of(h.tick())).tickReceived())
+                    .transform(t -> pipeline.dispatch(t, HostedTick::tick, conflatable(),
+                            h -> host.timed(() -> processSingle(h.tick(), h.indicators(), leases)))))
+                    .doFinally(s -> releaseIndicators(leases));
+        });
+    }
 
     @Override
-    public Mono<Void> processMarket(Flux<TickerDto> ticks) {
-        return ticks
-                .doOnNext(t -> metricsService.getTicksReceivedCounter(t.symbol()).increment())
-                .concatMap(this::processSingle)
+    public boolean conflatable() {
+        // the standalone RSI smooths every price change, a skipped tick would change its value, not only delay it
+        return false;
+    }
+
+    private Mono<Void> run(Flux<Void> processed) {
+        return processed
                 .then()
                 .doOnSubscribe(s -> log.info("Started market processing: trend-based (RS up/down, LIMIT orders)"))
                 .doOnError(e -> log.error("Market processing error", e))
                 .doOnTerminate(() -> log.info("Market processing terminated"));
     }
 
-    private Mono<Void> processSingle(TickerDto dto) {
-        if (dto == null || dto.last() == null) return Mono.empty();
+    @Override
+    public String snapshotName() {
+        return "rsi";
+    }
+
+    @Override
+    public void requestCapture() {
+        snapshotEpoch++;
+    }
+
+    @Override
+    public Map<Integer, byte[]> capturedStates() {
+        return captured;
+    }
 
-        metricsService.getPriceSummary(dto.symbol()).record(dto.last().doubleValue());
-        RsiState st = stateMap.computeIfAbsent(dto.symbol(), s -> new RsiState(14));
+    @Override
+    public void restoreState(int market, ByteBuffer image) {
+        DoubleRsiState st = DoubleRsiState.restore(image, botProperties.period(), clock);
+        st.meters = metricsService.marketMeters(market);
+        metricsService.registerInflightOrdersGauge(market, () -> inflightOrders.inflight(market));
+        states[market] = st;
+    }
 
-        st.update(dto.last());
+    // indicators is the host's snapshot for dto and leases the current run's, both null when this service keeps its
+    // own RSI
+    private Mono<Void> processSingle(TickerDto dto, IndicatorSnapshot indicators, IndicatorLease[] leases) {
+        if (dto == null || dto.last() == null) return Mono.empty();
 
-        if (!st.ready()) return Mono.empty();
+        int market = MarketIds.of(dto.exchange(), dto.symbol());
+        DoubleRsiState st = states[market];
+        if (st == null) {
+            st = new DoubleRsiState(botProperties.period(), clock);
+            st.meters = metricsService.marketMeters(market);
+            metricsService.registerInflightOrdersGauge(market, () -> inflightOrders.inflight(market));
+            states[market] = st;
+        }
+        st.meters.recordPrice(dto.last());
 
-        TradeAction action = pickAction(st);
+        DoubleRsiState.Trend trend;
+        double rs;
+        if (indicators != null) {
+            IndicatorLease lease = leases[market];
+            if (lease == null) {
+                // this tick's snapshot predates the lease, the RSI starts seeding from the next one
+                leases[market] = host.indicators().lease(market, List.of(rsiSpec));
+                return Mono.empty();
+            }
+            if (!indicators.ready(lease.specs())) return Mono.empty();
+            rs = indicators.<Rsi>get(rsiSpec).rs();
+            trend = DoubleRsiState.trendOf(rs);
+        } else {
+            st.update(dto.last().doubleValue());
+            long epoch = snapshotEpoch;
+            if (st.capturedEpoch != epoch) {
+                captured.put(market, st.capture());
+                st.capturedEpoch = epoch;
+            }
+            if (!st.ready()) return Mono.empty();
+            rs = st.rs();
+            trend = st.trend();
+        }
+
+        TradeAction action = pickAction(trend, st.pos);
 
         if (action == null) return Mono.empty();
 
-        return handleAction(dto, st, action);
+        return handleAction(dto, market, st, action, rs);
+    }
+
+    private static void releaseIndicators(IndicatorLease[] leases) {
+        for (int market = 0; market < leases.length; market++) {
+            IndicatorLease lease = leases[market];
+            if (lease == null) continue;
+            leases[market] = null;
+            lease.close();
+        }
     }
 
-    private TradeAction pickAction(RsiState st) {
-        if (st.isUptrend() && st.pos != Position.LONG) return TradeAction.OPEN_LONG;
-        if (st.isDowntrend() && st.pos != Position.SHORT) return TradeAction.OPEN_SHORT;
+    private TradeAction pickAction(DoubleRsiState.Trend trend, Position pos) {
+        if (trend == DoubleRsiState.Trend.UP && pos != Position.LONG) return TradeAction.OPEN_LONG;
+        if (trend == DoubleRsiState.Trend.DOWN && pos != Position.SHORT) return TradeAction.OPEN_SHORT;
         return null;
     }
 
-    private Mono<Void> handleAction(TickerDto dto, RsiState st, TradeAction action) {
+    private Mono<Void> handleAction(TickerDto dto, int market, DoubleRsiState st, TradeAction action, double rs) {
         switch (action) {
             case OPEN_LONG -> {
-                OrderRequest open = toLimitOrder(dto, Side.BUY, "trend_up_rs=" + st.rs());
-                return submit(dto, open).doOnSuccess(v -> st.pos = Position.LONG);
+                String id = acquireOrderId(market);
+                if (id == null) return Mono.empty();
+                log.debug("Trend up on {} rs={}", dto.symbol(), rs);
+                OrderRequest open = toLimitOrder(dto, Side.BUY, "trend_up", id);
+                return submit(market, open).doOnSuccess(v -> {
+                    st.pos = Position.LONG;
+                    recapture(market, st);
+                });
             }
             case OPEN_SHORT -> {
-                OrderRequest open = toLimitOrder(dto, Side.SELL, "trend_down_rs=" + st.rs());
-                return submit(dto, open).doOnSuccess(v -> st.pos = Position.SHORT);
+                String id = acquireOrderId(market);
+                if (id == null) return Mono.empty();
+                log.debug("Trend down on {} rs={}", dto.symbol(), rs);
+                OrderRequest open = toLimitOrder(dto, Side.SELL, "trend_down", id);
+                return submit(market, open).doOnSuccess(v -> {
+                    st.pos = Position.SHORT;
+                    recapture(market, st);
+                });
             }
             default -> {
                 return Mono.empty();
@@ -94,38 +219,49 @@ public class RsiTrendService implements MarketService {
         }
     }
 
-    private Mono<Void> submit(TickerDto dto, OrderRequest order) {
+    // the epoch's image predates the order's outcome; replaced so that a snapshot written before the next tick, the
+    // final one on shutdown among them, carries the new position
+    private void recapture(int market, DoubleRsiState st) {
+        if (captured.containsKey(market)) captured.put(market, st.capture());
+    }
+
+    // null while the market still has an order in flight
+    private String acquireOrderId(int market) {
+        String id = inflightOrders.acquire(market);
+        if (id == null) metricsService.getOrdersSuppressedCounter(market).increment();
+        return id;
+    }
+
+    private Mono<Void> submit(int market, OrderRequest order) {
         return Mono.defer(() -> {
-            metricsService.getOrdersSubmittedCounter(dto.symbol()).increment();
-            inflight.incrementAndGet();
+            metricsService.getOrdersSubmittedCounter(market).increment();
             long start = System.nanoTime();
             log.info("Submitting order {} {} {} qty={} limit={} tp={} sl={}",
                     order.id(), order.symbol(), order.side(), order.qty(), order.limitPrice(), order.tp(), order.sl());
 
-            return client.processOrder(order)
+            return inflightOrders.track(market, order, client::processOrder)
                     .doOnSuccess(v -> {
                         long elapsed = System.nanoTime() - start;
-                        metricsService.getOrderProcessingTimer(dto.symbol()).record(elapsed, TimeUnit.NANOSECONDS);
+                        metricsService.getOrderProcessingTimer(market).record(elapsed, TimeUnit.NANOSECONDS);
                         log.info("Order {} OK {}", order.id(), order.symbol());
                     })
                     .doOnError(e -> {
-                        metricsService.getOrdersFailedCounter(dto.symbol()).increment();
+                        metricsService.getOrdersFailedCounter(market).increment();
                         long elapsed = System.nanoTime() - start;
-                        metricsService.getOrderProcessingTimer(dto.symbol()).record(elapsed, TimeUnit.NANOSECONDS);
+                        metricsService.getOrderProcessingTimer(market).record(elapsed, TimeUnit.NANOSECONDS);
                         log.warn("Order {} failed {}: {}", order.id(), order.symbol(), e.toString());
                     })
                     .onErrorResume(e -> Mono.empty())
-                    .then()
-                    .doFinally(sig -> inflight.decrementAndGet());
+                    .then();
         });
     }
 
-    private OrderRequest toLimitOrder(TickerDto dto, Side side, String reason) {
+    OrderRequest toLimitOrder(TickerDto dto, Side side, String reason, String id) {
         BigDecimal last = dto.last() == null ? BigDecimal.ZERO : dto.last();
 
         BigDecimal rawLimitPrice = side == Side.BUY
-                ? last.multiply(BigDecimal.ONE.subtract(PRICE_OFFSET))
-                : last.multiply(BigDecimal.ONE.add(PRICE_OFFSET));
+                ? last.multiply(BigDecimal.ONE.subtract(botProperties.priceOffset()))
+                : last.multiply(BigDecimal.ONE.add(botProperties.priceOffset()));
 
         BigDecimal limitPrice = rawLimitPrice.setScale(PRICE_SCALE, RoundingMode.DOWN);
 
@@ -134,26 +270,26 @@ public class RsiTrendService implements MarketService {
 
         if (side == Side.BUY) {
             tpPrice = limitPrice
-                    .multiply(BigDecimal.ONE.add(TP_PCT))
+                    .multiply(BigDecimal.ONE.add(botProperties.tpPct()))
                     .setScale(PRICE_SCALE, RoundingMode.DOWN);
 
             slPrice = limitPrice
-                    .multiply(BigDecimal.ONE.subtract(SL_PCT))
+                    .multiply(BigDecimal.ONE.subtract(botProperties.slPct()))
                     .setScale(PRICE_SCALE, RoundingMode.DOWN);
         } else {
             BigDecimal base = last.max(limitPrice);
 
             tpPrice = base
-                    .multiply(BigDecimal.ONE.subtract(TP_PCT))
+                    .multiply(BigDecimal.ONE.subtract(botProperties.tpPct()))
                     .setScale(PRICE_SCALE, RoundingMode.DOWN);
 
             slPrice = base
-                    .multiply(BigDecimal.ONE.add(SL_PCT))
+                    .multiply(BigDecimal.ONE.add(botProperties.slPct()))
                     .setScale(PRICE_SCALE, RoundingMode.UP);
         }
 
         return OrderRequest.builder()
-                .id(UUID.randomUUID().toString())
+                .id(id)
                 .symbol(dto.symbol())
                 .side(side)
                 .type(OrderType.LIMIT)
@@ -161,7 +297,7 @@ public class RsiTrendService implements MarketService {
                 .limitPrice(limitPrice)
                 .tp(tpPrice)
                 .sl(slPrice)
-                .reason(reason + "_@limit_" + limitPrice + "_tp_" + tpPrice + "_sl_" + slPrice)
+                .reason(reason)
                 .exchange(dto.exchange())
                 .botId(botProperties.id())
                 .build();
@@ -0,0 +1,79 @@
+package nur.kg.rsibot.service;
+
+import nur.kg.cryptobot.indicator.IndicatorLease;
+import nur.kg.cryptobot.indicator.IndicatorRegistry;
+import nur.kg.cryptobot.indicator.IndicatorSpec;
+import nur.kg.cryptobot.market.MarketIds;
+import nur.kg.cryptobot.indicator.Rsi;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Position;
+import nur.kg.domain.enums.Symbol;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DoubleRsiStateTest {
+
+    @Test
+    void noLossesMeansStrongUptrend() {
+        DoubleRsiState state = new DoubleRsiState(3, Clock.systemUTC());
+        for (int i = 0; i < 5; i++) state.update(100 + i);
+
+        assertTrue(state.ready());
+        assertEquals(100.0, state.rsi());
+        assertEquals(DoubleRsiState.Trend.UP, state.trend());
+    }
+
+    @Test
+    void restoredStateContinuesLikeTheOriginal() {
+        Random random = new Random(3);
+        DoubleRsiState original = new DoubleRsiState(14, Clock.systemUTC());
+        for (int i = 0; i < 100; i++) original.update(100 + random.nextGaussian());
+        original.pos = Position.SHORT;
+
+        byte[] image = original.capture();
+        DoubleRsiState restored = DoubleRsiState.restore(ByteBuffer.wrap(image), 14, Clock.systemUTC());
+        assertEquals(Position.SHORT, restored.pos);
+        assertEquals(original.lastUpdate, restored.lastUpdate);
+        for (int i = 0; i < 100; i++) {
+            double price = 100 + random.nextGaussian();
+            original.update(price);
+            restored.update(price);
+            assertEquals(original.rsi(), restored.rsi());
+            assertEquals(original.trend(), restored.trend());
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> DoubleRsiState.restore(ByteBuffer.wrap(image), 7, Clock.systemUTC()));
+    }
+
+    @Test
+    void sharedRsiIndicatorMatchesExactly() {
+        IndicatorRegistry registry = new IndicatorRegistry();
+        Symbol symbol = Symbol.values()[0];
+        IndicatorLease lease = registry.lease(MarketIds.of(null, symbol), List.of(IndicatorSpec.rsi(14)));
+        DoubleRsiState own = new DoubleRsiState(14, Clock.systemUTC());
+
+        Random random = new Random(11);
+        BigDecimal price = new BigDecimal("65000.00");
+        for (int i = 0; i < 10_000; i++) {
+            price = price.add(BigDecimal.valueOf(random.nextInt(2001) - 1000, 2));
+            own.update(price.doubleValue());
+            registry.onTick(TickerDto.builder().symbol(symbol).last(price).build());
+
+            Rsi shared = lease.get(IndicatorSpec.rsi(14));
+            assertEquals(own.ready(), shared.ready());
+            if (!own.ready()) continue;
+            assertEquals(own.rs(), shared.rs());
+            assertEquals(own.rsi(), shared.rsi());
+            assertEquals(own.trend(), DoubleRsiState.trendOf(shared.rs()));
+        }
+    }
+}
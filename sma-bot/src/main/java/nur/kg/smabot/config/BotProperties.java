@@ -1,7 +1,17 @@
 package nur.kg.smabot.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
 
 @ConfigurationProperties(prefix = "bot")
-public record BotProperties(String id) {
+public record BotProperties(
+        String id,
+        @DefaultValue("20") int shortWindow,
+        @DefaultValue("100") int longWindow
+) {
+    public BotProperties {
+        if (shortWindow < 1 || longWindow <= shortWindow) {
+            throw new IllegalArgumentException("bot windows must satisfy 0 < short-window < long-window");
+        }
+    }
 }
@@ -0,0 +1,38 @@
+package nur.kg.smabot.replay;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nur.kg.cryptobot.market.TickPipeline;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.cryptobot.replay.ReplayEngine;
+import nur.kg.cryptobot.replay.ReplayResult;
+import nur.kg.cryptobot.replay.ReplayTape;
+import nur.kg.smabot.config.BotProperties;
+import nur.kg.smabot.service.SmaMarketService;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Replays one or more tick journal directories through SmaMarketService, one run per journal and symbol.
+// Usage: SmaReplay <journal-dir>...
+public final class SmaReplay {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: SmaReplay <journal-dir>...");
+            System.exit(2);
+        }
+
+        ReplayEngine.quietLogging();
+        List<ReplayTape> tapes = new ArrayList<>();
+        for (String dir : args) tapes.addAll(ReplayTape.fromJournal(Path.of(dir)).byMarket().values());
+
+        MetricsService metrics = new MetricsService(new SimpleMeterRegistry());
+        TickPipeline pipeline = ReplayEngine.serialPipeline(metrics);
+        BotProperties bot = new BotProperties("sma-replay", 20, 100);
+
+        List<ReplayResult> results = new ReplayEngine(Runtime.getRuntime().availableProcessors())
+                .run(tapes, (client, clock) -> new SmaMarketService(bot, metrics, client, pipeline, clock));
+        results.forEach(r -> System.out.println(r.summary()));
+    }
+}
@@ -0,0 +1,55 @@
+package nur.kg.smabot.replay;
+
+import nur.kg.cryptobot.market.TickPipeline;
+import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.cryptobot.replay.ParameterSweep;
+import nur.kg.cryptobot.replay.ReplayEngine;
+import nur.kg.cryptobot.replay.ReplayTape;
+import nur.kg.smabot.config.BotProperties;
+import nur.kg.smabot.service.SmaMarketService;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Grid search over the SMA windows.
+// Usage: SmaSweep <journal-dir> [--short=from:to:step] [--long=from:to:step] [--top=n] [--threads=n]
+public final class SmaSweep {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: SmaSweep <journal-dir> [--short=5:50:5] [--long=50:300:25] [--top=20] [--threads=n]");
+            System.exit(2);
+        }
+        Map<String, String> opts = Stream.of(args).skip(1).filter(a -> a.startsWith("--") && a.contains("="))
+                .collect(Collectors.toMap(a -> a.substring(2, a.indexOf('=')), a -> a.substring(a.indexOf('=') + 1)));
+
+        ReplayEngine.quietLogging();
+        List<ReplayTape> tapes = List.copyOf(ReplayTape.fromJournal(Path.of(args[0])).byMarket().values());
+
+        List<BotProperties> grid = new ArrayList<>();
+        for (int s : ParameterSweep.intRange(opts.getOrDefault("short", "5:50:5"))) {
+            for (int l : ParameterSweep.intRange(opts.getOrDefault("long", "50:300:25"))) {
+                if (s > 0 && l > s) grid.add(new BotProperties("sma-sweep", s, l));
+            }
+        }
+
+        MetricsService metrics = ParameterSweep.discardingMetrics();
+        TickPipeline pipeline = ReplayEngine.serialPipeline(metrics);
+        int threads = Integer.parseInt(opts.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        long start = System.nanoTime();
+        List<ParameterSweep.Outcome<BotProperties>> ranked = new ParameterSweep(threads)
+                .run(grid, tapes, (params, client, clock) -> new SmaMarketService(params, metrics, client, pipeline, clock));
+        long elapsed = System.nanoTime() - start;
+
+        long ticks = tapes.stream().mapToLong(ReplayTape::size).sum() * grid.size();
+        System.out.printf("%d combinations x %d tapes, %,d ticks replayed in %.1fs (%,.0f ticks/s)%n",
+                grid.size(), tapes.size(), ticks, elapsed / 1e9, ticks * 1e9 / elapsed);
+        ranked.stream().limit(Integer.parseInt(opts.getOrDefault("top", "20")))
+                .forEach(o -> System.out.printf("short=%-4d long=%-4d %s%n", o.params().shortWindow(), o.params().longWindow(), o.result().summary()));
+    }
+}
@@ -0,0 +1,119 @@
+package nur.kg.smabot.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import nur.kg.cryptobot.market.FixedPoint;
+import nur.kg.cryptobot.metrics.MarketMeters;
+import nur.kg.domain.enums.Position;
+
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Duration;
+
+// Primitive counterpart of MarketState, the BigDecimal windows now kept as the benchmarks' baseline: FixedPoint
+// prices in one preallocated ring sized to the larger window, with a running sum per window. update() allocates
+// nothing. Averages are rounded to the most decimals any price came with, as MarketState's BigDecimal sums are, so
+// both reach the same decisions.
+public class FixedPointMarketState {
+    private final long[] prices;
+    private final int shortSize;
+    private final int longSize;
+    private int next;
+    private int count;
+    private long shortSum;
+    private long longSum;
+    private int scale;
+    private static final long COOLDOWN_MILLIS = Duration.ofSeconds(15).toMillis();
+    private final Clock clock;
+
+    @Getter
+    @Setter
+    private Position position = Position.NONE;
+    private long lastActionAt = 0L; // epoch millis
+    long capturedEpoch; // snapshot epoch of the last capture(), processing thread only
+    MarketMeters meters; // bound by the service, not part of the image
+
+    FixedPointMarketState(int shortSize, int longSize, Clock clock) {
+        if (shortSize <= 0 || longSize <= 0) {
+            throw new IllegalArgumentException("Window sizes must be positive: " + shortSize + "/" + longSize);
+        }
+        this.shortSize = shortSize;
+        this.longSize = longSize;
+        this.prices = new long[Math.max(shortSize, longSize)];
+        this.clock = clock;
+    }
+
+    // scale is the number of decimals the price carried before it was converted to FixedPoint
+    void update(long price, int scale) {
+        widenScale(scale);
+        if (count >= shortSize) shortSum -= prices[indexBack(shortSize)];
+        if (count >= longSize) longSum -= prices[indexBack(longSize)];
+
+        prices[next] = price;
+        shortSum += price;
+        longSum += price;
+
+        if (++next == prices.length) next = 0;
+        if (count < prices.length) count++;
+    }
+
+    // a price already known to need all FixedPoint.SCALE decimals
+    void update(long price) {
+        update(price, FixedPoint.SCALE);
+    }
+
+    // averages round to the widest scale seen, never beyond FixedPoint.SCALE
+    void widenScale(int scale) {
+        if (scale > this.scale) this.scale = Math.min(scale, FixedPoint.SCALE);
+    }
+
+    int scale() {
+        return scale;
+    }
+
+    private int indexBack(int distance) {
+        int i = next - distance;
+        return i < 0 ? i + prices.length : i;
+    }
+
+    boolean ready() {
+        return count >= shortSize && count >= longSize;
+    }
+
+    long shortAverage() {
+        return FixedPoint.average(shortSum, Math.min(count, shortSize), scale);
+    }
+
+    long longAverage() {
+        return FixedPoint.average(longSum, Math.min(count, longSize), scale);
+    }
+
+    boolean cooldownDone() {
+        return clock.millis() > lastActionAt + COOLDOWN_MILLIS;
+    }
+
+    void markAction() {
+        lastActionAt = clock.millis();
+    }
+
+    // position, price scale, last action time and the window prices oldest first; sums are rebuilt on restore
+    byte[] capture() {
+        ByteBuffer buf = ByteBuffer.allocate(1 + 1 + 8 + 4 + count * 8);
+        buf.put((byte) position.ordinal()).put((byte) scale).putLong(lastActionAt).putInt(count);
+        for (int i = count; i > 0; i--) buf.putLong(prices[indexBack(i)]);
+        return buf.array();
+    }
+
+    // window sizes may differ from the captured ones, the newest prices that fit are kept
+    static FixedPointMarketState restore(ByteBuffer image, int shortSize, int longSize, Clock clock) {
+        FixedPointMarketState state = new FixedPointMarketState(shortSize, longSize, clock);
+        state.position = Position.values()[image.get()];
+        int scale = image.get();
+        state.lastActionAt = image.getLong();
+        int count = image.getInt();
+        if (count < 0 || image.remaining() != count * 8) throw new IllegalArgumentException("Malformed state image");
+        for (int i = Math.max(0, count - state.prices.length); i > 0; i--) image.getLong();
+        while (image.hasRemaining()) state.update(image.getLong(), scale);
+        return state;
+    }
+}
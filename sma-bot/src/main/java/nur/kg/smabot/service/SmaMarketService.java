@@ -2,151 +2,288 @@ package nur.kg.smabot.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import nur.kg.cryptobot.client.InflightOrders;
 import nur.kg.cryptobot.client.MarketClient;
+import nur.kg.cryptobot.host.HostedStrategy;
+import nur.kg.cryptobot.host.HostedTick;
+import nur.kg.cryptobot.host.StrategyContext;
+import nur.kg.cryptobot.indicator.IndicatorLease;
+import nur.kg.cryptobot.indicator.IndicatorSnapshot;
+import nur.kg.cryptobot.indicator.IndicatorSpec;
+import nur.kg.cryptobot.indicator.Sma;
+import nur.kg.cryptobot.market.FixedPoint;
+import nur.kg.cryptobot.market.MarketIds;
 import nur.kg.cryptobot.market.MarketService;
+import nur.kg.cryptobot.market.TickPipeline;
+import nur.kg.cryptobot.metrics.MarketMeters;
 import nur.kg.cryptobot.metrics.MetricsService;
+import nur.kg.cryptobot.snapshot.SnapshotSource;
 import nur.kg.domain.dto.TickerDto;
 import nur.kg.domain.enums.*;
 import nur.kg.domain.request.OrderRequest;
 import nur.kg.smabot.config.BotProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
 @Log4j2
 @Service
 @RequiredArgsConstructor
-public class SmaMarketService implements MarketService {
+// in host mode instances are created per host.strategies entry by the strategy factory instead
+@ConditionalOnProperty(prefix = "host", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class SmaMarketService implements MarketService, SnapshotSource, HostedStrategy {
+
+    private static final BigDecimal QTY = new BigDecimal("0.001");
+    private static final BigDecimal SL_DELTA = new BigDecimal("0.5");
+    private static final BigDecimal TP_DELTA = SL_DELTA.multiply(BigDecimal.valueOf(4));
 
     private final BotProperties botProperties;
     private final MetricsService metricsService;
     private final MarketClient client;
+    private final TickPipeline pipeline;
+    private final Clock clock;
 
-    private final AtomicInteger inflight = new AtomicInteger();
-    private final Map<Symbol, MarketState> stateMap = new ConcurrentHashMap<>();
+    // at most one order per market in flight; repeated signals are dropped until it settles
+    private final InflightOrders inflightOrders = new InflightOrders();
+    // by MarketIds id; a market's slot is only touched from its pipeline shard, or by restore before ticks flow
+    private final FixedPointMarketState[] states = new FixedPointMarketState[MarketIds.COUNT];
+    private final Map<Integer, byte[]> captured = new ConcurrentHashMap<>();
+    private volatile long snapshotEpoch;
+    // hosted only: windows shared through the registry and advanced by the host, not by this service; values are read
+    // from each tick's snapshot
+    private StrategyContext host;
+    private IndicatorSpec shortSpec;
+    private IndicatorSpec longSpec;
 
-    private static final int SHORT_WINDOW = 20;
-    private static final int LONG_WINDOW = 100;
+    SmaMarketService hostedBy(StrategyContext host) {
+        this.host = host;
+        shortSpec = IndicatorSpec.sma(botProperties.shortWindow());
+        longSpec = IndicatorSpec.sma(botProperties.longWindow());
+        return this;
+    }
 
     @Override
     public Mono<Void> processMarket(Flux<TickerDto> ticks) {
 
-        return ticks
-                .doOnNext(t -> metricsService.getTicksReceivedCounter(t.symbol()).increment())
-                .concatMap(this::processSingle)
+        return run(ticks
+                .doOnNext(t -> metricsService.marketMeters(MarketIds.of(t)).tickReceived())
+                .transform(t -> pipeline.dispatch(t, conflatable(), dto -> processSingle(dto, null, null))));
+    }
+
+    // a market is leased on its first tick of this run and released when the run ends. The leases belong to the run and
+    // not to the service: the host may start a run again, e.g. after a failure, while an earlier one is still winding
+    // down, and ending one must not release what another is still reading
+    @Override
+    public Mono<Void> processHosted(Flux<HostedTick> ticks) {
+        return Mono.defer(() -> {
+            IndicatorLease[] leases = new IndicatorLease[MarketIds.COUNT];
+            return run(ticks
+                    .doOnNext(h -> metricsService.marketMeters(MarketIds.of(h.tick())).tickReceived())
+                    .transform(t -> pipeline.dispatch(t, HostedTick::tick, conflatable(),
+                            h -> host.timed(() -> processSingle(h.tick(), h.indicators(), leases)))))
+                    .doFinally(s -> releaseIndicators(leases));
+        });
+    }
+
+    private Mono<Void> run(Flux<Void> processed) {
+        return processed
                 .then()
                 .doOnSubscribe(s -> log.info("Started market processing"))
                 .doOnError(e -> log.error("Market processing error", e))
                 .doOnTerminate(() -> log.info("Market processing terminated"));
     }
 
-    private Mono<Void> processSingle(TickerDto dto) {
-        if (dto == null || dto.last() == null) return Mono.empty();
+    @Override
+    public boolean conflatable() {
+        // the windows count ticks, dropping any would change the averages
+        return false;
+    }
 
-        metricsService.getPriceSummary(dto.symbol()).record(dto.last().doubleValue());
-        MarketState state = stateMap.computeIfAbsent(dto.symbol(), s -> new MarketState(SHORT_WINDOW, LONG_WINDOW));
+    @Override
+    public String snapshotName() {
+        return "sma";
+    }
 
-        state.update(dto.last());
-        if (!state.ready()) return Mono.empty();
+    @Override
+    public void requestCapture() {
+        snapshotEpoch++;
+    }
 
-        BigDecimal shortAvg = state.shortAverage();
-        BigDecimal longAvg = state.longAverage();
+    @Override
+    public Map<Integer, byte[]> capturedStates() {
+        return captured;
+    }
+
+    @Override
+    public void restoreState(int market, ByteBuffer image) {
+        FixedPointMarketState state = FixedPointMarketState.restore(image, botProperties.shortWindow(), botProperties.longWindow(), clock);
+        state.meters = metricsService.marketMeters(market);
+        metricsService.registerInflightOrdersGauge(market, () -> inflightOrders.inflight(market));
+        states[market] = state;
+    }
+
+    // indicators is the host's snapshot for dto and leases the current run's, both null when this service keeps its
+    // own windows
+    private Mono<Void> processSingle(TickerDto dto, IndicatorSnapshot indicators, IndicatorLease[] leases) {
+        if (dto == null || dto.last() == null) return Mono.empty();
+
+        int market = MarketIds.of(dto.exchange(), dto.symbol());
+        FixedPointMarketState state = states[market];
+        if (state == null) {
+            state = new FixedPointMarketState(botProperties.shortWindow(), botProperties.longWindow(), clock);
+            state.meters = metricsService.marketMeters(market);
+            metricsService.registerInflightOrdersGauge(market, () -> inflightOrders.inflight(market));
+            states[market] = state;
+        }
+        state.meters.recordPrice(dto.last());
+
+        long shortAvg;
+        long longAvg;
+        if (indicators != null) {
+            IndicatorLease lease = leases[market];
+            if (lease == null) {
+                // this tick's snapshot predates the lease, the windows start filling from the next one
+                leases[market] = host.indicators().lease(market, List.of(shortSpec, longSpec));
+                return Mono.empty();
+            }
+            state.widenScale(dto.last().scale());
+            if (!indicators.ready(lease.specs())) return Mono.empty();
+            shortAvg = indicators.<Sma>get(shortSpec).average(state.scale());
+            longAvg = indicators.<Sma>get(longSpec).average(state.scale());
+        } else {
+            state.update(FixedPoint.toScaled(dto.last()), dto.last().scale());
+            long epoch = snapshotEpoch;
+            if (state.capturedEpoch != epoch) {
+                captured.put(market, state.capture());
+                state.capturedEpoch = epoch;
+            }
+            if (!state.ready()) return Mono.empty();
+            shortAvg = state.shortAverage();
+            longAvg = state.longAverage();
+        }
 
         TradeAction signal = getTradeAction(shortAvg, longAvg, state);
         if (signal == null) return Mono.empty();
-        return handleSignal(dto, state, signal);
+        return handleSignal(dto, market, state, signal);
 
     }
 
-    private static TradeAction getTradeAction(BigDecimal shortAvg, BigDecimal longAvg, MarketState state) {
+    private static void releaseIndicators(IndicatorLease[] leases) {
+        for (int market = 0; market < leases.length; market++) {
+            IndicatorLease lease = leases[market];
+            if (lease == null) continue;
+            leases[market] = null;
+            lease.close();
+        }
+    }
+
+    private static TradeAction getTradeAction(long shortAvg, long longAvg, FixedPointMarketState state) {
         if (state.getPosition() != Position.NONE) return null;
-        int cmp = shortAvg.compareTo(longAvg);
+        int cmp = Long.compare(shortAvg, longAvg);
         if (cmp > 0) return TradeAction.OPEN_LONG;
         if (cmp < 0) return TradeAction.OPEN_SHORT;
         return null;
     }
 
-    private Mono<Void> handleSignal(TickerDto dto, MarketState state, TradeAction signal) {
+    private Mono<Void> handleSignal(TickerDto dto, int market, FixedPointMarketState state, TradeAction signal) {
         switch (signal) {
             case OPEN_LONG -> {
-                OrderRequest open = toOpenRequestWithBracket(dto, Side.BUY, "open_long");
-                return submitOrder(dto, open)
-                        .doOnSuccess(v -> state.setPosition(Position.LONG));
+                String id = acquireOrderId(market);
+                if (id == null) return Mono.empty();
+                OrderRequest open = toOpenRequestWithBracket(dto, Side.BUY, "open_long", id);
+                return submitOrder(market, open)
+                        .doOnSuccess(v -> {
+                            state.setPosition(Position.LONG);
+                            recapture(market, state);
+                        });
             }
             case OPEN_SHORT -> {
-                OrderRequest open = toOpenRequestWithBracket(dto, Side.SELL, "open_short");
-                return submitOrder(dto, open)
-                        .doOnSuccess(v -> state.setPosition(Position.SHORT));
+                String id = acquireOrderId(market);
+                if (id == null) return Mono.empty();
+                OrderRequest open = toOpenRequestWithBracket(dto, Side.SELL, "open_short", id);
+                return submitOrder(market, open)
+                        .doOnSuccess(v -> {
+                            state.setPosition(Position.SHORT);
+                            recapture(market, state);
+                        });
             }
         }
         return Mono.empty();
     }
 
-    private Mono<Void> submitOrder(TickerDto dto, OrderRequest order) {
+    // this epoch's image was taken before the tick's signal was handled; without a fresh one a snapshot written before
+    // the market's next tick, the final one on shutdown included, would lose the position just taken
+    private void recapture(int market, FixedPointMarketState state) {
+        if (captured.containsKey(market)) captured.put(market, state.capture());
+    }
+
+    // null while the market still has an order in flight
+    private String acquireOrderId(int market) {
+        String id = inflightOrders.acquire(market);
+        if (id == null) metricsService.getOrdersSuppressedCounter(market).increment();
+        return id;
+    }
+
+    private Mono<Void> submitOrder(int market, OrderRequest order) {
         return Mono.defer(() -> {
             log.info("Submitting order {} for {} {} qty={} (reason: {}) TP={} SL={} type={}",
                     order.id(), order.symbol(), order.side(), order.qty(), order.reason(),
                     order.tp(), order.sl(), order.type());
 
-            metricsService.getOrdersSubmittedCounter(dto.symbol()).increment();
-            inflight.incrementAndGet();
+            metricsService.getOrdersSubmittedCounter(market).increment();
             long start = System.nanoTime();
 
-            return client.processOrder(order)
+            return inflightOrders.track(market, order, client::processOrder)
                     .doOnSuccess(v -> {
                         long elapsed = System.nanoTime() - start;
-                        metricsService.getOrderProcessingTimer(dto.symbol()).record(elapsed, TimeUnit.NANOSECONDS);
+                        metricsService.getOrderProcessingTimer(market).record(elapsed, TimeUnit.NANOSECONDS);
                         log.info("Order {} success for {} {}", order.id(), order.symbol(), order.side());
                     })
                     .doOnError(e -> {
-                        metricsService.getOrdersFailedCounter(dto.symbol()).increment();
+                        metricsService.getOrdersFailedCounter(market).increment();
                         long elapsed = System.nanoTime() - start;
-                        metricsService.getOrderProcessingTimer(dto.symbol()).record(elapsed, TimeUnit.NANOSECONDS);
+                        metricsService.getOrderProcessingTimer(market).record(elapsed, TimeUnit.NANOSECONDS);
                         log.warn("Order {} failed for {}: {}", order.id(), order.symbol(), e.toString());
                     })
-                    .onErrorResume(e -> Mono.empty())
-                    .doFinally(sig -> inflight.decrementAndGet());
+                    .onErrorResume(e -> Mono.empty());
         });
     }
 
-    private OrderRequest toOpenRequestWithBracket(TickerDto dto, Side side, String reason) {
+    OrderRequest toOpenRequestWithBracket(TickerDto dto, Side side, String reason, String id) {
         final Symbol symbol = dto.symbol();
         final int priceScale = 4;
 
         BigDecimal last = dto.last();
         if (last == null) last = BigDecimal.ZERO;
 
-        BigDecimal qty = new BigDecimal("0.001");
-
-        BigDecimal slDelta = new BigDecimal("0.5");
-        BigDecimal tpDelta = slDelta.multiply(new BigDecimal("4"));
-
         BigDecimal tp, sl;
         if (side == Side.BUY) {
-            tp = last.add(tpDelta);
-            sl = last.subtract(slDelta);
+            tp = last.add(TP_DELTA);
+            sl = last.subtract(SL_DELTA);
         } else {
-            tp = last.subtract(tpDelta);
-            sl = last.add(slDelta);
+            tp = last.subtract(TP_DELTA);
+            sl = last.add(SL_DELTA);
         }
 
         tp = tp.setScale(priceScale, RoundingMode.HALF_UP);
         sl = sl.setScale(priceScale, RoundingMode.HALF_UP);
 
         return OrderRequest.builder()
-                .id(UUID.randomUUID().toString())
+                .id(id)
                 .symbol(symbol)
                 .side(side)
                 .type(OrderType.LIMIT)
-                .qty(qty)
+                .qty(QTY)
                 .limitPrice(null)
                 .reason(reason)
                 .exchange(dto.exchange())
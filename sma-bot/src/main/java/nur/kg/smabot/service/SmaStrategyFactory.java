@@ -0,0 +1,23 @@
+package nur.kg.smabot.service;
+
+import nur.kg.cryptobot.config.StrategySpec;
+import nur.kg.cryptobot.host.HostedStrategy;
+import nur.kg.cryptobot.host.StrategyContext;
+import nur.kg.cryptobot.host.StrategyFactory;
+import nur.kg.smabot.config.BotProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SmaStrategyFactory implements StrategyFactory {
+
+    @Override
+    public String type() {
+        return "sma";
+    }
+
+    @Override
+    public HostedStrategy create(StrategySpec spec, StrategyContext context) {
+        return new SmaMarketService(spec.bind(BotProperties.class), context.metrics(), context.client(), context.pipeline(), context.clock())
+                .hostedBy(context);
+    }
+}
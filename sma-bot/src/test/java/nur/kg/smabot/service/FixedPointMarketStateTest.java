@@ -0,0 +1,103 @@
+package nur.kg.smabot.service;
+
+import nur.kg.cryptobot.indicator.IndicatorLease;
+import nur.kg.cryptobot.indicator.IndicatorRegistry;
+import nur.kg.cryptobot.indicator.IndicatorSpec;
+import nur.kg.cryptobot.market.MarketIds;
+import nur.kg.cryptobot.indicator.Sma;
+import nur.kg.cryptobot.market.FixedPoint;
+import nur.kg.domain.dto.TickerDto;
+import nur.kg.domain.enums.Position;
+import nur.kg.domain.enums.Symbol;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FixedPointMarketStateTest {
+
+    @Test
+    void sharedSmaIndicatorsMatchExactly() {
+        IndicatorRegistry registry = new IndicatorRegistry();
+        Symbol symbol = Symbol.values()[0];
+        IndicatorLease lease = registry.lease(MarketIds.of(null, symbol), List.of(IndicatorSpec.sma(20), IndicatorSpec.sma(100)));
+        FixedPointMarketState own = new FixedPointMarketState(20, 100, Clock.systemUTC());
+
+        Random random = new Random(5);
+        BigDecimal price = new BigDecimal("65000.00");
+        for (int i = 0; i < 10_000; i++) {
+            price = price.add(BigDecimal.valueOf(random.nextInt(2001) - 1000, 2));
+            own.update(FixedPoint.toScaled(price));
+            registry.onTick(TickerDto.builder().symbol(symbol).last(price).build());
+
+            assertEquals(own.ready(), lease.ready());
+            if (!own.ready()) continue;
+            assertEquals(own.shortAverage(), lease.<Sma>get(IndicatorSpec.sma(20)).average());
+            assertEquals(own.longAverage(), lease.<Sma>get(IndicatorSpec.sma(100)).average());
+        }
+    }
+
+    @Test
+    void updateDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        FixedPointMarketState state = new FixedPointMarketState(20, 100, Clock.systemUTC());
+        long price = 65_000 * FixedPoint.ONE;
+        for (int i = 0; i < 100_000; i++) state.update(price + i);
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        long acc = 0;
+        for (int i = 0; i < 1_000_000; i++) {
+            state.update(price + (i & 1023));
+            acc += state.shortAverage() - state.longAverage();
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertTrue(allocated < 1024, "allocated " + allocated + " bytes (acc=" + acc + ")");
+    }
+
+    @Test
+    void restoredStateContinuesLikeTheOriginal() {
+        FixedPointMarketState original = new FixedPointMarketState(5, 12, Clock.systemUTC());
+        for (int i = 0; i < 30; i++) original.update((100 + i * 7 % 11) * FixedPoint.ONE);
+        original.setPosition(Position.LONG);
+
+        FixedPointMarketState restored = FixedPointMarketState.restore(ByteBuffer.wrap(original.capture()), 5, 12, Clock.systemUTC());
+        assertEquals(Position.LONG, restored.getPosition());
+        assertTrue(restored.ready());
+        for (int i = 0; i < 30; i++) {
+            long price = (90 + i * 3 % 13) * FixedPoint.ONE;
+            original.update(price);
+            restored.update(price);
+            assertEquals(original.shortAverage(), restored.shortAverage());
+            assertEquals(original.longAverage(), restored.longAverage());
+        }
+
+        FixedPointMarketState narrower = FixedPointMarketState.restore(ByteBuffer.wrap(original.capture()), 3, 6, Clock.systemUTC());
+        FixedPointMarketState fresh = new FixedPointMarketState(3, 6, Clock.systemUTC());
+        byte[] image = original.capture();
+        ByteBuffer prices = ByteBuffer.wrap(image, 14, image.length - 14);
+        while (prices.hasRemaining()) fresh.update(prices.getLong());
+        assertEquals(fresh.longAverage(), narrower.longAverage());
+    }
+
+    @Test
+    void restoredStateKeepsItsPriceScale() {
+        FixedPointMarketState original = new FixedPointMarketState(2, 3, Clock.systemUTC());
+        for (int i = 0; i < 3; i++) original.update(FixedPoint.toScaled(new BigDecimal("100.01")), 2);
+
+        FixedPointMarketState restored = FixedPointMarketState.restore(ByteBuffer.wrap(original.capture()), 2, 3, Clock.systemUTC());
+        long price = FixedPoint.toScaled(new BigDecimal("100.02"));
+        original.update(price, 2);
+        restored.update(price, 2);
+        assertEquals(2, restored.scale());
+        assertEquals(FixedPoint.toScaled(new BigDecimal("100.02")), restored.shortAverage()); // 100.015 rounds up
+        assertEquals(original.longAverage(), restored.longAverage());
+    }
+}
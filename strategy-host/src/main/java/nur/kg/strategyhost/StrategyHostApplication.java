@@ -0,0 +1,14 @@
+package nur.kg.strategyhost;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+// the bots' service packages only contribute their strategy factories here, their application classes stay out
+@SpringBootApplication(scanBasePackages = {"nur.kg.cryptobot", "nur.kg.smabot.service", "nur.kg.rsibot.service", "nur.kg.strategyhost"})
+public class StrategyHostApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(StrategyHostApplication.class, args);
+    }
+
+}
@@ -0,0 +1,13 @@
+package nur.kg.strategyhost;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class StrategyHostApplicationTests {
+
+    @Test
+    void contextLoads() {
+    }
+
+}